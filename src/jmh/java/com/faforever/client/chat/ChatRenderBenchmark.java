@@ -0,0 +1,188 @@
+package com.faforever.client.chat;
+
+import com.faforever.client.audio.AudioService;
+import com.faforever.client.chat.history.ChatHistoryService;
+import com.faforever.client.fx.JavaFxBenchmarks;
+import com.faforever.client.fx.WebViewConfigurer;
+import com.faforever.client.i18n.I18n;
+import com.faforever.client.notification.NotificationService;
+import com.faforever.client.player.Player;
+import com.faforever.client.player.PlayerBuilder;
+import com.faforever.client.player.PlayerService;
+import com.faforever.client.preferences.Preferences;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.reporting.ReportingService;
+import com.faforever.client.theme.ThemeTemplate;
+import com.faforever.client.theme.UiService;
+import com.faforever.client.ui.StageHolder;
+import com.faforever.client.uploader.ImageUploadService;
+import com.faforever.client.user.UserService;
+import com.faforever.client.util.TimeService;
+import com.google.common.eventbus.EventBus;
+import javafx.concurrent.Worker;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputControl;
+import javafx.scene.web.WebView;
+import javafx.stage.Stage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Renders the HTML of generated chat messages with {@link AbstractChatTabController}, on the JavaFX application thread
+ * and with a loaded chat web view, since links are detected by a script.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw"})
+@State(Scope.Benchmark)
+public class ChatRenderBenchmark {
+
+  private static final int MESSAGES = 100;
+  private static final int PLAYERS = 20;
+  /** Like in a busy channel, a new section is started for every few messages. */
+  private static final int MESSAGES_PER_SECTION = 4;
+
+  private AbstractChatTabController controller;
+  private List<ChatMessage> messages;
+  private ThemeTemplate sectionTemplate;
+  private ThemeTemplate textTemplate;
+
+  @Setup
+  public void setUp() throws Exception {
+    JavaFxBenchmarks.startPlatform();
+
+    Random random = new Random(0);
+    Map<String, Player> playersByName = new HashMap<>();
+    for (int i = 0; i < PLAYERS; i++) {
+      Player player = PlayerBuilder.create("Player" + i).defaultValues().get();
+      player.setClan(i % 2 == 0 ? "CLN" + i : null);
+      player.setCountry("CH");
+      playersByName.put(player.getUsername(), player);
+    }
+    messages = new ArrayList<>(MESSAGES);
+    for (int i = 0; i < MESSAGES; i++) {
+      String text = i % 10 == 0
+          ? "see https://www.faforever.com/news and join #aeolus, junit <3"
+          : "gg wp, that was a close one & I'd play again " + random.nextInt();
+      messages.add(new ChatMessage("#aeolus", Instant.now(), "Player" + random.nextInt(PLAYERS), text, i % 25 == 0));
+    }
+
+    sectionTemplate = ThemeTemplate.load(new ClassPathResource(UiService.CHAT_SECTION_EXTENDED).getURL());
+    textTemplate = ThemeTemplate.load(new ClassPathResource(UiService.CHAT_TEXT_EXTENDED).getURL());
+    controller = JavaFxBenchmarks.callOnApplicationThread(() -> createController(playersByName));
+
+    CountDownLatch loadedLatch = new CountDownLatch(1);
+    JavaFxBenchmarks.callOnApplicationThread(() -> {
+      Worker<Void> loadWorker = controller.getMessagesWebView().getEngine().getLoadWorker();
+      if (loadWorker.getState() == Worker.State.SUCCEEDED) {
+        loadedLatch.countDown();
+      }
+      loadWorker.stateProperty().addListener((observable, oldValue, newValue) -> {
+        if (newValue == Worker.State.SUCCEEDED) {
+          loadedLatch.countDown();
+        }
+      });
+      return null;
+    });
+    loadedLatch.await(60, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES)
+  public void renderMessages(Blackhole blackhole) throws Exception {
+    JavaFxBenchmarks.callOnApplicationThread(() -> {
+      for (int i = 0; i < messages.size(); i++) {
+        ChatMessage message = messages.get(i);
+        if (i % MESSAGES_PER_SECTION == 0) {
+          blackhole.consume(controller.renderHtml(message, sectionTemplate, i));
+        }
+        blackhole.consume(controller.renderHtml(message, textTemplate, null));
+      }
+      return null;
+    });
+  }
+
+  private AbstractChatTabController createController(Map<String, Player> playersByName) {
+    StageHolder.setStage(new Stage());
+
+    UserService userService = stub(UserService.class);
+    when(userService.getUsername()).thenReturn("junit");
+    PreferencesService preferencesService = stub(PreferencesService.class);
+    when(preferencesService.getPreferences()).thenReturn(new Preferences());
+    PlayerService playerService = stub(PlayerService.class);
+    when(playerService.getPlayerForUsername(anyString()))
+        .thenAnswer(invocation -> Optional.ofNullable(playersByName.get(invocation.<String>getArgument(0))));
+    TimeService timeService = stub(TimeService.class);
+    when(timeService.asShortTime(any())).thenReturn("13:37");
+    I18n i18n = stub(I18n.class);
+    when(i18n.get(eq("chat.clanTagFormat"), any())).thenAnswer(invocation -> "[" + invocation.getArgument(1) + "]");
+    UiService uiService = stub(UiService.class);
+    when(uiService.getThemeFileUrl(anyString())).thenAnswer(invocation -> new ClassPathResource(invocation.getArgument(0)).getURL());
+    CountryFlagService countryFlagService = stub(CountryFlagService.class);
+    when(countryFlagService.getCountryFlagUrl(anyString()))
+        .thenAnswer(invocation -> Optional.of(new URL("file:/flags/" + invocation.getArgument(0) + ".png")));
+
+    AbstractChatTabController controller = new AbstractChatTabController(stub(WebViewConfigurer.class), userService,
+        stub(ChatService.class), preferencesService, playerService, stub(AudioService.class), timeService, i18n,
+        stub(ImageUploadService.class), stub(NotificationService.class), stub(ReportingService.class), uiService,
+        stub(EventBus.class), countryFlagService, stub(ChatHistoryService.class)) {
+      private final Tab root = new Tab();
+      private final WebView webView = new WebView();
+      private final TextInputControl messageTextField = new TextField();
+
+      @Override
+      public Tab getRoot() {
+        return root;
+      }
+
+      @Override
+      protected TextInputControl messageTextField() {
+        return messageTextField;
+      }
+
+      @Override
+      protected WebView getMessagesWebView() {
+        return webView;
+      }
+    };
+    controller.initialize();
+    return controller;
+  }
+
+  /** Mocks that don't record invocations, so that they don't distort the results. */
+  private static <T> T stub(Class<T> type) {
+    return mock(type, withSettings().stubOnly());
+  }
+}
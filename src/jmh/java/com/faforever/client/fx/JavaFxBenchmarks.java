@@ -0,0 +1,47 @@
+package com.faforever.client.fx;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Helps benchmarks that need the JavaFX application thread. Such benchmarks should be forked with {@code
+ * -Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw} so that they run on machines without a
+ * display.
+ */
+public final class JavaFxBenchmarks {
+
+  private static final long TIMEOUT_SECONDS = 60;
+
+  private static boolean started;
+
+  private JavaFxBenchmarks() {
+    throw new AssertionError("Not instantiatable");
+  }
+
+  /**
+   * Starts the JavaFX platform, unless it is already running.
+   */
+  public static synchronized void startPlatform() throws InterruptedException {
+    if (started) {
+      return;
+    }
+    CountDownLatch startLatch = new CountDownLatch(1);
+    Platform.startup(startLatch::countDown);
+    Platform.setImplicitExit(false);
+    startLatch.await();
+    started = true;
+  }
+
+  /**
+   * Runs the specified supplier on the JavaFX application thread and waits for its result.
+   */
+  public static <T> T callOnApplicationThread(Supplier<T> supplier) throws InterruptedException, ExecutionException, TimeoutException {
+    return CompletableFuture.supplyAsync(supplier, Platform::runLater).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+}
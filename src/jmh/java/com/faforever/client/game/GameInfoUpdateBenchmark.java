@@ -0,0 +1,155 @@
+package com.faforever.client.game;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.discord.DiscordRichPresenceService;
+import com.faforever.client.fa.ForgedAllianceService;
+import com.faforever.client.fa.relay.ice.IceAdapter;
+import com.faforever.client.fx.JavaFxBenchmarks;
+import com.faforever.client.fx.PlatformService;
+import com.faforever.client.i18n.I18n;
+import com.faforever.client.map.MapService;
+import com.faforever.client.mod.ModService;
+import com.faforever.client.notification.NotificationService;
+import com.faforever.client.patch.GameUpdater;
+import com.faforever.client.player.Player;
+import com.faforever.client.player.PlayerBuilder;
+import com.faforever.client.player.PlayerService;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.remote.FafService;
+import com.faforever.client.remote.ReconnectTimerService;
+import com.faforever.client.remote.domain.GameInfoMessage;
+import com.faforever.client.remote.domain.GameStatus;
+import com.faforever.client.replay.ReplayServer;
+import com.faforever.client.reporting.ReportingService;
+import com.google.common.eventbus.EventBus;
+import javafx.beans.property.SimpleObjectProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Replays synthetic game updates into {@link GameService} from a background thread, like the lobby connection does,
+ * and measures the time until all of them have been applied on the JavaFX application thread. Run with {@code -prof gc}
+ * to see the allocations, which mostly happen on the application thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw"})
+@State(Scope.Benchmark)
+public class GameInfoUpdateBenchmark {
+
+  private static final int GAMES = 500;
+  private static final int UPDATES = 5_000;
+  private static final int PLAYERS = 2_000;
+
+  private final Map<String, Player> playersByName = new HashMap<>();
+  private final List<GameInfoMessage> updates = new ArrayList<>();
+  private final AtomicReference<Consumer<GameInfoMessage>> listener = new AtomicReference<>();
+  private GameService gameService;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    JavaFxBenchmarks.startPlatform();
+    generateUpdates();
+  }
+
+  /**
+   * Every invocation starts with a new service, so that all games are created anew instead of only being updated.
+   */
+  @Setup(Level.Invocation)
+  public void resetGameService() {
+    gameService = createGameService(listener);
+  }
+
+  @Benchmark
+  public void applyUpdates() throws Exception {
+    updates.forEach(listener.get());
+
+    // Runnables are executed in order, so once this one ran, all updates have been applied
+    JavaFxBenchmarks.callOnApplicationThread(() -> null);
+    if (gameService.getGames().isEmpty()) {
+      throw new IllegalStateException("No game has been applied");
+    }
+  }
+
+  private void generateUpdates() {
+    Random random = new Random(0);
+    for (int i = 0; i < PLAYERS; i++) {
+      Player player = PlayerBuilder.create("Player" + i).defaultValues().get();
+      player.setGlobalRatingMean(500 + random.nextInt(2000));
+      player.setGlobalRatingDeviation(50 + random.nextInt(200));
+      playersByName.put(player.getUsername(), player);
+    }
+
+    for (int i = 0; i < UPDATES; i++) {
+      int uid = i % GAMES;
+      int numPlayers = 1 + random.nextInt(8);
+      GameInfoMessageBuilder builder = GameInfoMessageBuilder.create(uid).defaultValues()
+          .title("Game " + uid)
+          .numPlayers(numPlayers)
+          .maxPlayers(8)
+          .state(i >= UPDATES - GAMES / 10 && uid % 10 == 0 ? GameStatus.CLOSED : GameStatus.OPEN);
+      for (int player = 0; player < numPlayers; player++) {
+        builder.addTeamMember(String.valueOf(player % 2 + 1), "Player" + ((uid * 8 + player) % PLAYERS));
+      }
+      updates.add(builder.get());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private GameService createGameService(AtomicReference<Consumer<GameInfoMessage>> listener) {
+    FafService fafService = stub(FafService.class);
+    when(fafService.connectionStateProperty()).thenReturn(new SimpleObjectProperty<>());
+    doAnswer(invocation -> {
+      listener.set(invocation.getArgument(1));
+      return null;
+    }).when(fafService).addOnMessageListener(eq(GameInfoMessage.class), any(Consumer.class));
+
+    PlayerService playerService = stub(PlayerService.class);
+    when(playerService.getCurrentPlayer()).thenReturn(Optional.empty());
+    when(playerService.getPlayerForUsername(anyString()))
+        .thenAnswer(invocation -> Optional.ofNullable(playersByName.get(invocation.<String>getArgument(0))));
+
+    GameService gameService = new GameService(new ClientProperties(), fafService, stub(ForgedAllianceService.class),
+        stub(MapService.class), stub(PreferencesService.class), stub(GameUpdater.class), stub(NotificationService.class),
+        stub(I18n.class), stub(ExecutorService.class), playerService, stub(ReportingService.class), new EventBus(),
+        stub(IceAdapter.class), stub(ModService.class), stub(PlatformService.class),
+        stub(DiscordRichPresenceService.class), stub(ReplayServer.class), stub(ReconnectTimerService.class));
+    gameService.afterPropertiesSet();
+    return gameService;
+  }
+
+  /** Mocks that don't record invocations, so that they don't distort the allocation numbers. */
+  private static <T> T stub(Class<T> type) {
+    return mock(type, withSettings().stubOnly());
+  }
+}
@@ -0,0 +1,97 @@
+package com.faforever.client.mod;
+
+import com.faforever.client.fx.PlatformService;
+import com.faforever.client.i18n.I18n;
+import com.faforever.client.mod.ModVersion.ModType;
+import com.faforever.client.notification.NotificationService;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.remote.AssetService;
+import com.faforever.client.remote.FafService;
+import com.faforever.client.task.TaskService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationContext;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Simulates scrolling through the mod vault while 1,000 mods are installed. Every card that is shown asks whether its
+ * mod is installed, and the cards of installed mods also look up the mod's folder. Half of the vault's mods are
+ * installed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModServiceBenchmark {
+
+  private static final int INSTALLED_MODS = 1_000;
+  private static final int VAULT_MODS = 2 * INSTALLED_MODS;
+
+  private final List<ModVersion> vaultMods = new ArrayList<>();
+  private ModService modService;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    modService = new ModService(stub(FafService.class), stub(PreferencesService.class), stub(TaskService.class),
+        stub(ApplicationContext.class), stub(NotificationService.class), stub(I18n.class), stub(PlatformService.class),
+        stub(AssetService.class));
+
+    Path modsDirectory = Paths.get("mods");
+    for (int i = 0; i < VAULT_MODS; i++) {
+      ModVersion modVersion = new ModVersion();
+      modVersion.setUid("mod-" + i);
+      modVersion.setDisplayName("Mod " + i);
+      modVersion.setModType(i % 5 == 0 ? ModType.UI : ModType.SIM);
+      vaultMods.add(modVersion);
+      // Every other vault mod is installed
+      if (i % 2 == 0) {
+        modService.addMod(modsDirectory.resolve("mod_" + i), modVersion);
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VAULT_MODS)
+  public int scrollVault() {
+    int installed = 0;
+    for (ModVersion modVersion : vaultMods) {
+      if (modService.isModInstalled(modVersion.getUid()) && modService.getPathForMod(modVersion) != null) {
+        installed++;
+      }
+    }
+    if (installed != INSTALLED_MODS) {
+      throw new IllegalStateException(installed + " instead of " + INSTALLED_MODS + " mods are installed");
+    }
+    return installed;
+  }
+
+  @Benchmark
+  public int getInstalledUiModUids() {
+    return modService.getInstalledUiModsUids().size();
+  }
+
+  /** Mocks that don't record invocations, so that they don't distort the allocation numbers. */
+  private static <T> T stub(Class<T> type) {
+    return mock(type, withSettings().stubOnly());
+  }
+}
@@ -0,0 +1,146 @@
+package com.faforever.client.player;
+
+import com.faforever.client.game.Game;
+import com.faforever.client.game.GameAddedEvent;
+import com.faforever.client.game.GameUpdatedEvent;
+import com.faforever.client.remote.FafService;
+import com.faforever.client.remote.domain.GameStatus;
+import com.faforever.client.user.UserService;
+import com.google.common.eventbus.EventBus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Applies game updates with changing teams to a {@link PlayerService} that knows a typical number of online players
+ * and games, and measures the cost per update. After each iteration, the game of every player is checked against the
+ * teams of the games.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlayerServiceBenchmark {
+
+  private static final int PLAYERS = 15_000;
+  private static final int GAMES = 2_000;
+  /** Every game has its own players, so that the expected game of each player is unambiguous. */
+  private static final int SLOTS_PER_GAME = 7;
+  private static final int UPDATES = 10_000;
+  private static final int FRIENDS = 500;
+
+  private final List<Player> players = new ArrayList<>();
+  private final List<Game> games = new ArrayList<>();
+  private final List<Update> updates = new ArrayList<>();
+  private PlayerService playerService;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    playerService = new PlayerService(stub(FafService.class), stub(UserService.class), new EventBus());
+    playerService.afterPropertiesSet();
+
+    Random random = new Random(0);
+    for (int i = 0; i < PLAYERS; i++) {
+      Player player = playerService.createAndGetPlayerForUsername("Player" + i);
+      player.setId(i + 1);
+      players.add(player);
+    }
+    for (int i = 0; i < FRIENDS; i++) {
+      playerService.addFriend(players.get(random.nextInt(PLAYERS)));
+    }
+
+    for (int i = 0; i < GAMES; i++) {
+      Game game = new Game();
+      game.setId(i + 1);
+      game.setStatus(GameStatus.OPEN);
+      game.setFeaturedMod("faf");
+      game.setHost("Player" + i * SLOTS_PER_GAME);
+      game.getTeams().putAll(randomTeams(random, i));
+      games.add(game);
+      playerService.onGameAdded(new GameAddedEvent(game));
+    }
+
+    for (int i = 0; i < UPDATES; i++) {
+      int gameIndex = random.nextInt(GAMES);
+      updates.add(new Update(games.get(gameIndex), randomTeams(random, gameIndex)));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(UPDATES)
+  public void applyGameUpdates() {
+    for (Update update : updates) {
+      Game game = update.game;
+      game.getTeams().clear();
+      game.getTeams().putAll(update.teams);
+      playerService.onGameUpdated(new GameUpdatedEvent(game));
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void verify() {
+    Map<Player, Game> expectedGames = new HashMap<>();
+    for (Game game : games) {
+      game.getTeams().values().forEach(team -> team.forEach(username ->
+          expectedGames.put(playerService.getPlayerForUsername(username).orElseThrow(), game)));
+    }
+    for (Player player : players) {
+      if (player.getGame() != expectedGames.get(player)) {
+        throw new IllegalStateException("Player " + player.getUsername() + " is in game " + player.getGame()
+            + " instead of " + expectedGames.get(player));
+      }
+    }
+  }
+
+  private static Map<String, List<String>> randomTeams(Random random, int gameIndex) {
+    Map<String, List<String>> teams = new HashMap<>();
+    Set<String> usernames = new HashSet<>();
+    int numPlayers = 1 + random.nextInt(SLOTS_PER_GAME);
+    for (int slot = 0; slot < numPlayers; slot++) {
+      String username = "Player" + (gameIndex * SLOTS_PER_GAME + random.nextInt(SLOTS_PER_GAME));
+      if (usernames.add(username)) {
+        teams.computeIfAbsent(String.valueOf(slot % 2 + 1), key -> new ArrayList<>()).add(username);
+      }
+    }
+    return teams;
+  }
+
+  /** Mocks that don't record invocations, so that they don't distort the allocation numbers. */
+  private static <T> T stub(Class<T> type) {
+    return mock(type, withSettings().stubOnly());
+  }
+
+  private static class Update {
+    private final Game game;
+    private final Map<String, List<String>> teams;
+
+    private Update(Game game, Map<String, List<String>> teams) {
+      this.game = game;
+      this.teams = teams;
+    }
+  }
+}
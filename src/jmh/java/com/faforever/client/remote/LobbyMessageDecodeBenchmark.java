@@ -0,0 +1,99 @@
+package com.faforever.client.remote;
+
+import com.faforever.client.fa.relay.GpgServerMessageType;
+import com.faforever.client.fa.relay.LobbyMode;
+import com.faforever.client.game.Faction;
+import com.faforever.client.remote.domain.ClientMessageType;
+import com.faforever.client.remote.domain.FafServerMessageType;
+import com.faforever.client.remote.domain.GameAccess;
+import com.faforever.client.remote.domain.GameStatus;
+import com.faforever.client.remote.domain.MessageTarget;
+import com.faforever.client.remote.domain.RatingRange;
+import com.faforever.client.remote.domain.VictoryCondition;
+import com.faforever.client.remote.gson.ClientMessageTypeTypeAdapter;
+import com.faforever.client.remote.gson.FactionTypeAdapter;
+import com.faforever.client.remote.gson.GameAccessTypeAdapter;
+import com.faforever.client.remote.gson.GameStateTypeAdapter;
+import com.faforever.client.remote.gson.GpgServerMessageTypeTypeAdapter;
+import com.faforever.client.remote.gson.LobbyModeTypeAdapter;
+import com.faforever.client.remote.gson.MessageTargetTypeAdapter;
+import com.faforever.client.remote.gson.RatingRangeTypeAdapter;
+import com.faforever.client.remote.gson.ServerMessageTypeTypeAdapter;
+import com.faforever.client.remote.gson.VictoryConditionTypeAdapter;
+import com.faforever.client.remote.io.QDataInputStream;
+import com.faforever.client.remote.io.QStringBuffer;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and decodes all frames of the recorded lobby session in {@code /remote/lobby-session.qdata} the way {@link
+ * AbstractServerAccessor} and {@link FafServerAccessorImpl} do, from memory instead of a socket.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LobbyMessageDecodeBenchmark {
+
+  private static final String CAPTURE = "/remote/lobby-session.qdata";
+
+  private byte[] capture;
+  private ServerMessageDecoder decoder;
+  private QStringBuffer frame;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream inputStream = LobbyMessageDecodeBenchmark.class.getResourceAsStream(CAPTURE)) {
+      capture = inputStream.readAllBytes();
+    }
+    // Configured like the one in FafServerAccessorImpl
+    Gson gson = new GsonBuilder()
+        .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+        .registerTypeAdapter(VictoryCondition.class, VictoryConditionTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GameStatus.class, GameStateTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GameAccess.class, GameAccessTypeAdapter.INSTANCE)
+        .registerTypeAdapter(ClientMessageType.class, ClientMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(FafServerMessageType.class, ServerMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GpgServerMessageType.class, GpgServerMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(MessageTarget.class, MessageTargetTypeAdapter.INSTANCE)
+        .registerTypeAdapter(RatingRange.class, RatingRangeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(Faction.class, FactionTypeAdapter.INSTANCE)
+        .registerTypeAdapter(LobbyMode.class, LobbyModeTypeAdapter.INSTANCE)
+        .create();
+    decoder = new ServerMessageDecoder(gson);
+    frame = new QStringBuffer();
+  }
+
+  @Benchmark
+  public void decodeSession(Blackhole blackhole) throws IOException {
+    DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(capture));
+    QDataInputStream dataInput = new QDataInputStream(dataInputStream);
+    while (dataInputStream.available() > 0) {
+      dataInput.skipBlockSize();
+      dataInput.readQString(frame);
+      if (!frame.isNull() && frame.length() > 0 && frame.charAt(0) == '{') {
+        blackhole.consume(decoder.decode(frame));
+      }
+    }
+  }
+}
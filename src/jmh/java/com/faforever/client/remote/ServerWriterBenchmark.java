@@ -0,0 +1,97 @@
+package com.faforever.client.remote;
+
+import com.faforever.client.fa.relay.GpgClientCommand;
+import com.faforever.client.fa.relay.GpgClientMessageSerializer;
+import com.faforever.client.fa.relay.GpgGameMessage;
+import com.faforever.client.game.GameVisibility;
+import com.faforever.client.remote.domain.ClientMessage;
+import com.faforever.client.remote.domain.GameAccess;
+import com.faforever.client.remote.domain.HostGameMessage;
+import com.faforever.client.remote.domain.JoinGameMessage;
+import com.faforever.client.remote.domain.SerializableMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes a mix of lobby and game messages through {@link ServerWriter} into a stream that discards everything, once
+ * from a single thread and once from four threads sharing the writer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerWriterBenchmark {
+
+  private static final int MESSAGES = 100;
+
+  private ServerWriter serverWriter;
+  private List<SerializableMessage> messages;
+
+  @Setup
+  public void setUp() {
+    serverWriter = new ServerWriter(OutputStream.nullOutputStream());
+    serverWriter.registerMessageSerializer(new ClientMessageSerializer(), ClientMessage.class);
+    serverWriter.registerMessageSerializer(new StringSerializer(), String.class);
+    serverWriter.registerMessageSerializer(new GpgClientMessageSerializer(), GpgGameMessage.class);
+
+    messages = new ArrayList<>(MESSAGES);
+    for (int i = 0; i < MESSAGES; i++) {
+      switch (i % 4) {
+        case 0:
+          messages.add(new GpgGameMessage(GpgClientCommand.GAME_STATE, List.of("Lobby")));
+          break;
+        case 1:
+          messages.add(new GpgGameMessage(GpgClientCommand.CHAT, Arrays.asList("Player" + i, i, true, "gg \"wp\"")));
+          break;
+        case 2:
+          messages.add(new JoinGameMessage(i, "password " + i));
+          break;
+        default:
+          messages.add(new HostGameMessage(GameAccess.PASSWORD, "scmp_007", "Game " + i + ": \"all welcome\" ★",
+              new boolean[0], "faf", "secret", null, GameVisibility.PUBLIC, 100, null, true));
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    serverWriter.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES)
+  public void write() {
+    for (SerializableMessage message : messages) {
+      serverWriter.write(message);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES)
+  @Threads(4)
+  public void writeConcurrently() {
+    for (SerializableMessage message : messages) {
+      serverWriter.write(message);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.faforever.client.replay;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the replay in {@code /replay/test.fafreplay}: its JSON header, its decompressed replay data and the parsed
+ * replay data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayFileReaderBenchmark {
+
+  private ReplayFileReaderImpl replayFileReader;
+  private Path replayFile;
+
+  @Setup
+  public void setUp() throws IOException {
+    replayFileReader = new ReplayFileReaderImpl();
+    replayFile = Files.createTempFile("benchmark", ".fafreplay");
+    try (InputStream inputStream = ReplayFileReaderBenchmark.class.getResourceAsStream("/replay/test.fafreplay")) {
+      Files.copy(inputStream, replayFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(replayFile);
+  }
+
+  @Benchmark
+  public Object parseMetaData() {
+    return replayFileReader.parseMetaData(replayFile);
+  }
+
+  @Benchmark
+  public Object readRawReplayData() {
+    return replayFileReader.readRawReplayData(replayFile);
+  }
+
+  @Benchmark
+  public Object parseReplay() {
+    return replayFileReader.parseReplay(replayFile);
+  }
+}
@@ -0,0 +1,103 @@
+package com.faforever.client.util;
+
+import org.luaj.vm2.LuaValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Evaluates generated {@code *_scenario.lua} files like {@link com.faforever.client.map.MapService} does when it reads
+ * installed maps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LuaUtilBenchmark {
+
+  private static final int SCENARIO_FILES = 200;
+
+  private Path directory;
+  private List<Path> scenarioFiles;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("lua-benchmark");
+    scenarioFiles = new ArrayList<>(SCENARIO_FILES);
+    for (int i = 0; i < SCENARIO_FILES; i++) {
+      StringBuilder armies = new StringBuilder();
+      for (int army = 1; army <= i % 8 + 1; army++) {
+        armies.append("'ARMY_").append(army).append("', ");
+      }
+      Path scenarioFile = directory.resolve("map_" + i + "_scenario.lua");
+      Files.write(scenarioFile, ("version = 3\n" +
+          "ScenarioInfo = {\n" +
+          "    name = 'Generated map " + i + "',\n" +
+          "    description = '<LOC map_" + i + "_Description>A map that has been generated for benchmarking',\n" +
+          "    type = 'skirmish',\n" +
+          "    starts = true,\n" +
+          "    size = { " + (256 << i % 4) + ", " + (256 << i % 3) + " },\n" +
+          "    map_version = " + (i % 7 + 1) + ",\n" +
+          "    norushradius = 90.000000,\n" +
+          "    Configurations = {\n" +
+          "        ['standard'] = {\n" +
+          "            teams = {\n" +
+          "                { name = 'FFA', armies = { " + armies + "} },\n" +
+          "            },\n" +
+          "            customprops = {\n" +
+          "                ['ExtraArmies'] = STRING('ARMY_17 NEUTRAL_CIVILIAN'),\n" +
+          "            },\n" +
+          "        },\n" +
+          "    }\n" +
+          "}\n").getBytes(UTF_8));
+      scenarioFiles.add(scenarioFile);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public LuaValue loadScenario() throws IOException {
+    return LuaUtil.loadFile(randomScenarioFile()).get("ScenarioInfo");
+  }
+
+  @Benchmark
+  @Threads(4)
+  public LuaValue loadScenarioConcurrently() throws IOException {
+    return LuaUtil.loadFile(randomScenarioFile()).get("ScenarioInfo");
+  }
+
+  private Path randomScenarioFile() {
+    return scenarioFiles.get(ThreadLocalRandom.current().nextInt(scenarioFiles.size()));
+  }
+}
@@ -1,6 +1,7 @@
 package com.faforever.client.chat;
 
 import com.faforever.client.audio.AudioService;
+import com.faforever.client.chat.history.ChatHistoryService;
 import com.faforever.client.fx.Controller;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.fx.WebViewConfigurer;
@@ -13,6 +14,7 @@ import com.faforever.client.player.Player;
 import com.faforever.client.player.PlayerService;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.reporting.ReportingService;
+import com.faforever.client.theme.ThemeTemplate;
 import com.faforever.client.theme.UiService;
 import com.faforever.client.ui.StageHolder;
 import com.faforever.client.uploader.ImageUploadService;
@@ -21,9 +23,10 @@ import com.faforever.client.util.ConcurrentUtil;
 import com.faforever.client.util.IdenticonUtil;
 import com.faforever.client.util.TimeService;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Joiner;
 import com.google.common.eventbus.EventBus;
 import com.google.common.io.CharStreams;
+import com.google.gson.Gson;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -45,7 +48,9 @@ import javafx.scene.paint.Color;
 import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
 import javafx.stage.Stage;
+import lombok.Value;
 import netscape.javascript.JSObject;
+import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -59,9 +64,13 @@ import java.io.Reader;
 import java.lang.invoke.MethodHandles;
 import java.net.URL;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -71,7 +80,6 @@ import static com.faforever.client.theme.UiService.CHAT_SECTION_COMPACT;
 import static com.faforever.client.theme.UiService.CHAT_SECTION_EXTENDED;
 import static com.faforever.client.theme.UiService.CHAT_TEXT_COMPACT;
 import static com.faforever.client.theme.UiService.CHAT_TEXT_EXTENDED;
-import static com.github.nocatch.NoCatch.noCatch;
 import static com.google.common.html.HtmlEscapers.htmlEscaper;
 import static java.time.temporal.ChronoUnit.MINUTES;
 import static java.util.regex.Pattern.CASE_INSENSITIVE;
@@ -109,6 +117,14 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
    */
   private static final String ACTION_CSS_CLASS = "action";
   private static final String MESSAGE_CSS_CLASS = "message";
+  /**
+   * Number of messages loaded from the chat history at once.
+   */
+  private static final int HISTORY_PAGE_SIZE = 100;
+  /**
+   * Name of the JavaScript member that refers to this controller.
+   */
+  private static final String CHAT_TAB_REFERENCE_IN_JAVASCRIPT = "chatTab";
   protected final UserService userService;
   protected final ChatService chatService;
   protected final PreferencesService preferencesService;
@@ -123,18 +139,49 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
   protected final WebViewConfigurer webViewConfigurer;
   private final ImageUploadService imageUploadService;
   private final CountryFlagService countryFlagService;
+  private final ChatHistoryService chatHistoryService;
 
   /**
-   * Messages that arrived before the web view was ready. Those are appended as soon as it is ready.
+   * Messages that have not been appended to the web view yet, either because it isn't ready yet or because they arrived
+   * since the last pulse. Only the messages of the last {@code maxMessages} chat sections are kept, since the script
+   * would trim the others right away.
+   */
+  private final Deque<ChatMessage> pendingMessages;
+  /**
+   * Mentions that have not been reported yet, including the ones of pending messages that have been dropped.
    */
-  private final List<ChatMessage> waitingMessages;
+  private final List<ChatMessage> pendingMentions;
+  /**
+   * The time of the first message of each chat section in the web view, by section ID. Includes the sections the web
+   * view holds back while the user reads older messages.
+   */
+  private final Map<Integer, Instant> sectionTimes;
   private final IntegerProperty unreadMessagesCount;
   private final ChangeListener<Boolean> resetUnreadMessagesListener;
   private final ChangeListener<Number> zoomChangeListener;
   private final ChangeListener<Boolean> tabPaneFocusedListener;
   private final ChangeListener<Boolean> stageFocusedListener;
+  private final Gson gson;
   private int lastEntryId;
+  /**
+   * The ID of the chat section new messages are appended to.
+   */
+  private int lastSectionId;
   private boolean isChatReady;
+  private boolean historyLoading;
+  /**
+   * Whether all messages of the chat history are displayed.
+   */
+  private boolean historyExhausted;
+  private boolean flushScheduled;
+  /** The number of chat sections the pending messages start. */
+  private int pendingSectionCount;
+  /** Whether pending messages have been dropped since the last flush. */
+  private boolean pendingMessagesDropped;
+  /**
+   * Appends all pending messages at the next pulse, so that a burst of messages is inserted at once.
+   */
+  private AnimationTimer pendingMessagesFlusher;
   /**
    * Either a channel like "#aeolus" or a user like "Visionik".
    */
@@ -152,7 +199,8 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
                                    TimeService timeService, I18n i18n,
                                    ImageUploadService imageUploadService,
                                    NotificationService notificationService, ReportingService reportingService, UiService uiService,
-                                   EventBus eventBus, CountryFlagService countryFlagService) {
+                                   EventBus eventBus, CountryFlagService countryFlagService,
+                                   ChatHistoryService chatHistoryService) {
 
     this.webViewConfigurer = webViewConfigurer;
     this.uiService = uiService;
@@ -168,8 +216,12 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
     this.reportingService = reportingService;
     this.eventBus = eventBus;
     this.countryFlagService = countryFlagService;
+    this.chatHistoryService = chatHistoryService;
 
-    waitingMessages = new ArrayList<>();
+    pendingMessages = new ArrayDeque<>();
+    pendingMentions = new ArrayList<>();
+    sectionTimes = new HashMap<>();
+    gson = new Gson();
     unreadMessagesCount = new SimpleIntegerProperty();
     resetUnreadMessagesListener = (observable, oldValue, newValue) -> {
       if (hasFocus()) {
@@ -334,6 +386,14 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
 
     messagesWebView.zoomProperty().addListener(new WeakChangeListener<>(zoomChangeListener));
 
+    pendingMessagesFlusher = new AnimationTimer() {
+      @Override
+      public void handle(long now) {
+        stop();
+        flushPendingMessages();
+      }
+    };
+
     configureBrowser(messagesWebView);
     loadChatContainer();
   }
@@ -371,12 +431,13 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
       if (newValue != Worker.State.SUCCEEDED) {
         return;
       }
-      synchronized (waitingMessages) {
-        waitingMessages.forEach(AbstractChatTabController.this::addMessage);
-        waitingMessages.clear();
+      synchronized (pendingMessages) {
         isChatReady = true;
-        onWebViewLoaded();
       }
+      getJsObject().setMember(CHAT_TAB_REFERENCE_IN_JAVASCRIPT, this);
+      flushPendingMessages();
+      loadOlderMessages();
+      onWebViewLoaded();
     });
   }
 
@@ -450,98 +511,209 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
         });
   }
 
-  protected void onChatMessage(ChatMessage chatMessage) {
-    synchronized (waitingMessages) {
-      if (!isChatReady) {
-        waitingMessages.add(chatMessage);
-      } else {
-        Platform.runLater(() -> {
-          addMessage(chatMessage);
-          removeTopmostMessages();
-          scrollToBottomIfDesired();
-        });
+  /**
+   * Queues a message to be appended to the web view at the next pulse. May be called from any thread. Mentions are
+   * detected right away, so they're reported even if the message is dropped because too many messages are pending.
+   */
+  public void onChatMessage(ChatMessage chatMessage) {
+    boolean mention = isMention(chatMessage);
+    synchronized (pendingMessages) {
+      addPendingMessage(chatMessage);
+      if (mention) {
+        pendingMentions.add(chatMessage);
+      }
+      if ((isChatReady || mention) && !flushScheduled) {
+        flushScheduled = true;
+        Platform.runLater(() -> pendingMessagesFlusher.start());
       }
     }
   }
 
-  private void scrollToBottomIfDesired() {
-    engine.executeScript("scrollToBottomIfDesired()");
+  protected boolean isMention(ChatMessage chatMessage) {
+    return mentionPattern.matcher(chatMessage.getMessage()).find();
   }
 
-  private void removeTopmostMessages() {
-    int maxMessageItems = preferencesService.getPreferences().getChat().getMaxMessages();
+  /**
+   * Adds a message to the pending messages and drops the oldest chat sections of them if they start more sections than
+   * the web view keeps.
+   */
+  private void addPendingMessage(ChatMessage chatMessage) {
+    ChatMessage previousMessage = pendingMessages.peekLast();
+    if (previousMessage == null || requiresNewChatSection(previousMessage, chatMessage)) {
+      pendingSectionCount++;
+    }
+    pendingMessages.add(chatMessage);
+
+    int maxSections = Math.max(1, preferencesService.getPreferences().getChat().getMaxMessages());
+    while (pendingSectionCount > maxSections) {
+      ChatMessage droppedMessage = pendingMessages.removeFirst();
+      while (!requiresNewChatSection(droppedMessage, pendingMessages.getFirst())) {
+        droppedMessage = pendingMessages.removeFirst();
+      }
+      pendingSectionCount--;
+      pendingMessagesDropped = true;
+    }
+  }
 
-    int numberOfMessages = (int) engine.executeScript("document.getElementsByClassName('" + MESSAGE_ITEM_CLASS + "').length");
-    while (numberOfMessages > maxMessageItems) {
-      engine.executeScript("document.getElementsByClassName('" + MESSAGE_ITEM_CLASS + "')[0].remove()");
-      numberOfMessages--;
+  @VisibleForTesting
+  int getPendingMessageCount() {
+    synchronized (pendingMessages) {
+      return pendingMessages.size();
     }
   }
 
   /**
-   * Either inserts a new chat entry or, if the same user as before sent another message, appends it do the previous
-   * entry.
+   * Reports the pending mentions. Once the web view is ready, also renders all pending messages and appends them with a
+   * single script call, which trims the chat sections if there are more than the user wants to keep.
    */
-  private void addMessage(ChatMessage chatMessage) {
-    noCatch(() -> {
-      if (requiresNewChatSection(chatMessage)) {
-        appendChatMessageSection(chatMessage);
-      } else {
-        appendMessage(chatMessage);
+  private void flushPendingMessages() {
+    List<ChatMessage> mentions;
+    List<ChatMessage> messages = new ArrayList<>();
+    boolean messagesDropped;
+    synchronized (pendingMessages) {
+      mentions = new ArrayList<>(pendingMentions);
+      pendingMentions.clear();
+      messagesDropped = pendingMessagesDropped;
+      if (isChatReady) {
+        messages.addAll(pendingMessages);
+        pendingMessages.clear();
+        pendingSectionCount = 0;
+        pendingMessagesDropped = false;
       }
-      lastMessage = chatMessage;
-    });
+      flushScheduled = false;
+    }
+    mentions.forEach(this::onMention);
+    if (messages.isEmpty()) {
+      return;
+    }
+
+    List<HtmlChunk> htmlChunks = new ArrayList<>();
+    // If messages have been dropped, the first message doesn't continue the section of the last displayed one
+    ChatMessage previousMessage = messagesDropped ? null : lastMessage;
+    lastSectionId = renderMessages(messages, previousMessage, lastSectionId, htmlChunks, sectionTimes);
+    lastMessage = messages.get(messages.size() - 1);
+
+    Object removedSectionIds = getJsObject().call("appendChatMessages", MESSAGE_CONTAINER_ID, MESSAGE_ITEM_CLASS,
+        gson.toJson(htmlChunks), preferencesService.getPreferences().getChat().getMaxMessages());
+    onChatSectionsRemoved((String) removedSectionIds);
+    getMessagesWebView().requestLayout();
   }
 
-  private boolean requiresNewChatSection(ChatMessage chatMessage) {
-    return lastMessage == null
-        || !lastMessage.getUsername().equals(chatMessage.getUsername())
-        || lastMessage.getTime().isBefore(chatMessage.getTime().minus(1, MINUTES))
-        || lastMessage.isAction();
+  /**
+   * Called whenever the web view removed chat sections, with their comma separated IDs.
+   */
+  public void onChatSectionsRemoved(String sectionIds) {
+    if (sectionIds.isEmpty()) {
+      return;
+    }
+    for (String sectionId : sectionIds.split(",")) {
+      sectionTimes.remove(Integer.valueOf(sectionId));
+    }
+    // Removed sections can be loaded again
+    historyExhausted = false;
   }
 
-  private void appendMessage(ChatMessage chatMessage) throws IOException {
-    URL themeFileUrl;
-    if (preferencesService.getPreferences().getChat().getChatFormat() == ChatFormat.COMPACT) {
-      themeFileUrl = uiService.getThemeFileUrl(CHAT_TEXT_COMPACT);
-    } else {
-      themeFileUrl = uiService.getThemeFileUrl(CHAT_TEXT_EXTENDED);
+  /**
+   * Prepends the messages that have been sent before the oldest displayed message, if the chat history contains any.
+   * Called once the web view has been loaded and whenever the user scrolls to the top.
+   */
+  public void loadOlderMessages() {
+    if (historyLoading || historyExhausted || receiver == null) {
+      return;
     }
+    historyLoading = true;
 
-    String html = renderHtml(chatMessage, themeFileUrl, null);
+    Instant before = sectionTimes.values().stream().min(Comparator.naturalOrder()).orElseGet(Instant::now);
+    chatHistoryService.getMessagesBefore(receiver, before, HISTORY_PAGE_SIZE)
+        .thenAcceptAsync(this::prependMessages, JavaFxUtil::runLater)
+        .exceptionally(throwable -> {
+          logger.warn("Chat history of '{}' could not be loaded", receiver, throwable);
+          JavaFxUtil.runLater(() -> historyLoading = false);
+          return null;
+        });
+  }
+
+  private void prependMessages(List<ChatMessage> messages) {
+    historyLoading = false;
+    if (messages.isEmpty()) {
+      historyExhausted = true;
+      return;
+    }
+
+    List<HtmlChunk> htmlChunks = new ArrayList<>();
+    renderMessages(messages, null, 0, htmlChunks, sectionTimes);
 
-    insertIntoContainer(html, "chat-section-" + lastEntryId);
+    Object removedSectionIds = getJsObject().call("prependChatMessages", MESSAGE_CONTAINER_ID, MESSAGE_ITEM_CLASS,
+        gson.toJson(htmlChunks), preferencesService.getPreferences().getChat().getMaxMessages());
+    onChatSectionsRemoved((String) removedSectionIds);
+    getMessagesWebView().requestLayout();
   }
 
-  private void appendChatMessageSection(ChatMessage chatMessage) throws IOException {
-    URL themeFileURL;
-    if (preferencesService.getPreferences().getChat().getChatFormat() == ChatFormat.COMPACT) {
-      themeFileURL = uiService.getThemeFileUrl(CHAT_SECTION_COMPACT);
-    } else {
-      themeFileURL = uiService.getThemeFileUrl(CHAT_SECTION_EXTENDED);
+  /**
+   * Renders messages into HTML chunks. Each message either starts a new chat section or, if the same user as before sent
+   * another message, is appended to the previous section.
+   *
+   * @param previousMessage the message the first message follows, if any
+   * @param sectionId the ID of the section of the previous message
+   * @param newSectionTimes receives the time of the first message of each new section, by section ID
+   * @return the ID of the section of the last message
+   */
+  private int renderMessages(List<ChatMessage> messages, @Nullable ChatMessage previousMessage, int sectionId,
+                             List<HtmlChunk> htmlChunks, Map<Integer, Instant> newSectionTimes) {
+    boolean compact = preferencesService.getPreferences().getChat().getChatFormat() == ChatFormat.COMPACT;
+    ThemeTemplate sectionTemplate = uiService.getThemeTemplate(compact ? CHAT_SECTION_COMPACT : CHAT_SECTION_EXTENDED);
+    ThemeTemplate textTemplate = uiService.getThemeTemplate(compact ? CHAT_TEXT_COMPACT : CHAT_TEXT_EXTENDED);
+
+    for (ChatMessage chatMessage : messages) {
+      if (requiresNewChatSection(previousMessage, chatMessage)) {
+        sectionId = ++lastEntryId;
+        addHtmlChunk(htmlChunks, MESSAGE_CONTAINER_ID, renderHtml(chatMessage, sectionTemplate, sectionId));
+        newSectionTimes.put(sectionId, chatMessage.getTime());
+      }
+      addHtmlChunk(htmlChunks, "chat-section-" + sectionId, renderHtml(chatMessage, textTemplate, null));
+      previousMessage = chatMessage;
     }
+    return sectionId;
+  }
 
-    String html = renderHtml(chatMessage, themeFileURL, ++lastEntryId);
-    insertIntoContainer(html, MESSAGE_CONTAINER_ID);
-    appendMessage(chatMessage);
+  private static boolean requiresNewChatSection(@Nullable ChatMessage previousMessage, ChatMessage chatMessage) {
+    return previousMessage == null
+        || !previousMessage.getUsername().equals(chatMessage.getUsername())
+        || previousMessage.getTime().isBefore(chatMessage.getTime().minus(1, MINUTES))
+        || previousMessage.isAction();
   }
 
-  private String renderHtml(ChatMessage chatMessage, URL themeFileUrl, @Nullable Integer sectionId) throws IOException {
-    String html;
-    try (Reader reader = new InputStreamReader(themeFileUrl.openStream())) {
-      html = CharStreams.toString(reader);
+  /**
+   * Adds HTML to be appended to the element with the specified ID, merging it with the previous chunk if that one is
+   * appended to the same element.
+   */
+  private static void addHtmlChunk(List<HtmlChunk> htmlChunks, String targetId, String html) {
+    if (!htmlChunks.isEmpty()) {
+      HtmlChunk lastChunk = htmlChunks.get(htmlChunks.size() - 1);
+      if (lastChunk.getTargetId().equals(targetId)) {
+        htmlChunks.set(htmlChunks.size() - 1, new HtmlChunk(targetId, lastChunk.getHtml() + html));
+        return;
+      }
     }
+    htmlChunks.add(new HtmlChunk(targetId, html));
+  }
 
+  /**
+   * Fills the template with the values of the specified message. All values are HTML-escaped; the clan tag, which the
+   * templates only pass to scripts, is escaped as a script string literal first.
+   */
+  @VisibleForTesting
+  String renderHtml(ChatMessage chatMessage, ThemeTemplate template, @Nullable Integer sectionId) {
     String login = chatMessage.getUsername();
     String avatarUrl = "";
     String clanTag = "";
     String decoratedClanTag = "";
     String countryFlagUrl = "";
 
-    Optional<Player> playerOptional = playerService.getPlayerForUsername(chatMessage.getUsername());
+    Optional<Player> playerOptional = playerService.getPlayerForUsername(login);
     if (playerOptional.isPresent()) {
       Player player = playerOptional.get();
-      avatarUrl = player.getAvatarUrl();
+      avatarUrl = StringUtils.defaultString(player.getAvatarUrl());
       countryFlagUrl = countryFlagService.getCountryFlagUrl(player.getCountry())
           .map(URL::toString)
           .orElse("");
@@ -552,42 +724,78 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
       }
     }
 
-    String timeString = timeService.asShortTime(chatMessage.getTime());
-    html = html.replace("{time}", timeString)
-        .replace("{avatar}", StringUtils.defaultString(avatarUrl))
-        .replace("{username}", login)
-        .replace("{clan-tag}", clanTag)
-        .replace("{decorated-clan-tag}", decoratedClanTag)
-        .replace("{country-flag}", StringUtils.defaultString(countryFlagUrl))
-        .replace("{section-id}", String.valueOf(sectionId));
-
-    Collection<String> cssClasses = new ArrayList<>();
-    cssClasses.add(String.format("user-%s", chatMessage.getUsername()));
-    if (chatMessage.isAction()) {
-      cssClasses.add(ACTION_CSS_CLASS);
-    } else {
-      cssClasses.add(MESSAGE_CSS_CLASS);
+    String cssClasses = "user-" + login + " " + (chatMessage.isAction() ? ACTION_CSS_CLASS : MESSAGE_CSS_CLASS);
+    String messageCssClass = getMessageCssClass(login);
+    if (StringUtils.isNotEmpty(messageCssClass)) {
+      cssClasses += " " + messageCssClass;
     }
 
-    html = html.replace("{css-classes}", Joiner.on(' ').join(cssClasses));
-
-    Optional.ofNullable(getMessageCssClass(login)).ifPresent(cssClasses::add);
+    String timeString = htmlEscaper().escape(timeService.asShortTime(chatMessage.getTime()));
+    String escapedLogin = htmlEscaper().escape(login);
+    String escapedCssClasses = htmlEscaper().escape(cssClasses);
+    String text = renderText(chatMessage);
+    String inlineStyle = htmlEscaper().escape(getInlineStyle(login));
+    String finalAvatarUrl = htmlEscaper().escape(avatarUrl);
+    String finalClanTag = htmlEscaper().escape(StringEscapeUtils.escapeEcmaScript(clanTag));
+    String finalDecoratedClanTag = htmlEscaper().escape(decoratedClanTag);
+    String finalCountryFlagUrl = htmlEscaper().escape(countryFlagUrl);
+    return template.render(placeholder -> {
+      switch (placeholder) {
+        case "time":
+          return timeString;
+        case "avatar":
+          return finalAvatarUrl;
+        case "username":
+          return escapedLogin;
+        case "clan-tag":
+          return finalClanTag;
+        case "decorated-clan-tag":
+          return finalDecoratedClanTag;
+        case "country-flag":
+          return finalCountryFlagUrl;
+        case "section-id":
+          return String.valueOf(sectionId);
+        case "css-classes":
+          return escapedCssClasses;
+        case "inline-style":
+          return inlineStyle;
+        case "text":
+          return text;
+        default:
+          return null;
+      }
+    });
+  }
 
-    String text = htmlEscaper().escape(chatMessage.getMessage()).replace("\\", "\\\\");
-    text = convertUrlsToHyperlinks(text);
+  private String renderText(ChatMessage chatMessage) {
+    String text = htmlEscaper().escape(chatMessage.getMessage());
+    if (mayContainUrl(text)) {
+      // The text is passed to the autolinker as a script string literal, which un-escapes the backslashes again
+      text = convertUrlsToHyperlinks(text.replace("\\", "\\\\"));
+    }
     text = replaceChannelNamesWithHyperlinks(text);
 
     Matcher matcher = mentionPattern.matcher(text);
     if (matcher.find()) {
       text = matcher.replaceAll("<span class='self'>" + matcher.group(1) + "</span>");
-      onMention(chatMessage);
     }
+    return text;
+  }
 
-    return html
-        .replace("{css-classes}", Joiner.on(' ').join(cssClasses))
-        .replace("{inline-style}", getInlineStyle(login))
-        // Always replace text last in case the message contains one of the placeholders.
-        .replace("{text}", text);
+  /**
+   * Whether the specified text could contain anything {@link #convertUrlsToHyperlinks(String)} turns into a link. Every
+   * URL recognized by the autolinker has either a scheme or a dot followed by the next part of a domain name, so the
+   * rather expensive script call can be skipped for all other messages.
+   */
+  @VisibleForTesting
+  static boolean mayContainUrl(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == ':' || c == '.' && i + 1 < text.length() && Character.isLetterOrDigit(text.charAt(i + 1))) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @VisibleForTesting
@@ -650,12 +858,6 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
     return (String) engine.executeScript("link('" + text.replace("'", "\\'") + "')");
   }
 
-  private void insertIntoContainer(String html, String containerId) {
-    ((JSObject) engine.executeScript("document.getElementById('" + containerId + "')"))
-        .call("insertAdjacentHTML", "beforeend", html);
-    getMessagesWebView().requestLayout();
-  }
-
   /**
    * Subclasses may override in order to perform actions when the view is being displayed.
    */
@@ -669,4 +871,10 @@ public abstract class AbstractChatTabController implements Controller<Tab> {
   protected void onHide() {
 
   }
+
+  @Value
+  private static class HtmlChunk {
+    String targetId;
+    String html;
+  }
 }
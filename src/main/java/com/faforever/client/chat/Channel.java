@@ -83,6 +83,10 @@ public class Channel {
     return Collections.unmodifiableList(new ArrayList<>(users.values()));
   }
 
+  public int getUserCount() {
+    return users.size();
+  }
+
   public ChatChannelUser getUser(String username) {
     return users.get(username);
   }
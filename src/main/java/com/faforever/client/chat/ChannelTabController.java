@@ -1,6 +1,7 @@
 package com.faforever.client.chat;
 
 import com.faforever.client.audio.AudioService;
+import com.faforever.client.chat.history.ChatHistoryService;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.fx.PlatformService;
 import com.faforever.client.fx.WebViewConfigurer;
@@ -27,9 +28,7 @@ import javafx.beans.InvalidationListener;
 import javafx.beans.WeakInvalidationListener;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.WeakChangeListener;
-import javafx.collections.FXCollections;
 import javafx.collections.MapChangeListener;
-import javafx.collections.ObservableList;
 import javafx.collections.SetChangeListener;
 import javafx.collections.WeakSetChangeListener;
 import javafx.collections.transformation.FilteredList;
@@ -54,7 +53,6 @@ import javafx.scene.text.TextFlow;
 import javafx.scene.web.WebView;
 import javafx.stage.Popup;
 import javafx.stage.PopupWindow;
-import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -63,15 +61,11 @@ import org.springframework.util.Assert;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.TreeMap;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import static com.faforever.client.chat.ChatColorMode.DEFAULT;
 import static com.faforever.client.fx.PlatformService.URL_REGEX_PATTERN;
@@ -83,22 +77,6 @@ import static java.util.Locale.US;
 public class ChannelTabController extends AbstractChatTabController {
   private static final String USER_CSS_CLASS_FORMAT = "user-%s";
 
-  private static final Comparator<CategoryOrChatUserListItem> CHAT_USER_ITEM_COMPARATOR = (o1, o2) -> {
-    ChatChannelUser left = o1.getUser();
-    ChatChannelUser right = o2.getUser();
-
-    Assert.state(left != null, "Only users must be compared");
-    Assert.state(right != null, "Only users must be compared");
-
-    if (isSelf(left)) {
-      return 1;
-    }
-    if (isSelf(right)) {
-      return -1;
-    }
-    return right.getUsername().compareToIgnoreCase(left.getUsername());
-  };
-
   @VisibleForTesting
   static final String CSS_CLASS_MODERATOR = "moderator";
 
@@ -118,17 +96,14 @@ public class ChannelTabController extends AbstractChatTabController {
   /** Maps a chat user category to a list of all user items that belong to it. */
   protected final Map<ChatUserCategory, List<CategoryOrChatUserListItem>> categoriesToUserListItems;
 
-  /** Maps a chat user category to the list items that represent the respective category within the chat user list. */
-  private final Map<ChatUserCategory, CategoryOrChatUserListItem> categoriesToCategoryListItems;
-
-  /** Maps usernames to all chat user list items that belong to that user. */
-  private final Map<String, List<CategoryOrChatUserListItem>> userNamesToListItems;
-
   private final FilteredList<CategoryOrChatUserListItem> filteredChatUserList;
 
-  /** The list of chat user (or category) items that backs the chat user list view. */
-  private final ObservableList<CategoryOrChatUserListItem> chatUserListItems;
+  /** The chat user (or category) items that back the chat user list view. */
+  @VisibleForTesting
+  final ChatUserListModel chatUserListModel;
 
+  /** The nicks of all users in this channel, to auto-complete them. */
+  private final NickTrie nickTrie;
   private final AutoCompletionHelper autoCompletionHelper;
   private final PlatformService platformService;
   private final InvalidationListener channelTopicListener = observable -> Platform.runLater(this::updateChannelTopic);
@@ -164,28 +139,23 @@ public class ChannelTabController extends AbstractChatTabController {
                               NotificationService notificationService, ReportingService reportingService,
                               UiService uiService, EventBus eventBus,
                               WebViewConfigurer webViewConfigurer,
-                              CountryFlagService countryFlagService, PlatformService platformService) {
+                              CountryFlagService countryFlagService, PlatformService platformService,
+                              ChatHistoryService chatHistoryService) {
 
     super(webViewConfigurer, userService, chatService, preferencesService, playerService, audioService,
         timeService, i18n, imageUploadService, notificationService, reportingService, uiService,
-        eventBus, countryFlagService);
+        eventBus, countryFlagService, chatHistoryService);
     this.platformService = platformService;
 
     hideFoeMessagesListeners = new HashMap<>();
     socialStatusMessagesListeners = new HashMap<>();
     colorPropertyListeners = new HashMap<>();
-    categoriesToUserListItems = new HashMap<>();
-    categoriesToCategoryListItems = new HashMap<>();
-    userNamesToListItems = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-    chatUserListItems = FXCollections.observableArrayList();
-    filteredChatUserList = new FilteredList<>(chatUserListItems);
-
-    autoCompletionHelper = new AutoCompletionHelper(
-        currentWord -> userNamesToListItems.keySet().stream()
-            .filter(playerName -> playerName.toLowerCase(US).startsWith(currentWord.toLowerCase()))
-            .sorted()
-            .collect(Collectors.toList())
-    );
+    chatUserListModel = new ChatUserListModel();
+    categoriesToUserListItems = chatUserListModel.getUserItemsByCategory();
+    filteredChatUserList = new FilteredList<>(chatUserListModel);
+
+    nickTrie = new NickTrie();
+    autoCompletionHelper = new AutoCompletionHelper(nickTrie::complete);
 
     chatColorModeChangeListener = (observable, oldValue, newValue) -> {
       if (newValue != DEFAULT) {
@@ -194,17 +164,6 @@ public class ChannelTabController extends AbstractChatTabController {
         removeAllMessageColors();
       }
     };
-
-    List<CategoryOrChatUserListItem> categoryObjects = createCategoryTreeObjects();
-    categoryObjects.forEach(categoryItem -> {
-      categoriesToCategoryListItems.put(categoryItem.getCategory(), categoryItem);
-      categoriesToUserListItems.put(categoryItem.getCategory(), new ArrayList<>());
-    });
-    chatUserListItems.addAll(categoryObjects);
-  }
-
-  private static boolean isSelf(ChatChannelUser chatUser) {
-    return chatUser.getPlayer().isPresent() && chatUser.getPlayer().get().getSocialStatus() == SocialStatus.SELF;
   }
 
   public void setChannel(Channel channel) {
@@ -217,11 +176,8 @@ public class ChannelTabController extends AbstractChatTabController {
     channelTabRoot.setText(channelName);
 
     moderatorsChangedListener = change -> {
-      if (change.wasAdded()) {
-        userNamesToListItems.get(change.getElementAdded()).forEach(this::addModerator);
-      } else if (change.wasRemoved()) {
-        userNamesToListItems.get(change.getElementAdded()).forEach(this::removeModerator);
-      }
+      String username = change.wasAdded() ? change.getElementAdded() : change.getElementRemoved();
+      Optional.ofNullable(channel.getUser(username)).ifPresent(this::onModeratorChanged);
     };
     JavaFxUtil.addListener(channel.getModerators(), new WeakSetChangeListener<>(moderatorsChangedListener));
 
@@ -233,7 +189,7 @@ public class ChannelTabController extends AbstractChatTabController {
       }
       updateUserCount(change.getMap().size());
     };
-    updateUserCount(channel.getUsers().size());
+    updateUserCount(channel.getUserCount());
 
     chatService.addUsersListener(channelName, usersChangeListener);
 
@@ -273,18 +229,15 @@ public class ChannelTabController extends AbstractChatTabController {
         });
   }
 
-  private void removeModerator(CategoryOrChatUserListItem item) {
-    updateCssClass(item.getUser());
+  private void onModeratorChanged(ChatChannelUser chatUser) {
+    updateCssClass(chatUser);
+    updateInChatUserList(chatUser);
   }
 
   private void updateUserCount(int count) {
     Platform.runLater(() -> userSearchTextField.setPromptText(i18n.get("chat.userCount", count)));
   }
 
-  private void addModerator(CategoryOrChatUserListItem item) {
-    updateCssClass(item.getUser());
-  }
-
   @Override
   public void initialize() {
     super.initialize();
@@ -321,13 +274,6 @@ public class ChannelTabController extends AbstractChatTabController {
     JavaFxUtil.removeListener(preferencesService.getPreferences().getChat().chatColorModeProperty(), chatColorModeChangeListener);
   }
 
-  @NotNull
-  private List<CategoryOrChatUserListItem> createCategoryTreeObjects() {
-    return Arrays.stream(ChatUserCategory.values())
-        .map(chatUserCategory -> new CategoryOrChatUserListItem(chatUserCategory, null))
-        .collect(Collectors.toList());
-  }
-
   private void setAllMessageColors() {
     Map<String, String> userToColor = new HashMap<>();
     channel.getUsers().stream().filter(chatUser -> chatUser.getColor() != null).forEach(chatUser
@@ -360,6 +306,12 @@ public class ChannelTabController extends AbstractChatTabController {
     return messagesWebView;
   }
 
+  @Override
+  public void onChatMessage(ChatMessage chatMessage) {
+    nickTrie.recordInteraction(chatMessage.getUsername());
+    super.onChatMessage(chatMessage);
+  }
+
   @Override
   protected void onMention(ChatMessage chatMessage) {
     if (preferencesService.getPreferences().getNotification().getNotifyOnAtMentionOnlyEnabled()
@@ -376,13 +328,14 @@ public class ChannelTabController extends AbstractChatTabController {
 
   @Override
   protected String getMessageCssClass(String login) {
-    ChatChannelUser chatUser = chatService.getChatUser(login, channel.getName());
     Optional<Player> currentPlayerOptional = playerService.getCurrentPlayer();
 
     if (currentPlayerOptional.isPresent()) {
       return "";
     }
 
+    // Only looked up now, since messages may be rendered for users who already left the channel
+    ChatChannelUser chatUser = chatService.getChatUser(login, channel.getName());
     if (chatUser.isModerator()) {
       return CSS_CLASS_MODERATOR;
     }
@@ -466,48 +419,15 @@ public class ChannelTabController extends AbstractChatTabController {
     });
   }
 
-  private void updateInChatUserList(ChatChannelUser chatUser) {
-    Platform.runLater(() -> {
-      userNamesToListItems.computeIfAbsent(chatUser.getUsername(), s -> new ArrayList<>());
-      updateChatUserListItemsForCategories(chatUser);
-    });
-  }
-
   /**
-   * Adds and removes chat user items from the chat user list depending on the user's categories. For instance, if the
-   * user is a moderator, he'll be added to the moderator category (if missing) and if he's no longer a friend, he will
-   * be removed from the friends category.
+   * Adds the user to the chat user list or moves it to the categories it now belongs to. For instance, if the user is a
+   * moderator, it will be added to the moderator category (if missing) and if it's no longer a friend, it will be
+   * removed from the friends category.
    */
-  private void updateChatUserListItemsForCategories(ChatChannelUser chatUser) {
-    Set<ChatUserCategory> chatUserCategories = chatUser.getChatUserCategories();
-
-    Arrays.stream(ChatUserCategory.values())
-        .filter(chatUserCategory -> !chatUserCategories.contains(chatUserCategory))
-        .map(categoriesToUserListItems::get)
-        .flatMap(Collection::stream)
-        .filter(categoryOrChatUserListItem -> categoryOrChatUserListItem.getUser() != null && categoryOrChatUserListItem.getUser().equals(chatUser))
-        .forEach(chatUserListItems::remove);
-
-    CategoryOrChatUserListItem listItem = new CategoryOrChatUserListItem(null, chatUser);
-    userNamesToListItems.getOrDefault(chatUser.getUsername(), new ArrayList<>()).add(listItem);
-
-    chatUserCategories.stream()
-        .filter(chatUserCategory -> !categoriesToUserListItems.get(chatUserCategory).contains(listItem))
-        .forEach(chatUserCategory -> addToTreeItemSorted(categoriesToCategoryListItems.get(chatUserCategory), listItem));
-  }
-
-  private void addToTreeItemSorted(CategoryOrChatUserListItem parent, CategoryOrChatUserListItem child) {
+  private void updateInChatUserList(ChatChannelUser chatUser) {
     Platform.runLater(() -> {
-      categoriesToUserListItems.get(parent.getCategory()).add(child);
-      for (int index = chatUserListItems.indexOf(parent) + 1; index < chatUserListItems.size(); index++) {
-        CategoryOrChatUserListItem otherItem = chatUserListItems.get(index);
-
-        if (otherItem.getCategory() != null || CHAT_USER_ITEM_COMPARATOR.compare(child, otherItem) > 0) {
-          chatUserListItems.add(index, child);
-          return;
-        }
-      }
-      chatUserListItems.add(child);
+      chatUserListModel.addOrUpdate(chatUser);
+      nickTrie.add(chatUser.getUsername());
     });
   }
 
@@ -543,7 +463,7 @@ public class ChannelTabController extends AbstractChatTabController {
       } else {
         updateUserMessageDisplay(chatUser, "");
       }
-      updateChatUserListItemsForCategories(chatUser);
+      updateInChatUserList(chatUser);
     };
     socialStatusMessagesListeners.computeIfAbsent(player.getUsername(), i -> new ArrayList<>()).add(listener);
     return new WeakChangeListener<>(listener);
@@ -563,19 +483,12 @@ public class ChannelTabController extends AbstractChatTabController {
 
   private void onUserLeft(String username) {
     Platform.runLater(() -> {
-      List<CategoryOrChatUserListItem> items = userNamesToListItems.get(username);
-      List<CategoryOrChatUserListItem> listItemsToBeRemoved = userNamesToListItems.remove(username);
-      chatUserListItems.removeAll(items);
+      chatUserListModel.remove(username);
+      nickTrie.remove(username);
 
       hideFoeMessagesListeners.remove(username);
       socialStatusMessagesListeners.remove(username);
       colorPropertyListeners.remove(username);
-
-      Arrays.stream(ChatUserCategory.values())
-          .filter(categoriesToUserListItems::containsKey)
-          .map(categoriesToUserListItems::get)
-          .forEach(categoryOrChatUserListItems -> listItemsToBeRemoved.forEach(categoryOrChatUserListItems::remove));
-
     });
   }
 
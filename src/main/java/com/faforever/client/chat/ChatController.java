@@ -25,7 +25,10 @@ import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -33,7 +36,11 @@ import java.util.Optional;
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class ChatController extends AbstractViewController<Node> {
 
+  /** Modified on the application thread only, but read by the thread that receives chat messages, too. */
   private final Map<String, AbstractChatTabController> nameToChatTabController;
+  /** Messages for which a tab has to be opened first. */
+  private final List<ChatMessage> messagesForNewTabs;
+  private boolean newTabsScheduled;
   private final ChatService chatService;
   private final UiService uiService;
   private final UserService userService;
@@ -50,7 +57,8 @@ public class ChatController extends AbstractViewController<Node> {
     this.userService = userService;
     this.eventBus = eventBus;
 
-    nameToChatTabController = new HashMap<>();
+    nameToChatTabController = Collections.synchronizedMap(new HashMap<>());
+    messagesForNewTabs = new ArrayList<>();
   }
 
   private void onChannelLeft(Channel channel) {
@@ -175,16 +183,41 @@ public class ChatController extends AbstractViewController<Node> {
     }
   }
 
+  /**
+   * Queues the message in its tab, which appends all messages that arrived since the last pulse at once. Only if the tab
+   * doesn't exist yet, the application thread is asked to open it.
+   */
   @Subscribe
   public void onChatMessage(ChatMessageEvent event) {
-    Platform.runLater(() -> {
-      ChatMessage message = event.getMessage();
-      if (!message.isPrivate()) {
-        getOrCreateChannelTab(message.getSource()).onChatMessage(message);
-      } else {
-        addAndGetPrivateMessageTab(message.getSource()).onChatMessage(message);
+    ChatMessage message = event.getMessage();
+    AbstractChatTabController chatTab;
+    synchronized (messagesForNewTabs) {
+      chatTab = nameToChatTabController.get(message.getSource());
+      if (chatTab == null) {
+        messagesForNewTabs.add(message);
+        if (!newTabsScheduled) {
+          newTabsScheduled = true;
+          Platform.runLater(this::openTabsForNewMessages);
+        }
+        return;
       }
-    });
+    }
+    chatTab.onChatMessage(message);
+  }
+
+  private void openTabsForNewMessages() {
+    // Holds the lock while the tabs are opened, so that later messages can't be queued in a tab before earlier ones
+    synchronized (messagesForNewTabs) {
+      for (ChatMessage message : messagesForNewTabs) {
+        if (!message.isPrivate()) {
+          getOrCreateChannelTab(message.getSource()).onChatMessage(message);
+        } else {
+          addAndGetPrivateMessageTab(message.getSource()).onChatMessage(message);
+        }
+      }
+      messagesForNewTabs.clear();
+      newTabsScheduled = false;
+    }
   }
 
   private AbstractChatTabController addAndGetPrivateMessageTab(String username) {
@@ -0,0 +1,151 @@
+package com.faforever.client.chat;
+
+import com.faforever.client.player.SocialStatus;
+import com.google.common.collect.Lists;
+import javafx.collections.ObservableListBase;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The read-only list of items shown in a channel's chat user list. It contains a category item for each {@link
+ * ChatUserCategory}, in the order of declaration, each followed by the items of the users in this category. The own
+ * user comes first, all other users are sorted by username.
+ * <p>
+ * Every category is kept sorted on its own, so adding, moving or removing a user only takes a binary search in the
+ * categories of that user and fires a single change, instead of scanning or re-sorting the whole list. Must only be
+ * modified on the JavaFX application thread.
+ */
+class ChatUserListModel extends ObservableListBase<CategoryOrChatUserListItem> {
+
+  private static final ChatUserCategory[] CATEGORIES = ChatUserCategory.values();
+
+  private static final Comparator<Entry> ENTRY_COMPARATOR = Comparator.comparing((Entry entry) -> !entry.isSelf())
+      .thenComparing(Entry::getUsername, String.CASE_INSENSITIVE_ORDER)
+      .thenComparing(Entry::getUsername);
+
+  private final Map<ChatUserCategory, CategoryOrChatUserListItem> categoryItems = new EnumMap<>(ChatUserCategory.class);
+  private final Map<ChatUserCategory, List<Entry>> entriesByCategory = new EnumMap<>(ChatUserCategory.class);
+  private final Map<ChatUserCategory, List<CategoryOrChatUserListItem>> userItemsByCategory = new EnumMap<>(ChatUserCategory.class);
+  private final Map<String, Entry> entriesByUsername = new HashMap<>();
+  private int userItemCount;
+
+  ChatUserListModel() {
+    for (ChatUserCategory category : CATEGORIES) {
+      List<Entry> entries = new ArrayList<>();
+      categoryItems.put(category, new CategoryOrChatUserListItem(category, null));
+      entriesByCategory.put(category, entries);
+      userItemsByCategory.put(category, Collections.unmodifiableList(Lists.transform(entries, Entry::getItem)));
+    }
+  }
+
+  private static boolean isSelf(ChatChannelUser chatUser) {
+    return chatUser.getPlayer().isPresent() && chatUser.getPlayer().get().getSocialStatus() == SocialStatus.SELF;
+  }
+
+  /**
+   * Adds the user to the categories it belongs to, or moves it if its categories or its position have changed since it
+   * was added.
+   */
+  void addOrUpdate(ChatChannelUser chatUser) {
+    Set<ChatUserCategory> categories = EnumSet.noneOf(ChatUserCategory.class);
+    categories.addAll(chatUser.getChatUserCategories());
+    boolean self = isSelf(chatUser);
+
+    Entry oldEntry = entriesByUsername.get(chatUser.getUsername());
+    if (oldEntry != null && oldEntry.getItem().getUser() == chatUser
+        && oldEntry.isSelf() == self && oldEntry.getCategories().equals(categories)) {
+      return;
+    }
+
+    Entry entry = new Entry(new CategoryOrChatUserListItem(null, chatUser), chatUser.getUsername(), self, categories);
+    entriesByUsername.put(entry.getUsername(), entry);
+
+    beginChange();
+    if (oldEntry != null) {
+      removeEntry(oldEntry);
+    }
+    for (ChatUserCategory category : categories) {
+      List<Entry> entries = entriesByCategory.get(category);
+      int index = -Collections.binarySearch(entries, entry, ENTRY_COMPARATOR) - 1;
+      entries.add(index, entry);
+      userItemCount++;
+
+      int listIndex = getCategoryIndex(category) + 1 + index;
+      nextAdd(listIndex, listIndex + 1);
+    }
+    endChange();
+  }
+
+  void remove(String username) {
+    Entry entry = entriesByUsername.remove(username);
+    if (entry == null) {
+      return;
+    }
+    beginChange();
+    removeEntry(entry);
+    endChange();
+  }
+
+  private void removeEntry(Entry entry) {
+    for (ChatUserCategory category : entry.getCategories()) {
+      List<Entry> entries = entriesByCategory.get(category);
+      int index = Collections.binarySearch(entries, entry, ENTRY_COMPARATOR);
+      entries.remove(index);
+      userItemCount--;
+
+      nextRemove(getCategoryIndex(category) + 1 + index, entry.getItem());
+    }
+  }
+
+  private int getCategoryIndex(ChatUserCategory category) {
+    int index = 0;
+    for (int i = 0; i < category.ordinal(); i++) {
+      index += entriesByCategory.get(CATEGORIES[i]).size() + 1;
+    }
+    return index;
+  }
+
+  /** Returns the user items of each category. The returned lists are read-only views. */
+  Map<ChatUserCategory, List<CategoryOrChatUserListItem>> getUserItemsByCategory() {
+    return Collections.unmodifiableMap(userItemsByCategory);
+  }
+
+  @Override
+  public CategoryOrChatUserListItem get(int index) {
+    int offset = index;
+    for (ChatUserCategory category : CATEGORIES) {
+      if (offset == 0) {
+        return categoryItems.get(category);
+      }
+      List<Entry> entries = entriesByCategory.get(category);
+      if (offset <= entries.size()) {
+        return entries.get(offset - 1).getItem();
+      }
+      offset -= entries.size() + 1;
+    }
+    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+  }
+
+  @Override
+  public int size() {
+    return CATEGORIES.length + userItemCount;
+  }
+
+  /** A user's item and the values it has been sorted by. */
+  @Value
+  private static class Entry {
+    CategoryOrChatUserListItem item;
+    String username;
+    boolean self;
+    Set<ChatUserCategory> categories;
+  }
+}
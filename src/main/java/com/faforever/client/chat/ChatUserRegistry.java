@@ -0,0 +1,118 @@
+package com.faforever.client.chat;
+
+import com.faforever.client.fx.JavaFxUtil;
+import javafx.collections.MapChangeListener;
+import javafx.collections.ObservableMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import static javafx.collections.FXCollections.observableMap;
+
+/**
+ * Indexes the chat users of all channels by channel as well as by username, so that joins, parts, quits and nick
+ * changes only touch the entries of the affected user instead of every known user or channel. Usernames and channel
+ * names are compared case-insensitively, like IRC does.
+ */
+class ChatUserRegistry {
+
+  /** Channel name to username to chat user. */
+  private final Map<String, Map<String, ChatChannelUser>> usersByChannel = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+  /** Username to channel name to chat user. */
+  private final Map<String, Map<String, ChatChannelUser>> channelsByUser = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+  /** Contains one chat user per username, for as long as the user is in at least one channel. */
+  private final ObservableMap<String, ChatChannelUser> usersByName = observableMap(new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+
+  synchronized ChatChannelUser get(String username, String channelName) {
+    Map<String, ChatChannelUser> users = usersByChannel.get(channelName);
+    return users != null ? users.get(username) : null;
+  }
+
+  /**
+   * Returns the chat user of the specified channel, which is created by {@code factory} if the user isn't known yet.
+   */
+  synchronized ChatChannelUser computeIfAbsent(String username, String channelName, Supplier<ChatChannelUser> factory) {
+    ChatChannelUser chatUser = get(username, channelName);
+    if (chatUser != null) {
+      return chatUser;
+    }
+
+    chatUser = factory.get();
+    usersByChannel.computeIfAbsent(channelName, name -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER)).put(username, chatUser);
+    channelsByUser.computeIfAbsent(username, name -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER)).put(channelName, chatUser);
+    if (!usersByName.containsKey(username)) {
+      usersByName.put(username, chatUser);
+    }
+    return chatUser;
+  }
+
+  synchronized ChatChannelUser remove(String username, String channelName) {
+    Map<String, ChatChannelUser> users = usersByChannel.get(channelName);
+    if (users == null) {
+      return null;
+    }
+    ChatChannelUser chatUser = users.remove(username);
+    if (chatUser == null) {
+      return null;
+    }
+    if (users.isEmpty()) {
+      usersByChannel.remove(channelName);
+    }
+    removeFromUser(username, channelName);
+    return chatUser;
+  }
+
+  /**
+   * Removes all users of the specified channel and returns them.
+   */
+  synchronized List<ChatChannelUser> removeChannel(String channelName) {
+    Map<String, ChatChannelUser> users = usersByChannel.remove(channelName);
+    if (users == null) {
+      return Collections.emptyList();
+    }
+    users.keySet().forEach(username -> removeFromUser(username, channelName));
+    return new ArrayList<>(users.values());
+  }
+
+  private void removeFromUser(String username, String channelName) {
+    Map<String, ChatChannelUser> channels = channelsByUser.get(username);
+    channels.remove(channelName);
+    if (channels.isEmpty()) {
+      channelsByUser.remove(username);
+      usersByName.remove(username);
+    }
+  }
+
+  /**
+   * Returns a copy of the chat users of the specified user, mapped by channel name.
+   */
+  synchronized Map<String, ChatChannelUser> getChannelUsers(String username) {
+    Map<String, ChatChannelUser> channels = channelsByUser.get(username);
+    return channels != null ? new TreeMap<>(channels) : Collections.emptyMap();
+  }
+
+  /**
+   * Returns a copy of the chat users of the specified channel, mapped by username.
+   */
+  synchronized Map<String, ChatChannelUser> getUsersInChannel(String channelName) {
+    Map<String, ChatChannelUser> users = usersByChannel.get(channelName);
+    return users != null ? new TreeMap<>(users) : Collections.emptyMap();
+  }
+
+  synchronized List<ChatChannelUser> getAllUsers() {
+    List<ChatChannelUser> chatUsers = new ArrayList<>();
+    usersByChannel.values().forEach(users -> chatUsers.addAll(users.values()));
+    return chatUsers;
+  }
+
+  /**
+   * Adds a listener that is notified when a username becomes known in any channel and when it has left all channels.
+   */
+  synchronized void addUsersByNameListener(MapChangeListener<String, ChatChannelUser> listener) {
+    JavaFxUtil.addListener(usersByName, listener);
+  }
+}
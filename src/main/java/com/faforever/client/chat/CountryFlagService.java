@@ -1,22 +1,24 @@
 package com.faforever.client.chat;
 
+import com.faforever.client.fx.ImageCache;
 import javafx.scene.image.Image;
 import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
 
 import java.lang.invoke.MethodHandles;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
-import static com.faforever.client.config.CacheNames.COUNTRY_FLAGS;
-
 @Lazy
 @Service
 public class CountryFlagService {
@@ -24,34 +26,54 @@ public class CountryFlagService {
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private static final Collection<String> NON_COUNTRY_CODES = Arrays.asList("A1", "A2", "");
+  private static final String FLAGS_LOCATION_PATTERN = "classpath:/images/flags/*.png";
+  private static final String NON_COUNTRY_FLAG = "earth";
+  /** Flags are 16x11 pixels, so this holds all of them several times over. */
+  private static final long MAXIMUM_FLAG_CACHE_BYTES = 1024 * 1024;
+  private static final int ESTIMATED_FLAG_BYTES = 16 * 11 * 4;
+
+  /** The URL of every flag image by its lower case name, built once since checking resources is expensive. */
+  private final Map<String, URL> flagUrlsByName;
+  private final ImageCache flagImages;
+
+  public CountryFlagService() {
+    flagUrlsByName = indexFlags();
+    flagImages = new ImageCache(MAXIMUM_FLAG_CACHE_BYTES, ESTIMATED_FLAG_BYTES);
+  }
+
+  @SneakyThrows
+  private static Map<String, URL> indexFlags() {
+    Map<String, URL> flagUrls = new HashMap<>();
+    for (Resource resource : new PathMatchingResourcePatternResolver().getResources(FLAGS_LOCATION_PATTERN)) {
+      String filename = resource.getFilename();
+      if (filename == null) {
+        continue;
+      }
+      flagUrls.put(filename.substring(0, filename.length() - ".png".length()).toLowerCase(Locale.ROOT), resource.getURL());
+    }
+    logger.debug("Found {} country flags", flagUrls.size());
+    return flagUrls;
+  }
 
-  @Cacheable(COUNTRY_FLAGS)
   public Optional<Image> loadCountryFlag(final String country) {
     if (country == null) {
       return Optional.empty();
     }
 
     return getCountryFlagUrl(country)
-        .map(url -> new Image(url.toString(), true));
+        .map(url -> flagImages.get(url.toString(), flagUrl -> new Image(flagUrl, true)));
   }
 
-  @SneakyThrows
   public Optional<URL> getCountryFlagUrl(String country) {
     if (country == null) {
       return Optional.empty();
     }
     String imageName;
     if (NON_COUNTRY_CODES.contains(country)) {
-      imageName = "earth";
+      imageName = NON_COUNTRY_FLAG;
     } else {
-      imageName = country.toLowerCase();
-    }
-
-    String path = "/images/flags/" + imageName + ".png";
-    ClassPathResource classPathResource = new ClassPathResource(path);
-    if (!classPathResource.exists()) {
-      return Optional.empty();
+      imageName = country.toLowerCase(Locale.ROOT);
     }
-    return Optional.of(classPathResource.getURL());
+    return Optional.ofNullable(flagUrlsByName.get(imageName));
   }
 }
@@ -0,0 +1,259 @@
+package com.faforever.client.chat;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Sends the lines of an IRC connection from a single thread, at a rate the server doesn't consider flooding. The rate is
+ * limited by a token bucket: up to {@code burst} lines are sent at once, after that one line per {@code interval}.
+ * Control lines (like JOIN or NickServ commands) are sent before any queued chat message. PONGs are sent by PircBotX
+ * itself, bypassing this queue.
+ */
+@Slf4j
+class IrcSendQueue {
+
+  /**
+   * The maximum length of a line without CRLF. When relaying a message, the server prepends our {@code
+   * :nick!user@host} prefix, which has to fit into IRC's 512 bytes as well.
+   */
+  static final int MAX_LINE_BYTES = 512 - 2 - 100;
+  private static final Pattern LINE_BREAK_PATTERN = Pattern.compile("\r\n|\r|\n");
+  private static final String CTCP_DELIMITER = "\u0001";
+
+  enum Priority {
+    CONTROL, MESSAGE
+  }
+
+  private final PriorityBlockingQueue<QueuedLine> queue = new PriorityBlockingQueue<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicInteger queuedLineCount = new AtomicInteger();
+  private final Consumer<String> lineWriter;
+  private final int burst;
+  private final long intervalNanos;
+  private final Thread senderThread;
+  private double tokens;
+  private long lastRefillTime;
+  private volatile IntConsumer queuedLineCountListener = count -> {
+  };
+
+  /**
+   * @param lineWriter writes a line (without CRLF) to the connection
+   * @param burst the number of lines that may be sent at once
+   * @param intervalMillis the time it takes until one more line may be sent
+   */
+  IrcSendQueue(Consumer<String> lineWriter, int burst, long intervalMillis) {
+    this.lineWriter = lineWriter;
+    this.burst = burst;
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    tokens = burst;
+    lastRefillTime = System.nanoTime();
+    senderThread = new Thread(this::sendLines, "irc-send-queue");
+    senderThread.setDaemon(true);
+  }
+
+  void start() {
+    senderThread.start();
+  }
+
+  /**
+   * Stops sending. All lines that haven't been sent yet are discarded and their futures are cancelled.
+   */
+  void stop() {
+    senderThread.interrupt();
+    List<QueuedLine> discardedLines = new ArrayList<>();
+    queue.drainTo(discardedLines);
+    discardedLines.forEach(line -> line.future.cancel(false));
+    updateQueuedLineCount(-discardedLines.size());
+  }
+
+  /**
+   * Sets the listener that is called from any thread whenever the number of queued lines changes.
+   */
+  void setQueuedLineCountListener(IntConsumer queuedLineCountListener) {
+    this.queuedLineCountListener = queuedLineCountListener;
+  }
+
+  int getQueuedLineCount() {
+    return queuedLineCount.get();
+  }
+
+  /**
+   * Enqueues a raw line. The returned future is completed once the line has been written.
+   */
+  CompletableFuture<Void> sendLine(Priority priority, String line) {
+    return sendLines(priority, List.of(line));
+  }
+
+  /**
+   * Enqueues a chat message to a channel or user, split into as many PRIVMSG lines as needed. The returned future is
+   * completed once the last line has been written.
+   */
+  CompletableFuture<Void> sendMessage(String target, String message) {
+    return sendLines(Priority.MESSAGE, splitPrivmsg(target, message, "", ""));
+  }
+
+  /**
+   * Like {@link #sendMessage(String, String)}, but sends the message as CTCP ACTION ({@code /me}).
+   */
+  CompletableFuture<Void> sendAction(String target, String action) {
+    return sendLines(Priority.MESSAGE, splitPrivmsg(target, action, CTCP_DELIMITER + "ACTION ", CTCP_DELIMITER));
+  }
+
+  private CompletableFuture<Void> sendLines(Priority priority, List<String> lines) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    if (lines.isEmpty()) {
+      future.complete(null);
+      return future;
+    }
+    updateQueuedLineCount(lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      queue.add(new QueuedLine(priority, sequence.getAndIncrement(), lines.get(i), future, i == lines.size() - 1));
+    }
+    return future;
+  }
+
+  /**
+   * Splits a message at line breaks and wherever a PRIVMSG line would exceed {@link #MAX_LINE_BYTES}, preferably at a
+   * space. Empty lines are skipped since servers reject them.
+   */
+  static List<String> splitPrivmsg(String target, String message, String prefix, String suffix) {
+    String command = "PRIVMSG " + target + " :" + prefix;
+    int maxTextBytes = MAX_LINE_BYTES - utf8Length(command) - utf8Length(suffix);
+    if (maxTextBytes <= 0) {
+      throw new IllegalArgumentException("Target too long: " + target);
+    }
+
+    List<String> lines = new ArrayList<>();
+    for (String text : LINE_BREAK_PATTERN.split(message)) {
+      int start = 0;
+      while (start < text.length()) {
+        int end = findSplitIndex(text, start, maxTextBytes);
+        String chunk = text.substring(start, end);
+        if (!chunk.isBlank()) {
+          lines.add(command + chunk + suffix);
+        }
+        start = end;
+        while (start < text.length() && text.charAt(start) == ' ') {
+          start++;
+        }
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Returns the end index of the longest part of {@code text} beginning at {@code start} that is no longer than {@code
+   * maxBytes} in UTF-8, without splitting code points. If the text doesn't fit, the part ends before the last space
+   * that fits, if any.
+   */
+  private static int findSplitIndex(String text, int start, int maxBytes) {
+    int bytes = 0;
+    int index = start;
+    int lastSpace = -1;
+    while (index < text.length()) {
+      int codePoint = text.codePointAt(index);
+      bytes += utf8Length(codePoint);
+      if (bytes > maxBytes) {
+        return lastSpace > start ? lastSpace : index;
+      }
+      if (codePoint == ' ') {
+        lastSpace = index;
+      }
+      index += Character.charCount(codePoint);
+    }
+    return index;
+  }
+
+  private static int utf8Length(String string) {
+    return string.getBytes(UTF_8).length;
+  }
+
+  private static int utf8Length(int codePoint) {
+    if (codePoint < 0x80) {
+      return 1;
+    }
+    if (codePoint < 0x800) {
+      return 2;
+    }
+    return codePoint < 0x10000 ? 3 : 4;
+  }
+
+  private void sendLines() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        awaitToken();
+        QueuedLine line = queue.take();
+        updateQueuedLineCount(-1);
+        if (line.future.isDone()) {
+          // An earlier line of the same message failed
+          continue;
+        }
+        tokens--;
+        try {
+          lineWriter.accept(line.text);
+          if (line.last) {
+            line.future.complete(null);
+          }
+        } catch (RuntimeException e) {
+          log.warn("Could not send line: {}", line.text, e);
+          line.future.completeExceptionally(e);
+        }
+      }
+    } catch (InterruptedException e) {
+      log.debug("IRC send queue has been stopped");
+    }
+  }
+
+  private void awaitToken() throws InterruptedException {
+    while (true) {
+      long now = System.nanoTime();
+      tokens = Math.min(burst, tokens + (double) (now - lastRefillTime) / intervalNanos);
+      lastRefillTime = now;
+      if (tokens >= 1) {
+        return;
+      }
+      TimeUnit.NANOSECONDS.sleep((long) Math.ceil((1 - tokens) * intervalNanos));
+    }
+  }
+
+  private void updateQueuedLineCount(int delta) {
+    if (delta != 0) {
+      queuedLineCountListener.accept(queuedLineCount.addAndGet(delta));
+    }
+  }
+
+  private static class QueuedLine implements Comparable<QueuedLine> {
+    private final Priority priority;
+    private final long sequence;
+    private final String text;
+    private final CompletableFuture<Void> future;
+    /** Whether this is the last line of its message, whose future is completed after this line has been written. */
+    private final boolean last;
+
+    private QueuedLine(Priority priority, long sequence, String text, CompletableFuture<Void> future, boolean last) {
+      this.priority = priority;
+      this.sequence = sequence;
+      this.text = text;
+      this.future = future;
+      this.last = last;
+    }
+
+    @Override
+    public int compareTo(QueuedLine other) {
+      int result = priority.compareTo(other.priority);
+      return result != 0 ? result : Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.faforever.client.chat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Locale.US;
+
+/**
+ * Case-insensitive prefix index of nicks, used to auto-complete nicks in the chat input. Looking up the completions of
+ * a prefix only visits the nicks that start with it. Completions are ranked by the last interaction with the nick, most
+ * recent first, then alphabetically.
+ */
+class NickTrie {
+
+  private static final Comparator<String> ALPHABETICAL_ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+  private final Node root = new Node();
+  /** Maps nicks to the value of {@link #interactionCount} at their last interaction. */
+  private final Map<String, Long> lastInteractions = new HashMap<>();
+  private final Comparator<String> completionComparator = Comparator
+      .comparingLong((String nick) -> -lastInteractions.getOrDefault(nick, 0L))
+      .thenComparing(ALPHABETICAL_ORDER);
+  private long interactionCount;
+  private int size;
+
+  private static String normalize(String nick) {
+    return nick.toLowerCase(US);
+  }
+
+  synchronized void add(String nick) {
+    String key = normalize(nick);
+    Node node = root;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.children.computeIfAbsent(key.charAt(i), character -> new Node());
+    }
+    if (node.nicks == null) {
+      node.nicks = new ArrayList<>(1);
+    }
+    if (!node.nicks.contains(nick)) {
+      node.nicks.add(nick);
+      size++;
+    }
+  }
+
+  synchronized void remove(String nick) {
+    String key = normalize(nick);
+    Node[] path = new Node[key.length() + 1];
+    path[0] = root;
+    for (int i = 0; i < key.length(); i++) {
+      path[i + 1] = path[i].children.get(key.charAt(i));
+      if (path[i + 1] == null) {
+        return;
+      }
+    }
+
+    Node node = path[key.length()];
+    if (node.nicks == null || !node.nicks.remove(nick)) {
+      return;
+    }
+    size--;
+    lastInteractions.remove(nick);
+    if (node.nicks.isEmpty()) {
+      node.nicks = null;
+    }
+    for (int i = key.length(); i > 0 && path[i].isEmpty(); i--) {
+      path[i - 1].children.remove(key.charAt(i - 1));
+    }
+  }
+
+  /**
+   * Ranks the specified nick before all nicks that have been interacted with less recently. Unknown nicks are ignored.
+   */
+  synchronized void recordInteraction(String nick) {
+    if (contains(nick)) {
+      lastInteractions.put(nick, ++interactionCount);
+    }
+  }
+
+  synchronized boolean contains(String nick) {
+    Node node = find(normalize(nick));
+    return node != null && node.nicks != null && node.nicks.contains(nick);
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Returns all nicks that start with the specified prefix, ignoring case, in the order they should be proposed.
+   */
+  synchronized List<String> complete(String prefix) {
+    Node node = find(normalize(prefix));
+    if (node == null) {
+      return Collections.emptyList();
+    }
+
+    List<String> completions = new ArrayList<>();
+    Deque<Node> pendingNodes = new ArrayDeque<>();
+    pendingNodes.push(node);
+    while (!pendingNodes.isEmpty()) {
+      Node current = pendingNodes.pop();
+      if (current.nicks != null) {
+        completions.addAll(current.nicks);
+      }
+      current.children.values().forEach(pendingNodes::push);
+    }
+    completions.sort(lastInteractions.isEmpty() ? ALPHABETICAL_ORDER : completionComparator);
+    return completions;
+  }
+
+  private Node find(String key) {
+    Node node = root;
+    for (int i = 0; i < key.length() && node != null; i++) {
+      node = node.children.get(key.charAt(i));
+    }
+    return node;
+  }
+
+  private static class Node {
+    private final Map<Character, Node> children = new HashMap<>(4);
+    /** The nicks that end at this node, usually only one. {@code null} if there are none. */
+    private List<String> nicks;
+
+    private boolean isEmpty() {
+      return nicks == null && children.isEmpty();
+    }
+  }
+}
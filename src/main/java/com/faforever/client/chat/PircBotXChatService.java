@@ -1,12 +1,16 @@
 package com.faforever.client.chat;
 
 import com.faforever.client.FafClientApplication;
+import com.faforever.client.chat.IrcSendQueue.Priority;
 import com.faforever.client.chat.event.ChatMessageEvent;
+import com.faforever.client.chat.history.ChatHistoryService;
 import com.faforever.client.config.ClientProperties;
 import com.faforever.client.config.ClientProperties.Irc;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.net.ConnectionState;
+import com.faforever.client.notification.NotificationService;
+import com.faforever.client.notification.TransientNotification;
 import com.faforever.client.player.Player;
 import com.faforever.client.player.PlayerOnlineEvent;
 import com.faforever.client.player.PlayerService;
@@ -17,8 +21,6 @@ import com.faforever.client.preferences.ChatPrefs;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.remote.FafService;
 import com.faforever.client.remote.domain.SocialMessage;
-import com.faforever.client.task.CompletableTask;
-import com.faforever.client.task.TaskService;
 import com.faforever.client.ui.tray.event.UpdateApplicationBadgeEvent;
 import com.faforever.client.user.UserService;
 import com.faforever.client.user.event.LoggedOutEvent;
@@ -56,6 +58,7 @@ import org.pircbotx.hooks.events.DisconnectEvent;
 import org.pircbotx.hooks.events.JoinEvent;
 import org.pircbotx.hooks.events.MessageEvent;
 import org.pircbotx.hooks.events.MotdEvent;
+import org.pircbotx.hooks.events.NickChangeEvent;
 import org.pircbotx.hooks.events.NoticeEvent;
 import org.pircbotx.hooks.events.OpEvent;
 import org.pircbotx.hooks.events.PartEvent;
@@ -74,11 +77,11 @@ import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -86,12 +89,10 @@ import java.util.stream.Collectors;
 
 import static com.faforever.client.chat.ChatColorMode.CUSTOM;
 import static com.faforever.client.chat.ChatColorMode.RANDOM;
-import static com.faforever.client.task.CompletableTask.Priority.HIGH;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Locale.US;
 import static javafx.collections.FXCollections.observableHashMap;
-import static javafx.collections.FXCollections.observableMap;
 import static org.apache.commons.lang3.StringUtils.containsIgnoreCase;
 
 @Lazy
@@ -108,14 +109,15 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
 
   private final PreferencesService preferencesService;
   private final UserService userService;
-  private final TaskService taskService;
   private final FafService fafService;
   private final I18n i18n;
+  private final NotificationService notificationService;
   private final PircBotXFactory pircBotXFactory;
   private final ExecutorService executorService;
   private final EventBus eventBus;
   private final ClientProperties clientProperties;
   private final PlayerService playerService;
+  private final ChatHistoryService chatHistoryService;
   private String defaultChannelName;
 
   @VisibleForTesting
@@ -125,12 +127,15 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
    * Maps channels by name.
    */
   private ObservableMap<String, Channel> channels = observableHashMap();
-  /** Key is the result of {@link #mapKey(String, String)}. */
-  private ObservableMap<String, ChatChannelUser> chatChannelUsersByChannelAndName = observableMap(new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+  private final ChatUserRegistry chatUserRegistry = new ChatUserRegistry();
   private SimpleIntegerProperty unreadMessagesCount = new SimpleIntegerProperty();
 
   private Configuration configuration;
   private PircBotX pircBotX;
+  /** Sends all lines of the current connection, except for PONGs and QUIT. */
+  private IrcSendQueue sendQueue;
+  /** Whether the user has been told that the send queue is backed up, since the queue was empty last. */
+  private boolean sendQueueBacklogNotified;
   /** Called when the IRC server has confirmed our identity. */
   private CompletableFuture<Void> identifiedFuture = new CompletableFuture<>();
   private Task<Void> connectionTask;
@@ -165,6 +170,7 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
     addEventListener(JoinEvent.class, this::onJoinEvent);
     addEventListener(PartEvent.class, event -> onChatUserLeftChannel(event.getChannel().getName(), event.getUser().getNick()));
     addEventListener(QuitEvent.class, event -> onChatUserQuit(event.getUser().getNick()));
+    addEventListener(NickChangeEvent.class, event -> onChatUserNickChanged(event.getOldNick(), event.getNewNick()));
     addEventListener(TopicEvent.class, event -> getOrCreateChannel(event.getChannel().getName()).setTopic(event.getTopic()));
     addEventListener(MessageEvent.class, this::onMessage);
     addEventListener(ActionEvent.class, this::onAction);
@@ -177,25 +183,24 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
         (MapChangeListener<? super String, ? super Color>) change -> preferencesService.store()
     );
     JavaFxUtil.addListener(chatPrefs.chatColorModeProperty(), (observable, oldValue, newValue) -> {
-      synchronized (chatChannelUsersByChannelAndName) {
-        switch (newValue) {
-          case CUSTOM:
-            chatChannelUsersByChannelAndName.values().stream()
-                .filter(chatUser -> chatPrefs.getUserToColor().containsKey(userToColorKey(chatUser.getUsername())))
-                .forEach(chatUser -> chatUser.setColor(chatPrefs.getUserToColor().get(userToColorKey(chatUser.getUsername()))));
-            break;
-
-          case RANDOM:
-            for (ChatChannelUser chatUser : chatChannelUsersByChannelAndName.values()) {
-              chatUser.setColor(ColorGeneratorUtil.generateRandomColor(chatUser.getUsername().hashCode()));
-            }
-            break;
-
-          default:
-            for (ChatChannelUser chatUser : chatChannelUsersByChannelAndName.values()) {
-              chatUser.setColor(null);
-            }
-        }
+      List<ChatChannelUser> chatUsers = chatUserRegistry.getAllUsers();
+      switch (newValue) {
+        case CUSTOM:
+          chatUsers.stream()
+              .filter(chatUser -> chatPrefs.getUserToColor().containsKey(userToColorKey(chatUser.getUsername())))
+              .forEach(chatUser -> chatUser.setColor(chatPrefs.getUserToColor().get(userToColorKey(chatUser.getUsername()))));
+          break;
+
+        case RANDOM:
+          for (ChatChannelUser chatUser : chatUsers) {
+            chatUser.setColor(ColorGeneratorUtil.generateRandomColor(chatUser.getUsername().hashCode()));
+          }
+          break;
+
+        default:
+          for (ChatChannelUser chatUser : chatUsers) {
+            chatUser.setColor(null);
+          }
       }
     });
   }
@@ -253,7 +258,7 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
       if (containsIgnoreCase(message, config.getNickservOnSuccess()) || containsIgnoreCase(message, "registered under your account")) {
         onIdentified();
       } else if (message.contains("isn't registered")) {
-        pircBotX.sendIRC().message(config.getNickservNick(), format("register %s %s@users.faforever.com", getPassword(), userService.getUsername()));
+        sendControlMessage(config.getNickservNick(), format("register %s %s@users.faforever.com", getPassword(), userService.getUsername()));
       } else if (message.contains(" registered")) {
         // We just registered and are now identified
         onIdentified();
@@ -265,7 +270,11 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
   }
 
   private void sendIdentify(Configuration config) {
-    pircBotX.sendIRC().message(config.getNickservNick(), format("identify %s", getPassword()));
+    sendControlMessage(config.getNickservNick(), format("identify %s", getPassword()));
+  }
+
+  private void sendControlMessage(String target, String message) {
+    sendQueue.sendLine(Priority.CONTROL, "PRIVMSG " + target + " :" + message);
   }
 
   private void onIdentified() {
@@ -341,9 +350,9 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
       synchronized (channels) {
         channels.remove(channelName);
       }
-    }
-    synchronized (chatChannelUsersByChannelAndName) {
-      chatChannelUsersByChannelAndName.remove(mapKey(username, channelName));
+      chatUserRegistry.removeChannel(channelName);
+    } else {
+      chatUserRegistry.remove(username, channelName);
     }
     // The server doesn't yet tell us when a user goes offline, so we have to rely on the user leaving IRC.
     if (defaultChannelName.equals(channelName)) {
@@ -352,9 +361,27 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
   }
 
   private void onChatUserQuit(String username) {
-    synchronized (channels) {
-      channels.values().forEach(channel -> onChatUserLeftChannel(channel.getName(), username));
-    }
+    chatUserRegistry.getChannelUsers(username).keySet()
+        .forEach(channelName -> onChatUserLeftChannel(channelName, username));
+  }
+
+  @VisibleForTesting
+  void onChatUserNickChanged(String oldNick, String newNick) {
+    log.debug("User '{}' changed nick to: {}", oldNick, newNick);
+    chatUserRegistry.getChannelUsers(oldNick).forEach((channelName, oldChatUser) -> {
+      Channel channel = getOrCreateChannel(channelName);
+      channel.removeUser(oldNick);
+      chatUserRegistry.remove(oldNick, channelName);
+      ChatChannelUser newChatUser = getOrCreateChatUser(newNick, channelName, oldChatUser.isModerator());
+      channel.addUser(newChatUser);
+      oldChatUser.getPlayer().ifPresent(player -> JavaFxUtil.runLater(() -> {
+        player.getChatChannelUsers().remove(oldChatUser);
+        if (newChatUser.getPlayer().isEmpty()) {
+          newChatUser.setPlayer(player);
+          player.getChatChannelUsers().add(newChatUser);
+        }
+      }));
+    });
   }
 
   private void onModeratorSet(String channelName, String username) {
@@ -384,6 +411,23 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
         .buildConfiguration();
 
     pircBotX = pircBotXFactory.createPircBotX(configuration);
+
+    if (sendQueue != null) {
+      sendQueue.stop();
+    }
+    sendQueue = new IrcSendQueue(line -> pircBotX.sendRaw().rawLineNow(line), irc.getMessageBurst(), irc.getMessageInterval());
+    sendQueue.setQueuedLineCountListener(this::onQueuedLineCountChanged);
+    sendQueue.start();
+  }
+
+  private synchronized void onQueuedLineCountChanged(int queuedLineCount) {
+    if (queuedLineCount == 0) {
+      sendQueueBacklogNotified = false;
+    } else if (queuedLineCount > clientProperties.getIrc().getMessageBurst() && !sendQueueBacklogNotified) {
+      sendQueueBacklogNotified = true;
+      notificationService.addNotification(new TransientNotification(
+          i18n.get("chat.sendQueue.backlog.title"), i18n.get("chat.sendQueue.backlog.text", queuedLineCount)));
+    }
   }
 
   @NotNull
@@ -422,7 +466,7 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
     } else {
       source = channel.getName();
     }
-    eventBus.post(new ChatMessageEvent(new ChatMessage(source, Instant.ofEpochMilli(event.getTimestamp()), user.getNick(), event.getMessage(), true)));
+    postChatMessage(new ChatMessage(source, Instant.ofEpochMilli(event.getTimestamp()), user.getNick(), event.getMessage(), true));
   }
 
   private void onMessage(MessageEvent event) {
@@ -436,7 +480,7 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
     org.pircbotx.Channel channel = event.getChannel();
     source = channel.getName();
 
-    eventBus.post(new ChatMessageEvent(new ChatMessage(source, Instant.ofEpochMilli(event.getTimestamp()), user.getNick(), event.getMessage(), false)));
+    postChatMessage(new ChatMessage(source, Instant.ofEpochMilli(event.getTimestamp()), user.getNick(), event.getMessage(), false));
   }
 
   private void onPrivateMessage(PrivateMessageEvent event) {
@@ -455,7 +499,12 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
       log.debug("Suppressing chat message from foe '{}'", user.getNick());
       return;
     }
-    eventBus.post(new ChatMessageEvent(new ChatMessage(user.getNick(), Instant.ofEpochMilli(event.getTimestamp()), user.getNick(), event.getMessage())));
+    postChatMessage(new ChatMessage(user.getNick(), Instant.ofEpochMilli(event.getTimestamp()), user.getNick(), event.getMessage()));
+  }
+
+  private void postChatMessage(ChatMessage chatMessage) {
+    chatHistoryService.append(chatMessage);
+    eventBus.post(new ChatMessageEvent(chatMessage));
   }
 
   @Override
@@ -500,15 +549,8 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
 
   @Override
   public CompletableFuture<String> sendMessageInBackground(String target, String message) {
-    eventBus.post(new ChatMessageEvent(new ChatMessage(target, Instant.now(), userService.getUsername(), message)));
-    return taskService.submitTask(new CompletableTask<String>(HIGH) {
-      @Override
-      protected String call() {
-        updateTitle(i18n.get("chat.sendMessageTask.title"));
-        pircBotX.sendIRC().message(target, message);
-        return message;
-      }
-    }).getFuture();
+    postChatMessage(new ChatMessage(target, Instant.now(), userService.getUsername(), message));
+    return sendQueue.sendMessage(target, message).thenApplyAsync(aVoid -> message, JavaFxUtil::runLater);
   }
 
   @Override
@@ -523,24 +565,20 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
 
   @Override
   public ChatChannelUser getOrCreateChatUser(String username, String channel, boolean isModerator) {
-    synchronized (chatChannelUsersByChannelAndName) {
-      String key = mapKey(username, channel);
-      if (!chatChannelUsersByChannelAndName.containsKey(key)) {
-        ChatPrefs chatPrefs = preferencesService.getPreferences().getChat();
-        Color color = null;
-
-        if (chatPrefs.getChatColorMode() == CUSTOM && chatPrefs.getUserToColor().containsKey(userToColorKey(username))) {
-          color = chatPrefs.getUserToColor().get(userToColorKey(username));
-        } else if (chatPrefs.getChatColorMode() == RANDOM) {
-          color = ColorGeneratorUtil.generateRandomColor(userToColorKey(username).hashCode());
-        }
-
-        ChatChannelUser chatChannelUser = new ChatChannelUser(username, color, isModerator);
-        eventBus.post(new ChatUserCreatedEvent(chatChannelUser));
-        chatChannelUsersByChannelAndName.put(key, chatChannelUser);
+    return chatUserRegistry.computeIfAbsent(username, channel, () -> {
+      ChatPrefs chatPrefs = preferencesService.getPreferences().getChat();
+      Color color = null;
+
+      if (chatPrefs.getChatColorMode() == CUSTOM && chatPrefs.getUserToColor().containsKey(userToColorKey(username))) {
+        color = chatPrefs.getUserToColor().get(userToColorKey(username));
+      } else if (chatPrefs.getChatColorMode() == RANDOM) {
+        color = ColorGeneratorUtil.generateRandomColor(userToColorKey(username).hashCode());
       }
-      return chatChannelUsersByChannelAndName.get(key);
-    }
+
+      ChatChannelUser chatChannelUser = new ChatChannelUser(username, color, isModerator);
+      eventBus.post(new ChatUserCreatedEvent(chatChannelUser));
+      return chatChannelUser;
+    });
   }
 
   @Override
@@ -550,9 +588,7 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
 
   @Override
   public void addChatUsersByNameListener(MapChangeListener<String, ChatChannelUser> listener) {
-    synchronized (chatChannelUsersByChannelAndName) {
-      JavaFxUtil.addListener(chatChannelUsersByChannelAndName, listener);
-    }
+    chatUserRegistry.addUsersByNameListener(listener);
   }
 
   @Override
@@ -567,20 +603,15 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
 
   @Override
   public void leaveChannel(String channelName) {
-    pircBotX.getUserChannelDao().getChannel(channelName).send().part();
+    sendQueue.sendLine(Priority.CONTROL, "PART " + channelName);
   }
 
   @Override
   public CompletableFuture<String> sendActionInBackground(String target, String action) {
-    return taskService.submitTask(new CompletableTask<String>(HIGH) {
-      @Override
-      protected String call() {
-        updateTitle(i18n.get("chat.sendActionTask.title"));
-
-        pircBotX.sendIRC().action(target, action);
-        return action;
-      }
-    }).getFuture();
+    // The chat tab shows the action itself once it has been sent, so it's only added to the history then, too
+    return sendQueue.sendAction(target, action)
+        .thenRun(() -> chatHistoryService.append(new ChatMessage(target, Instant.now(), userService.getUsername(), action, true)))
+        .thenApplyAsync(aVoid -> action, JavaFxUtil::runLater);
   }
 
   @Override
@@ -588,7 +619,7 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
     log.debug("Joining channel (waiting for identification): {}", channelName);
     identifiedFuture.thenAccept(aVoid -> {
       log.debug("Joining channel: {}", channelName);
-      pircBotX.sendIRC().joinChannel(channelName);
+      sendQueue.sendLine(Priority.CONTROL, "JOIN " + channelName);
     });
   }
 
@@ -610,6 +641,9 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
     if (pircBotX != null) {
       pircBotX.sendIRC().quitServer();
     }
+    if (sendQueue != null) {
+      sendQueue.stop();
+    }
   }
 
   @Override
@@ -625,7 +659,7 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
 
   @Override
   public void whois(String username) {
-    pircBotX.sendIRC().whois(username);
+    sendQueue.sendLine(Priority.CONTROL, "WHOIS " + username);
   }
 
   @Override
@@ -640,7 +674,7 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
 
   @Override
   public ChatChannelUser getChatUser(String username, String channelName) {
-    return Optional.ofNullable(chatChannelUsersByChannelAndName.get(mapKey(username, channelName)))
+    return Optional.ofNullable(chatUserRegistry.get(username, channelName))
         .orElseThrow(() -> new IllegalArgumentException("Chat user '" + username + "' is unknown for channel '" + channelName + "'"));
   }
 
@@ -649,23 +683,13 @@ public class PircBotXChatService implements ChatService, InitializingBean, Dispo
     return defaultChannelName;
   }
 
-  private String mapKey(String username, String channelName) {
-    return username + channelName;
-  }
-
   @Subscribe
   public void onPlayerOnline(PlayerOnlineEvent event) {
     Player player = event.getPlayer();
 
-    synchronized (channels) {
-      List<ChatChannelUser> channelUsers = channels.values().stream()
-          .map(channel -> chatChannelUsersByChannelAndName.get(mapKey(player.getUsername(), channel.getName())))
-          .filter(Objects::nonNull)
-          .peek(chatChannelUser -> chatChannelUser.setPlayer(player))
-          .collect(Collectors.toList());
-
-      player.getChatChannelUsers().addAll(channelUsers);
-    }
+    Collection<ChatChannelUser> channelUsers = chatUserRegistry.getChannelUsers(player.getUsername()).values();
+    channelUsers.forEach(chatChannelUser -> chatChannelUser.setPlayer(player));
+    player.getChatChannelUsers().addAll(channelUsers);
   }
 
   interface ChatEventListener<T> {
@@ -2,6 +2,7 @@ package com.faforever.client.chat;
 
 import com.faforever.client.audio.AudioService;
 import com.faforever.client.chat.event.UnreadPrivateMessageEvent;
+import com.faforever.client.chat.history.ChatHistoryService;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.fx.WebViewConfigurer;
 import com.faforever.client.i18n.I18n;
@@ -59,10 +60,11 @@ public class PrivateChatTabController extends AbstractChatTabController {
                                   AudioService audioService,
                                   ChatService chatService,
                                   WebViewConfigurer webViewConfigurer,
-                                  CountryFlagService countryFlagService) {
+                                  CountryFlagService countryFlagService,
+                                  ChatHistoryService chatHistoryService) {
     super(webViewConfigurer, userService, chatService, preferencesService, playerService, audioService,
         timeService, i18n, imageUploadService, notificationService, reportingService, uiService, 
-        eventBus, countryFlagService);
+        eventBus, countryFlagService, chatHistoryService);
   }
 
 
@@ -119,7 +121,18 @@ public class PrivateChatTabController extends AbstractChatTabController {
     }
 
     super.onChatMessage(chatMessage);
+  }
 
+  /**
+   * Every private message is addressed to the user, so each one is reported like a mention.
+   */
+  @Override
+  protected boolean isMention(ChatMessage chatMessage) {
+    return true;
+  }
+
+  @Override
+  protected void onMention(ChatMessage chatMessage) {
     if (!hasFocus()) {
       audioService.playPrivateMessageSound();
       showNotificationIfNecessary(chatMessage);
@@ -1,10 +1,11 @@
 package com.faforever.client.chat.avatar;
 
+import com.faforever.client.fx.ImageCache;
 import com.faforever.client.remote.AssetService;
 import com.faforever.client.remote.FafService;
+import com.google.common.annotations.VisibleForTesting;
 import javafx.scene.image.Image;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
@@ -13,7 +14,6 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
-import static com.faforever.client.config.CacheNames.AVATARS;
 import static com.github.nocatch.NoCatch.noCatch;
 
 @Lazy
@@ -21,13 +21,27 @@ import static com.github.nocatch.NoCatch.noCatch;
 @RequiredArgsConstructor
 public class AvatarServiceImpl implements AvatarService {
 
+  /** Avatars are 40x20 pixels, so this holds a few thousand of them. */
+  private static final long MAXIMUM_AVATAR_CACHE_BYTES = 16 * 1024 * 1024;
+  private static final int ESTIMATED_AVATAR_BYTES = 40 * 20 * 4;
+
   private final FafService fafService;
   private final AssetService assetService;
+  private final ImageCache avatarImages = new ImageCache(MAXIMUM_AVATAR_CACHE_BYTES, ESTIMATED_AVATAR_BYTES);
 
+  /**
+   * Returns the avatar image, which may still be loading in the background. Concurrent requests for an avatar that
+   * isn't cached yet share the same image, so it's only read from disk or downloaded once.
+   */
   @Override
-  @Cacheable(AVATARS)
   public Image loadAvatar(String avatarUrl) {
-    return assetService.loadAndCacheImage(noCatch(() -> new URL(avatarUrl)), Paths.get("avatars"), null);
+    return avatarImages.get(avatarUrl,
+        url -> assetService.loadAndCacheImage(noCatch(() -> new URL(url)), Paths.get("avatars"), null, 0, 0, true));
+  }
+
+  @VisibleForTesting
+  ImageCache getAvatarImages() {
+    return avatarImages;
   }
 
   @Override
@@ -0,0 +1,177 @@
+package com.faforever.client.chat.history;
+
+import com.faforever.client.chat.ChatMessage;
+import com.faforever.client.preferences.PreferencesService;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.github.nocatch.NoCatch.noCatch;
+
+/**
+ * Keeps a local history of the messages of every channel and private conversation, so that they are still available
+ * after a chat tab has been closed or the client has been restarted. Messages older than the configured number of
+ * days are deleted on startup.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatHistoryService implements InitializingBean, DisposableBean {
+
+  /** How long to wait for pending messages to be written when the client shuts down. */
+  private static final Duration DESTROY_TIMEOUT = Duration.ofSeconds(5);
+
+  private final PreferencesService preferencesService;
+  private final ExecutorService executorService;
+
+  /** Chat logs by the name of their directory. */
+  private final Map<String, ChatLog> chatLogs = new HashMap<>();
+  private final Object appendLock = new Object();
+  /** Completes once the last appended message has been written. */
+  private CompletableFuture<Void> pendingAppends = CompletableFuture.completedFuture(null);
+
+  /**
+   * Returns the name of the directory of a channel or private conversation. Names are case-insensitive on IRC.
+   * Characters that aren't allowed in file names on every platform are percent-encoded. Private conversations are
+   * prefixed with {@code @} so that they can't collide with reserved file names.
+   */
+  @VisibleForTesting
+  static String getDirectoryName(String source) {
+    StringBuilder directoryName = new StringBuilder(source.startsWith("#") ? "" : "@");
+    for (byte b : source.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8)) {
+      if (b >= 'a' && b <= 'z' || b >= '0' && b <= '9' || b == '#' || b == '-' || b == '_') {
+        directoryName.append((char) b);
+      } else {
+        directoryName.append(String.format("%%%02X", b & 0xff));
+      }
+    }
+    return directoryName.toString();
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    executorService.execute(this::deleteExpiredMessages);
+  }
+
+  /**
+   * Adds a message to the history of its channel or private conversation. The message is written in background, after
+   * all previously appended messages, so that neither the application thread nor the IRC thread waits for the disk.
+   * Failures are logged, since a missing history entry must never affect the chat.
+   */
+  public void append(ChatMessage chatMessage) {
+    synchronized (appendLock) {
+      pendingAppends = pendingAppends
+          .thenRunAsync(() -> noCatch(() -> getChatLog(chatMessage.getSource()).append(chatMessage)), executorService)
+          .exceptionally(throwable -> {
+            log.warn("Could not add message to the chat history of '{}'", chatMessage.getSource(), throwable);
+            return null;
+          });
+    }
+  }
+
+  /**
+   * Loads the latest {@code limit} messages sent before the specified time, oldest first. Messages sent at the same time
+   * as the oldest one may exceed the limit, so the next older page can be loaded using the time of the oldest message.
+   */
+  public CompletableFuture<List<ChatMessage>> getMessagesBefore(String source, Instant before, int limit) {
+    return CompletableFuture.supplyAsync(() -> noCatch(() -> getChatLog(source).getMessagesBefore(before, limit)), executorService);
+  }
+
+  /**
+   * Loads all messages sent at or after {@code from} and before {@code to}, oldest first.
+   */
+  public CompletableFuture<List<ChatMessage>> getMessages(String source, Instant from, Instant to) {
+    return CompletableFuture.supplyAsync(() -> noCatch(() -> getChatLog(source).getMessages(from, to)), executorService);
+  }
+
+  /**
+   * Searches for messages whose username and text contain all words of the query, ignoring case. Returns up to {@code
+   * limit} messages, latest first.
+   */
+  public CompletableFuture<List<ChatMessage>> search(String source, String query, int limit) {
+    return CompletableFuture.supplyAsync(() -> noCatch(() -> getChatLog(source).search(query, limit)), executorService);
+  }
+
+  @VisibleForTesting
+  synchronized void deleteExpiredMessages() {
+    int retentionDays = preferencesService.getPreferences().getChat().getHistoryRetentionDays();
+    Path historyDirectory = preferencesService.getChatHistoryDirectory();
+    if (retentionDays <= 0 || Files.notExists(historyDirectory)) {
+      return;
+    }
+
+    LocalDate oldestKeptDay = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays);
+    try (Stream<Path> directories = Files.list(historyDirectory)) {
+      for (Path directory : directories.filter(Files::isDirectory).collect(Collectors.toList())) {
+        ChatLog chatLog = chatLogs.get(directory.getFileName().toString());
+        if (chatLog != null) {
+          chatLog.deleteDaysBefore(oldestKeptDay);
+        } else {
+          ChatLog.deleteDaysBefore(directory, oldestKeptDay);
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Could not delete expired chat history", e);
+    }
+  }
+
+  private synchronized ChatLog getChatLog(String source) throws IOException {
+    String directoryName = getDirectoryName(source);
+    ChatLog chatLog = chatLogs.get(directoryName);
+    if (chatLog == null) {
+      chatLog = new ChatLog(preferencesService.getChatHistoryDirectory().resolve(directoryName), source);
+      chatLogs.put(directoryName, chatLog);
+    }
+    return chatLog;
+  }
+
+  @Override
+  public void destroy() {
+    CompletableFuture<Void> lastAppend;
+    synchronized (appendLock) {
+      lastAppend = pendingAppends;
+    }
+    try {
+      lastAppend.get(DESTROY_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      log.warn("Not all messages could be added to the chat history", e);
+    }
+    closeChatLogs();
+  }
+
+  private synchronized void closeChatLogs() {
+    chatLogs.forEach((directoryName, chatLog) -> {
+      try {
+        chatLog.close();
+      } catch (IOException e) {
+        log.warn("Could not close chat history '{}'", directoryName, e);
+      }
+    });
+    chatLogs.clear();
+  }
+}
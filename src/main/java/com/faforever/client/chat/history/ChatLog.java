@@ -0,0 +1,255 @@
+package com.faforever.client.chat.history;
+
+import com.faforever.client.chat.ChatMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.faforever.client.chat.history.ChatLogSegment.LOG_FILE_EXTENSION;
+
+/**
+ * The chat history of a channel or private conversation, stored in a directory with one {@link ChatLogSegment} per UTC
+ * day. Only the most recently used segments are kept open. Thread-safe.
+ */
+@Slf4j
+class ChatLog implements Closeable {
+
+  private static final int MAX_OPEN_SEGMENTS = 8;
+  private static final Comparator<ChatMessage> TIME_ORDER = Comparator.comparing(ChatMessage::getTime);
+
+  private final Path directory;
+  private final String source;
+  private final NavigableSet<LocalDate> days = new TreeSet<>();
+  /** Open segments, least recently used first. */
+  private final Map<LocalDate, ChatLogSegment> openSegments = new LinkedHashMap<>(16, 0.75f, true);
+
+  ChatLog(Path directory, String source) throws IOException {
+    this.directory = directory;
+    this.source = source;
+    Files.createDirectories(directory);
+    days.addAll(listDays(directory));
+  }
+
+  /**
+   * Deletes the segments of the chat log in the specified directory that are older than the specified day.
+   */
+  static void deleteDaysBefore(Path directory, LocalDate day) throws IOException {
+    for (LocalDate logDay : listDays(directory).headSet(day, false)) {
+      Path logFile = directory.resolve(logDay + LOG_FILE_EXTENSION);
+      Files.deleteIfExists(ChatLogSegment.indexFileOf(logFile));
+      Files.deleteIfExists(logFile);
+    }
+  }
+
+  private static NavigableSet<LocalDate> listDays(Path directory) throws IOException {
+    NavigableSet<LocalDate> days = new TreeSet<>();
+    if (Files.notExists(directory)) {
+      return days;
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.collect(Collectors.toList())) {
+        String fileName = file.getFileName().toString();
+        if (!fileName.endsWith(LOG_FILE_EXTENSION)) {
+          continue;
+        }
+        try {
+          days.add(LocalDate.parse(fileName.substring(0, fileName.length() - LOG_FILE_EXTENSION.length())));
+        } catch (DateTimeParseException e) {
+          log.warn("Ignoring unexpected file in chat history: '{}'", file);
+        }
+      }
+    }
+    return days;
+  }
+
+  private static LocalDate dayOf(Instant instant) {
+    return LocalDate.ofInstant(instant, ZoneOffset.UTC);
+  }
+
+  synchronized void append(ChatMessage chatMessage) throws IOException {
+    LocalDate day = dayOf(chatMessage.getTime());
+    getSegment(day).append(chatMessage);
+    days.add(day);
+  }
+
+  /**
+   * Returns all messages sent at or after {@code from} and before {@code to}, oldest first.
+   */
+  synchronized List<ChatMessage> getMessages(Instant from, Instant to) throws IOException {
+    long fromMillis = from.toEpochMilli();
+    long toMillis = to.toEpochMilli();
+    List<ChatMessage> chatMessages = new ArrayList<>();
+    if (fromMillis >= toMillis) {
+      return chatMessages;
+    }
+
+    for (LocalDate day : days.subSet(dayOf(from), true, dayOf(to), true)) {
+      ChatLogSegment segment = getSegment(day);
+      for (int i = 0; i < segment.getBlockCount(); i++) {
+        if (segment.getBlockMaxTime(i) < fromMillis || segment.getBlockMinTime(i) >= toMillis) {
+          continue;
+        }
+        for (ChatMessage chatMessage : segment.readBlock(i)) {
+          long time = chatMessage.getTime().toEpochMilli();
+          if (time >= fromMillis && time < toMillis) {
+            chatMessages.add(chatMessage);
+          }
+        }
+      }
+    }
+    chatMessages.sort(TIME_ORDER);
+    return chatMessages;
+  }
+
+  /**
+   * Returns the latest {@code limit} messages sent before the specified time, oldest first. If there are more messages
+   * sent at the same time as the oldest returned one, they are returned as well, so that the next page can be requested
+   * using the time of the oldest returned message without missing any. Returns no messages if {@code limit} isn't
+   * positive.
+   */
+  synchronized List<ChatMessage> getMessagesBefore(Instant before, int limit) throws IOException {
+    if (limit <= 0) {
+      return new ArrayList<>();
+    }
+    long beforeMillis = before.toEpochMilli();
+    // Blocks are read from the latest to the oldest
+    List<List<ChatMessage>> blockMessages = new ArrayList<>();
+    List<Long> times = new ArrayList<>();
+    long oldestIncludedTime = Long.MIN_VALUE;
+
+    for (LocalDate day : days.headSet(dayOf(before), true).descendingSet()) {
+      ChatLogSegment segment = getSegment(day);
+      if (segment.getMaxTime() < oldestIncludedTime) {
+        break;
+      }
+      for (int i = segment.getBlockCount() - 1; i >= 0; i--) {
+        if (segment.getBlockMinTime(i) >= beforeMillis || segment.getBlockMaxTime(i) < oldestIncludedTime) {
+          continue;
+        }
+        List<ChatMessage> chatMessages = segment.readBlock(i).stream()
+            .filter(chatMessage -> chatMessage.getTime().toEpochMilli() < beforeMillis)
+            .collect(Collectors.toList());
+        blockMessages.add(chatMessages);
+        chatMessages.forEach(chatMessage -> times.add(chatMessage.getTime().toEpochMilli()));
+        if (times.size() >= limit) {
+          times.sort(Comparator.reverseOrder());
+          oldestIncludedTime = times.get(limit - 1);
+        }
+      }
+    }
+
+    Collections.reverse(blockMessages);
+    List<ChatMessage> chatMessages = blockMessages.stream()
+        .flatMap(List::stream)
+        .sorted(TIME_ORDER)
+        .collect(Collectors.toList());
+    if (chatMessages.size() <= limit) {
+      return chatMessages;
+    }
+    Instant oldestTime = Instant.ofEpochMilli(oldestIncludedTime);
+    int fromIndex = chatMessages.size() - limit;
+    while (fromIndex > 0 && chatMessages.get(fromIndex - 1).getTime().equals(oldestTime)) {
+      fromIndex--;
+    }
+    return new ArrayList<>(chatMessages.subList(fromIndex, chatMessages.size()));
+  }
+
+  /**
+   * Returns up to {@code limit} messages, latest first, whose username and text contain all words of the query,
+   * ignoring case.
+   */
+  synchronized List<ChatMessage> search(String query, int limit) throws IOException {
+    Set<String> tokens = ChatLogRecord.tokenize(query);
+    List<ChatMessage> results = new ArrayList<>();
+    if (tokens.isEmpty()) {
+      return results;
+    }
+
+    for (LocalDate day : days.descendingSet()) {
+      ChatLogSegment segment = getSegment(day);
+      for (int i = segment.getBlockCount() - 1; i >= 0; i--) {
+        if (!segment.mightContainAll(i, tokens)) {
+          continue;
+        }
+        List<ChatMessage> chatMessages = segment.readBlock(i);
+        for (int j = chatMessages.size() - 1; j >= 0; j--) {
+          ChatMessage chatMessage = chatMessages.get(j);
+          if (ChatLogRecord.tokenize(chatMessage).containsAll(tokens)) {
+            results.add(chatMessage);
+            if (results.size() == limit) {
+              return results;
+            }
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Deletes all segments older than the specified day.
+   */
+  synchronized void deleteDaysBefore(LocalDate day) throws IOException {
+    for (LocalDate expiredDay : days.headSet(day, false)) {
+      ChatLogSegment segment = openSegments.remove(expiredDay);
+      if (segment != null) {
+        segment.close();
+      }
+    }
+    days.headSet(day, false).clear();
+    deleteDaysBefore(directory, day);
+  }
+
+  private ChatLogSegment getSegment(LocalDate day) throws IOException {
+    ChatLogSegment segment = openSegments.get(day);
+    if (segment != null) {
+      return segment;
+    }
+
+    segment = ChatLogSegment.open(directory.resolve(day + LOG_FILE_EXTENSION), source);
+    openSegments.put(day, segment);
+    Iterator<Entry<LocalDate, ChatLogSegment>> iterator = openSegments.entrySet().iterator();
+    while (openSegments.size() > MAX_OPEN_SEGMENTS) {
+      ChatLogSegment leastRecentlyUsedSegment = iterator.next().getValue();
+      iterator.remove();
+      leastRecentlyUsedSegment.close();
+    }
+    return segment;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    IOException exception = null;
+    for (ChatLogSegment segment : openSegments.values()) {
+      try {
+        segment.close();
+      } catch (IOException e) {
+        exception = e;
+      }
+    }
+    openSegments.clear();
+    if (exception != null) {
+      throw exception;
+    }
+  }
+}
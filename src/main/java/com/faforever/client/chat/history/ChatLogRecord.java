@@ -0,0 +1,168 @@
+package com.faforever.client.chat.history;
+
+import com.faforever.client.chat.ChatMessage;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Encodes chat messages as lines of a {@link ChatLogSegment}. A line consists of the hex CRC32 of the rest of the line,
+ * the time in epoch milliseconds, {@code a} for actions or {@code m} for messages, the username and the message, all
+ * separated by tabs. Backslashes, tabs and line breaks within the username and message are escaped.
+ */
+final class ChatLogRecord {
+
+  static final byte TERMINATOR = '\n';
+  private static final byte SEPARATOR = '\t';
+  private static final int CHECKSUM_LENGTH = 8;
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(UTF_8);
+  private static final Pattern TOKEN_SEPARATOR_PATTERN = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private ChatLogRecord() {
+    throw new AssertionError("Not instantiatable");
+  }
+
+  /**
+   * Returns the line of the specified message, including the line break.
+   */
+  static byte[] encode(ChatMessage chatMessage) {
+    String body = chatMessage.getTime().toEpochMilli()
+        + "\t" + (chatMessage.isAction() ? 'a' : 'm')
+        + "\t" + escape(chatMessage.getUsername())
+        + "\t" + escape(chatMessage.getMessage());
+    byte[] bodyBytes = body.getBytes(UTF_8);
+
+    byte[] record = new byte[CHECKSUM_LENGTH + 1 + bodyBytes.length + 1];
+    long checksum = checksum(bodyBytes, 0, bodyBytes.length);
+    for (int i = CHECKSUM_LENGTH - 1; i >= 0; i--) {
+      record[i] = HEX_DIGITS[(int) (checksum & 0xf)];
+      checksum >>>= 4;
+    }
+    record[CHECKSUM_LENGTH] = SEPARATOR;
+    System.arraycopy(bodyBytes, 0, record, CHECKSUM_LENGTH + 1, bodyBytes.length);
+    record[record.length - 1] = TERMINATOR;
+    return record;
+  }
+
+  /**
+   * Decodes a line without its line break. Returns {@code null} if the line is corrupt.
+   */
+  @Nullable
+  static ChatMessage decode(byte[] buffer, int offset, int length, String source) {
+    if (length < CHECKSUM_LENGTH + 1 || buffer[offset + CHECKSUM_LENGTH] != SEPARATOR) {
+      return null;
+    }
+    long expectedChecksum = 0;
+    for (int i = 0; i < CHECKSUM_LENGTH; i++) {
+      int digit = Character.digit(buffer[offset + i], 16);
+      if (digit < 0) {
+        return null;
+      }
+      expectedChecksum = expectedChecksum << 4 | digit;
+    }
+    int bodyOffset = offset + CHECKSUM_LENGTH + 1;
+    int bodyLength = length - CHECKSUM_LENGTH - 1;
+    if (checksum(buffer, bodyOffset, bodyLength) != expectedChecksum) {
+      return null;
+    }
+
+    String[] fields = new String(buffer, bodyOffset, bodyLength, UTF_8).split("\t", -1);
+    if (fields.length != 4 || fields[1].length() != 1) {
+      return null;
+    }
+    try {
+      Instant time = Instant.ofEpochMilli(Long.parseLong(fields[0]));
+      return new ChatMessage(source, time, unescape(fields[2]), unescape(fields[3]), fields[1].charAt(0) == 'a');
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Splits a text into lower case words, as they are indexed and searched for.
+   */
+  static Set<String> tokenize(String text) {
+    Set<String> tokens = new HashSet<>();
+    for (String token : TOKEN_SEPARATOR_PATTERN.split(text.toLowerCase(Locale.ROOT))) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Returns the words of a message's username and text.
+   */
+  static Set<String> tokenize(ChatMessage chatMessage) {
+    Set<String> tokens = tokenize(chatMessage.getMessage());
+    tokens.addAll(tokenize(chatMessage.getUsername()));
+    return tokens;
+  }
+
+  private static long checksum(byte[] buffer, int offset, int length) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(buffer, offset, length);
+    return crc32.getValue();
+  }
+
+  private static String escape(String string) {
+    StringBuilder builder = new StringBuilder(string.length());
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      switch (c) {
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        default:
+          builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+
+  private static String unescape(String string) {
+    if (string.indexOf('\\') < 0) {
+      return string;
+    }
+    StringBuilder builder = new StringBuilder(string.length());
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      if (c != '\\' || i + 1 == string.length()) {
+        builder.append(c);
+        continue;
+      }
+      char escaped = string.charAt(++i);
+      switch (escaped) {
+        case 't':
+          builder.append('\t');
+          break;
+        case 'n':
+          builder.append('\n');
+          break;
+        case 'r':
+          builder.append('\r');
+          break;
+        default:
+          builder.append(escaped);
+      }
+    }
+    return builder.toString();
+  }
+}
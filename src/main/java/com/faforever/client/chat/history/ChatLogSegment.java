@@ -0,0 +1,340 @@
+package com.faforever.client.chat.history;
+
+import com.faforever.client.chat.ChatMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * One day of a {@link ChatLog}: an append-only file of {@link ChatLogRecord}s and a sparse index of it. The index
+ * divides the file into blocks of {@value #RECORDS_PER_BLOCK} records and keeps the time range and a Bloom filter of
+ * the words of each block, so that queries only read the blocks that can contain matching messages.
+ * <p>
+ * The index is written next to the log file when the segment is closed. When the segment is opened again, only the
+ * records appended after that are read. If the client was killed while writing a record, the incomplete record is cut
+ * off when the segment is opened. Not thread-safe.
+ */
+@Slf4j
+class ChatLogSegment implements Closeable {
+
+  static final String LOG_FILE_EXTENSION = ".log";
+  static final String INDEX_FILE_EXTENSION = ".idx";
+  static final int RECORDS_PER_BLOCK = 64;
+  private static final int BLOOM_FILTER_BITS = 4096;
+  private static final int BLOOM_FILTER_HASHES = 3;
+  private static final int INDEX_FORMAT_VERSION = 1;
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  private final Path logFile;
+  private final Path indexFile;
+  private final String source;
+  private final FileChannel channel;
+  private final List<Block> blocks = new ArrayList<>();
+  /** The end of the last valid record. */
+  private long length;
+  private boolean indexChanged;
+
+  private ChatLogSegment(Path logFile, String source) throws IOException {
+    this.logFile = logFile;
+    this.source = source;
+    indexFile = indexFileOf(logFile);
+    channel = FileChannel.open(logFile, READ, WRITE, CREATE);
+  }
+
+  /**
+   * Opens or creates the segment stored in the specified log file.
+   */
+  static ChatLogSegment open(Path logFile, String source) throws IOException {
+    ChatLogSegment segment = new ChatLogSegment(logFile, source);
+    try {
+      segment.load();
+    } catch (IOException | RuntimeException e) {
+      segment.channel.close();
+      throw e;
+    }
+    return segment;
+  }
+
+  static Path indexFileOf(Path logFile) {
+    String fileName = logFile.getFileName().toString();
+    return logFile.resolveSibling(fileName.substring(0, fileName.length() - LOG_FILE_EXTENSION.length()) + INDEX_FILE_EXTENSION);
+  }
+
+  private void load() throws IOException {
+    long fileSize = channel.size();
+    if (!readIndex(fileSize)) {
+      blocks.clear();
+      length = 0;
+    }
+
+    int[] corruptRecordCount = new int[1];
+    forEachRecord(length, fileSize, (start, end, chatMessage) -> {
+      if (chatMessage == null) {
+        corruptRecordCount[0]++;
+      } else {
+        index(start, end, chatMessage);
+      }
+    });
+    if (corruptRecordCount[0] > 0) {
+      log.warn("Skipped {} corrupt records in chat log '{}'", corruptRecordCount[0], logFile);
+    }
+    if (length < fileSize) {
+      log.warn("Cutting off {} bytes of an incomplete record at the end of chat log '{}'", fileSize - length, logFile);
+      channel.truncate(length);
+    }
+  }
+
+  void append(ChatMessage chatMessage) throws IOException {
+    ByteBuffer record = ByteBuffer.wrap(ChatLogRecord.encode(chatMessage));
+    long position = length;
+    while (record.hasRemaining()) {
+      position += channel.write(record, position);
+    }
+    index(length, position, chatMessage);
+  }
+
+  private void index(long start, long end, ChatMessage chatMessage) {
+    Block block = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+    if (block == null || block.count == RECORDS_PER_BLOCK) {
+      block = new Block(start);
+      blocks.add(block);
+    }
+    block.add(end, chatMessage.getTime().toEpochMilli(), ChatLogRecord.tokenize(chatMessage));
+    length = end;
+    indexChanged = true;
+  }
+
+  int getBlockCount() {
+    return blocks.size();
+  }
+
+  long getBlockMinTime(int blockIndex) {
+    return blocks.get(blockIndex).minTime;
+  }
+
+  long getBlockMaxTime(int blockIndex) {
+    return blocks.get(blockIndex).maxTime;
+  }
+
+  /**
+   * Returns the latest time of any message in this segment, or {@link Long#MIN_VALUE} if it's empty.
+   */
+  long getMaxTime() {
+    long maxTime = Long.MIN_VALUE;
+    for (Block block : blocks) {
+      maxTime = Math.max(maxTime, block.maxTime);
+    }
+    return maxTime;
+  }
+
+  /**
+   * Returns {@code false} if no message of the specified block contains all of the specified words. Otherwise, it
+   * probably does.
+   */
+  boolean mightContainAll(int blockIndex, Collection<String> tokens) {
+    Block block = blocks.get(blockIndex);
+    for (String token : tokens) {
+      if (!block.mightContain(token)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the messages of the specified block in the order they have been appended.
+   */
+  List<ChatMessage> readBlock(int blockIndex) throws IOException {
+    Block block = blocks.get(blockIndex);
+    List<ChatMessage> chatMessages = new ArrayList<>(block.count);
+    forEachRecord(block.offset, block.end, (start, end, chatMessage) -> {
+      if (chatMessage != null) {
+        chatMessages.add(chatMessage);
+      }
+    });
+    return chatMessages;
+  }
+
+  /**
+   * Calls the handler for each complete line between the two positions. Lines that can't be decoded are passed as
+   * {@code null}.
+   */
+  private void forEachRecord(long from, long to, RecordHandler handler) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_BUFFER_SIZE, Math.max(to - from, 1)));
+    long bufferPosition = from;
+    long readPosition = from;
+    while (readPosition < to) {
+      buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + to - readPosition));
+      int read = channel.read(buffer, readPosition);
+      if (read < 0) {
+        break;
+      }
+      readPosition += read;
+      buffer.flip();
+
+      byte[] array = buffer.array();
+      int lineStart = 0;
+      for (int i = 0; i < buffer.limit(); i++) {
+        if (array[i] == ChatLogRecord.TERMINATOR) {
+          ChatMessage chatMessage = ChatLogRecord.decode(array, lineStart, i - lineStart, source);
+          handler.onRecord(bufferPosition + lineStart, bufferPosition + i + 1, chatMessage);
+          lineStart = i + 1;
+        }
+      }
+
+      // Keep the beginning of a line that continues behind the buffer
+      bufferPosition += lineStart;
+      buffer.position(lineStart);
+      buffer.compact();
+      if (!buffer.hasRemaining()) {
+        ByteBuffer largerBuffer = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        largerBuffer.put(buffer);
+        buffer = largerBuffer;
+      }
+    }
+  }
+
+  private boolean readIndex(long fileSize) {
+    if (Files.notExists(indexFile)) {
+      return false;
+    }
+    try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+      if (inputStream.readInt() != INDEX_FORMAT_VERSION) {
+        return false;
+      }
+      long indexedLength = inputStream.readLong();
+      if (indexedLength > fileSize) {
+        log.warn("Chat log '{}' is shorter than its index, rebuilding the index", logFile);
+        return false;
+      }
+      int blockCount = inputStream.readInt();
+      for (int i = 0; i < blockCount; i++) {
+        blocks.add(Block.read(inputStream));
+      }
+      length = indexedLength;
+      indexChanged = false;
+      return true;
+    } catch (IOException e) {
+      log.warn("Could not read index of chat log '{}', rebuilding it", logFile, e);
+      return false;
+    }
+  }
+
+  private void writeIndex() throws IOException {
+    Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+      outputStream.writeInt(INDEX_FORMAT_VERSION);
+      outputStream.writeLong(length);
+      outputStream.writeInt(blocks.size());
+      for (Block block : blocks) {
+        block.write(outputStream);
+      }
+    }
+    Files.move(tempFile, indexFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    indexChanged = false;
+  }
+
+  /**
+   * Closes the log file and writes the index if it has changed.
+   */
+  @Override
+  public void close() throws IOException {
+    try (channel) {
+      if (indexChanged) {
+        writeIndex();
+      }
+    }
+  }
+
+  private interface RecordHandler {
+    void onRecord(long start, long end, ChatMessage chatMessage);
+  }
+
+  private static class Block {
+    private final long offset;
+    private final long[] bloomFilter = new long[BLOOM_FILTER_BITS / Long.SIZE];
+    private long end;
+    private int count;
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+
+    private Block(long offset) {
+      this.offset = offset;
+    }
+
+    private static Block read(DataInputStream inputStream) throws IOException {
+      Block block = new Block(inputStream.readLong());
+      block.end = inputStream.readLong();
+      block.count = inputStream.readInt();
+      block.minTime = inputStream.readLong();
+      block.maxTime = inputStream.readLong();
+      for (int i = 0; i < block.bloomFilter.length; i++) {
+        block.bloomFilter[i] = inputStream.readLong();
+      }
+      return block;
+    }
+
+    private static int hash(int value) {
+      int hash = value * 0x9e3779b9;
+      return hash ^ hash >>> 16;
+    }
+
+    private void write(DataOutputStream outputStream) throws IOException {
+      outputStream.writeLong(offset);
+      outputStream.writeLong(end);
+      outputStream.writeInt(count);
+      outputStream.writeLong(minTime);
+      outputStream.writeLong(maxTime);
+      for (long bits : bloomFilter) {
+        outputStream.writeLong(bits);
+      }
+    }
+
+    private void add(long end, long time, Set<String> tokens) {
+      this.end = end;
+      count++;
+      minTime = Math.min(minTime, time);
+      maxTime = Math.max(maxTime, time);
+      for (String token : tokens) {
+        int hash1 = hash(token.hashCode());
+        int hash2 = hash(hash1) | 1;
+        for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+          int bit = (hash1 + i * hash2) & (BLOOM_FILTER_BITS - 1);
+          bloomFilter[bit / Long.SIZE] |= 1L << bit;
+        }
+      }
+    }
+
+    private boolean mightContain(String token) {
+      int hash1 = hash(token.hashCode());
+      int hash2 = hash(hash1) | 1;
+      for (int i = 0; i < BLOOM_FILTER_HASHES; i++) {
+        int bit = (hash1 + i * hash2) & (BLOOM_FILTER_BITS - 1);
+        if ((bloomFilter[bit / Long.SIZE] & 1L << bit) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -18,11 +18,9 @@ import java.util.Arrays;
 import static com.faforever.client.config.CacheNames.ACHIEVEMENTS;
 import static com.faforever.client.config.CacheNames.ACHIEVEMENT_IMAGES;
 import static com.faforever.client.config.CacheNames.AVAILABLE_AVATARS;
-import static com.faforever.client.config.CacheNames.AVATARS;
 import static com.faforever.client.config.CacheNames.CLAN;
 import static com.faforever.client.config.CacheNames.COOP_LEADERBOARD;
 import static com.faforever.client.config.CacheNames.COOP_MAPS;
-import static com.faforever.client.config.CacheNames.COUNTRY_FLAGS;
 import static com.faforever.client.config.CacheNames.FEATURED_MODS;
 import static com.faforever.client.config.CacheNames.FEATURED_MOD_FILES;
 import static com.faforever.client.config.CacheNames.GLOBAL_LEADERBOARD;
@@ -69,10 +67,8 @@ public class CacheConfig extends CachingConfigurerSupport {
         // Images should only be cached as long as they are in use. This avoids loading an image multiple times, while
         // at the same time it doesn't prevent unused images from being garbage collected.
         new CaffeineCache(ACHIEVEMENT_IMAGES, newBuilder().weakValues().build()),
-        new CaffeineCache(AVATARS, newBuilder().weakValues().build()),
         new CaffeineCache(URL_PREVIEW, newBuilder().weakValues().expireAfterAccess(30, MINUTES).build()),
         new CaffeineCache(MAP_PREVIEW, newBuilder().weakValues().build()),
-        new CaffeineCache(COUNTRY_FLAGS, newBuilder().weakValues().build()),
         new CaffeineCache(THEME_IMAGES, newBuilder().weakValues().build()),
         new CaffeineCache(MOD_THUMBNAIL, newBuilder().weakValues().build()
         )));
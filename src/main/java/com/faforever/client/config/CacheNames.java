@@ -2,8 +2,6 @@ package com.faforever.client.config;
 
 public final class CacheNames {
 
-  public static final String AVATARS = "avatars";
-  public static final String COUNTRY_FLAGS = "countryFlags";
   public static final String MAP_PREVIEW = "mapPreview";
   public static final String URL_PREVIEW = "urlPreview";
   public static final String STATISTICS = "statistics";
@@ -69,6 +69,10 @@ public class ClientProperties {
     @Deprecated
     private String defaultChannel = "#aeolus";
     private int reconnectDelay = (int) Duration.ofSeconds(5).toMillis();
+    /** Number of lines that may be sent at once without being considered flooding. */
+    private int messageBurst = 5;
+    /** Time after which one more line may be sent, once the burst has been used up. */
+    private int messageInterval = (int) Duration.ofSeconds(2).toMillis();
   }
 
   @Data
@@ -0,0 +1,103 @@
+package com.faforever.client.fx;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import javafx.scene.image.Image;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Function;
+
+/**
+ * Keeps decoded images in memory, bounded by the number of bytes their pixels take up rather than by their number.
+ * Images that are still being loaded in the background are weighed with an estimate until they are complete.
+ * <p>
+ * Concurrent requests for an image that isn't cached yet are coalesced, so the loader is only called once per key.
+ * Loaders should create images that load in the background, since they are called on the requesting thread.
+ */
+public class ImageCache {
+
+  /** JavaFX keeps decoded images as 32 bit premultiplied BGRA. */
+  private static final int BYTES_PER_PIXEL = 4;
+
+  private final Cache<String, Image> cache;
+  private final int estimatedImageBytes;
+
+  /**
+   * @param maximumBytes the maximum number of bytes the pixels of all cached images may take up
+   * @param estimatedImageBytes the assumed number of bytes of an image that hasn't been loaded completely
+   */
+  public ImageCache(long maximumBytes, int estimatedImageBytes) {
+    this.estimatedImageBytes = estimatedImageBytes;
+    cache = Caffeine.newBuilder()
+        .maximumWeight(maximumBytes)
+        .weigher(this::weigh)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns the cached image for the specified key, or loads it using the specified loader. Returns {@code null} if the
+   * loader does. Images that failed to load are not cached, so they are loaded again the next time they are requested.
+   */
+  @Nullable
+  public Image get(String key, Function<String, Image> loader) {
+    Image[] loadedImage = new Image[1];
+    Image image = cache.get(key, k -> {
+      loadedImage[0] = loader.apply(k);
+      return cacheableImage(k, loadedImage[0]);
+    });
+    return image != null ? image : loadedImage[0];
+  }
+
+  /**
+   * Returns the image if it may be cached, which is unless it failed to load. Images that are still loading are watched,
+   * so that they are removed if they fail and their weight is updated once they are complete.
+   */
+  @Nullable
+  private Image cacheableImage(String key, @Nullable Image image) {
+    if (image == null) {
+      return null;
+    }
+    if (image.getProgress() < 1) {
+      JavaFxUtil.addListener(image.progressProperty(), (observable, oldValue, newValue) -> {
+        if (newValue.doubleValue() >= 1) {
+          onLoaded(key, image);
+        }
+      });
+    }
+    // Checked after the listener has been added, since the image may have finished loading in the meantime
+    return image.isError() ? null : image;
+  }
+
+  private void onLoaded(String key, Image image) {
+    if (image.isError()) {
+      cache.asMap().remove(key, image);
+    } else {
+      // Replacing the image with itself updates its weight
+      cache.asMap().replace(key, image, image);
+    }
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  public long estimatedSize() {
+    return cache.estimatedSize();
+  }
+
+  /**
+   * Performs pending maintenance like evictions. Only needed to get exact results in tests.
+   */
+  public void cleanUp() {
+    cache.cleanUp();
+  }
+
+  private int weigh(String key, Image image) {
+    if (image.getProgress() < 1 || image.getWidth() == 0) {
+      return estimatedImageBytes;
+    }
+    return (int) Math.min(Integer.MAX_VALUE, (long) image.getWidth() * (long) image.getHeight() * BYTES_PER_PIXEL);
+  }
+}
@@ -52,7 +52,6 @@ import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.ObservableMap;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -69,9 +68,11 @@ import java.net.URI;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -112,10 +113,10 @@ public class GameService implements InitializingBean {
   @VisibleForTesting
   final SimpleObjectProperty<Game> currentGame;
 
-  /**
-   * An observable copy of {@link #uidToGameInfoBean}. <strong>Do not modify its content directly</strong>.
-   */
-  private final ObservableMap<Integer, Game> uidToGameInfoBean;
+  private final Map<Integer, Game> uidToGameInfoBean;
+  /** Game infos that have been received but not yet applied, merged by game ID. Access must be synchronized. */
+  private final Map<Integer, GameInfoMessage> pendingGameInfos;
+  private final Map<Integer, TeamRatings> teamRatingsByUid;
 
   private final FafService fafService;
   private final ForgedAllianceService forgedAllianceService;
@@ -138,6 +139,10 @@ public class GameService implements InitializingBean {
   @VisibleForTesting
   RatingMode ratingMode;
 
+  /**
+   * An observable copy of the values of {@link #uidToGameInfoBean}. <strong>Do not modify its content
+   * directly</strong>.
+   */
   private final ObservableList<Game> games;
   private final String faWindowTitle;
   private final BooleanProperty searching1v1;
@@ -145,6 +150,8 @@ public class GameService implements InitializingBean {
   private Process process;
   private boolean rehostRequested;
   private int localReplayPort;
+  /** Whether {@link #applyPendingGameInfos()} has been scheduled but not yet run. Guarded by {@link #pendingGameInfos}. */
+  private boolean gameInfoApplyScheduled;
 
   @Inject
   public GameService(ClientProperties clientProperties,
@@ -184,7 +191,9 @@ public class GameService implements InitializingBean {
     this.reconnectTimerService = reconnectTimerService;
 
     faWindowTitle = clientProperties.getForgedAlliance().getWindowTitle();
-    uidToGameInfoBean = FXCollections.observableMap(new ConcurrentHashMap<>());
+    uidToGameInfoBean = new ConcurrentHashMap<>();
+    pendingGameInfos = new LinkedHashMap<>();
+    teamRatingsByUid = new ConcurrentHashMap<>();
     searching1v1 = new SimpleBooleanProperty();
     gameRunning = new SimpleBooleanProperty();
     currentGame = new SimpleObjectProperty<>();
@@ -210,7 +219,6 @@ public class GameService implements InitializingBean {
       statusChangeListener.changed(newValue.statusProperty(), newValue.getStatus(), newValue.getStatus());
     });
 
-    JavaFxUtil.attachListToMap(games, uidToGameInfoBean);
     JavaFxUtil.addListener(
         gameRunning,
         (observable, oldValue, newValue) -> reconnectTimerService.setGameRunning(newValue)
@@ -218,15 +226,23 @@ public class GameService implements InitializingBean {
 
     eventBus.register(this);
 
-    fafService.addOnMessageListener(GameInfoMessage.class, message -> Platform.runLater(() -> onGameInfo(message)));
+    fafService.addOnMessageListener(GameInfoMessage.class, this::onGameInfo);
     fafService.addOnMessageListener(LoginMessage.class, message -> onLoggedIn());
 
     JavaFxUtil.addListener(
         fafService.connectionStateProperty(),
         (observable, oldValue, newValue) -> {
           if (newValue == ConnectionState.DISCONNECTED) {
+            synchronized (pendingGameInfos) {
+              pendingGameInfos.clear();
+            }
             synchronized (uidToGameInfoBean) {
               uidToGameInfoBean.clear();
+              teamRatingsByUid.values().forEach(TeamRatings::dispose);
+              teamRatingsByUid.clear();
+            }
+            synchronized (games) {
+              games.clear();
             }
           }
         }
@@ -675,21 +691,70 @@ public class GameService implements InitializingBean {
     }
   }
 
+  /**
+   * Queues the game info to be applied on the application thread. Game infos that arrive before the queue has been
+   * applied are merged by game ID, so a burst of updates results in a single application thread task that only applies
+   * the latest state of each game.
+   */
   private void onGameInfo(GameInfoMessage gameInfoMessage) {
+    synchronized (pendingGameInfos) {
+      if (gameInfoMessage.getGames() != null) {
+        gameInfoMessage.getGames().forEach(game -> pendingGameInfos.put(game.getUid(), game));
+      } else {
+        pendingGameInfos.put(gameInfoMessage.getUid(), gameInfoMessage);
+      }
+
+      if (gameInfoApplyScheduled) {
+        return;
+      }
+      gameInfoApplyScheduled = true;
+    }
+    Platform.runLater(this::applyPendingGameInfos);
+  }
+
+  @VisibleForTesting
+  void applyPendingGameInfos() {
     // Since all game updates are usually reflected on the UI and to prevent deadlocks
     JavaFxUtil.assertApplicationThread();
 
-    if (gameInfoMessage.getGames() != null) {
-      gameInfoMessage.getGames().forEach(this::onGameInfo);
-      return;
+    List<GameInfoMessage> gameInfoMessages;
+    synchronized (pendingGameInfos) {
+      gameInfoMessages = new ArrayList<>(pendingGameInfos.values());
+      pendingGameInfos.clear();
+      gameInfoApplyScheduled = false;
     }
 
     // We may receive game info before we receive our player info
     Optional<Player> currentPlayerOptional = playerService.getCurrentPlayer();
 
-    Game game = createOrUpdateGame(gameInfoMessage);
-    if (GameStatus.CLOSED == game.getStatus()) {
+    List<Game> addedGames = new ArrayList<>();
+    Set<Game> removedGames = new HashSet<>();
+    for (GameInfoMessage gameInfoMessage : gameInfoMessages) {
+      applyGameInfo(gameInfoMessage, currentPlayerOptional, addedGames, removedGames);
+    }
+
+    synchronized (games) {
+      if (!removedGames.isEmpty()) {
+        games.removeAll(removedGames);
+      }
+      if (!addedGames.isEmpty()) {
+        games.addAll(addedGames);
+      }
+    }
+  }
+
+  private void applyGameInfo(GameInfoMessage gameInfoMessage, Optional<Player> currentPlayerOptional,
+                             List<Game> addedGames, Set<Game> removedGames) {
+    boolean closed = GameStatus.CLOSED == gameInfoMessage.getState();
+    if (closed && !uidToGameInfoBean.containsKey(gameInfoMessage.getUid())) {
+      // Opened and closed before it was ever applied
+      return;
+    }
+
+    Game game = createOrUpdateGame(gameInfoMessage, addedGames);
+    if (closed) {
       removeGame(gameInfoMessage);
+      removedGames.add(game);
       if (!currentPlayerOptional.isPresent() || !Objects.equals(currentGame.get(), game)) {
         return;
       }
@@ -714,19 +779,9 @@ public class GameService implements InitializingBean {
         }
       }
     }
-
-
-    JavaFxUtil.addListener(game.statusProperty(), (observable, oldValue, newValue) -> {
-      if (oldValue == GameStatus.OPEN
-          && newValue == GameStatus.PLAYING
-          && game.getTeams().values().stream().anyMatch(team -> playerService.getCurrentPlayer().isPresent() && team.contains(playerService.getCurrentPlayer().get().getUsername()))
-          && !platformService.isWindowFocused(faWindowTitle)) {
-        platformService.focusWindow(faWindowTitle);
-      }
-    });
   }
 
-  private Game createOrUpdateGame(GameInfoMessage gameInfoMessage) {
+  private Game createOrUpdateGame(GameInfoMessage gameInfoMessage, List<Game> addedGames) {
     Integer gameId = gameInfoMessage.getUid();
     final Game game;
     synchronized (uidToGameInfoBean) {
@@ -734,6 +789,8 @@ public class GameService implements InitializingBean {
         game = new Game();
         uidToGameInfoBean.put(gameId, game);
         updateFromGameInfo(gameInfoMessage, game);
+        JavaFxUtil.addListener(game.statusProperty(), generateFocusOnGameStartListener(game));
+        addedGames.add(game);
         eventBus.post(new GameAddedEvent(game));
       } else {
         game = uidToGameInfoBean.get(gameId);
@@ -751,6 +808,17 @@ public class GameService implements InitializingBean {
     return game;
   }
 
+  private ChangeListener<GameStatus> generateFocusOnGameStartListener(Game game) {
+    return (observable, oldValue, newValue) -> {
+      if (oldValue == GameStatus.OPEN
+          && newValue == GameStatus.PLAYING
+          && game.getTeams().values().stream().anyMatch(team -> playerService.getCurrentPlayer().isPresent() && team.contains(playerService.getCurrentPlayer().get().getUsername()))
+          && !platformService.isWindowFocused(faWindowTitle)) {
+        platformService.focusWindow(faWindowTitle);
+      }
+    };
+  }
+
   public int parseRating(String string) {
     try {
       return Integer.parseInt(string);
@@ -769,15 +837,9 @@ public class GameService implements InitializingBean {
     }
   }
 
-  private double calcAverageRating(GameInfoMessage gameInfoMessage) {
-    return gameInfoMessage.getTeams().values().stream()
-        .flatMap(Collection::stream)
-        .map(playerService::getPlayerForUsername)
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .mapToInt(RatingUtil::getGlobalRating)
-        .average()
-        .orElse(0.0);
+  private void updateAverageRating(GameInfoMessage gameInfoMessage, Game game) {
+    teamRatingsByUid.computeIfAbsent(gameInfoMessage.getUid(), uid -> new TeamRatings(game))
+        .update(gameInfoMessage.getTeams());
   }
 
   private void updateFromGameInfo(GameInfoMessage gameInfoMessage, Game game) {
@@ -794,19 +856,22 @@ public class GameService implements InitializingBean {
     game.setStatus(gameInfoMessage.getState());
     game.setPasswordProtected(gameInfoMessage.getPasswordProtected());
 
-    game.setAverageRating(calcAverageRating(gameInfoMessage));
+    updateAverageRating(gameInfoMessage, game);
 
+    // Replacing the content fires change events even if nothing changed, which is the common case
     synchronized (game.getSimMods()) {
-      game.getSimMods().clear();
-      if (gameInfoMessage.getSimMods() != null) {
-        game.getSimMods().putAll(gameInfoMessage.getSimMods());
+      Map<String, String> simMods = Optional.ofNullable(gameInfoMessage.getSimMods()).orElse(emptyMap());
+      if (!game.getSimMods().equals(simMods)) {
+        game.getSimMods().clear();
+        game.getSimMods().putAll(simMods);
       }
     }
 
     synchronized (game.getTeams()) {
-      game.getTeams().clear();
-      if (gameInfoMessage.getTeams() != null) {
-        game.getTeams().putAll(gameInfoMessage.getTeams());
+      Map<String, List<String>> teams = Optional.ofNullable(gameInfoMessage.getTeams()).orElse(emptyMap());
+      if (!game.getTeams().equals(teams)) {
+        game.getTeams().clear();
+        game.getTeams().putAll(teams);
       }
     }
 
@@ -820,6 +885,7 @@ public class GameService implements InitializingBean {
     Game game;
     synchronized (uidToGameInfoBean) {
       game = uidToGameInfoBean.remove(gameInfoMessage.getUid());
+      Optional.ofNullable(teamRatingsByUid.remove(gameInfoMessage.getUid())).ifPresent(TeamRatings::dispose);
     }
     eventBus.post(new GameRemovedEvent(game));
   }
@@ -860,4 +926,78 @@ public class GameService implements InitializingBean {
         });
 
   }
+
+  /**
+   * Keeps the sum of the global ratings of a game's players, so that an update only needs to look up players that
+   * joined or whose player info wasn't available yet. The game's average rating is updated whenever the rating of one
+   * of its players changes. {@link #dispose()} must be called once the game is gone.
+   */
+  private class TeamRatings {
+    private final Game game;
+    private final Map<String, Player> playersByUsername = new HashMap<>();
+    private final Map<String, Integer> ratingByUsername = new HashMap<>();
+    private final InvalidationListener ratingListener = observable -> onRatingChanged();
+    private long ratingSum;
+
+    TeamRatings(Game game) {
+      this.game = game;
+    }
+
+    synchronized void update(@Nullable Map<String, List<String>> teams) {
+      Set<String> usernames = new HashSet<>();
+      if (teams != null) {
+        teams.values().forEach(usernames::addAll);
+      }
+
+      Iterator<Map.Entry<String, Player>> iterator = playersByUsername.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, Player> entry = iterator.next();
+        if (!usernames.contains(entry.getKey())) {
+          removeRatingListener(entry.getValue());
+          ratingSum -= ratingByUsername.remove(entry.getKey());
+          iterator.remove();
+        }
+      }
+
+      for (String username : usernames) {
+        if (playersByUsername.containsKey(username)) {
+          continue;
+        }
+        playerService.getPlayerForUsername(username).ifPresent(player -> {
+          int rating = RatingUtil.getGlobalRating(player);
+          playersByUsername.put(username, player);
+          ratingByUsername.put(username, rating);
+          ratingSum += rating;
+          JavaFxUtil.addListener(player.globalRatingMeanProperty(), ratingListener);
+          JavaFxUtil.addListener(player.globalRatingDeviationProperty(), ratingListener);
+        });
+      }
+
+      game.setAverageRating(getAverageRating());
+    }
+
+    private synchronized void onRatingChanged() {
+      playersByUsername.forEach((username, player) -> {
+        int rating = RatingUtil.getGlobalRating(player);
+        ratingSum += rating - ratingByUsername.put(username, rating);
+      });
+      game.setAverageRating(getAverageRating());
+    }
+
+    synchronized void dispose() {
+      playersByUsername.values().forEach(this::removeRatingListener);
+      playersByUsername.clear();
+      ratingByUsername.clear();
+      ratingSum = 0;
+    }
+
+    private void removeRatingListener(Player player) {
+      JavaFxUtil.removeListener(player.globalRatingMeanProperty(), ratingListener);
+      JavaFxUtil.removeListener(player.globalRatingDeviationProperty(), ratingListener);
+    }
+
+    private double getAverageRating() {
+      return ratingByUsername.isEmpty() ? 0.0 : (double) ratingSum / ratingByUsername.size();
+    }
+  }
 }
@@ -0,0 +1,197 @@
+package com.faforever.client.io;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the entries of a directory, like map or mod folders, and reports which of them changed once no further
+ * events arrived for a quiet period. This way, a burst of events caused by extracting or copying many entries is
+ * reported at once, and only after the entries have been written completely.
+ * <p>
+ * Created, modified and deleted entries are all reported the same way; listeners need to check whether a reported
+ * entry still exists. Folders are watched including all of their subfolders, whether they existed when watching
+ * started or were created later, so that files written anywhere inside them cause the folder to be reported and
+ * postpone the report. If the file system lost events, the listener is asked to rescan the whole directory instead.
+ * <p>
+ * The listener is called on the watcher's own daemon thread.
+ */
+@Slf4j
+public class DirectoryWatcher implements Closeable {
+
+  private final Path directory;
+  private final long quietPeriodNanos;
+  private final Listener listener;
+  private final WatchService watchService;
+  private final WatchKey directoryKey;
+  /** The entries of the directory that contain the watched folders, by the watch key of each folder. */
+  private final Map<WatchKey, Path> entriesByKey;
+  private final Thread thread;
+
+  private DirectoryWatcher(Path directory, Duration quietPeriod, String threadName, Listener listener) throws IOException {
+    this.directory = directory;
+    this.quietPeriodNanos = quietPeriod.toNanos();
+    this.listener = listener;
+    watchService = directory.getFileSystem().newWatchService();
+    directoryKey = directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+    entriesByKey = new HashMap<>();
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+      entries.forEach(entry -> watchFolders(entry, entry));
+    }
+    thread = new Thread(this::run, threadName);
+    thread.setDaemon(true);
+  }
+
+  /**
+   * Starts watching the specified directory.
+   *
+   * @param quietPeriod how long no events must have arrived before changes are reported
+   */
+  public static DirectoryWatcher watch(Path directory, Duration quietPeriod, String threadName, Listener listener) throws IOException {
+    DirectoryWatcher directoryWatcher = new DirectoryWatcher(directory, quietPeriod, threadName, listener);
+    directoryWatcher.thread.start();
+    return directoryWatcher;
+  }
+
+  @Override
+  public void close() throws IOException {
+    thread.interrupt();
+    watchService.close();
+  }
+
+  private void run() {
+    Set<Path> changedEntries = new LinkedHashSet<>();
+    boolean overflow = false;
+    long lastEventTime = 0;
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey key;
+        if (changedEntries.isEmpty() && !overflow) {
+          key = watchService.take();
+        } else {
+          long remainingQuietPeriod = quietPeriodNanos - (System.nanoTime() - lastEventTime);
+          key = remainingQuietPeriod > 0 ? watchService.poll(remainingQuietPeriod, TimeUnit.NANOSECONDS) : null;
+        }
+
+        if (key != null) {
+          lastEventTime = System.nanoTime();
+          overflow |= collectChanges(key, changedEntries);
+          if (!key.reset()) {
+            if (key == directoryKey) {
+              log.debug("Directory can no longer be watched: {}", directory);
+              return;
+            }
+            entriesByKey.remove(key);
+          }
+          continue;
+        }
+
+        if (overflow) {
+          log.debug("Events of directory '{}' were lost, rescanning it", directory);
+          changedEntries.clear();
+          overflow = false;
+          notifyListener(listener::onOverflow);
+        } else {
+          Set<Path> changes = new LinkedHashSet<>(changedEntries);
+          changedEntries.clear();
+          notifyListener(() -> listener.onChanged(changes));
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      log.debug("Stopped watching directory: {}", directory);
+    }
+  }
+
+  /**
+   * Adds the entries affected by the events of the specified key. Returns {@code true} if events have been lost.
+   */
+  private boolean collectChanges(WatchKey key, Set<Path> changedEntries) {
+    boolean overflow = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        overflow = true;
+      } else if (key == directoryKey) {
+        Path entry = directory.resolve((Path) event.context());
+        changedEntries.add(entry);
+        if (event.kind() == ENTRY_CREATE) {
+          watchFolders(entry, entry);
+        }
+      } else {
+        Path entry = entriesByKey.get(key);
+        if (entry == null) {
+          continue;
+        }
+        changedEntries.add(entry);
+        if (event.kind() == ENTRY_CREATE) {
+          watchFolders(((Path) key.watchable()).resolve((Path) event.context()), entry);
+        }
+      }
+    }
+    return overflow;
+  }
+
+  /**
+   * Watches the specified folder and all of its subfolders, whose changes are reported as changes of the specified
+   * entry. Folders that were created before they could be watched are included, since their creation events are lost.
+   */
+  private void watchFolders(Path folder, Path entry) {
+    if (!Files.isDirectory(folder, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    try {
+      Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+          entriesByKey.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), entry);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      log.debug("Could not watch folder '{}', it has probably been deleted again", folder, e);
+    }
+  }
+
+  private void notifyListener(Runnable notification) {
+    try {
+      notification.run();
+    } catch (RuntimeException e) {
+      log.warn("Changes of directory '{}' could not be processed", directory, e);
+    }
+  }
+
+  public interface Listener {
+
+    /**
+     * Called with the entries of the directory that have been created, modified or deleted.
+     */
+    void onChanged(Set<Path> entries);
+
+    /**
+     * Called if events have been lost and the whole directory needs to be rescanned.
+     */
+    void onOverflow();
+  }
+}
@@ -1,49 +1,310 @@
 package com.faforever.client.io;
 
-import com.faforever.client.task.ResourceLocks;
-import com.faforever.commons.io.ByteCopier;
 import com.faforever.commons.io.ByteCountListener;
+import com.google.common.hash.Hashing;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Downloads files over HTTP. Interrupted downloads are resumed using range requests, files are verified against their
+ * expected MD5 hash if there is one, and the number of concurrent connections per host is limited.
+ */
 @Service
 @Lazy
 @Slf4j
 public class DownloadService {
 
-  public void downloadFile(URL url, Path targetFile, ByteCountListener progressListener) throws IOException {
-    Path tempFile = Files.createTempFile(targetFile.getParent(), "download", null);
+  private static final int MAX_CONNECTIONS_PER_HOST = 4;
+  private static final int MAX_ATTEMPTS = 5;
+  private static final Duration RETRY_DELAY = Duration.ofSeconds(2);
+  private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+  private static final int READ_TIMEOUT_MILLIS = 60_000;
+  private static final int BUFFER_SIZE = 8192;
+  /** How often the progress of a download whose size is unknown is reported. */
+  private static final long PROGRESS_INTERVAL_NANOS = Duration.ofMillis(100).toNanos();
+  private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+  private static final String PARTIAL_FILE_SUFFIX = ".part";
 
-    HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+  private final ExecutorService executorService;
+  private final int maxConnectionsPerHost;
+  private final int maxAttempts;
+  private final Duration retryDelay;
+  private final Map<String, Semaphore> connectionsByHost;
+
+  @Autowired
+  public DownloadService(ExecutorService executorService) {
+    this(executorService, MAX_CONNECTIONS_PER_HOST, MAX_ATTEMPTS, RETRY_DELAY);
+  }
 
-    ResourceLocks.acquireDownloadLock();
-    try (InputStream inputStream = url.openStream();
-         OutputStream outputStream = Files.newOutputStream(tempFile)) {
+  DownloadService(ExecutorService executorService, int maxConnectionsPerHost, int maxAttempts, Duration retryDelay) {
+    this.executorService = executorService;
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+    this.maxAttempts = maxAttempts;
+    this.retryDelay = retryDelay;
+    connectionsByHost = new ConcurrentHashMap<>();
+  }
 
-      ByteCopier.from(inputStream)
-          .to(outputStream)
-          .totalBytes(urlConnection.getContentLength())
-          .listener(progressListener)
-          .copy();
+  public void downloadFile(URL url, Path targetFile, ByteCountListener progressListener) throws IOException {
+    downloadFile(url, targetFile, progressListener, null);
+  }
 
-      Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
-    } finally {
-      ResourceLocks.freeDownloadLock();
+  /**
+   * Downloads a file. The data is written to a partial file next to the target file first, so that a download that
+   * failed, even in an earlier session, continues where it stopped. A file that doesn't match the expected hash is
+   * downloaded again from scratch.
+   *
+   * @param md5 the expected MD5 hash of the file, or {@code null} if the file can't be verified
+   */
+  public void downloadFile(URL url, Path targetFile, ByteCountListener progressListener, @Nullable String md5) throws IOException {
+    Path partialFile = targetFile.resolveSibling(targetFile.getFileName() + PARTIAL_FILE_SUFFIX);
+
+    for (int attempt = 1; ; attempt++) {
       try {
-        Files.deleteIfExists(tempFile);
+        downloadRemainder(url, partialFile, progressListener);
+        verifyChecksum(partialFile, md5);
+        Files.move(partialFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+        return;
       } catch (IOException e) {
-        log.warn("Could not delete temporary file: " + tempFile.toAbsolutePath(), e);
+        if (attempt >= maxAttempts || !isRetryable(e)) {
+          throw e;
+        }
+        log.warn("Download of '{}' failed (attempt {} of {}), retrying: {}", url, attempt, maxAttempts, e.getMessage());
+        waitBeforeRetry(attempt);
+      }
+    }
+  }
+
+  /**
+   * Downloads all files in parallel and reports their combined progress. Since the size of a file is only known once
+   * its download started, the total number of bytes grows until all downloads have started.
+   *
+   * @return a future that completes once all downloads have finished, exceptionally if any of them failed
+   */
+  public CompletableFuture<Void> downloadFiles(List<Download> downloads, ByteCountListener progressListener) {
+    CombinedProgress combinedProgress = new CombinedProgress(downloads.size(), progressListener);
+    List<CompletableFuture<Void>> futures = new ArrayList<>(downloads.size());
+    for (int i = 0; i < downloads.size(); i++) {
+      Download download = downloads.get(i);
+      int index = i;
+      futures.add(CompletableFuture.runAsync(() -> {
+        try {
+          downloadFile(download.getUrl(), download.getTargetFile(),
+              (written, total) -> combinedProgress.update(index, written, total), download.getMd5());
+        } catch (IOException e) {
+          throw new CompletionException(e);
+        }
+      }, executorService));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private void downloadRemainder(URL url, Path partialFile, ByteCountListener progressListener) throws IOException {
+    long existingBytes = Files.exists(partialFile) ? Files.size(partialFile) : 0;
+
+    Semaphore connections = connectionsByHost.computeIfAbsent(url.getAuthority(), host -> new Semaphore(maxConnectionsPerHost, true));
+    try {
+      connections.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a connection to " + url.getAuthority());
+    }
+
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+      connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+      if (existingBytes > 0) {
+        connection.setRequestProperty("Range", "bytes=" + existingBytes + "-");
+      }
+
+      int responseCode = connection.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_OK) {
+        existingBytes = 0;
+      } else if (responseCode == HTTP_RANGE_NOT_SATISFIABLE && existingBytes > 0) {
+        if (isCompleteLength(connection.getHeaderField("Content-Range"), existingBytes)) {
+          // A previous attempt already received everything
+          return;
+        }
+        Files.delete(partialFile);
+        throw new HttpStatusException(responseCode, "Partial download of " + url + " is longer than the file");
+      } else if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+        throw new HttpStatusException(responseCode, "Unexpected response " + responseCode + " for " + url);
+      }
+
+      long contentLength = connection.getContentLengthLong();
+      long totalBytes = contentLength == -1 ? -1 : existingBytes + contentLength;
+      long writtenBytes = existingBytes;
+      try (InputStream inputStream = connection.getInputStream();
+           OutputStream outputStream = Files.newOutputStream(partialFile, CREATE, WRITE, existingBytes > 0 ? APPEND : TRUNCATE_EXISTING)) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ThrottledProgress progress = new ThrottledProgress(progressListener, totalBytes);
+        progress.report(writtenBytes);
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+          outputStream.write(buffer, 0, bytesRead);
+          writtenBytes += bytesRead;
+          progress.update(writtenBytes);
+        }
+        progress.finish(writtenBytes);
+      }
+      if (totalBytes != -1 && writtenBytes < totalBytes) {
+        throw new EOFException("Connection closed after " + writtenBytes + " of " + totalBytes + " bytes of " + url);
       }
+    } finally {
+      connection.disconnect();
+      connections.release();
+    }
+  }
+
+  private static boolean isCompleteLength(@Nullable String contentRange, long length) {
+    return contentRange != null && contentRange.endsWith("/" + length);
+  }
+
+  private static void verifyChecksum(Path file, @Nullable String md5) throws IOException {
+    if (md5 == null) {
+      return;
+    }
+    String actualMd5 = com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.md5()).toString();
+    if (!md5.equalsIgnoreCase(actualMd5)) {
+      Files.delete(file);
+      throw new IOException("Downloaded file has MD5 " + actualMd5 + " but " + md5 + " was expected");
+    }
+  }
+
+  /**
+   * Client errors won't go away by trying again, except for timeouts and rate limiting.
+   */
+  private static boolean isRetryable(IOException e) {
+    if (!(e instanceof HttpStatusException)) {
+      return !(e instanceof InterruptedIOException);
+    }
+    int status = ((HttpStatusException) e).getStatus();
+    return status >= 500 || status == HTTP_RANGE_NOT_SATISFIABLE
+        || status == HttpURLConnection.HTTP_CLIENT_TIMEOUT || status == 429;
+  }
+
+  private void waitBeforeRetry(int attempt) throws InterruptedIOException {
+    try {
+      Thread.sleep(retryDelay.toMillis() * attempt);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry download");
+    }
+  }
+
+  @Value
+  public static class Download {
+    URL url;
+    Path targetFile;
+    @Nullable String md5;
+  }
+
+  private static class HttpStatusException extends IOException {
+    private final int status;
+
+    HttpStatusException(int status, String message) {
+      super(message);
+      this.status = status;
+    }
+
+    int getStatus() {
+      return status;
+    }
+  }
+
+  /**
+   * Passes the progress of a download on whenever another whole percent has been written or, if the size of the
+   * download is unknown, at most every {@link DownloadService#PROGRESS_INTERVAL_NANOS}. The final progress is always
+   * passed on.
+   */
+  private static class ThrottledProgress {
+    private final ByteCountListener listener;
+    private final long totalBytes;
+    private long reportedBytes = -1;
+    private long reportedPercent = -1;
+    private long reportedTime;
+
+    ThrottledProgress(ByteCountListener listener, long totalBytes) {
+      this.listener = listener;
+      this.totalBytes = totalBytes;
+    }
+
+    void update(long writtenBytes) {
+      if (totalBytes > 0) {
+        if (writtenBytes * 100 / totalBytes != reportedPercent) {
+          report(writtenBytes);
+        }
+      } else if (System.nanoTime() - reportedTime >= PROGRESS_INTERVAL_NANOS) {
+        report(writtenBytes);
+      }
+    }
+
+    void finish(long writtenBytes) {
+      if (writtenBytes != reportedBytes) {
+        report(writtenBytes);
+      }
+    }
+
+    void report(long writtenBytes) {
+      listener.updateBytesProcessed(writtenBytes, totalBytes);
+      reportedBytes = writtenBytes;
+      reportedPercent = totalBytes > 0 ? writtenBytes * 100 / totalBytes : -1;
+      reportedTime = System.nanoTime();
+    }
+  }
+
+  /**
+   * Sums up the progress of several downloads.
+   */
+  private static class CombinedProgress {
+    private final ByteCountListener listener;
+    private final long[] writtenBytes;
+    private final long[] totalBytes;
+    private long combinedWrittenBytes;
+    private long combinedTotalBytes;
+
+    CombinedProgress(int downloads, ByteCountListener listener) {
+      this.listener = listener;
+      writtenBytes = new long[downloads];
+      totalBytes = new long[downloads];
+    }
+
+    synchronized void update(int index, long written, long total) {
+      long knownTotal = Math.max(0, total);
+      combinedWrittenBytes += written - writtenBytes[index];
+      combinedTotalBytes += knownTotal - totalBytes[index];
+      writtenBytes[index] = written;
+      totalBytes[index] = knownTotal;
+      listener.updateBytesProcessed(combinedWrittenBytes, combinedTotalBytes);
     }
   }
 }
@@ -4,7 +4,7 @@ import com.faforever.client.api.dto.FeaturedModFile;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.task.ResourceLocks;
 import com.faforever.client.util.UpdaterUtil;
-import com.google.common.hash.Hashing;
+import com.google.common.annotations.VisibleForTesting;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.InitializingBean;
@@ -19,23 +19,50 @@ import java.nio.file.attribute.FileTime;
 import java.text.MessageFormat;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static com.google.common.io.Files.hash;
-
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FeaturedModFileCacheService implements InitializingBean {
+  private static final String FILE_HASH_INDEX_FILE_NAME = "featured-mod-hashes.json.gz";
+
   private final PreferencesService preferencesService;
 
+  private FileHashIndex fileHashIndex;
+
   public boolean isCached(FeaturedModFile featuredModFile) throws IOException {
     return Files.exists(getCachedFilePath(featuredModFile));
   }
 
+  /**
+   * Returns the MD5 hash of the specified file. Files are only hashed if they are new or changed since they were last
+   * hashed.
+   */
   public String readHashFromFile(Path filePath) throws IOException {
-    return hash(filePath.toFile(), Hashing.md5()).toString();
+    return getFileHashIndex().getHash(filePath);
+  }
+
+  /**
+   * Records the hash of a file that has been downloaded into the cache and verified against the hash of the featured
+   * mod file, so that it doesn't need to be hashed again.
+   */
+  public void addVerifiedFileToCache(FeaturedModFile featuredModFile) throws IOException {
+    getFileHashIndex().putHash(getCachedFilePath(featuredModFile), featuredModFile.getMd5());
+  }
+
+  /**
+   * Persists the hashes of the files that have been hashed or moved, so that they don't need to be hashed again in the
+   * next session.
+   */
+  public void saveFileHashes() {
+    try {
+      getFileHashIndex().saveIfChanged();
+    } catch (IOException e) {
+      log.warn("File hash index could not be saved", e);
+    }
   }
 
   private Path getCachedFilePath(String hash, String group) {
@@ -61,7 +88,9 @@ public class FeaturedModFileCacheService implements InitializingBean {
         //We want to keep the old file for now in case it is needed again for example for old replays
         moveFeaturedModFileToCache(targetPath);
       }
-      Files.move(getCachedFilePath(featuredModFile), targetPath, StandardCopyOption.REPLACE_EXISTING);
+      Path cachedFilePath = getCachedFilePath(featuredModFile);
+      Files.move(cachedFilePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+      getFileHashIndex().move(cachedFilePath, targetPath);
       UpdaterUtil.extractMoviesIfPresent(targetPath, preferencesService.getFafDataDirectory());
     } finally {
       ResourceLocks.freeDiskLock();
@@ -69,7 +98,18 @@ public class FeaturedModFileCacheService implements InitializingBean {
   }
 
   private void moveFeaturedModFileToCache(Path targetPath) throws IOException {
-    Files.move(targetPath, getCachedFilePath(targetPath), StandardCopyOption.REPLACE_EXISTING);
+    Path cachedFilePath = getCachedFilePath(targetPath);
+    Files.move(targetPath, cachedFilePath, StandardCopyOption.REPLACE_EXISTING);
+    getFileHashIndex().move(targetPath, cachedFilePath);
+  }
+
+  @VisibleForTesting
+  synchronized FileHashIndex getFileHashIndex() {
+    if (fileHashIndex == null) {
+      fileHashIndex = new FileHashIndex(preferencesService.getCacheDirectory().resolve(FILE_HASH_INDEX_FILE_NAME));
+      fileHashIndex.load();
+    }
+    return fileHashIndex;
   }
 
   /**
@@ -90,14 +130,24 @@ public class FeaturedModFileCacheService implements InitializingBean {
     cleanUnusedFilesFromCache();
   }
 
+  /**
+   * Cleans up the files the hash index knows to be in the cache. Only if there is no index yet, the cache is walked
+   * once to find files cached by an earlier session.
+   */
   private void cleanUnusedFilesFromCache() {
-    try (Stream<Path> pathElements = Files.walk(preferencesService.getFeaturedModCachePath())) {
-      pathElements
-          .filter(Files::isRegularFile)
-          .forEach(this::deleteCachedFileIfNeeded);
-    } catch (Exception e) {
-      log.error("Cleaning featured mod files cache failed", e);
+    Path cacheDirectory = preferencesService.getFeaturedModCachePath();
+    FileHashIndex index = getFileHashIndex();
+    if (!index.isLoadedFromDisk()) {
+      try (Stream<Path> pathElements = Files.walk(cacheDirectory)) {
+        for (Path filePath : pathElements.filter(Files::isRegularFile).collect(Collectors.toList())) {
+          index.track(filePath);
+        }
+      } catch (Exception e) {
+        log.error("Reading featured mod files cache failed", e);
+      }
     }
+    index.getFiles(cacheDirectory).forEach(this::deleteCachedFileIfNeeded);
+    saveFileHashes();
   }
 
   /**
@@ -107,6 +157,10 @@ public class FeaturedModFileCacheService implements InitializingBean {
     try {
       ResourceLocks.acquireDiskLock();
 
+      if (Files.notExists(filePath)) {
+        getFileHashIndex().remove(filePath);
+        return;
+      }
       FileTime lastAccessTime = Files.readAttributes(filePath, BasicFileAttributes.class).lastAccessTime();
       OffsetDateTime comparableLastAccessTime = OffsetDateTime.ofInstant(lastAccessTime.toInstant(), ZoneId.systemDefault());
       final boolean olderThanCacheTime = comparableLastAccessTime.plusDays(preferencesService.getPreferences().getCacheLifeTimeInDays()).isBefore(OffsetDateTime.now());
@@ -114,6 +168,7 @@ public class FeaturedModFileCacheService implements InitializingBean {
       if (olderThanCacheTime || !gameDataCacheActivated) {
         log.debug("Deleting cached file ''{}'' ", filePath.toString());
         Files.deleteIfExists(filePath);
+        getFileHashIndex().remove(filePath);
       }
     } catch (Exception e) {
       log.error("Exception during deleting the cache files", e);
@@ -0,0 +1,199 @@
+package com.faforever.client.io;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Remembers the MD5 hash of files, keyed by the file's path, size and modification time, so that files only need to be
+ * hashed again if they changed on disk. The index is stored as GZIP compressed JSON.
+ */
+@Slf4j
+class FileHashIndex {
+
+  private static final int VERSION = 1;
+
+  private final Path indexFile;
+  private final Gson gson;
+  private final Map<String, Entry> entriesByPath;
+  private boolean loadedFromDisk;
+  private boolean changed;
+  private long computedHashes;
+
+  FileHashIndex(Path indexFile) {
+    this.indexFile = indexFile;
+    gson = new GsonBuilder().create();
+    entriesByPath = new HashMap<>();
+  }
+
+  /**
+   * Loads the index from disk. A missing or unreadable index file results in an empty index.
+   */
+  synchronized void load() {
+    entriesByPath.clear();
+    loadedFromDisk = false;
+    try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(indexFile)), UTF_8)) {
+      IndexFile content = gson.fromJson(reader, IndexFile.class);
+      if (content == null || content.getVersion() != VERSION || content.getEntries() == null) {
+        log.debug("Ignoring file hash index of unknown version: {}", indexFile);
+        return;
+      }
+      content.getEntries().forEach(entry -> entriesByPath.put(entry.getPath(), entry));
+      loadedFromDisk = true;
+    } catch (NoSuchFileException e) {
+      log.debug("No file hash index found at: {}", indexFile);
+    } catch (IOException | JsonParseException e) {
+      log.warn("File hash index could not be read, it will be rebuilt: {}", indexFile, e);
+      entriesByPath.clear();
+    }
+  }
+
+  /**
+   * Saves the index if it changed since it was loaded or last saved.
+   */
+  synchronized void saveIfChanged() throws IOException {
+    if (!changed) {
+      return;
+    }
+    Files.createDirectories(indexFile.getParent());
+    Path tempFile = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), null);
+    try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tempFile)), UTF_8)) {
+      gson.toJson(new IndexFile(VERSION, new ArrayList<>(entriesByPath.values())), writer);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+    Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    changed = false;
+  }
+
+  /**
+   * Whether the index was read from an existing index file, as opposed to starting empty.
+   */
+  synchronized boolean isLoadedFromDisk() {
+    return loadedFromDisk;
+  }
+
+  /**
+   * Returns the MD5 hash of the specified file, which is only computed if the index doesn't hold it for the file's
+   * current size and modification time.
+   */
+  synchronized String getHash(Path file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    String key = file.toString();
+    Entry existing = entriesByPath.get(key);
+    if (existing != null && existing.getMd5() != null && existing.matches(attributes)) {
+      return existing.getMd5();
+    }
+
+    String md5 = com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.md5()).toString();
+    computedHashes++;
+    put(key, attributes, md5);
+    return md5;
+  }
+
+  /**
+   * Records the MD5 hash of a file whose content is known, e.g. because it has been verified when it was downloaded.
+   */
+  synchronized void putHash(Path file, String md5) throws IOException {
+    put(file.toString(), Files.readAttributes(file, BasicFileAttributes.class), md5);
+  }
+
+  /**
+   * Adds a file to the index without hashing it, so that it is returned by {@link #getFiles(Path)}. Its hash will be
+   * computed when it is first requested.
+   */
+  synchronized void track(Path file) throws IOException {
+    if (!entriesByPath.containsKey(file.toString())) {
+      put(file.toString(), Files.readAttributes(file, BasicFileAttributes.class), null);
+    }
+  }
+
+  /**
+   * Updates the index after a file has been moved. The target is always indexed, even if the source wasn't, so that it
+   * is returned by {@link #getFiles(Path)}. The known hash is kept if the file still has the same size and modification
+   * time.
+   */
+  synchronized void move(Path source, Path target) throws IOException {
+    Entry entry = entriesByPath.remove(source.toString());
+    BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+    String md5 = entry != null && entry.getMd5() != null && entry.matches(attributes) ? entry.getMd5() : null;
+    put(target.toString(), attributes, md5);
+  }
+
+  synchronized void remove(Path file) {
+    if (entriesByPath.remove(file.toString()) != null) {
+      changed = true;
+    }
+  }
+
+  /**
+   * Returns all indexed files within the specified directory or its subdirectories.
+   */
+  synchronized List<Path> getFiles(Path directory) {
+    List<Path> files = new ArrayList<>();
+    for (Entry entry : entriesByPath.values()) {
+      Path file = Paths.get(entry.getPath());
+      if (file.startsWith(directory)) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Returns how many files have been hashed since this index was created.
+   */
+  synchronized long getComputedHashes() {
+    return computedHashes;
+  }
+
+  private void put(String key, BasicFileAttributes attributes, @Nullable String md5) {
+    Entry entry = new Entry(key, attributes.size(), attributes.lastModifiedTime().toMillis(), md5);
+    if (!entry.equals(entriesByPath.put(key, entry))) {
+      changed = true;
+    }
+  }
+
+  @Value
+  private static class Entry {
+    String path;
+    long size;
+    long lastModified;
+    @Nullable String md5;
+
+    boolean matches(BasicFileAttributes attributes) {
+      return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+    }
+  }
+
+  @Value
+  private static class IndexFile {
+    int version;
+    @Nullable List<Entry> entries;
+  }
+}
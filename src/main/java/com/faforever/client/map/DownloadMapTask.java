@@ -32,7 +32,7 @@ public class DownloadMapTask extends CompletableTask<Void> {
 
   @Inject
   public DownloadMapTask(PreferencesService preferencesService, I18n i18n) {
-    super(Priority.HIGH);
+    super(Priority.HIGH, Resource.DISK);
 
     this.preferencesService = preferencesService;
     this.i18n = i18n;
@@ -0,0 +1,192 @@
+package com.faforever.client.map;
+
+import com.faforever.client.map.MapBean.Type;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps the scenario information of every installed map, keyed by the map's folder and the size and modification time
+ * of its scenario file, so that maps only need to be parsed again if their scenario file changed on disk. The catalog
+ * is stored as GZIP compressed JSON.
+ */
+@Slf4j
+public class InstalledMapCatalog {
+
+  private static final int VERSION = 1;
+
+  private final Path catalogFile;
+  private final Gson gson;
+  /** Keeps the order in which maps were added, so that the first of equally named maps stays the same across starts. */
+  private final Map<String, Entry> entriesByPath;
+
+  public InstalledMapCatalog(Path catalogFile) {
+    this.catalogFile = catalogFile;
+    gson = new GsonBuilder().create();
+    entriesByPath = new LinkedHashMap<>();
+  }
+
+  /**
+   * Loads the catalog from disk. A missing or unreadable catalog file results in an empty catalog.
+   */
+  public synchronized void load() {
+    entriesByPath.clear();
+    try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(catalogFile)), UTF_8)) {
+      CatalogFile content = gson.fromJson(reader, CatalogFile.class);
+      if (content == null || content.getVersion() != VERSION || content.getEntries() == null) {
+        log.debug("Ignoring installed map catalog of unknown version: {}", catalogFile);
+        return;
+      }
+      content.getEntries().forEach(entry -> entriesByPath.put(entry.getPath(), entry));
+    } catch (NoSuchFileException e) {
+      log.debug("No installed map catalog found at: {}", catalogFile);
+    } catch (IOException | JsonParseException e) {
+      log.warn("Installed map catalog could not be read, it will be rebuilt: {}", catalogFile, e);
+      entriesByPath.clear();
+    }
+  }
+
+  public synchronized void save() throws IOException {
+    Files.createDirectories(catalogFile.getParent());
+    Path tempFile = Files.createTempFile(catalogFile.getParent(), catalogFile.getFileName().toString(), null);
+    try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tempFile)), UTF_8)) {
+      gson.toJson(new CatalogFile(VERSION, new ArrayList<>(entriesByPath.values())), writer);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+    Files.move(tempFile, catalogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Returns the entries of all maps in the specified folders, in the order in which they were added.
+   */
+  public synchronized List<Entry> getEntries(Collection<Path> mapsDirectories) {
+    List<Entry> entries = new ArrayList<>();
+    for (Entry entry : entriesByPath.values()) {
+      if (mapsDirectories.contains(entry.getMapFolder().getParent())) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Returns {@code true} if the catalog holds the specified map for the current size and modification time of its
+   * scenario file.
+   */
+  public synchronized boolean isUpToDate(Path mapFolder) {
+    Entry entry = entriesByPath.get(mapFolder.toString());
+    if (entry == null) {
+      return false;
+    }
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(mapFolder.resolve(entry.getScenarioFileName()), BasicFileAttributes.class);
+      return attributes.size() == entry.getScenarioSize()
+          && attributes.lastModifiedTime().toMillis() == entry.getScenarioLastModified();
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  public synchronized void put(Entry entry) {
+    entriesByPath.put(entry.getPath(), entry);
+  }
+
+  public synchronized Optional<Entry> remove(Path mapFolder) {
+    return Optional.ofNullable(entriesByPath.remove(mapFolder.toString()));
+  }
+
+  /**
+   * Removes all maps that are not in the specified folders.
+   */
+  public synchronized void retainAll(Collection<Path> mapFolders) {
+    Set<String> existingPaths = new HashSet<>();
+    mapFolders.forEach(mapFolder -> existingPaths.add(mapFolder.toString()));
+    entriesByPath.keySet().retainAll(existingPaths);
+  }
+
+  public synchronized int size() {
+    return entriesByPath.size();
+  }
+
+  @Value
+  public static class Entry {
+    String path;
+    String scenarioFileName;
+    long scenarioSize;
+    long scenarioLastModified;
+    String folderName;
+    String displayName;
+    String description;
+    Type type;
+    int width;
+    int height;
+    int players;
+    @Nullable String version;
+
+    /**
+     * Creates an entry for a map that has been read from the specified scenario file. The attributes of the scenario
+     * file should be read before the file itself, so that changes made while reading it are detected later on.
+     */
+    public static Entry of(Path mapFolder, Path scenarioFile, BasicFileAttributes scenarioAttributes, MapBean mapBean) {
+      return new Entry(mapFolder.toString(), scenarioFile.getFileName().toString(), scenarioAttributes.size(),
+          scenarioAttributes.lastModifiedTime().toMillis(), mapBean.getFolderName(), mapBean.getDisplayName(),
+          mapBean.getDescription(), mapBean.getType(), mapBean.getSize().getWidthInPixels(),
+          mapBean.getSize().getHeightInPixels(), mapBean.getPlayers(),
+          mapBean.getVersion() == null ? null : mapBean.getVersion().toString());
+    }
+
+    public Path getMapFolder() {
+      return Paths.get(path);
+    }
+
+    public MapBean toMapBean() {
+      MapBean mapBean = new MapBean();
+      mapBean.setFolderName(folderName);
+      mapBean.setDisplayName(displayName);
+      mapBean.setDescription(description);
+      mapBean.setType(type);
+      mapBean.setSize(MapSize.valueOf(width, height));
+      mapBean.setPlayers(players);
+      if (version != null) {
+        mapBean.setVersion(new ComparableVersion(version));
+      }
+      return mapBean;
+    }
+  }
+
+  @Value
+  private static class CatalogFile {
+    int version;
+    @Nullable List<Entry> entries;
+  }
+}
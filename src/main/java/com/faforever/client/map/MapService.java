@@ -6,6 +6,7 @@ import com.faforever.client.config.ClientProperties.Vault;
 import com.faforever.client.fa.FaStrings;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.i18n.I18n;
+import com.faforever.client.io.DirectoryWatcher;
 import com.faforever.client.map.MapBean.Type;
 import com.faforever.client.map.generator.MapGeneratedEvent;
 import com.faforever.client.map.generator.MapGeneratorService;
@@ -17,6 +18,7 @@ import com.faforever.client.remote.AssetService;
 import com.faforever.client.remote.FafService;
 import com.faforever.client.task.CompletableTask;
 import com.faforever.client.task.CompletableTask.Priority;
+import com.faforever.client.task.CompletableTask.Resource;
 import com.faforever.client.task.TaskService;
 import com.faforever.client.theme.UiService;
 import com.faforever.client.util.ProgrammingError;
@@ -29,7 +31,6 @@ import com.google.common.eventbus.Subscribe;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.scene.image.Image;
 import lombok.SneakyThrows;
@@ -56,25 +57,27 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static com.faforever.client.util.ConcurrentUtil.supplyInParallel;
 import static com.faforever.client.util.LuaUtil.loadFile;
 import static com.github.nocatch.NoCatch.noCatch;
 import static com.google.common.net.UrlEscapers.urlFragmentEscaper;
 import static java.lang.String.format;
 import static java.nio.file.Files.list;
-import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
-import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
 import static java.util.stream.Collectors.toCollection;
 
 
@@ -84,6 +87,16 @@ public class MapService implements InitializingBean, DisposableBean {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   public static final String DEBUG = "debug";
+  private static final String INSTALLED_MAP_CATALOG_FILE_NAME = "installed-maps.json.gz";
+  /** Maps are extracted by downloads or by hand, and need to be written completely before they can be read. */
+  private static final Duration MAPS_DIRECTORY_QUIET_PERIOD = Duration.ofMillis(500);
+  private static final Set<String> OFFICIAL_MAPS = ImmutableSet.of(
+      "SCMP_001", "SCMP_002", "SCMP_003", "SCMP_004", "SCMP_005", "SCMP_006", "SCMP_007", "SCMP_008", "SCMP_009", "SCMP_010", "SCMP_011",
+      "SCMP_012", "SCMP_013", "SCMP_014", "SCMP_015", "SCMP_016", "SCMP_017", "SCMP_018", "SCMP_019", "SCMP_020", "SCMP_021", "SCMP_022",
+      "SCMP_023", "SCMP_024", "SCMP_025", "SCMP_026", "SCMP_027", "SCMP_028", "SCMP_029", "SCMP_030", "SCMP_031", "SCMP_032", "SCMP_033",
+      "SCMP_034", "SCMP_035", "SCMP_036", "SCMP_037", "SCMP_038", "SCMP_039", "SCMP_040", "X1MP_001", "X1MP_002", "X1MP_003", "X1MP_004",
+      "X1MP_005", "X1MP_006", "X1MP_007", "X1MP_008", "X1MP_009", "X1MP_010", "X1MP_011", "X1MP_012", "X1MP_014", "X1MP_017"
+  );
 
   private final PreferencesService preferencesService;
   private final TaskService taskService;
@@ -100,10 +113,18 @@ public class MapService implements InitializingBean, DisposableBean {
 
   private final String mapDownloadUrlFormat;
   private final String mapPreviewUrlFormat;
-  private final Map<Path, MapBean> pathToMap = new HashMap<>();
+  private final Map<Path, MapBean> pathToMap = new ConcurrentHashMap<>();
   private final ObservableList<MapBean> installedMaps = FXCollections.observableArrayList();
-  private final Map<String, MapBean> mapsByFolderName = new HashMap<>();
-  private Thread directoryWatcherThread;
+  /**
+   * The folders of all installed maps by their case-folded folder name. On case-sensitive file systems, folders whose
+   * names only differ in case share a key, and the first of them is the one that counts as installed.
+   */
+  private final Map<String, List<Path>> mapPathsByFolderKey = new ConcurrentHashMap<>();
+  private Set<String> officialMaps;
+  /** The case-folded names of the official maps. */
+  private Set<String> officialMapKeys;
+  private DirectoryWatcher mapsDirectoryWatcher;
+  private InstalledMapCatalog installedMapCatalog;
 
   @Inject
   public MapService(PreferencesService preferencesService,
@@ -131,27 +152,20 @@ public class MapService implements InitializingBean, DisposableBean {
     Vault vault = clientProperties.getVault();
     this.mapDownloadUrlFormat = vault.getMapDownloadUrlFormat();
     this.mapPreviewUrlFormat = vault.getMapPreviewUrlFormat();
-
-    installedMaps.addListener((ListChangeListener<MapBean>) change -> {
-      while (change.next()) {
-        for (MapBean mapBean : change.getRemoved()) {
-          mapsByFolderName.remove(mapBean.getFolderName().toLowerCase());
-        }
-        for (MapBean mapBean : change.getAddedSubList()) {
-          mapsByFolderName.put(mapBean.getFolderName().toLowerCase(), mapBean);
-        }
-      }
-    });
+    setOfficialMaps(OFFICIAL_MAPS);
   }
 
   @VisibleForTesting
-  Set<String> officialMaps = ImmutableSet.of(
-      "SCMP_001", "SCMP_002", "SCMP_003", "SCMP_004", "SCMP_005", "SCMP_006", "SCMP_007", "SCMP_008", "SCMP_009", "SCMP_010", "SCMP_011",
-      "SCMP_012", "SCMP_013", "SCMP_014", "SCMP_015", "SCMP_016", "SCMP_017", "SCMP_018", "SCMP_019", "SCMP_020", "SCMP_021", "SCMP_022",
-      "SCMP_023", "SCMP_024", "SCMP_025", "SCMP_026", "SCMP_027", "SCMP_028", "SCMP_029", "SCMP_030", "SCMP_031", "SCMP_032", "SCMP_033",
-      "SCMP_034", "SCMP_035", "SCMP_036", "SCMP_037", "SCMP_038", "SCMP_039", "SCMP_040", "X1MP_001", "X1MP_002", "X1MP_003", "X1MP_004",
-      "X1MP_005", "X1MP_006", "X1MP_007", "X1MP_008", "X1MP_009", "X1MP_010", "X1MP_011", "X1MP_012", "X1MP_014", "X1MP_017"
-  );
+  void setOfficialMaps(Set<String> officialMaps) {
+    this.officialMaps = officialMaps;
+    officialMapKeys = officialMaps.stream()
+        .map(MapService::getFolderKey)
+        .collect(Collectors.toUnmodifiableSet());
+  }
+
+  private static String getFolderKey(String folderName) {
+    return folderName.toLowerCase(Locale.ROOT);
+  }
 
   private static URL getDownloadUrl(String mapName, String baseUrl) {
     return noCatch(() -> new URL(format(baseUrl, urlFragmentEscaper().escape(mapName).toLowerCase(Locale.US))));
@@ -183,95 +197,213 @@ public class MapService implements InitializingBean, DisposableBean {
 
     try {
       Files.createDirectories(mapsDirectory);
-      Optional.ofNullable(directoryWatcherThread).ifPresent(Thread::interrupt);
-      directoryWatcherThread = startDirectoryWatcher(mapsDirectory);
+      closeMapsDirectoryWatcher();
+      mapsDirectoryWatcher = DirectoryWatcher.watch(mapsDirectory, MAPS_DIRECTORY_QUIET_PERIOD, "maps-directory-watcher",
+          new DirectoryWatcher.Listener() {
+            @Override
+            public void onChanged(Set<Path> mapPaths) {
+              onMapsChanged(mapPaths);
+            }
+
+            @Override
+            public void onOverflow() {
+              loadInstalledMaps();
+            }
+          });
     } catch (IOException e) {
       logger.warn("Could not start map directory watcher", e);
       // TODO notify user
     }
 
-    installedMaps.clear();
+    clearInstalledMaps();
     loadInstalledMaps();
   }
 
-  private Thread startDirectoryWatcher(Path mapsDirectory) {
-    Thread thread = new Thread(() -> noCatch(() -> {
-      try (WatchService watcher = mapsDirectory.getFileSystem().newWatchService()) {
-        forgedAlliancePreferences.getCustomMapsDirectory().register(watcher, ENTRY_DELETE, ENTRY_CREATE);
-        while (!Thread.interrupted()) {
-          WatchKey key = watcher.take();
-          key.pollEvents().stream()
-              .filter(event -> event.kind() == ENTRY_DELETE || event.kind() == ENTRY_CREATE)
-              .forEach(event -> {
-                if (event.kind() == ENTRY_DELETE) {
-                  removeMap(mapsDirectory.resolve((Path) event.context()));
-                } else if (event.kind() == ENTRY_CREATE) {
-                  Path mapPath = mapsDirectory.resolve((Path) event.context());
-                  try {
-                    Thread.sleep(1000);
-                  } catch (InterruptedException e) {
-                    logger.debug("Thread interrupted ({})", e.getMessage());
-                  }
-                  addInstalledMap(mapPath);
-                }
-              });
-          key.reset();
-        }
-      } catch (InterruptedException e) {
-        logger.debug("Watcher terminated ({})", e.getMessage());
+  private void closeMapsDirectoryWatcher() {
+    if (mapsDirectoryWatcher == null) {
+      return;
+    }
+    try {
+      mapsDirectoryWatcher.close();
+    } catch (IOException e) {
+      logger.warn("Could not close map directory watcher", e);
+    }
+  }
+
+  private void onMapsChanged(Set<Path> mapPaths) {
+    List<Path> existingMapPaths = new ArrayList<>();
+    for (Path mapPath : mapPaths) {
+      if (mapPath.getFileName().toString().equals(DEBUG)) {
+        continue;
+      }
+      if (Files.isDirectory(mapPath)) {
+        existingMapPaths.add(mapPath);
+      } else if (Files.notExists(mapPath)) {
+        logger.debug("Removing map: {}", mapPath);
+        getInstalledMapCatalog().remove(mapPath);
+        removeMap(mapPath);
       }
-    }));
-    thread.setDaemon(true);
-    thread.start();
-    return thread;
+    }
+    updateInstalledMaps(existingMapPaths, mapsRead -> {});
+    saveInstalledMapCatalog();
   }
 
+  /**
+   * Shows the maps known from the installed map catalog right away, then reconciles them with the maps directories.
+   * Only maps that are new or whose scenario file changed are read again.
+   */
   private void loadInstalledMaps() {
-    taskService.submitTask(new CompletableTask<Void>(Priority.LOW) {
+    taskService.submitTask(new CompletableTask<Void>(Priority.LOW, Resource.DISK) {
 
       protected Void call() {
         updateTitle(i18n.get("mapVault.loadingMaps"));
+        Path customMapsDirectory = forgedAlliancePreferences.getCustomMapsDirectory();
         Path officialMapsPath = forgedAlliancePreferences.getInstallationPath().resolve("maps");
-        try (Stream<Path> customMapsDirectoryStream = list(forgedAlliancePreferences.getCustomMapsDirectory())) {
+        InstalledMapCatalog catalog = getInstalledMapCatalog();
+
+        Set<Path> cachedMapPaths = new HashSet<>();
+        for (InstalledMapCatalog.Entry entry : catalog.getEntries(List.of(customMapsDirectory, officialMapsPath))) {
+          cachedMapPaths.add(entry.getMapFolder());
+          addInstalledMap(entry.getMapFolder(), entry.toMapBean());
+        }
+
+        try (Stream<Path> customMapsDirectoryStream = list(customMapsDirectory)) {
           List<Path> mapPaths = new ArrayList<>();
           customMapsDirectoryStream.collect(toCollection(() -> mapPaths));
           officialMaps.stream()
               .map(officialMapsPath::resolve)
               .collect(toCollection(() -> mapPaths));
 
-          long totalMaps = mapPaths.size();
-          long mapsRead = 0;
-          for (Path mapPath : mapPaths) {
-            if (mapPath.getFileName().toString().equals(DEBUG)) {
-              continue;
-            }
-            updateProgress(++mapsRead, totalMaps);
-            addInstalledMap(mapPath);
-          }
+          mapPaths.removeIf(mapPath -> mapPath.getFileName().toString().equals(DEBUG));
+
+          cachedMapPaths.removeAll(mapPaths);
+          cachedMapPaths.forEach(MapService.this::removeMap);
+          catalog.retainAll(mapPaths);
+
+          List<Path> changedMapPaths = mapPaths.stream()
+              .filter(mapPath -> !catalog.isUpToDate(mapPath))
+              .collect(Collectors.toList());
+          logger.debug("Reading {} new or changed of {} installed maps", changedMapPaths.size(), mapPaths.size());
+
+          updateInstalledMaps(changedMapPaths, mapsRead -> updateProgress(mapsRead, changedMapPaths.size()));
         } catch (IOException e) {
-          logger.warn("Maps could not be read from: " + forgedAlliancePreferences.getCustomMapsDirectory(), e);
+          logger.warn("Maps could not be read from: " + customMapsDirectory, e);
         }
+        saveInstalledMapCatalog();
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Reads the specified maps and replaces the installed ones. Maps that can't be read are removed.
+   *
+   * @param progressListener is called with the number of maps that have been read so far
+   */
+  private void updateInstalledMaps(List<Path> mapPaths, IntConsumer progressListener) {
+    // Maps are read in parallel, but added in their original order so that the first of equally named maps wins
+    List<CompletableFuture<InstalledMapCatalog.Entry>> entries = supplyInParallel(mapPaths, mapPath -> {
+      try {
+        return readCatalogEntry(mapPath);
+      } catch (MapLoadException e) {
+        logger.warn("Map could not be read: " + mapPath.getFileName(), e);
         return null;
       }
     });
+    InstalledMapCatalog catalog = getInstalledMapCatalog();
+    for (int i = 0; i < mapPaths.size(); i++) {
+      progressListener.accept(i + 1);
+      Path mapPath = mapPaths.get(i);
+      InstalledMapCatalog.Entry entry = entries.get(i).join();
+      if (entry == null) {
+        catalog.remove(mapPath);
+        removeMap(mapPath);
+      } else {
+        catalog.put(entry);
+        addInstalledMap(mapPath, entry.toMapBean());
+      }
+    }
   }
 
-  private void removeMap(Path path) {
-    installedMaps.remove(pathToMap.remove(path));
+  private synchronized InstalledMapCatalog getInstalledMapCatalog() {
+    if (installedMapCatalog == null) {
+      installedMapCatalog = new InstalledMapCatalog(preferencesService.getCacheDirectory().resolve(INSTALLED_MAP_CATALOG_FILE_NAME));
+      installedMapCatalog.load();
+    }
+    return installedMapCatalog;
   }
 
-  private void addInstalledMap(Path path) throws MapLoadException {
+  private void saveInstalledMapCatalog() {
     try {
-      MapBean mapBean = readMap(path);
-      pathToMap.put(path, mapBean);
-      if (!mapsByFolderName.containsKey(mapBean.getFolderName())) {
-        installedMaps.add(mapBean);
+      getInstalledMapCatalog().save();
+    } catch (IOException e) {
+      logger.warn("Installed map catalog could not be saved", e);
+    }
+  }
+
+  private synchronized void clearInstalledMaps() {
+    installedMaps.clear();
+    pathToMap.clear();
+    mapPathsByFolderKey.clear();
+  }
+
+  private synchronized void removeMap(Path path) {
+    MapBean mapBean = pathToMap.remove(path);
+    if (mapBean == null) {
+      return;
+    }
+
+    String folderKey = getFolderKey(mapBean.getFolderName());
+    List<Path> paths = mapPathsByFolderKey.get(folderKey);
+    List<Path> remainingPaths = paths.stream()
+        .filter(otherPath -> !otherPath.equals(path))
+        .collect(Collectors.toUnmodifiableList());
+    if (remainingPaths.isEmpty()) {
+      mapPathsByFolderKey.remove(folderKey);
+    } else {
+      mapPathsByFolderKey.put(folderKey, remainingPaths);
+    }
+
+    if (paths.get(0).equals(path)) {
+      installedMaps.remove(mapBean);
+      if (!remainingPaths.isEmpty()) {
+        installedMaps.add(pathToMap.get(remainingPaths.get(0)));
       }
+    }
+  }
+
+  private void addInstalledMap(Path path) throws MapLoadException {
+    try {
+      InstalledMapCatalog.Entry entry = readCatalogEntry(path);
+      getInstalledMapCatalog().put(entry);
+      addInstalledMap(path, entry.toMapBean());
     } catch (MapLoadException e) {
       logger.warn("Map could not be read: " + path.getFileName(), e);
     }
   }
 
+  /**
+   * Adds or replaces the map in the specified folder. If another folder contains an equally named map, the map that
+   * was added first stays installed.
+   */
+  private synchronized void addInstalledMap(Path path, MapBean mapBean) {
+    String folderKey = getFolderKey(mapBean.getFolderName());
+    MapBean previousMapBean = pathToMap.put(path, mapBean);
+    if (previousMapBean != null) {
+      List<Path> paths = mapPathsByFolderKey.get(getFolderKey(previousMapBean.getFolderName()));
+      if (paths.get(0).equals(path)) {
+        installedMaps.set(installedMaps.indexOf(previousMapBean), mapBean);
+      }
+      return;
+    }
+
+    List<Path> paths = mapPathsByFolderKey.merge(folderKey, List.of(path), (existingPaths, addedPaths) ->
+        Stream.concat(existingPaths.stream(), addedPaths.stream()).collect(Collectors.toUnmodifiableList()));
+    if (paths.get(0).equals(path)) {
+      installedMaps.add(mapBean);
+    }
+  }
+
   @Subscribe
   public void onMapGenerated(MapGeneratedEvent event) {
     addInstalledMap(getPathForMap(event.getMapName()));
@@ -280,16 +412,37 @@ public class MapService implements InitializingBean, DisposableBean {
 
   @NotNull
   public MapBean readMap(Path mapFolder) throws MapLoadException {
+    return readMap(mapFolder, findScenarioFile(mapFolder));
+  }
+
+  private InstalledMapCatalog.Entry readCatalogEntry(Path mapFolder) throws MapLoadException {
+    Path scenarioLuaPath = findScenarioFile(mapFolder);
+    BasicFileAttributes scenarioAttributes;
+    try {
+      scenarioAttributes = Files.readAttributes(scenarioLuaPath, BasicFileAttributes.class);
+    } catch (IOException e) {
+      throw new MapLoadException(e);
+    }
+    return InstalledMapCatalog.Entry.of(mapFolder, scenarioLuaPath, scenarioAttributes, readMap(mapFolder, scenarioLuaPath));
+  }
+
+  private static Path findScenarioFile(Path mapFolder) throws MapLoadException {
     if (!Files.isDirectory(mapFolder)) {
       throw new MapLoadException("Not a folder: " + mapFolder.toAbsolutePath());
     }
 
     try (Stream<Path> mapFolderFilesStream = list(mapFolder)) {
-      Path scenarioLuaPath = mapFolderFilesStream
+      return mapFolderFilesStream
           .filter(file -> file.getFileName().toString().endsWith("_scenario.lua"))
           .findFirst()
           .orElseThrow(() -> new MapLoadException("Map folder does not contain a *_scenario.lua: " + mapFolder.toAbsolutePath()));
+    } catch (IOException e) {
+      throw new MapLoadException(e);
+    }
+  }
 
+  private MapBean readMap(Path mapFolder, Path scenarioLuaPath) throws MapLoadException {
+    try {
       LuaValue luaRoot = noCatch(() -> loadFile(scenarioLuaPath), MapLoadException.class);
       LuaValue scenarioInfo = luaRoot.get("ScenarioInfo");
       LuaValue size = scenarioInfo.get("size");
@@ -308,7 +461,7 @@ public class MapService implements InitializingBean, DisposableBean {
       }
 
       return mapBean;
-    } catch (IOException | LuaError e) {
+    } catch (LuaError e) {
       throw new MapLoadException(e);
     }
   }
@@ -334,13 +487,12 @@ public class MapService implements InitializingBean, DisposableBean {
   }
 
   public Optional<MapBean> getMapLocallyFromName(String mapFolderName) {
-    logger.debug("Trying to find map '{}' locally", mapFolderName);
-    String mapFolderKey = mapFolderName.toLowerCase();
-    return Optional.ofNullable(mapsByFolderName.get(mapFolderKey));
+    return Optional.ofNullable(mapPathsByFolderKey.get(getFolderKey(mapFolderName)))
+        .map(paths -> pathToMap.get(paths.get(0)));
   }
 
   public boolean isOfficialMap(String mapName) {
-    return officialMaps.stream().anyMatch(name -> name.equalsIgnoreCase(mapName));
+    return officialMapKeys.contains(getFolderKey(mapName));
   }
 
 
@@ -349,7 +501,7 @@ public class MapService implements InitializingBean, DisposableBean {
    */
 
   public boolean isInstalled(String mapFolderName) {
-    return mapsByFolderName.containsKey(mapFolderName.toLowerCase());
+    return mapPathsByFolderKey.containsKey(getFolderKey(mapFolderName));
   }
 
 
@@ -442,7 +594,15 @@ public class MapService implements InitializingBean, DisposableBean {
     return path;
   }
 
+  /**
+   * Returns the folder of the installed map with the specified name, ignoring case. Maps that have just been extracted
+   * may not have been added yet, so if the map isn't installed, its folder is searched on disk.
+   */
   public Path getPathForMapInsensitive(String approxName) {
+    List<Path> paths = mapPathsByFolderKey.get(getFolderKey(approxName));
+    if (paths != null) {
+      return paths.get(0);
+    }
     for (Path entry : noCatch(() -> Files.newDirectoryStream(getMapsDirectory(approxName)))) {
       if (entry.getFileName().toString().equalsIgnoreCase(approxName)) {
         return entry;
@@ -539,7 +699,10 @@ public class MapService implements InitializingBean, DisposableBean {
 
   @Override
   public void destroy() {
-    Optional.ofNullable(directoryWatcherThread).ifPresent(Thread::interrupt);
+    closeMapsDirectoryWatcher();
+    if (installedMapCatalog != null) {
+      saveInstalledMapCatalog();
+    }
   }
 
   public enum PreviewSize {
@@ -25,7 +25,7 @@ public class UninstallMapTask extends CompletableTask<Void> {
 
   @Inject
   public UninstallMapTask(MapService mapService) {
-    super(Priority.LOW);
+    super(Priority.LOW, Resource.DISK);
     this.mapService = mapService;
   }
 
@@ -43,7 +43,7 @@ public class GenerateMapTask extends CompletableTask<Void> {
 
   @Inject
   public GenerateMapTask(PreferencesService preferencesService, NotificationService notificationService, I18n i18n, EventBus eventBus) {
-    super(Priority.HIGH);
+    super(Priority.HIGH, Resource.CPU);
 
     this.preferencesService = preferencesService;
     this.notificationService = notificationService;
@@ -0,0 +1,456 @@
+package com.faforever.client.mod;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * The mod activation state in Forged Alliance's {@code game.prefs}, which is a file of Lua table assignments. The file
+ * is parsed, not searched, so that text inside of strings and comments and nested tables named {@code active_mods} are
+ * not mistaken for the active mods. Changing the active mods only replaces the top-level {@code active_mods} table;
+ * everything else is written back byte for byte.
+ * <p>
+ * The file is read as ISO-8859-1, which maps every byte to a character and back, so that text in any encoding survives
+ * a round trip. If the file is malformed, it is parsed up to the error; an {@code active_mods} table before the error
+ * can still be changed.
+ */
+@Slf4j
+class GamePrefsFile {
+
+  private static final String ACTIVE_MODS_KEY = "active_mods";
+  private static final String BACKUP_SUFFIX = ".bak";
+
+  private final Path file;
+  private final String originalContent;
+  private String content;
+  /** The UIDs of the mods in the {@code active_mods} table, and whether they are active. */
+  private Map<String, Boolean> activeMods;
+  /** The start of the {@code active_mods} table, or {@code -1} if there is none. */
+  private int activeModsStart;
+  /** The end of the {@code active_mods} table, exclusive. */
+  private int activeModsEnd;
+  /** Why the file could not be parsed completely, or {@code null} if it could. */
+  @Nullable
+  private final String formatError;
+
+  private GamePrefsFile(Path file, String content) {
+    this.file = file;
+    this.originalContent = content;
+    this.content = content;
+    activeMods = Collections.emptyMap();
+    activeModsStart = -1;
+
+    String error = null;
+    try {
+      new Parser(content).parseFile((start, end, mods) -> {
+        // Like in Lua, the last assignment wins
+        activeModsStart = start;
+        activeModsEnd = end;
+        activeMods = mods;
+      });
+    } catch (FormatException e) {
+      error = e.getMessage();
+      log.warn("Game preferences file '{}' is malformed: {}", file, error);
+    }
+    formatError = error;
+  }
+
+  static GamePrefsFile read(Path file) throws IOException {
+    return new GamePrefsFile(file, new String(Files.readAllBytes(file), ISO_8859_1));
+  }
+
+  /**
+   * Returns the UIDs of the mods in the {@code active_mods} table, in the order in which they are listed, and whether
+   * they are active.
+   */
+  Map<String, Boolean> getActiveMods() {
+    return Collections.unmodifiableMap(activeMods);
+  }
+
+  /**
+   * Replaces the {@code active_mods} table by one that lists the active ones of the specified mods, or adds such a table
+   * at the end of the file if there is none.
+   *
+   * @throws IOException if the file is malformed and has no {@code active_mods} table, so that it's unknown where a
+   * new one could be added
+   */
+  void setActiveMods(Map<String, Boolean> modStates) throws IOException {
+    StringBuilder table = new StringBuilder("{");
+    String separator = "";
+    for (Map.Entry<String, Boolean> entry : modStates.entrySet()) {
+      if (!entry.getValue()) {
+        continue;
+      }
+      table.append(separator).append("\n    ['").append(escape(entry.getKey())).append("'] = true");
+      separator = ",";
+    }
+    table.append("\n}");
+
+    if (activeModsStart != -1) {
+      content = content.substring(0, activeModsStart) + table + content.substring(activeModsEnd);
+      activeModsEnd = activeModsStart + table.length();
+    } else if (formatError == null) {
+      String lineBreak = content.isEmpty() || content.endsWith("\n") ? "" : "\n";
+      activeModsStart = content.length() + lineBreak.length() + ACTIVE_MODS_KEY.length() + 3;
+      content = content + lineBreak + ACTIVE_MODS_KEY + " = " + table;
+      activeModsEnd = content.length();
+    } else {
+      throw new IOException("Active mods can't be added to malformed game preferences file '" + file + "': " + formatError);
+    }
+
+    Map<String, Boolean> newActiveMods = new LinkedHashMap<>();
+    modStates.forEach((uid, active) -> {
+      if (active) {
+        newActiveMods.put(uid, true);
+      }
+    });
+    activeMods = newActiveMods;
+  }
+
+  /**
+   * Writes the file if it has been changed. The new content is written to a temporary file which then replaces the
+   * file, so that the game never sees a partially written file. The previous file is kept as a backup next to it.
+   */
+  void write() throws IOException {
+    if (content.equals(originalContent)) {
+      return;
+    }
+    Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), null);
+    try {
+      Files.write(tempFile, content.getBytes(ISO_8859_1));
+      Files.copy(file, file.resolveSibling(file.getFileName() + BACKUP_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the content as it would be written.
+   */
+  String getContent() {
+    return content;
+  }
+
+  private static String escape(String string) {
+    return string.replace("\\", "\\\\").replace("'", "\\'");
+  }
+
+  private interface ActiveModsListener {
+    void onActiveMods(int start, int end, Map<String, Boolean> activeMods);
+  }
+
+  private static class FormatException extends Exception {
+    private FormatException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * A parser for the subset of Lua that preference files consist of: assignments of constants and table constructors
+   * to names. Only the top-level {@code active_mods} table is interpreted, everything else is skipped.
+   */
+  private static class Parser {
+
+    /** Returned for values that are neither strings nor booleans. */
+    private static final Object OTHER_VALUE = new Object();
+
+    private final String content;
+    private int position;
+
+    private Parser(String content) {
+      this.content = content;
+    }
+
+    private void parseFile(ActiveModsListener activeModsListener) throws FormatException {
+      skipWhitespaceAndComments();
+      while (position < content.length()) {
+        String name = parseName();
+        skipWhitespaceAndComments();
+        expect('=');
+        skipWhitespaceAndComments();
+        if (name.equals(ACTIVE_MODS_KEY) && peek() == '{') {
+          int start = position;
+          Map<String, Boolean> activeMods = new LinkedHashMap<>();
+          parseTable((key, value) -> {
+            if (key instanceof String && value instanceof Boolean) {
+              activeMods.put((String) key, (Boolean) value);
+            }
+          });
+          activeModsListener.onActiveMods(start, position, activeMods);
+        } else {
+          parseValue();
+        }
+        skipWhitespaceAndComments();
+        if (peekAt(position) == ';') {
+          position++;
+          skipWhitespaceAndComments();
+        }
+      }
+    }
+
+    /**
+     * Parses a value and returns it if it's a string or boolean.
+     */
+    private Object parseValue() throws FormatException {
+      char c = peek();
+      if (c == '{') {
+        parseTable(null);
+        return OTHER_VALUE;
+      }
+      if (c == '\'' || c == '"') {
+        return parseQuotedString();
+      }
+      if (c == '[') {
+        return parseLongString();
+      }
+      if (c == '-' || c == '.' || Character.isDigit(c)) {
+        parseNumber();
+        return OTHER_VALUE;
+      }
+      if (isNameStart(c)) {
+        String name = parseName();
+        if (name.equals("true") || name.equals("false")) {
+          return Boolean.valueOf(name);
+        }
+        return OTHER_VALUE;
+      }
+      throw error("Unexpected character '" + c + "'");
+    }
+
+    /**
+     * Parses a table constructor and passes its fields with explicit keys to the specified consumer.
+     */
+    private void parseTable(@Nullable BiConsumer<Object, Object> fieldConsumer) throws FormatException {
+      expect('{');
+      while (true) {
+        skipWhitespaceAndComments();
+        if (peek() == '}') {
+          position++;
+          return;
+        }
+
+        Object key = null;
+        Object value;
+        if (peek() == '[' && !isLongBracketStart(position)) {
+          position++;
+          skipWhitespaceAndComments();
+          key = parseValue();
+          skipWhitespaceAndComments();
+          expect(']');
+          skipWhitespaceAndComments();
+          expect('=');
+          skipWhitespaceAndComments();
+          value = parseValue();
+        } else if (isNameStart(peek())) {
+          int nameStart = position;
+          String name = parseName();
+          skipWhitespaceAndComments();
+          if (peek() == '=' && peekAt(position + 1) != '=') {
+            position++;
+            skipWhitespaceAndComments();
+            key = name;
+            value = parseValue();
+          } else {
+            position = nameStart;
+            value = parseValue();
+          }
+        } else {
+          value = parseValue();
+        }
+        if (key != null && fieldConsumer != null) {
+          fieldConsumer.accept(key, value);
+        }
+
+        skipWhitespaceAndComments();
+        char c = peek();
+        if (c == ',' || c == ';') {
+          position++;
+        } else if (c != '}') {
+          throw error("Expected ',' or '}' but found '" + c + "'");
+        }
+      }
+    }
+
+    private String parseQuotedString() throws FormatException {
+      char quote = content.charAt(position++);
+      StringBuilder string = new StringBuilder();
+      while (true) {
+        char c = peek();
+        if (c == quote) {
+          position++;
+          return string.toString();
+        }
+        if (c == '\n') {
+          throw error("Unterminated string");
+        }
+        position++;
+        if (c != '\\') {
+          string.append(c);
+          continue;
+        }
+        char escaped = peek();
+        position++;
+        switch (escaped) {
+          case 'n':
+            string.append('\n');
+            break;
+          case 't':
+            string.append('\t');
+            break;
+          case 'r':
+            string.append('\r');
+            break;
+          default:
+            string.append(escaped);
+        }
+      }
+    }
+
+    private String parseLongString() throws FormatException {
+      if (!isLongBracketStart(position)) {
+        throw error("Unexpected character '['");
+      }
+      int start = position;
+      String closingBracket = skipLongBracket();
+      return content.substring(content.indexOf('[', start + 1) + 1, position - closingBracket.length());
+    }
+
+    private void parseNumber() throws FormatException {
+      int start = position;
+      if (peek() == '-') {
+        position++;
+      }
+      while (position < content.length()) {
+        char c = content.charAt(position);
+        boolean exponentSign = (c == '-' || c == '+') && position > start && "eEpP".indexOf(content.charAt(position - 1)) != -1;
+        if (!Character.isLetterOrDigit(c) && c != '.' && !exponentSign) {
+          break;
+        }
+        position++;
+      }
+      if (position == start + 1 && content.charAt(start) == '-' || position == start) {
+        throw error("Malformed number");
+      }
+    }
+
+    private String parseName() throws FormatException {
+      if (!isNameStart(peek())) {
+        throw error("Expected a name but found '" + peek() + "'");
+      }
+      int start = position;
+      while (position < content.length() && isNamePart(content.charAt(position))) {
+        position++;
+      }
+      return content.substring(start, position);
+    }
+
+    private void skipWhitespaceAndComments() throws FormatException {
+      while (position < content.length()) {
+        char c = content.charAt(position);
+        if (Character.isWhitespace(c)) {
+          position++;
+        } else if (content.startsWith("--", position)) {
+          position += 2;
+          if (isLongBracketStart(position)) {
+            skipLongBracket();
+          } else {
+            int lineEnd = content.indexOf('\n', position);
+            position = lineEnd == -1 ? content.length() : lineEnd + 1;
+          }
+        } else {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Returns {@code true} if a long bracket like {@code [[} or {@code [==[} starts at the specified position.
+     */
+    private boolean isLongBracketStart(int start) {
+      if (peekAt(start) != '[') {
+        return false;
+      }
+      int i = start + 1;
+      while (peekAt(i) == '=') {
+        i++;
+      }
+      return peekAt(i) == '[';
+    }
+
+    /**
+     * Skips a long string or comment and returns its closing bracket.
+     */
+    private String skipLongBracket() throws FormatException {
+      int start = position;
+      int level = 0;
+      position++;
+      while (peek() == '=') {
+        level++;
+        position++;
+      }
+      position++;
+      String closingBracket = "]" + "=".repeat(level) + "]";
+      int end = content.indexOf(closingBracket, position);
+      if (end == -1) {
+        position = start;
+        throw error("Unterminated long string or comment");
+      }
+      position = end + closingBracket.length();
+      return closingBracket;
+    }
+
+    private void expect(char expected) throws FormatException {
+      char c = peek();
+      if (c != expected) {
+        throw error("Expected '" + expected + "' but found '" + c + "'");
+      }
+      position++;
+    }
+
+    /**
+     * Returns the current character.
+     *
+     * @throws FormatException if the end of the content has been reached
+     */
+    private char peek() throws FormatException {
+      if (position >= content.length()) {
+        throw error("Unexpected end of file");
+      }
+      return content.charAt(position);
+    }
+
+    private char peekAt(int index) {
+      return index < content.length() ? content.charAt(index) : 0;
+    }
+
+    private FormatException error(String message) {
+      int line = 1;
+      for (int i = 0; i < Math.min(position, content.length()); i++) {
+        if (content.charAt(i) == '\n') {
+          line++;
+        }
+      }
+      return new FormatException(message + " in line " + line);
+    }
+
+    private static boolean isNameStart(char c) {
+      return c == '_' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isNamePart(char c) {
+      return isNameStart(c) || c >= '0' && c <= '9';
+    }
+  }
+}
@@ -29,6 +29,7 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import static com.faforever.client.task.CompletableTask.Priority.HIGH;
+import static com.faforever.client.task.CompletableTask.Resource.DISK;
 
 @Component
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
@@ -43,7 +44,7 @@ public class InstallModTask extends CompletableTask<Void> {
 
   @Inject
   public InstallModTask(PreferencesService preferencesService, I18n i18n) {
-    super(HIGH);
+    super(HIGH, DISK);
 
     this.preferencesService = preferencesService;
     this.i18n = i18n;
@@ -0,0 +1,147 @@
+package com.faforever.client.mod;
+
+import com.faforever.client.mod.ModVersion.ModType;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The installed mods, indexed by their folder and UID. If a mod is installed in several folders, the folder it was added
+ * from first is the one that counts. Lookups read an immutable snapshot that is taken after the mods changed, so they
+ * neither lock nor scan the mods, and the returned collections can't change under the caller. Writes are
+ * thread-safe.
+ */
+class InstalledModRegistry {
+
+  private final Map<Path, ModVersion> modsByPath = new LinkedHashMap<>();
+  /** The folders of every mod, by UID. The first folder is the one that counts. */
+  private final Map<String, List<Path>> pathsByUid = new HashMap<>();
+  /** The snapshot of the current mods, or {@code null} if the mods changed since it was taken. */
+  private volatile Snapshot snapshot;
+
+  /**
+   * Adds the mod in the specified folder, or replaces the mod that has been added from it before. The replaced mod is
+   * returned.
+   */
+  synchronized Optional<ModVersion> add(Path path, ModVersion modVersion) {
+    ModVersion previousModVersion = modsByPath.get(path);
+    if (previousModVersion != null && !sameUid(previousModVersion, modVersion)) {
+      remove(path);
+    }
+    modsByPath.put(path, modVersion);
+    List<Path> paths = pathsByUid.computeIfAbsent(modVersion.getUid(), uid -> new ArrayList<>());
+    if (!paths.contains(path)) {
+      paths.add(path);
+    }
+    snapshot = null;
+    return Optional.ofNullable(previousModVersion);
+  }
+
+  /**
+   * Removes the mod in the specified folder and returns it.
+   */
+  synchronized Optional<ModVersion> remove(Path path) {
+    ModVersion modVersion = modsByPath.remove(path);
+    if (modVersion == null) {
+      return Optional.empty();
+    }
+    List<Path> paths = pathsByUid.get(modVersion.getUid());
+    paths.remove(path);
+    if (paths.isEmpty()) {
+      pathsByUid.remove(modVersion.getUid());
+    }
+    snapshot = null;
+    return Optional.of(modVersion);
+  }
+
+  synchronized void clear() {
+    modsByPath.clear();
+    pathsByUid.clear();
+    snapshot = null;
+  }
+
+  /**
+   * Returns the installed version of the mod with the specified UID.
+   */
+  Optional<ModVersion> getByUid(String uid) {
+    return Optional.ofNullable(getSnapshot().modsByUid.get(uid));
+  }
+
+  boolean containsUid(String uid) {
+    return getSnapshot().modsByUid.containsKey(uid);
+  }
+
+  /**
+   * Returns the folder of the installed version of the mod with the specified UID.
+   */
+  @Nullable
+  Path getPath(String uid) {
+    return getSnapshot().pathsByUid.get(uid);
+  }
+
+  Set<String> getUids() {
+    return getSnapshot().modsByUid.keySet();
+  }
+
+  Set<String> getUiModUids() {
+    return getSnapshot().uiModUids;
+  }
+
+  /**
+   * Returns the folders of all mods, including the ones that don't count because the mod is installed elsewhere too.
+   */
+  Set<Path> getPaths() {
+    return getSnapshot().paths;
+  }
+
+  private Snapshot getSnapshot() {
+    Snapshot currentSnapshot = snapshot;
+    if (currentSnapshot != null) {
+      return currentSnapshot;
+    }
+    synchronized (this) {
+      if (snapshot == null) {
+        snapshot = new Snapshot(modsByPath, pathsByUid);
+      }
+      return snapshot;
+    }
+  }
+
+  private static boolean sameUid(ModVersion modVersion, ModVersion otherModVersion) {
+    return modVersion.getUid() == null ? otherModVersion.getUid() == null : modVersion.getUid().equals(otherModVersion.getUid());
+  }
+
+  private static class Snapshot {
+    private final Map<String, ModVersion> modsByUid;
+    private final Map<String, Path> pathsByUid;
+    private final Set<String> uiModUids;
+    private final Set<Path> paths;
+
+    private Snapshot(Map<Path, ModVersion> modsByPath, Map<String, List<Path>> pathsByUid) {
+      Map<String, ModVersion> modsByUid = new HashMap<>();
+      Map<String, Path> installedPathsByUid = new HashMap<>();
+      Set<String> uiModUids = new HashSet<>();
+      pathsByUid.forEach((uid, paths) -> {
+        ModVersion modVersion = modsByPath.get(paths.get(0));
+        modsByUid.put(uid, modVersion);
+        installedPathsByUid.put(uid, paths.get(0));
+        if (modVersion.getModType() == ModType.UI) {
+          uiModUids.add(uid);
+        }
+      });
+      this.modsByUid = Collections.unmodifiableMap(modsByUid);
+      this.pathsByUid = Collections.unmodifiableMap(installedPathsByUid);
+      this.uiModUids = Collections.unmodifiableSet(uiModUids);
+      this.paths = Collections.unmodifiableSet(new HashSet<>(modsByPath.keySet()));
+    }
+  }
+}
@@ -4,7 +4,7 @@ import com.faforever.client.config.CacheNames;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.fx.PlatformService;
 import com.faforever.client.i18n.I18n;
-import com.faforever.client.mod.ModVersion.ModType;
+import com.faforever.client.io.DirectoryWatcher;
 import com.faforever.client.notification.Action;
 import com.faforever.client.notification.NotificationService;
 import com.faforever.client.notification.PersistentNotification;
@@ -14,6 +14,7 @@ import com.faforever.client.remote.AssetService;
 import com.faforever.client.remote.FafService;
 import com.faforever.client.task.CompletableTask;
 import com.faforever.client.task.CompletableTask.Priority;
+import com.faforever.client.task.CompletableTask.Resource;
 import com.faforever.client.task.TaskService;
 import com.faforever.client.util.IdenticonUtil;
 import com.faforever.client.util.Tuple;
@@ -22,6 +23,7 @@ import com.faforever.client.vault.search.SearchController.SortConfig;
 import com.faforever.client.vault.search.SearchController.SortOrder;
 import com.faforever.commons.mod.ModLoadException;
 import com.faforever.commons.mod.ModReader;
+import com.google.common.annotations.VisibleForTesting;
 import javafx.beans.InvalidationListener;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.StringProperty;
@@ -53,27 +55,24 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.faforever.client.notification.Severity.WARN;
+import static com.faforever.client.util.ConcurrentUtil.supplyInParallel;
 import static com.github.nocatch.NoCatch.noCatch;
-import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.file.Files.createDirectories;
-import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
 import static java.util.Collections.singletonList;
-import static java.util.concurrent.CompletableFuture.completedFuture;
 
 @Lazy
 @Service
@@ -83,8 +82,8 @@ public class ModService implements InitializingBean, DisposableBean {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-  private static final Pattern ACTIVE_MODS_PATTERN = Pattern.compile("active_mods\\s*=\\s*\\{.*?}", Pattern.DOTALL);
-  private static final Pattern ACTIVE_MOD_PATTERN = Pattern.compile("\\['(.*?)']\\s*=\\s*(true|false)", Pattern.DOTALL);
+  /** Mods are extracted by downloads or by hand, and need to be written completely before they can be read. */
+  private static final Duration MODS_DIRECTORY_QUIET_PERIOD = Duration.ofMillis(500);
 
   private final FafService fafService;
   private final PreferencesService preferencesService;
@@ -97,21 +96,22 @@ public class ModService implements InitializingBean, DisposableBean {
   private final ModReader modReader = new ModReader();
 
   private Path modsDirectory;
-  private final Map<Path, ModVersion> pathToMod = new HashMap<>();
+  private final InstalledModRegistry installedMods = new InstalledModRegistry();
   private final ObservableList<ModVersion> installedModVersions = FXCollections.observableArrayList();
   private final ObservableList<ModVersion> readOnlyInstalledModVersions = FXCollections.unmodifiableObservableList(installedModVersions);
-  private Thread directoryWatcherThread;
+  private DirectoryWatcher modsDirectoryWatcher;
+  private CompletableFuture<Map<String, FeaturedMod>> featuredModsByTechnicalName;
 
   @Override
   public void afterPropertiesSet() {
     InvalidationListener modDirectoryChangedListener = observable -> {
       modsDirectory = preferencesService.getPreferences().getForgedAlliance().getModsDirectory();
       if (modsDirectory != null) {
-        installedModVersions.clear();
+        clearInstalledMods();
         onModDirectoryReady();
       }
     };
-    taskService.submitTask(new CompletableTask<Void>(Priority.LOW) {
+    taskService.submitTask(new CompletableTask<Void>(Priority.LOW, Resource.DISK) {
       @Override
       protected Void call() throws Exception {
         updateTitle(i18n.get("modVault.loadingMods"));
@@ -125,8 +125,19 @@ public class ModService implements InitializingBean, DisposableBean {
   private void onModDirectoryReady() {
     try {
       createDirectories(modsDirectory);
-      Optional.ofNullable(directoryWatcherThread).ifPresent(Thread::interrupt);
-      directoryWatcherThread = startDirectoryWatcher(modsDirectory);
+      closeModsDirectoryWatcher();
+      modsDirectoryWatcher = DirectoryWatcher.watch(modsDirectory, MODS_DIRECTORY_QUIET_PERIOD, "mods-directory-watcher",
+          new DirectoryWatcher.Listener() {
+            @Override
+            public void onChanged(Set<Path> modPaths) {
+              onModsChanged(modPaths);
+            }
+
+            @Override
+            public void onOverflow() {
+              rescanInstalledMods();
+            }
+          });
     } catch (IOException e) {
       logger.warn("Could not start mod directory watcher", e);
       // TODO notify user
@@ -134,34 +145,66 @@ public class ModService implements InitializingBean, DisposableBean {
     loadInstalledMods();
   }
 
-  private Thread startDirectoryWatcher(Path modsDirectory) {
-    Thread thread = new Thread(() -> noCatch(() -> {
-      WatchService watcher = modsDirectory.getFileSystem().newWatchService();
-      modsDirectory.register(watcher, ENTRY_DELETE);
+  private void closeModsDirectoryWatcher() {
+    if (modsDirectoryWatcher == null) {
+      return;
+    }
+    try {
+      modsDirectoryWatcher.close();
+    } catch (IOException e) {
+      logger.warn("Could not close mod directory watcher", e);
+    }
+  }
 
-      try {
-        while (!Thread.interrupted()) {
-          WatchKey key = watcher.take();
-          key.pollEvents().stream()
-              .filter(event -> event.kind() == ENTRY_DELETE)
-              .forEach(event -> removeMod(modsDirectory.resolve((Path) event.context())));
-          key.reset();
-        }
-      } catch (InterruptedException e) {
-        logger.debug("Watcher terminated ({})", e.getMessage());
+  /**
+   * Removes the specified mods if they have been deleted, and reads them again otherwise. Mods that are read again
+   * replace their previous version in place.
+   */
+  private void onModsChanged(Set<Path> modPaths) {
+    List<Path> existingModPaths = new ArrayList<>();
+    for (Path modPath : modPaths) {
+      if (Files.isDirectory(modPath)) {
+        existingModPaths.add(modPath);
+      } else if (Files.notExists(modPath)) {
+        removeMod(modPath);
       }
-    }));
-    thread.start();
-    return thread;
+    }
+    addMods(existingModPaths);
+  }
+
+  private void rescanInstalledMods() {
+    Set<Path> modPaths = new LinkedHashSet<>(installedMods.getPaths());
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(modsDirectory, entry -> Files.isDirectory(entry))) {
+      directoryStream.forEach(modPaths::add);
+    } catch (IOException e) {
+      logger.warn("Mods could not be read from: " + modsDirectory, e);
+    }
+    onModsChanged(modPaths);
   }
 
   public void loadInstalledMods() {
+    List<Path> modPaths = new ArrayList<>();
     try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(modsDirectory, entry -> Files.isDirectory(entry))) {
-      for (Path path : directoryStream) {
-        addMod(path);
-      }
+      directoryStream.forEach(modPaths::add);
     } catch (IOException e) {
       logger.warn("Mods could not be read from: " + modsDirectory, e);
+      return;
+    }
+    addMods(modPaths);
+  }
+
+  private void addMods(List<Path> modPaths) {
+    // Mods are read in parallel, but added in their original order so that the first of two equal mods wins
+    List<CompletableFuture<ModVersion>> modVersions = supplyInParallel(modPaths, this::extractModInfo);
+    for (int i = 0; i < modPaths.size(); i++) {
+      Path path = modPaths.get(i);
+      try {
+        addMod(path, modVersions.get(i).join());
+      } catch (CompletionException e) {
+        // A mod that became unreadable doesn't count as installed anymore
+        removeMod(path);
+        onModNotReadable(path, e.getCause());
+      }
     }
   }
 
@@ -201,17 +244,18 @@ public class ModService implements InitializingBean, DisposableBean {
     return downloadAndInstallMod(modVersion.getDownloadUrl(), progressProperty, titleProperty);
   }
 
+  /**
+   * Returns the UIDs of all installed mods. The returned set doesn't change when mods are installed or removed.
+   */
   public Set<String> getInstalledModUids() {
-    return getInstalledModVersions().stream()
-        .map(ModVersion::getUid)
-        .collect(Collectors.toSet());
+    return installedMods.getUids();
   }
 
+  /**
+   * Returns the UIDs of all installed UI mods. The returned set doesn't change when mods are installed or removed.
+   */
   public Set<String> getInstalledUiModsUids() {
-    return getInstalledModVersions().stream()
-        .filter(mod -> mod.getModType() == ModType.UI)
-        .map(ModVersion::getUid)
-        .collect(Collectors.toSet());
+    return installedMods.getUiModUids();
   }
 
   public void enableSimMods(Set<String> simMods) throws IOException {
@@ -235,7 +279,7 @@ public class ModService implements InitializingBean, DisposableBean {
   }
 
   public boolean isModInstalled(String uid) {
-    return getInstalledModUids().contains(uid);
+    return installedMods.containsUid(uid);
   }
 
   public CompletableFuture<Void> uninstallMod(ModVersion modVersion) {
@@ -245,11 +289,7 @@ public class ModService implements InitializingBean, DisposableBean {
   }
 
   public Path getPathForMod(ModVersion modVersionToFind) {
-    return pathToMod.entrySet().stream()
-        .filter(pathModEntry -> pathModEntry.getValue().getUid().equals(modVersionToFind.getUid()))
-        .findFirst()
-        .map(Entry::getKey)
-        .orElse(null);
+    return installedMods.getPath(modVersionToFind.getUid());
   }
 
   public CompletableFuture<Tuple<List<ModVersion>, Integer>> getNewestModsWithPageCount(int count, int page) {
@@ -318,11 +358,20 @@ public class ModService implements InitializingBean, DisposableBean {
   }
 
   public CompletableFuture<FeaturedMod> getFeaturedMod(String featuredMod) {
-    return getFeaturedMods().thenCompose(featuredModBeans -> completedFuture(featuredModBeans.stream()
-        .filter(mod -> featuredMod.equals(mod.getTechnicalName()))
-        .findFirst()
-        .orElseThrow(() -> new IllegalArgumentException("Not a valid featured mod: " + featuredMod))
-    ));
+    return getFeaturedModsByTechnicalName().thenApply(featuredMods -> Optional.ofNullable(featuredMods.get(featuredMod))
+        .orElseThrow(() -> new IllegalArgumentException("Not a valid featured mod: " + featuredMod)));
+  }
+
+  /**
+   * Featured mods don't change while the client is running, so they are only indexed once. A failed request is
+   * repeated the next time.
+   */
+  private synchronized CompletableFuture<Map<String, FeaturedMod>> getFeaturedModsByTechnicalName() {
+    if (featuredModsByTechnicalName == null || featuredModsByTechnicalName.isCompletedExceptionally()) {
+      featuredModsByTechnicalName = getFeaturedMods().thenApply(featuredMods -> featuredMods.stream()
+          .collect(Collectors.toUnmodifiableMap(FeaturedMod::getTechnicalName, Function.identity(), (first, second) -> first)));
+    }
+    return featuredModsByTechnicalName;
   }
 
   public CompletableFuture<Tuple<List<ModVersion>, Integer>> findByQueryWithPageCount(SearchConfig searchConfig, int count, int page) {
@@ -356,92 +405,74 @@ public class ModService implements InitializingBean, DisposableBean {
   }
 
   private Map<String, Boolean> readModStates() throws IOException {
-    Path preferencesFile = preferencesService.getPreferences().getForgedAlliance().getPreferencesFile();
-    Map<String, Boolean> mods = new HashMap<>();
-
-    String preferencesContent = new String(Files.readAllBytes(preferencesFile), US_ASCII);
-    Matcher matcher = ACTIVE_MODS_PATTERN.matcher(preferencesContent);
-    if (matcher.find()) {
-      Matcher activeModMatcher = ACTIVE_MOD_PATTERN.matcher(matcher.group(0));
-      while (activeModMatcher.find()) {
-        String modUid = activeModMatcher.group(1);
-        boolean enabled = Boolean.parseBoolean(activeModMatcher.group(2));
-
-        mods.put(modUid, enabled);
-      }
-    }
-
-    return mods;
+    return new HashMap<>(GamePrefsFile.read(getGamePrefsFile()).getActiveMods());
   }
 
   private void writeModStates(Map<String, Boolean> modStates) throws IOException {
-    Path preferencesFile = preferencesService.getPreferences().getForgedAlliance().getPreferencesFile();
-    String preferencesContent = new String(Files.readAllBytes(preferencesFile), US_ASCII);
-
-    String currentActiveModsContent = null;
-    Matcher matcher = ACTIVE_MODS_PATTERN.matcher(preferencesContent);
-    if (matcher.find()) {
-      currentActiveModsContent = matcher.group(0);
-    }
-
-    StringBuilder newActiveModsContentBuilder = new StringBuilder("active_mods = {");
-
-    Iterator<Map.Entry<String, Boolean>> iterator = modStates.entrySet().iterator();
-    while (iterator.hasNext()) {
-      Map.Entry<String, Boolean> entry = iterator.next();
-      if (!entry.getValue()) {
-        continue;
-      }
-
-      newActiveModsContentBuilder.append("\n    ['");
-      newActiveModsContentBuilder.append(entry.getKey());
-      newActiveModsContentBuilder.append("'] = true");
-      if (iterator.hasNext()) {
-        newActiveModsContentBuilder.append(",");
-      }
-    }
-    newActiveModsContentBuilder.append("\n}");
+    GamePrefsFile gamePrefsFile = GamePrefsFile.read(getGamePrefsFile());
+    gamePrefsFile.setActiveMods(modStates);
+    gamePrefsFile.write();
+  }
 
-    if (currentActiveModsContent != null) {
-      preferencesContent = preferencesContent.replace(currentActiveModsContent, newActiveModsContentBuilder);
-    } else {
-      preferencesContent += newActiveModsContentBuilder.toString();
-    }
+  private Path getGamePrefsFile() {
+    return preferencesService.getPreferences().getForgedAlliance().getPreferencesFile();
+  }
 
-    Files.write(preferencesFile, preferencesContent.getBytes(US_ASCII));
+  private synchronized void clearInstalledMods() {
+    installedMods.clear();
+    installedModVersions.clear();
   }
 
-  private void removeMod(Path path) {
+  private synchronized void removeMod(Path path) {
     logger.debug("Removing mod: {}", path);
-    installedModVersions.remove(pathToMod.remove(path));
+    installedMods.remove(path).ifPresent(this::showInstalledVersion);
   }
 
-  private void addMod(Path path) {
+  @VisibleForTesting
+  synchronized void addMod(Path path, ModVersion modVersion) {
     logger.debug("Adding mod: {}", path);
-    try {
-      ModVersion modVersion = extractModInfo(path);
-      pathToMod.put(path, modVersion);
-      if (!installedModVersions.contains(modVersion)) {
-        installedModVersions.add(modVersion);
+    installedMods.add(path, modVersion)
+        .filter(previousModVersion -> !previousModVersion.equals(modVersion))
+        .ifPresent(this::showInstalledVersion);
+    showInstalledVersion(modVersion);
+  }
+
+  /**
+   * Makes the list of installed mods contain the version of the specified mod that counts as installed, if any.
+   */
+  private void showInstalledVersion(ModVersion modVersion) {
+    // Mod versions are equal if their UIDs are
+    int index = installedModVersions.indexOf(modVersion);
+    Optional<ModVersion> installedVersion = installedMods.getByUid(modVersion.getUid());
+    if (installedVersion.isEmpty()) {
+      if (index >= 0) {
+        installedModVersions.remove(index);
       }
-    } catch (ModLoadException e) {
-      logger.debug("Corrupt mod: " + path, e);
+    } else if (index < 0) {
+      installedModVersions.add(installedVersion.get());
+    } else if (installedModVersions.get(index) != installedVersion.get()) {
+      installedModVersions.set(index, installedVersion.get());
+    }
+  }
+
+  private void onModNotReadable(Path path, Throwable throwable) {
+    if (throwable instanceof ModLoadException) {
+      logger.debug("Corrupt mod: " + path, throwable);
 
       notificationService.addNotification(new PersistentNotification(i18n.get("corruptedMods.notification", path.getFileName()), WARN, singletonList(
           new Action(i18n.get("corruptedMods.show"), event -> platformService.reveal(path))
       )));
-    } catch (Exception e) {
-      logger.warn("Skipping mod because of exception during adding of mod: " + path, e);
+    } else {
+      logger.warn("Skipping mod because of exception during adding of mod: " + path, throwable);
 
       notificationService.addNotification(new PersistentNotification(i18n.get("corruptedModsError.notification", path.getFileName()), WARN, singletonList(
           new Action(i18n.get("corruptedMods.show"), event -> platformService.reveal(path))
       )));
-
     }
   }
 
   @Override
   public void destroy() {
-    Optional.ofNullable(directoryWatcherThread).ifPresent(Thread::interrupt);
+    closeModsDirectoryWatcher();
   }
 }
@@ -68,7 +68,7 @@ public class GameBinariesUpdateTaskImpl extends CompletableTask<Void> implements
   private Integer version;
 
   public GameBinariesUpdateTaskImpl(I18n i18n, PreferencesService preferencesService, PlatformService platformService, ClientProperties clientProperties) {
-    super(Priority.HIGH);
+    super(Priority.HIGH, Resource.DISK);
 
     this.i18n = i18n;
     this.preferencesService = preferencesService;
@@ -3,11 +3,13 @@ package com.faforever.client.patch;
 import com.faforever.client.api.dto.FeaturedModFile;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.io.DownloadService;
+import com.faforever.client.io.DownloadService.Download;
 import com.faforever.client.io.FeaturedModFileCacheService;
 import com.faforever.client.mod.FeaturedMod;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.remote.FafService;
 import com.faforever.client.task.CompletableTask;
+import com.google.common.base.Throwables;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.maven.artifact.versioning.ComparableVersion;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -18,8 +20,10 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 @Component
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
@@ -60,26 +64,28 @@ public class SimpleHttpFeaturedModUpdaterTask extends CompletableTask<PatchResul
     List<FeaturedModFile> featuredModFiles = fafService.getFeaturedModFiles(featuredMod, version).get();
     Path fafDataDirectory = preferencesService.getFafDataDirectory();
 
-    featuredModFiles
-        .forEach(featuredModFile -> {
-          Path targetPath = fafDataDirectory
-              .resolve(featuredModFile.getGroup())
-              .resolve(featuredModFile.getName());
-
-          try {
-            if (fileAlreadyLoaded(featuredModFile, targetPath)) {
-              log.debug("Featured mod file already prepared: {}", featuredModFile);
-            } else if (featuredModFileCacheService.isCached(featuredModFile)) {
-              featuredModFileCacheService.moveFeaturedModFileFromCache(featuredModFile, targetPath);
-            } else {
-              downloadFeaturedModFile(featuredModFile, featuredModFileCacheService.getCachedFilePath(featuredModFile));
-              featuredModFileCacheService.moveFeaturedModFileFromCache(featuredModFile, targetPath);
-            }
-          } catch (IOException e) {
-            log.error("Error on updating featured mod file: {}", featuredModFile, e);
-            throw new RuntimeException(e);
-          }
-        });
+    try {
+      List<FeaturedModFile> filesToUpdate = new ArrayList<>();
+      List<FeaturedModFile> filesToDownload = new ArrayList<>();
+      for (FeaturedModFile featuredModFile : featuredModFiles) {
+        if (fileAlreadyLoaded(featuredModFile, getTargetPath(fafDataDirectory, featuredModFile))) {
+          log.debug("Featured mod file already prepared: {}", featuredModFile);
+          continue;
+        }
+        filesToUpdate.add(featuredModFile);
+        if (!featuredModFileCacheService.isCached(featuredModFile)) {
+          filesToDownload.add(featuredModFile);
+        }
+      }
+
+      downloadFeaturedModFiles(filesToDownload);
+
+      for (FeaturedModFile featuredModFile : filesToUpdate) {
+        featuredModFileCacheService.moveFeaturedModFileFromCache(featuredModFile, getTargetPath(fafDataDirectory, featuredModFile));
+      }
+    } finally {
+      featuredModFileCacheService.saveFileHashes();
+    }
 
     Path initFile = featuredModFiles.stream()
         .filter(featuredModFile -> "bin".equals(featuredModFile.getGroup()) &&
@@ -104,12 +110,42 @@ public class SimpleHttpFeaturedModUpdaterTask extends CompletableTask<PatchResul
         && Objects.equals(featuredModFile.getMd5(), featuredModFileCacheService.readHashFromFile(targetPath));
   }
 
-  private void downloadFeaturedModFile(FeaturedModFile featuredModFile, Path targetPath) throws java.io.IOException {
-    Files.createDirectories(targetPath.getParent());
-    updateMessage(i18n.get("updater.downloadingFile", featuredModFile.getName()));
+  private Path getTargetPath(Path fafDataDirectory, FeaturedModFile featuredModFile) {
+    return fafDataDirectory
+        .resolve(featuredModFile.getGroup())
+        .resolve(featuredModFile.getName());
+  }
 
-    String url = featuredModFile.getUrl();
-    downloadService.downloadFile(new URL(url), targetPath, this::updateProgress);
+  /**
+   * Downloads the files into the cache, in parallel.
+   */
+  private void downloadFeaturedModFiles(List<FeaturedModFile> featuredModFiles) throws IOException, InterruptedException {
+    if (featuredModFiles.isEmpty()) {
+      return;
+    }
+    if (featuredModFiles.size() == 1) {
+      updateMessage(i18n.get("updater.downloadingFile", featuredModFiles.get(0).getName()));
+    } else {
+      updateMessage(i18n.get("updater.downloadingFiles", featuredModFiles.size()));
+    }
+
+    List<Download> downloads = new ArrayList<>(featuredModFiles.size());
+    for (FeaturedModFile featuredModFile : featuredModFiles) {
+      Path cachedFilePath = featuredModFileCacheService.getCachedFilePath(featuredModFile);
+      Files.createDirectories(cachedFilePath.getParent());
+      downloads.add(new Download(new URL(featuredModFile.getUrl()), cachedFilePath, featuredModFile.getMd5()));
+    }
+
+    try {
+      downloadService.downloadFiles(downloads, this::updateProgress).get();
+      for (FeaturedModFile featuredModFile : featuredModFiles) {
+        featuredModFileCacheService.addVerifiedFileToCache(featuredModFile);
+      }
+    } catch (ExecutionException e) {
+      log.error("Error on downloading featured mod files", e.getCause());
+      Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+      throw new IOException(e.getCause());
+    }
   }
 
   public void setFeaturedMod(FeaturedMod featuredMod) {
@@ -0,0 +1,103 @@
+package com.faforever.client.player;
+
+import com.faforever.client.remote.domain.Avatar;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The fields that differ between two player infos of the same player, as received from the server. It is computed on
+ * the thread that receives the player info, so that the application thread only has to set the values that actually
+ * changed.
+ */
+class PlayerInfoChange {
+
+  private final String login;
+  private final boolean cameOnline;
+  private final List<Consumer<Player>> fieldChanges;
+
+  private PlayerInfoChange(String login, boolean cameOnline, List<Consumer<Player>> fieldChanges) {
+    this.login = login;
+    this.cameOnline = cameOnline;
+    this.fieldChanges = fieldChanges;
+  }
+
+  /**
+   * Returns the changes from the previous to the current player info, or {@code null} if nothing changed. Without a
+   * previous player info, the player just came online and all fields are set.
+   */
+  @Nullable
+  static PlayerInfoChange between(@Nullable com.faforever.client.remote.domain.Player previous,
+                                  com.faforever.client.remote.domain.Player current) {
+    List<Consumer<Player>> fieldChanges = new ArrayList<>();
+    if (previous == null || previous.getId() != current.getId()) {
+      fieldChanges.add(player -> player.setId(current.getId()));
+    }
+    if (previous == null || !Objects.equals(previous.getClan(), current.getClan())) {
+      fieldChanges.add(player -> player.setClan(current.getClan()));
+    }
+    if (previous == null || !Objects.equals(previous.getCountry(), current.getCountry())) {
+      fieldChanges.add(player -> player.setCountry(current.getCountry()));
+    }
+    float[] globalRating = current.getGlobalRating();
+    if (globalRating != null && (previous == null || !Arrays.equals(previous.getGlobalRating(), globalRating))) {
+      fieldChanges.add(player -> {
+        player.setGlobalRatingMean(globalRating[0]);
+        player.setGlobalRatingDeviation(globalRating[1]);
+      });
+    }
+    float[] ladderRating = current.getLadderRating();
+    if (ladderRating != null && (previous == null || !Arrays.equals(previous.getLadderRating(), ladderRating))) {
+      fieldChanges.add(player -> {
+        player.setLeaderboardRatingMean(ladderRating[0]);
+        player.setLeaderboardRatingDeviation(ladderRating[1]);
+      });
+    }
+    if (current.getNumberOfGames() != null
+        && (previous == null || !current.getNumberOfGames().equals(previous.getNumberOfGames()))) {
+      fieldChanges.add(player -> player.setNumberOfGames(current.getNumberOfGames()));
+    }
+    Avatar avatar = current.getAvatar();
+    if (avatar != null) {
+      Optional<Avatar> previousAvatar = Optional.ofNullable(previous)
+          .map(com.faforever.client.remote.domain.Player::getAvatar);
+      if (!previousAvatar.map(Avatar::getUrl).equals(Optional.ofNullable(avatar.getUrl()))) {
+        fieldChanges.add(player -> player.setAvatarUrl(avatar.getUrl()));
+      }
+      if (!previousAvatar.map(Avatar::getTooltip).equals(Optional.ofNullable(avatar.getTooltip()))) {
+        fieldChanges.add(player -> player.setAvatarTooltip(avatar.getTooltip()));
+      }
+    }
+
+    if (previous != null && fieldChanges.isEmpty()) {
+      return null;
+    }
+    return new PlayerInfoChange(current.getLogin(), previous == null, fieldChanges);
+  }
+
+  /**
+   * Combines this change with a later one of the same player, which takes precedence.
+   */
+  PlayerInfoChange merge(PlayerInfoChange later) {
+    List<Consumer<Player>> mergedFieldChanges = new ArrayList<>(fieldChanges);
+    mergedFieldChanges.addAll(later.fieldChanges);
+    return new PlayerInfoChange(login, cameOnline || later.cameOnline, mergedFieldChanges);
+  }
+
+  void applyTo(Player player) {
+    fieldChanges.forEach(fieldChange -> fieldChange.accept(player));
+  }
+
+  String getLogin() {
+    return login;
+  }
+
+  boolean isCameOnline() {
+    return cameOnline;
+  }
+}
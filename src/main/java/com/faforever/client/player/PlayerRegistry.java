@@ -0,0 +1,151 @@
+package com.faforever.client.player;
+
+import com.faforever.client.fx.JavaFxUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.faforever.client.player.SocialStatus.FOE;
+import static com.faforever.client.player.SocialStatus.FRIEND;
+import static com.faforever.client.player.SocialStatus.OTHER;
+
+/**
+ * All players known to the client, indexed by name, ID and game, the latest player info received for each of them and
+ * the IDs of the current player's friends and foes.
+ * The indices are plain maps that are updated when a player is created, its ID changes or a game is updated, so
+ * lookups never have to scan the players. The game index must only be accessed from the application thread, everything
+ * else is thread-safe.
+ */
+class PlayerRegistry {
+
+  private final Map<String, Player> playersByName = new ConcurrentHashMap<>();
+  private final Map<Integer, Player> playersById = new ConcurrentHashMap<>();
+  private final Map<String, com.faforever.client.remote.domain.Player> playerInfosByName = new ConcurrentHashMap<>();
+  private final Set<Integer> friendIds = ConcurrentHashMap.newKeySet();
+  private final Set<Integer> foeIds = ConcurrentHashMap.newKeySet();
+  /** The players in each game, by game ID. */
+  private final Map<Integer, Set<Player>> playersByGameId = new HashMap<>();
+
+  @Nullable
+  Player getByName(@Nullable String username) {
+    return username == null ? null : playersByName.get(username);
+  }
+
+  @Nullable
+  Player getById(int playerId) {
+    return playersById.get(playerId);
+  }
+
+  /**
+   * Returns the player with the specified name, creating it if it isn't known yet. The player is added to the ID index
+   * as soon as its ID is set.
+   */
+  Player getOrCreate(String username) {
+    return playersByName.computeIfAbsent(username, name -> {
+      Player player = new Player(name);
+      JavaFxUtil.addListener(player.idProperty(), (observable, oldValue, newValue) -> {
+        playersById.remove(oldValue.intValue(), player);
+        playersById.put(newValue.intValue(), player);
+      });
+      return player;
+    });
+  }
+
+  /**
+   * Stores the latest player info received for a player and returns the previous one, or {@code null} if none has been
+   * received yet.
+   */
+  @Nullable
+  com.faforever.client.remote.domain.Player putPlayerInfo(com.faforever.client.remote.domain.Player playerInfo) {
+    return playerInfosByName.put(playerInfo.getLogin(), playerInfo);
+  }
+
+  Set<String> getUsernames() {
+    return new HashSet<>(playersByName.keySet());
+  }
+
+  /**
+   * Returns the social status of the player with the specified ID, disregarding whether it is the current player.
+   */
+  SocialStatus getSocialStatus(int playerId) {
+    if (friendIds.contains(playerId)) {
+      return FRIEND;
+    }
+    if (foeIds.contains(playerId)) {
+      return FOE;
+    }
+    return OTHER;
+  }
+
+  /**
+   * Makes the player with the specified ID a friend, a foe or neither.
+   */
+  void setSocialStatus(int playerId, SocialStatus socialStatus) {
+    if (socialStatus == FRIEND) {
+      foeIds.remove(playerId);
+      friendIds.add(playerId);
+    } else if (socialStatus == FOE) {
+      friendIds.remove(playerId);
+      foeIds.add(playerId);
+    } else {
+      friendIds.remove(playerId);
+      foeIds.remove(playerId);
+    }
+  }
+
+  /**
+   * Replaces the IDs of all friends or foes, as received from the server. Returns the IDs of all players whose social
+   * status may have changed.
+   */
+  Set<Integer> replaceSocialIds(SocialStatus socialStatus, Collection<Integer> playerIds) {
+    Set<Integer> socialIds = socialStatus == FRIEND ? friendIds : foeIds;
+    Set<Integer> otherIds = socialStatus == FRIEND ? foeIds : friendIds;
+    Set<Integer> newIds = new HashSet<>(playerIds);
+
+    Set<Integer> changedIds = new HashSet<>();
+    for (Integer playerId : socialIds) {
+      if (!newIds.contains(playerId)) {
+        changedIds.add(playerId);
+      }
+    }
+    for (Integer playerId : newIds) {
+      if (!socialIds.contains(playerId)) {
+        changedIds.add(playerId);
+      }
+    }
+
+    socialIds.retainAll(newIds);
+    socialIds.addAll(newIds);
+    otherIds.removeAll(newIds);
+    return changedIds;
+  }
+
+  /**
+   * Returns the players that have been registered for the specified game.
+   */
+  Set<Player> getPlayersInGame(int gameId) {
+    return Collections.unmodifiableSet(playersByGameId.getOrDefault(gameId, Collections.emptySet()));
+  }
+
+  /**
+   * Registers the current players of a game and returns the previous ones.
+   */
+  Set<Player> setPlayersInGame(int gameId, Set<Player> players) {
+    Set<Player> previousPlayers = playersByGameId.put(gameId, players);
+    return previousPlayers == null ? Collections.emptySet() : previousPlayers;
+  }
+
+  /**
+   * Removes a game from the index and returns the players it had.
+   */
+  Set<Player> removeGame(int gameId) {
+    Set<Player> previousPlayers = playersByGameId.remove(gameId);
+    return previousPlayers == null ? Collections.emptySet() : previousPlayers;
+  }
+}
@@ -20,13 +20,13 @@ import com.faforever.client.remote.domain.SocialMessage;
 import com.faforever.client.user.UserService;
 import com.faforever.client.user.event.LoginSuccessEvent;
 import com.faforever.client.util.Assert;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableMap;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
@@ -37,15 +37,14 @@ import org.springframework.stereotype.Service;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 import static com.faforever.client.player.SocialStatus.FOE;
 import static com.faforever.client.player.SocialStatus.FRIEND;
@@ -56,28 +55,25 @@ import static com.faforever.client.player.SocialStatus.SELF;
 @Slf4j
 public class PlayerService implements InitializingBean {
 
-  private final ObservableMap<String, Player> playersByName;
-  private final ObservableMap<Integer, Player> playersById;
-  private final List<Integer> foeList;
-  private final List<Integer> friendList;
+  private final PlayerRegistry playerRegistry;
   private final ObjectProperty<Player> currentPlayer;
+  /** Changes of player infos that have been received but not yet applied, merged by login. Access must be synchronized. */
+  private final Map<String, PlayerInfoChange> pendingPlayerInfoChanges;
 
   private final FafService fafService;
   private final UserService userService;
   private final EventBus eventBus;
-  private final HashMap<Integer, List<Player>> playersByGame;
+  /** Whether {@link #applyPendingPlayerInfos()} has been scheduled but not yet run. Guarded by {@link #pendingPlayerInfoChanges}. */
+  private boolean playerInfoApplyScheduled;
 
   public PlayerService(FafService fafService, UserService userService, EventBus eventBus) {
     this.fafService = fafService;
     this.userService = userService;
     this.eventBus = eventBus;
 
-    playersByName = FXCollections.observableMap(new ConcurrentHashMap<>());
-    playersById = FXCollections.observableHashMap();
-    friendList = new ArrayList<>();
-    foeList = new ArrayList<>();
+    playerRegistry = new PlayerRegistry();
     currentPlayer = new SimpleObjectProperty<>();
-    playersByGame = new HashMap<>();
+    pendingPlayerInfoChanges = new LinkedHashMap<>();
   }
 
   @Override
@@ -100,22 +96,68 @@ public class PlayerService implements InitializingBean {
   @Subscribe
   public void onGameRemoved(GameRemovedEvent event) {
     Game game = event.getGame();
-    ObservableMap<String, List<String>> teams = game.getTeams();
-    synchronized (teams) {
-      List<String> playersInGame = teams.entrySet().stream()
-          .flatMap(stringListEntry -> stringListEntry.getValue().stream())
-          .collect(Collectors.toList());
-      updateGamePlayers(playersInGame, null);
-    }
+    Set<Player> playersInGame = getPlayersInTeams(game);
+    playersInGame.addAll(playerRegistry.removeGame(game.getId()));
+    resetIdleTime(playersInGame);
+    playersInGame.forEach(player -> leaveGame(player, game));
   }
 
+  /**
+   * Compares the players in the game's teams with the ones known from the previous update, so that only the players
+   * who joined or left the game are updated.
+   */
   private void updateGameForPlayersInGame(Game game) {
+    Set<Player> playersInGame = getPlayersInTeams(game);
+    resetIdleTime(playersInGame);
+
+    if (game.getStatus() == GameStatus.CLOSED) {
+      playersInGame.addAll(playerRegistry.removeGame(game.getId()));
+      playersInGame.forEach(player -> leaveGame(player, game));
+      return;
+    }
+
+    Set<Player> previousPlayers = playerRegistry.setPlayersInGame(game.getId(), playersInGame);
+    for (Player player : previousPlayers) {
+      if (!playersInGame.contains(player)) {
+        leaveGame(player, game);
+      }
+    }
+    for (Player player : playersInGame) {
+      if (!previousPlayers.contains(player)) {
+        joinGame(player, game);
+      }
+    }
+  }
+
+  private Set<Player> getPlayersInTeams(Game game) {
+    Set<Player> players = new HashSet<>();
     ObservableMap<String, List<String>> teams = game.getTeams();
     synchronized (teams) {
-      List<String> playersInGame = teams.entrySet().stream()
-          .flatMap(stringListEntry -> stringListEntry.getValue().stream())
-          .collect(Collectors.toList());
-      updateGamePlayers(playersInGame, game);
+      for (List<String> team : teams.values()) {
+        for (String username : team) {
+          Player player = playerRegistry.getByName(username);
+          if (player != null) {
+            players.add(player);
+          }
+        }
+      }
+    }
+    return players;
+  }
+
+  private void joinGame(Player player, Game game) {
+    player.setGame(game);
+    if (player.getSocialStatus() == FRIEND
+        && game.getStatus() == GameStatus.OPEN
+        && !game.getFeaturedMod().equals(KnownFeaturedMod.LADDER_1V1.getTechnicalName())) {
+      eventBus.post(new FriendJoinedGameEvent(player, game));
+    }
+  }
+
+  private void leaveGame(Player player, Game game) {
+    // The player may already have joined another game whose update came first
+    if (player.getGame() == game) {
+      player.setGame(null);
     }
   }
 
@@ -150,67 +192,20 @@ public class PlayerService implements InitializingBean {
     Optional.ofNullable(playerForUsername).ifPresent(player -> player.setIdleSince(Instant.now()));
   }
 
-  private void updateGamePlayers(List<String> currentPlayers, Game game) {
-    currentPlayers.stream()
-        .map(this::getPlayerForUsername)
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .forEach(player -> {
-          resetIdleTime(player);
-          updateGameDataForPlayer(game, player);
-        });
-
-    //We need to see if anybody dropped out of games
-    if (game != null && game.getStatus() != GameStatus.CLOSED && playersByGame.get(game.getId()) != null) {
-      List<Player> playersThatLeftTheGame = new ArrayList<>();
-      List<Player> previousPlayersFromGame = playersByGame.get(game.getId());
-      for (Player player : previousPlayersFromGame) {
-        if (!currentPlayers.contains(player.getUsername())) {
-          player.setGame(null);
-          playersThatLeftTheGame.add(player);
-        }
-      }
-      previousPlayersFromGame.removeAll(playersThatLeftTheGame);
-    }
+  private void resetIdleTime(Collection<Player> players) {
+    Instant now = Instant.now();
+    players.forEach(player -> player.setIdleSince(now));
   }
 
-  private void updateGameDataForPlayer(Game game, Player player) {
-    if (game == null) {
-      player.setGame(null);
-      return;
-    }
-
-    if (game.getStatus() == GameStatus.CLOSED) {
-      playersByGame.remove(game.getId());
-      player.setGame(null);
-      return;
-    }
-
-    if (!playersByGame.containsKey(game.getId())) {
-      playersByGame.put(game.getId(), new ArrayList<>());
-    }
-
-    if (!playersByGame.get(game.getId()).contains(player)) {
-      player.setGame(game);
-      playersByGame.get(game.getId()).add(player);
-      if (player.getSocialStatus() == FRIEND
-          && game.getStatus() == GameStatus.OPEN
-          && !game.getFeaturedMod().equals(KnownFeaturedMod.LADDER_1V1.getTechnicalName())) {
-        eventBus.post(new FriendJoinedGameEvent(player, game));
-      }
-    }
-  }
-
-
   public boolean isOnline(Integer playerId) {
-    return playersById.containsKey(playerId);
+    return playerId != null && playerRegistry.getById(playerId) != null;
   }
 
   /**
    * Returns the PlayerInfoBean for the specified username. Returns null if no such player is known.
    */
   public Optional<Player> getPlayerForUsername(@Nullable String username) {
-    return Optional.ofNullable(playersByName.get(username));
+    return Optional.ofNullable(playerRegistry.getByName(username));
   }
 
   /**
@@ -218,57 +213,46 @@ public class PlayerService implements InitializingBean {
    */
   Player createAndGetPlayerForUsername(@NotNull String username) {
     Assert.checkNullArgument(username, "username must not be null");
-
-    synchronized (playersByName) {
-      if (!playersByName.containsKey(username)) {
-        Player player = new Player(username);
-        JavaFxUtil.addListener(player.idProperty(), (observable, oldValue, newValue) -> {
-          synchronized (playersById) {
-            playersById.remove(oldValue.intValue());
-            playersById.put(newValue.intValue(), player);
-          }
-        });
-        playersByName.put(username, player);
-      }
-    }
-
-    return playersByName.get(username);
+    return playerRegistry.getOrCreate(username);
   }
 
   public Set<String> getPlayerNames() {
-    return new HashSet<>(playersByName.keySet());
+    return playerRegistry.getUsernames();
   }
 
-  public void addFriend(Player player) {
-    playersByName.get(player.getUsername()).setSocialStatus(FRIEND);
-    friendList.add(player.getId());
-    foeList.remove((Integer) player.getId());
+  /**
+   * Returns the players known to be in the specified game.
+   */
+  @VisibleForTesting
+  Set<Player> getPlayersInGame(int gameId) {
+    return playerRegistry.getPlayersInGame(gameId);
+  }
 
+  public void addFriend(Player player) {
+    setSocialStatus(player, FRIEND);
     fafService.addFriend(player);
   }
 
   public void removeFriend(Player player) {
-    playersByName.get(player.getUsername()).setSocialStatus(OTHER);
-    friendList.remove((Integer) player.getId());
-
+    setSocialStatus(player, OTHER);
     fafService.removeFriend(player);
   }
 
   public void addFoe(Player player) {
-    playersByName.get(player.getUsername()).setSocialStatus(FOE);
-    foeList.add(player.getId());
-    friendList.remove((Integer) player.getId());
-
+    setSocialStatus(player, FOE);
     fafService.addFoe(player);
   }
 
   public void removeFoe(Player player) {
-    playersByName.get(player.getUsername()).setSocialStatus(OTHER);
-    foeList.remove((Integer) player.getId());
-
+    setSocialStatus(player, OTHER);
     fafService.removeFoe(player);
   }
 
+  private void setSocialStatus(Player player, SocialStatus socialStatus) {
+    Optional.ofNullable(playerRegistry.getByName(player.getUsername())).orElse(player).setSocialStatus(socialStatus);
+    playerRegistry.setSocialStatus(player.getId(), socialStatus);
+  }
+
   public Optional<Player> getCurrentPlayer() {
     return Optional.ofNullable(currentPlayer.get());
   }
@@ -284,15 +268,56 @@ public class PlayerService implements InitializingBean {
   @Subscribe
   public void onChatUserCreated(ChatUserCreatedEvent event) {
     ChatChannelUser chatChannelUser = event.getChatChannelUser();
-    Optional.ofNullable(playersByName.get(chatChannelUser.getUsername()))
+    Optional.ofNullable(playerRegistry.getByName(chatChannelUser.getUsername()))
         .ifPresent(player -> Platform.runLater(() -> {
           chatChannelUser.setPlayer(player);
           player.getChatChannelUsers().add(chatChannelUser);
         }));
   }
 
+  /**
+   * Compares the player infos with the ones received before and queues only the changes to be applied on the
+   * application thread. Players that come online are created here, so the application thread only has to look them
+   * up. Changes that arrive before the queue has been applied are merged by login, so the burst of player infos after
+   * logging in results in a single application thread task.
+   */
   private void onPlayersInfo(PlayersMessage playersMessage) {
-    playersMessage.getPlayers().forEach(dto -> JavaFxUtil.assureRunOnMainThread(() -> onPlayerInfo(dto)));
+    synchronized (pendingPlayerInfoChanges) {
+      for (com.faforever.client.remote.domain.Player dto : playersMessage.getPlayers()) {
+        PlayerInfoChange change = PlayerInfoChange.between(playerRegistry.putPlayerInfo(dto), dto);
+        if (change == null) {
+          continue;
+        }
+        if (change.isCameOnline() && !isCurrentUser(dto.getLogin())) {
+          createAndGetPlayerForUsername(dto.getLogin());
+        }
+        pendingPlayerInfoChanges.merge(dto.getLogin(), change, PlayerInfoChange::merge);
+      }
+
+      if (playerInfoApplyScheduled || pendingPlayerInfoChanges.isEmpty()) {
+        return;
+      }
+      playerInfoApplyScheduled = true;
+    }
+    Platform.runLater(this::applyPendingPlayerInfos);
+  }
+
+  @VisibleForTesting
+  void applyPendingPlayerInfos() {
+    JavaFxUtil.assertApplicationThread();
+
+    List<PlayerInfoChange> changes;
+    synchronized (pendingPlayerInfoChanges) {
+      changes = new ArrayList<>(pendingPlayerInfoChanges.values());
+      pendingPlayerInfoChanges.clear();
+      playerInfoApplyScheduled = false;
+    }
+
+    changes.forEach(this::applyPlayerInfoChange);
+  }
+
+  private boolean isCurrentUser(String login) {
+    return login.equalsIgnoreCase(userService.getUsername());
   }
 
   private void onFoeList(SocialMessage socialMessage) {
@@ -301,47 +326,45 @@ public class PlayerService implements InitializingBean {
   }
 
   private void onFoeList(List<Integer> foes) {
-    updateSocialList(foeList, foes, FOE);
+    updateSocialList(foes, FOE);
   }
 
   private void onFriendList(List<Integer> friends) {
-    updateSocialList(friendList, friends, FRIEND);
+    updateSocialList(friends, FRIEND);
   }
 
-  private void updateSocialList(List<Integer> socialList, List<Integer> newValues, SocialStatus socialStatus) {
-    socialList.clear();
-    socialList.addAll(newValues);
-
-    synchronized (playersById) {
-      for (Integer userId : socialList) {
-        Player player = playersById.get(userId);
-        if (player != null) {
-          player.setSocialStatus(socialStatus);
+  /**
+   * Replaces the friend or foe IDs and updates the online players whose status changed, all in one application
+   * thread task.
+   */
+  private void updateSocialList(List<Integer> newValues, SocialStatus socialStatus) {
+    Set<Integer> changedIds = playerRegistry.replaceSocialIds(socialStatus, newValues);
+    if (changedIds.isEmpty()) {
+      return;
+    }
+    JavaFxUtil.runLater(() -> {
+      for (Integer playerId : changedIds) {
+        Player player = playerRegistry.getById(playerId);
+        if (player != null && player.getSocialStatus() != SELF) {
+          player.setSocialStatus(playerRegistry.getSocialStatus(playerId));
         }
       }
-    }
+    });
   }
 
-  private void onPlayerInfo(com.faforever.client.remote.domain.Player dto) {
-    if (dto.getLogin().equalsIgnoreCase(userService.getUsername())) {
+  private void applyPlayerInfoChange(PlayerInfoChange change) {
+    if (isCurrentUser(change.getLogin())) {
       Player player = getCurrentPlayer().orElseThrow(() -> new IllegalStateException("Player has not been set"));
-      player.updateFromDto(dto);
+      change.applyTo(player);
       player.setSocialStatus(SELF);
       eventBus.post(new CurrentPlayerInfo(player));
     } else {
-      Player player = createAndGetPlayerForUsername(dto.getLogin());
-
-      if (friendList.contains(dto.getId())) {
-        player.setSocialStatus(FRIEND);
-      } else if (foeList.contains(dto.getId())) {
-        player.setSocialStatus(FOE);
-      } else {
-        player.setSocialStatus(OTHER);
+      Player player = playerRegistry.getByName(change.getLogin());
+      change.applyTo(player);
+      if (change.isCameOnline()) {
+        player.setSocialStatus(playerRegistry.getSocialStatus(player.getId()));
+        eventBus.post(new PlayerOnlineEvent(player));
       }
-
-      player.updateFromDto(dto);
-
-      eventBus.post(new PlayerOnlineEvent(player));
     }
   }
 }
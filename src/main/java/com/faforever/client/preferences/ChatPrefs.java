@@ -55,6 +55,10 @@ public class ChatPrefs {
    * Time in minutes a player has to be inactive to be considered idle.
    */
   private final IntegerProperty idleThreshold;
+  /**
+   * Number of days chat messages are kept in the local chat history.
+   */
+  private final IntegerProperty historyRetentionDays;
 
   public ChatPrefs() {
     timeFormat = new SimpleObjectProperty<>(TimeInfo.AUTO);
@@ -67,6 +71,7 @@ public class ChatPrefs {
     userToColor = new SimpleMapProperty<>(FXCollections.observableHashMap());
     chatColorMode = new SimpleObjectProperty<>(CUSTOM);
     idleThreshold = new SimpleIntegerProperty(10);
+    historyRetentionDays = new SimpleIntegerProperty(90);
     chatFormat = new SimpleObjectProperty<>(ChatFormat.COMPACT);
     autoJoinChannels = new SimpleListProperty<>(FXCollections.observableArrayList());
     playerListShown = new SimpleBooleanProperty(true);
@@ -205,6 +210,18 @@ public class ChatPrefs {
     return idleThreshold;
   }
 
+  public int getHistoryRetentionDays() {
+    return historyRetentionDays.get();
+  }
+
+  public void setHistoryRetentionDays(int historyRetentionDays) {
+    this.historyRetentionDays.set(historyRetentionDays);
+  }
+
+  public IntegerProperty historyRetentionDaysProperty() {
+    return historyRetentionDays;
+  }
+
   public ObservableList<String> getAutoJoinChannels() {
     return autoJoinChannels.get();
   }
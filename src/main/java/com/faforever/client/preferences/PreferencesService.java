@@ -84,6 +84,7 @@ public class PreferencesService implements InitializingBean {
   private static final String REPLAYS_SUB_FOLDER = "replays";
   private static final String CORRUPTED_REPLAYS_SUB_FOLDER = "corrupt";
   private static final String CACHE_SUB_FOLDER = "cache";
+  private static final String CHAT_HISTORY_SUB_FOLDER = "chatHistory";
   private static final String FEATURED_MOD_CACHE_SUB_FOLDER = "featured_mod";
   private static final String CACHE_STYLESHEETS_SUB_FOLDER = Paths.get(CACHE_SUB_FOLDER, "stylesheets").toString();
   private static final Path CACHE_DIRECTORY;
@@ -340,6 +341,13 @@ public class PreferencesService implements InitializingBean {
     return getFafDataDirectory().resolve(REPLAYS_SUB_FOLDER);
   }
 
+  /**
+   * Returns the directory of the local chat history, which is per user since it contains private messages.
+   */
+  public Path getChatHistoryDirectory() {
+    return getPreferencesDirectory().resolve(CHAT_HISTORY_SUB_FOLDER);
+  }
+
   public Path getCacheDirectory() {
     return CACHE_DIRECTORY;
   }
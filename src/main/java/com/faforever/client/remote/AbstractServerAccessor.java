@@ -3,6 +3,7 @@ package com.faforever.client.remote;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.remote.domain.FafServerMessage;
 import com.faforever.client.remote.io.QDataInputStream;
+import com.faforever.client.remote.io.QStringBuffer;
 import org.apache.commons.compress.utils.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,14 +30,18 @@ public abstract class AbstractServerAccessor implements DisposableBean {
    * <li><strong>Server messages</strong> are simple words like ACK or PING, followed by some bytes..</li>
    * <li><strong>Objects</strong> are JSON-encoded objects like preferences or player information. Those are converted into a
    * {@link FafServerMessage}</li> </ol> I'm not yet happy with those terms, so any suggestions are welcome.
+   * <p>
+   * Messages are read into a single, reused {@link QStringBuffer} which is only valid during {@link
+   * #onServerMessage(QStringBuffer)}.
    */
   protected void blockingReadServer(Socket socket) throws IOException {
     JavaFxUtil.assertBackgroundThread();
 
     dataInput = new QDataInputStream(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+    QStringBuffer message = new QStringBuffer();
     while (!stopped && !socket.isInputShutdown()) {
       dataInput.skipBlockSize();
-      String message = dataInput.readQString();
+      dataInput.readQString(message);
 
       logger.debug("Message from server: {}", message);
 
@@ -50,7 +55,7 @@ public abstract class AbstractServerAccessor implements DisposableBean {
     logger.info("Connection to server {} has been closed", socket.getRemoteSocketAddress());
   }
 
-  protected abstract void onServerMessage(String message) throws IOException;
+  protected abstract void onServerMessage(QStringBuffer message) throws IOException;
 
   @Override
   public void destroy() throws IOException {
@@ -35,6 +35,14 @@ public class AssetService {
 
   @Nullable
   public Image loadAndCacheImage(URL url, Path cacheSubFolder, @Nullable Supplier<Image> defaultSupplier, int width, int height) {
+    return loadAndCacheImage(url, cacheSubFolder, defaultSupplier, width, height, false);
+  }
+
+  /**
+   * @param backgroundLoading whether an image from the cache is decoded in the background, like a downloaded image
+   */
+  @Nullable
+  public Image loadAndCacheImage(URL url, Path cacheSubFolder, @Nullable Supplier<Image> defaultSupplier, int width, int height, boolean backgroundLoading) {
     if (url == null) {
       if (defaultSupplier == null) {
         return null;
@@ -47,7 +55,7 @@ public class AssetService {
     Path cachePath = preferencesService.getCacheDirectory().resolve(cacheSubFolder).resolve(filename);
     if (Files.exists(cachePath)) {
       logger.debug("Using cached image: {}", cachePath);
-      return new Image(noCatch(() -> cachePath.toUri().toURL().toExternalForm()), width, height, true, true);
+      return new Image(noCatch(() -> cachePath.toUri().toURL().toExternalForm()), width, height, true, true, backgroundLoading);
     }
 
     logger.debug("Fetching image {}", url);
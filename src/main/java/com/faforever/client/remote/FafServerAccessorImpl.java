@@ -70,9 +70,9 @@ import com.faforever.client.remote.gson.GpgServerMessageTypeTypeAdapter;
 import com.faforever.client.remote.gson.LobbyModeTypeAdapter;
 import com.faforever.client.remote.gson.MessageTargetTypeAdapter;
 import com.faforever.client.remote.gson.RatingRangeTypeAdapter;
-import com.faforever.client.remote.gson.ServerMessageTypeAdapter;
 import com.faforever.client.remote.gson.ServerMessageTypeTypeAdapter;
 import com.faforever.client.remote.gson.VictoryConditionTypeAdapter;
+import com.faforever.client.remote.io.QStringBuffer;
 import com.faforever.client.reporting.ReportingService;
 import com.faforever.client.update.Version;
 import com.github.nocatch.NoCatch;
@@ -137,11 +137,11 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
       .registerTypeAdapter(FafServerMessageType.class, ServerMessageTypeTypeAdapter.INSTANCE)
       .registerTypeAdapter(GpgServerMessageType.class, GpgServerMessageTypeTypeAdapter.INSTANCE)
       .registerTypeAdapter(MessageTarget.class, MessageTargetTypeAdapter.INSTANCE)
-      .registerTypeAdapter(ServerMessage.class, ServerMessageTypeAdapter.INSTANCE)
       .registerTypeAdapter(RatingRange.class, RatingRangeTypeAdapter.INSTANCE)
       .registerTypeAdapter(Faction.class, FactionTypeAdapter.INSTANCE)
       .registerTypeAdapter(LobbyMode.class, LobbyModeTypeAdapter.INSTANCE)
       .create();
+  private final ServerMessageDecoder serverMessageDecoder = new ServerMessageDecoder(gson);
   private final HashMap<Class<? extends ServerMessage>, Collection<Consumer<ServerMessage>>> messageListeners = new HashMap<>();
 
   private final PreferencesService preferencesService;
@@ -451,8 +451,15 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
     serverWriter.write(message);
   }
 
-  public void onServerMessage(String message) {
-    ServerCommand serverCommand = ServerCommand.fromString(message);
+  public void onServerMessage(QStringBuffer message) throws IOException {
+    if (message.isNull()) {
+      log.debug("Discarding null message from server");
+      return;
+    }
+
+    ServerCommand serverCommand = message.length() > 0 && message.charAt(0) != '{'
+        ? ServerCommand.fromString(message.toString())
+        : null;
     if (serverCommand != null) {
       dispatchServerMessage(serverCommand);
     } else {
@@ -476,11 +483,11 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
     }
   }
 
-  private void parseServerObject(String jsonString) {
+  private void parseServerObject(QStringBuffer json) throws IOException {
     try {
-      ServerMessage serverMessage = gson.fromJson(jsonString, ServerMessage.class);
+      ServerMessage serverMessage = serverMessageDecoder.decode(json);
       if (serverMessage == null) {
-        log.debug("Discarding unimplemented server message: {}", jsonString);
+        log.debug("Discarding unimplemented server message: {}", json);
         return;
       }
 
@@ -492,7 +499,7 @@ public class FafServerAccessorImpl extends AbstractServerAccessor implements Faf
       }
 
     } catch (JsonSyntaxException e) {
-      log.warn("Could not deserialize message: " + jsonString, e);
+      log.warn("Could not deserialize message: " + json, e);
     }
   }
 
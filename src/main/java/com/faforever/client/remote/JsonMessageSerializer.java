@@ -1,52 +1,39 @@
 package com.faforever.client.remote;
 
 import com.faforever.client.remote.domain.SerializableMessage;
-import com.faforever.client.remote.io.QDataWriter;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.stream.JsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.serializer.Serializer;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.StringWriter;
-import java.io.Writer;
 import java.lang.invoke.MethodHandles;
-import java.lang.reflect.Field;
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 
+/**
+ * Serializes messages as a size-prefixed UTF-16BE JSON string, the format written by {@link
+ * com.faforever.client.remote.io.QDataWriter#append(CharSequence)}. The JSON is encoded directly into the target
+ * stream, without intermediate byte arrays.
+ */
 public class JsonMessageSerializer<T extends SerializableMessage> implements Serializer<T> {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private static final String CONFIDENTIAL_INFORMATION_MASK = "********";
+  private static final int INITIAL_JSON_CAPACITY = 256;
+  private static final char REPLACEMENT_CHARACTER = '\uFFFD';
 
   private Gson gson;
 
-  // TODO Clean this up, such that the message is logged within ServerWriter and everything makes much more sense
   @Override
   public void serialize(SerializableMessage message, OutputStream outputStream) throws IOException {
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-
-    Writer jsonStringWriter = new StringWriter();
-
-    // Serialize the object into a StringWriter which is later send as one string block with its size prepended.
-    getGson().toJson(message, message.getClass(), fixedJsonWriter(jsonStringWriter));
-
-    QDataWriter qDataWriter = new QDataWriter(byteArrayOutputStream);
-    qDataWriter.append(jsonStringWriter.toString());
-
-    byte[] byteArray = byteArrayOutputStream.toByteArray();
+    StringBuilder json = new StringBuilder(INITIAL_JSON_CAPACITY);
+    getGson().toJson(message, message.getClass(), json);
 
     if (logger.isDebugEnabled()) {
-      // Remove the first 4 bytes which contain the length of the following data
-      String data = new String(Arrays.copyOfRange(byteArray, 4, byteArray.length), StandardCharsets.UTF_16BE);
-
+      String data = json.toString();
       for (String stringToMask : message.getStringsToMask()) {
         data = data.replace("\"" + stringToMask + "\"", "\"" + CONFIDENTIAL_INFORMATION_MASK + "\"");
       }
@@ -54,7 +41,83 @@ public class JsonMessageSerializer<T extends SerializableMessage> implements Ser
       logger.debug("Writing to server: {}", data);
     }
 
-    outputStream.write(byteArray);
+    writeQString(json, outputStream);
+  }
+
+  /**
+   * Writes the JSON as QString, adding a space after each name separator. Gson's separator can't be configured, but
+   * the server doesn't accept JSON without a space after the colon.
+   */
+  private static void writeQString(CharSequence json, OutputStream outputStream) throws IOException {
+    int length = json.length() + countNameSeparators(json);
+    writeInt32(outputStream, length * Character.BYTES);
+
+    boolean inString = false;
+    boolean escaped = false;
+    for (int i = 0; i < json.length(); i++) {
+      char c = json.charAt(i);
+
+      if (Character.isHighSurrogate(c) && i + 1 < json.length() && Character.isLowSurrogate(json.charAt(i + 1))) {
+        writeChar(outputStream, c);
+        writeChar(outputStream, json.charAt(++i));
+        continue;
+      }
+      if (Character.isSurrogate(c)) {
+        // Unpaired surrogates are replaced the same way String.getBytes() does
+        writeChar(outputStream, REPLACEMENT_CHARACTER);
+        continue;
+      }
+
+      writeChar(outputStream, c);
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (c == '\\') {
+          escaped = true;
+        } else if (c == '"') {
+          inString = false;
+        }
+      } else if (c == '"') {
+        inString = true;
+      } else if (c == ':') {
+        writeChar(outputStream, ' ');
+      }
+    }
+  }
+
+  private static int countNameSeparators(CharSequence json) {
+    int count = 0;
+    boolean inString = false;
+    boolean escaped = false;
+    for (int i = 0; i < json.length(); i++) {
+      char c = json.charAt(i);
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (c == '\\') {
+          escaped = true;
+        } else if (c == '"') {
+          inString = false;
+        }
+      } else if (c == '"') {
+        inString = true;
+      } else if (c == ':') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static void writeInt32(OutputStream outputStream, int v) throws IOException {
+    outputStream.write((v >>> 24) & 0xFF);
+    outputStream.write((v >>> 16) & 0xFF);
+    outputStream.write((v >>> 8) & 0xFF);
+    outputStream.write(v & 0xFF);
+  }
+
+  private static void writeChar(OutputStream outputStream, char c) throws IOException {
+    outputStream.write((c >>> 8) & 0xFF);
+    outputStream.write(c & 0xFF);
   }
 
   private Gson getGson() {
@@ -70,22 +133,6 @@ public class JsonMessageSerializer<T extends SerializableMessage> implements Ser
     return gson;
   }
 
-  private JsonWriter fixedJsonWriter(Writer writer) {
-    // Does GSON suck because its separator can't be set, or python because it can't handle JSON without a space after colon?
-    try {
-      JsonWriter jsonWriter = new JsonWriter(writer);
-      jsonWriter.setSerializeNulls(false);
-
-      Field separatorField = JsonWriter.class.getDeclaredField("separator");
-      separatorField.setAccessible(true);
-      separatorField.set(jsonWriter, ": ");
-
-      return jsonWriter;
-    } catch (NoSuchFieldException | IllegalAccessException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
   /**
    * Allows subclasses to register additional type adapters. Super doesn't need to be called.
    */
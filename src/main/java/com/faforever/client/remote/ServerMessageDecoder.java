@@ -0,0 +1,90 @@
+package com.faforever.client.remote;
+
+import com.faforever.client.fa.relay.GpgServerMessageType;
+import com.faforever.client.remote.domain.FafServerMessageType;
+import com.faforever.client.remote.domain.MessageTarget;
+import com.faforever.client.remote.domain.ServerMessage;
+import com.faforever.client.remote.domain.ServerMessageType;
+import com.faforever.client.remote.gson.ServerMessageTypeAdapter;
+import com.faforever.client.remote.io.QStringBuffer;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Decodes JSON server messages without building an intermediate {@link com.google.gson.JsonElement} tree, as {@link
+ * ServerMessageTypeAdapter} does. A first streaming pass over the top-level fields finds {@code command} and {@code
+ * target}, a second one reads the message directly into its concrete type.
+ */
+public class ServerMessageDecoder {
+
+  private static final String COMMAND_FIELD = "command";
+  private static final String TARGET_FIELD = "target";
+
+  private final Gson gson;
+
+  public ServerMessageDecoder(Gson gson) {
+    this.gson = gson;
+  }
+
+  /**
+   * @return the decoded message, or {@code null} if the message type is not known
+   */
+  public ServerMessage decode(QStringBuffer json) throws IOException {
+    ServerMessageType serverMessageType = readMessageType(gson.newJsonReader(json.reader()));
+    if (serverMessageType == null) {
+      return null;
+    }
+    return gson.fromJson(gson.newJsonReader(json.reader()), serverMessageType.getType());
+  }
+
+  private ServerMessageType readMessageType(JsonReader jsonReader) throws IOException {
+    String command = null;
+    String target = null;
+    boolean targetRead = false;
+
+    jsonReader.beginObject();
+    while (jsonReader.hasNext() && (command == null || !targetRead)) {
+      switch (jsonReader.nextName()) {
+        case COMMAND_FIELD:
+          command = nextNullableString(jsonReader);
+          break;
+        case TARGET_FIELD:
+          target = nextNullableString(jsonReader);
+          targetRead = true;
+          break;
+        default:
+          jsonReader.skipValue();
+      }
+    }
+
+    if (command == null) {
+      return null;
+    }
+
+    MessageTarget messageTarget = MessageTarget.fromString(target);
+    if (messageTarget == null) {
+      return null;
+    }
+
+    switch (messageTarget) {
+      case GAME:
+      case CONNECTIVITY:
+        return GpgServerMessageType.fromString(command);
+      case CLIENT:
+        return FafServerMessageType.fromString(command);
+      default:
+        return null;
+    }
+  }
+
+  private static String nextNullableString(JsonReader jsonReader) throws IOException {
+    if (jsonReader.peek() == JsonToken.NULL) {
+      jsonReader.nextNull();
+      return null;
+    }
+    return jsonReader.nextString();
+  }
+}
@@ -1,85 +1,163 @@
 package com.faforever.client.remote;
 
 import com.faforever.client.remote.domain.SerializableMessage;
-import com.faforever.client.remote.io.QDataWriter;
+import com.faforever.client.remote.io.FrameBuffer;
 import com.faforever.client.util.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.serializer.Serializer;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
-import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.net.SocketException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Sends data to the server. Classes should not use the server writer directly, but e.g. {@link
  * com.faforever.client.remote.FafService} or any other server accessor instead.
+ * <p>
+ * Messages are encoded on the calling thread into pooled {@link FrameBuffer}s and queued. Whichever thread holds the
+ * socket lock writes all queued frames and flushes once, so concurrent writers share a single flush instead of
+ * flushing per message.
  */
 public class ServerWriter implements Closeable {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-  private final QDataWriter qDataWriter;
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+  private static final int INITIAL_FRAME_CAPACITY = 1024;
+  /** Frames larger than this are not returned to the pool, so that a single huge message isn't retained forever. */
+  private static final int MAX_POOLED_FRAME_CAPACITY = 64 * 1024;
+  private static final int MAX_POOLED_FRAMES = 16;
+
+  private final OutputStream outputStream;
   private final Map<Class<?>, Serializer<?>> objectWriters;
+  private final Map<Class<?>, Optional<Serializer<?>>> serializersByClass;
+  private final Queue<FrameBuffer> pendingFrames;
+  private final Queue<FrameBuffer> framePool;
+  private final AtomicInteger pooledFrameCount;
+  private final ReentrantLock writeLock;
 
   public ServerWriter(OutputStream outputStream) {
-    qDataWriter = new QDataWriter(new DataOutputStream(new BufferedOutputStream(outputStream)));
-    objectWriters = new HashMap<>();
+    this.outputStream = new BufferedOutputStream(outputStream, OUTPUT_BUFFER_SIZE);
+    objectWriters = new ConcurrentHashMap<>();
+    serializersByClass = new ConcurrentHashMap<>();
+    pendingFrames = new ConcurrentLinkedQueue<>();
+    framePool = new ConcurrentLinkedQueue<>();
+    pooledFrameCount = new AtomicInteger();
+    writeLock = new ReentrantLock();
   }
 
   public void registerMessageSerializer(Serializer<?> objectSerializer, Class<?> writableClass) {
     objectWriters.put(writableClass, objectSerializer);
+    serializersByClass.clear();
   }
 
   @SuppressWarnings("unchecked")
   public void write(SerializableMessage object) {
     Class<?> clazz = object.getClass();
 
-    Serializer<SerializableMessage> serializer = (Serializer<SerializableMessage>) findSerializerForClass(clazz);
+    Serializer<SerializableMessage> serializer = (Serializer<SerializableMessage>) serializersByClass
+        .computeIfAbsent(clazz, this::findSerializerForClass)
+        .orElse(null);
 
     Assert.checkNullIllegalState(serializer, () -> "No object writer registered for type: " + clazz);
 
+    FrameBuffer frame = acquireFrame();
     try {
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      serializer.serialize(object, frame);
+    } catch (IOException e) {
+      releaseFrame(frame);
+      logger.warn("Message could not be serialized: {}", object, e);
+      return;
+    }
 
-      serializer.serialize(object, outputStream);
+    pendingFrames.add(frame);
+    writePendingFrames();
+  }
 
-      synchronized (qDataWriter) {
-        qDataWriter.appendWithSize(outputStream.toByteArray());
-        qDataWriter.flush();
+  /**
+   * Writes all pending frames unless another thread is already doing so. Since the lock holder might have checked the
+   * queue right before a frame was added, the queue is checked again after releasing the lock.
+   */
+  private void writePendingFrames() {
+    while (!pendingFrames.isEmpty() && writeLock.tryLock()) {
+      try {
+        FrameBuffer frame;
+        while ((frame = pendingFrames.poll()) != null) {
+          try {
+            frame.writeTo(outputStream);
+          } finally {
+            releaseFrame(frame);
+          }
+        }
+        outputStream.flush();
+      } catch (EOFException | SocketException e) {
+        logger.debug("Server writer has been closed");
+        discardPendingFrames();
+      } catch (IOException e) {
+        logger.debug("Server writer has been closed", e);
+        discardPendingFrames();
+      } finally {
+        writeLock.unlock();
       }
-    } catch (EOFException | SocketException e) {
-      logger.debug("Server writer has been closed");
-    } catch (IOException e) {
-      logger.debug("Server writer has been closed", e);
     }
   }
 
+  private void discardPendingFrames() {
+    FrameBuffer frame;
+    while ((frame = pendingFrames.poll()) != null) {
+      releaseFrame(frame);
+    }
+  }
+
+  private FrameBuffer acquireFrame() {
+    FrameBuffer frame = framePool.poll();
+    if (frame == null) {
+      return new FrameBuffer(INITIAL_FRAME_CAPACITY);
+    }
+    pooledFrameCount.decrementAndGet();
+    return frame;
+  }
+
+  private void releaseFrame(FrameBuffer frame) {
+    if (frame.capacity() > MAX_POOLED_FRAME_CAPACITY) {
+      return;
+    }
+    if (pooledFrameCount.incrementAndGet() > MAX_POOLED_FRAMES) {
+      pooledFrameCount.decrementAndGet();
+      return;
+    }
+    frame.reset();
+    framePool.add(frame);
+  }
+
   /**
-   * Finds the appropriate serializer by walking up the type hierarchy. Interfaces are not checked.
-   *
-   * @return the appropriate serializer, or {@code null} if none was found
+   * Finds the appropriate serializer by walking up the type hierarchy. Interfaces are not checked. The result is
+   * cached per class.
    */
-  private Serializer<?> findSerializerForClass(Class<?> clazz) {
+  private Optional<Serializer<?>> findSerializerForClass(Class<?> clazz) {
     Class<?> classToCheck = clazz;
 
     while (!objectWriters.containsKey(classToCheck) && classToCheck != Object.class) {
       classToCheck = classToCheck.getSuperclass();
     }
 
-    return objectWriters.get(classToCheck);
+    return Optional.ofNullable(objectWriters.get(classToCheck));
   }
 
   @Override
   public void close() throws IOException {
-    qDataWriter.close();
+    outputStream.close();
   }
 }
@@ -27,6 +27,7 @@ public class MessageTargetTypeAdapter extends TypeAdapter<MessageTarget> {
   @Override
   public MessageTarget read(JsonReader in) throws IOException {
     if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
       return null;
     }
     return MessageTarget.fromString(in.nextString());
@@ -0,0 +1,90 @@
+package com.faforever.client.remote.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer that holds one size-prefixed frame. The first four bytes are reserved for the frame size,
+ * which is filled in by {@link #writeTo(OutputStream)}. Unlike {@link java.io.ByteArrayOutputStream}, the backing
+ * array is neither synchronized nor copied when written out, and it can be reset and reused for the next frame.
+ */
+public class FrameBuffer extends OutputStream {
+
+  private static final int SIZE_PREFIX_LENGTH = Integer.BYTES;
+
+  private byte[] buffer;
+  private int count;
+
+  public FrameBuffer(int initialCapacity) {
+    buffer = new byte[Math.max(initialCapacity, SIZE_PREFIX_LENGTH)];
+    count = SIZE_PREFIX_LENGTH;
+  }
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(count + 1);
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int off, int len) {
+    ensureCapacity(count + len);
+    System.arraycopy(bytes, off, buffer, count, len);
+    count += len;
+  }
+
+  public void writeInt32(int v) {
+    ensureCapacity(count + Integer.BYTES);
+    buffer[count++] = (byte) (v >>> 24);
+    buffer[count++] = (byte) (v >>> 16);
+    buffer[count++] = (byte) (v >>> 8);
+    buffer[count++] = (byte) v;
+  }
+
+  public void writeChar(char c) {
+    ensureCapacity(count + Character.BYTES);
+    buffer[count++] = (byte) (c >>> 8);
+    buffer[count++] = (byte) c;
+  }
+
+  /**
+   * Returns the number of payload bytes, excluding the size prefix.
+   */
+  public int size() {
+    return count - SIZE_PREFIX_LENGTH;
+  }
+
+  public int capacity() {
+    return buffer.length;
+  }
+
+  /**
+   * Returns a copy of the payload bytes, excluding the size prefix.
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOfRange(buffer, SIZE_PREFIX_LENGTH, count);
+  }
+
+  /**
+   * Writes the size prefix followed by the payload to the specified stream.
+   */
+  public void writeTo(OutputStream outputStream) throws IOException {
+    int size = size();
+    buffer[0] = (byte) (size >>> 24);
+    buffer[1] = (byte) (size >>> 16);
+    buffer[2] = (byte) (size >>> 8);
+    buffer[3] = (byte) size;
+    outputStream.write(buffer, 0, count);
+  }
+
+  public void reset() {
+    count = SIZE_PREFIX_LENGTH;
+  }
+
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(minCapacity, buffer.length * 2));
+    }
+  }
+}
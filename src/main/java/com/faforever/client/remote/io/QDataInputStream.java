@@ -32,6 +32,25 @@ public class QDataInputStream extends InputStream {
     return new String(buffer, charset);
   }
 
+  /**
+   * Like {@link #readQString()} but reads into the specified buffer instead of allocating a new string.
+   */
+  public void readQString(QStringBuffer target) throws IOException {
+    int stringSize = dataInput.readInt();
+    if (stringSize == -1) {
+      target.setNull();
+      return;
+    }
+
+    if (StandardCharsets.UTF_16BE.equals(charset)) {
+      target.readUtf16Be(dataInput, stringSize);
+    } else {
+      byte[] buffer = new byte[stringSize];
+      dataInput.readFully(buffer);
+      target.set(new String(buffer, charset));
+    }
+  }
+
   @Override
   public int read() throws IOException {
     return dataInput.readUnsignedByte();
@@ -0,0 +1,100 @@
+package com.faforever.client.remote.io;
+
+import java.io.CharArrayReader;
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reusable holder for QStrings read by {@link QDataInputStream#readQString(QStringBuffer)}. The backing arrays grow
+ * as needed but are kept between reads, so reading a stream of strings doesn't allocate a new {@code byte[]}, {@code
+ * char[]} and {@link String} for each of them.
+ */
+public class QStringBuffer implements CharSequence {
+
+  private static final int INITIAL_CAPACITY = 4096;
+
+  private byte[] bytes;
+  private char[] chars;
+  private int length;
+  private boolean isNull;
+
+  public QStringBuffer() {
+    bytes = new byte[INITIAL_CAPACITY * 2];
+    chars = new char[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Reads {@code byteCount} UTF-16BE encoded bytes from the specified input and decodes them into this buffer.
+   */
+  void readUtf16Be(DataInput dataInput, int byteCount) throws IOException {
+    if (bytes.length < byteCount) {
+      bytes = new byte[Math.max(byteCount, bytes.length * 2)];
+    }
+    dataInput.readFully(bytes, 0, byteCount);
+
+    int charCount = byteCount / 2;
+    ensureCharCapacity(charCount);
+    for (int i = 0; i < charCount; i++) {
+      chars[i] = (char) (((bytes[2 * i] & 0xFF) << 8) | (bytes[2 * i + 1] & 0xFF));
+    }
+    length = charCount;
+    isNull = false;
+  }
+
+  void set(String string) {
+    ensureCharCapacity(string.length());
+    string.getChars(0, string.length(), chars, 0);
+    length = string.length();
+    isNull = false;
+  }
+
+  void setNull() {
+    length = 0;
+    isNull = true;
+  }
+
+  /**
+   * Returns {@code true} if the last string read was a null QString.
+   */
+  public boolean isNull() {
+    return isNull;
+  }
+
+  /**
+   * Returns a reader over the current content. The reader is only valid until the next string is read into this
+   * buffer.
+   */
+  public Reader reader() {
+    return new CharArrayReader(chars, 0, length);
+  }
+
+  private void ensureCharCapacity(int capacity) {
+    if (chars.length < capacity) {
+      chars = new char[Math.max(capacity, chars.length * 2)];
+    }
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+    }
+    return chars[index];
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return toString().subSequence(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return new String(chars, 0, length);
+  }
+}
@@ -0,0 +1,190 @@
+package com.faforever.client.replay;
+
+import com.faforever.client.util.Tuple;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps the header of every local replay file, keyed by the file's path, size and modification time, so that replay
+ * files only need to be parsed again if they changed on disk. Queries run against the headers only; replay bodies are
+ * never loaded. The index is stored as GZIP compressed JSON.
+ */
+@Slf4j
+public class LocalReplayIndex {
+
+  public static final Comparator<Entry> NEWEST_FIRST = Comparator.comparingLong(Entry::getLastModified).reversed()
+      .thenComparing(Entry::getPath);
+
+  private static final int VERSION = 1;
+
+  private final Path indexFile;
+  private final Gson gson;
+  private final Map<String, Entry> entriesByPath;
+
+  public LocalReplayIndex(Path indexFile) {
+    this.indexFile = indexFile;
+    gson = new GsonBuilder().create();
+    entriesByPath = new HashMap<>();
+  }
+
+  /**
+   * Loads the index from disk. A missing or unreadable index file results in an empty index.
+   */
+  public synchronized void load() {
+    entriesByPath.clear();
+    try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(indexFile)), UTF_8)) {
+      IndexFile content = gson.fromJson(reader, IndexFile.class);
+      if (content == null || content.getVersion() != VERSION || content.getEntries() == null) {
+        log.debug("Ignoring local replay index of unknown version: {}", indexFile);
+        return;
+      }
+      content.getEntries().forEach(entry -> entriesByPath.put(entry.getPath(), entry));
+    } catch (NoSuchFileException e) {
+      log.debug("No local replay index found at: {}", indexFile);
+    } catch (IOException | JsonParseException e) {
+      log.warn("Local replay index could not be read, it will be rebuilt: {}", indexFile, e);
+      entriesByPath.clear();
+    }
+  }
+
+  public synchronized void save() throws IOException {
+    Files.createDirectories(indexFile.getParent());
+    Path tempFile = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), null);
+    try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tempFile)), UTF_8)) {
+      gson.toJson(new IndexFile(VERSION, new ArrayList<>(entriesByPath.values())), writer);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+    Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Updates the index so that it contains exactly the specified files. Files that are new or whose size or
+   * modification time changed are read using {@code headerReader}, all others are taken from the index.
+   *
+   * @param headerReader reads the header of a replay file, or returns {@code null} if the file can't be read
+   */
+  public synchronized void synchronize(Iterable<Path> files, Function<Path, LocalReplayInfo> headerReader) {
+    Set<String> existingPaths = new HashSet<>();
+    for (Path file : files) {
+      existingPaths.add(file.toString());
+      update(file, headerReader);
+    }
+    entriesByPath.keySet().retainAll(existingPaths);
+  }
+
+  /**
+   * Reads the header of the specified file unless the index already holds it for the file's current size and
+   * modification time. Removes the file from the index if it no longer exists or can't be read.
+   *
+   * @return the new entry, or empty if the file was unchanged or could not be indexed
+   */
+  public synchronized Optional<Entry> update(Path file, Function<Path, LocalReplayInfo> headerReader) {
+    String key = file.toString();
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (IOException e) {
+      log.debug("Could not read attributes of replay file '{}'", file, e);
+      entriesByPath.remove(key);
+      return Optional.empty();
+    }
+
+    long size = attributes.size();
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    Entry existing = entriesByPath.get(key);
+    if (existing != null && existing.getSize() == size && existing.getLastModified() == lastModified) {
+      return Optional.empty();
+    }
+
+    LocalReplayInfo replayInfo = headerReader.apply(file);
+    if (replayInfo == null) {
+      entriesByPath.remove(key);
+      return Optional.empty();
+    }
+
+    Entry entry = new Entry(key, size, lastModified, replayInfo);
+    entriesByPath.put(key, entry);
+    return Optional.of(entry);
+  }
+
+  public synchronized Optional<Entry> remove(Path file) {
+    return Optional.ofNullable(entriesByPath.remove(file.toString()));
+  }
+
+  public synchronized Optional<Entry> get(Path file) {
+    return Optional.ofNullable(entriesByPath.get(file.toString()));
+  }
+
+  public synchronized int size() {
+    return entriesByPath.size();
+  }
+
+  /**
+   * Returns one page of the entries that match the specified filter.
+   *
+   * @param page the page to return, starting at 1
+   * @return the entries of the requested page and the total number of pages
+   */
+  public synchronized Tuple<List<Entry>, Integer> query(Predicate<Entry> filter, Comparator<Entry> sort, int maxResults, int page) {
+    List<Entry> matches = entriesByPath.values().stream()
+        .filter(filter)
+        .sorted(sort)
+        .collect(Collectors.toList());
+
+    int totalPages = (matches.size() + maxResults - 1) / maxResults;
+    int fromIndex = Math.min(matches.size(), (page - 1) * maxResults);
+    int toIndex = Math.min(matches.size(), fromIndex + maxResults);
+    return new Tuple<>(new ArrayList<>(matches.subList(fromIndex, toIndex)), totalPages);
+  }
+
+  @Value
+  public static class Entry {
+    String path;
+    long size;
+    long lastModified;
+    LocalReplayInfo replayInfo;
+
+    public Path getFile() {
+      return Paths.get(path);
+    }
+  }
+
+  @Value
+  private static class IndexFile {
+    int version;
+    @Nullable List<Entry> entries;
+  }
+}
@@ -1,9 +1,12 @@
 package com.faforever.client.replay;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 
 public interface ReplayFileWriter {
 
-  void writeReplayDataToFile(ByteArrayOutputStream replayData, LocalReplayInfo replayInfo) throws IOException;
+  /**
+   * Writes a replay file from the replay info and the raw replay data that has been spooled to {@code replayDataFile}.
+   */
+  void writeReplayDataToFile(Path replayDataFile, LocalReplayInfo replayInfo) throws IOException;
 }
@@ -4,8 +4,6 @@ import com.faforever.client.config.ClientProperties;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.commons.io.Bytes;
-import com.faforever.commons.replay.QtCompress;
-import com.google.common.io.BaseEncoding;
 import com.google.gson.Gson;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -13,13 +11,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.invoke.MethodHandles;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.APPEND;
@@ -31,29 +35,44 @@ import static java.nio.file.StandardOpenOption.CREATE_NEW;
 public class ReplayFileWriterImpl implements ReplayFileWriter {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int DEFLATE_BUFFER_SIZE = 64 * 1024;
+
   private final Gson gson = ReplayFiles.gson();
 
   private final I18n i18n;
   private final ClientProperties clientProperties;
   private final PreferencesService preferencesService;
 
+  /**
+   * Writes the replay data the same way as {@code QtCompress.qCompress} followed by Base64 encoding would, but streams
+   * it from the file instead of holding the whole game in memory.
+   */
   @Override
-  public void writeReplayDataToFile(ByteArrayOutputStream replayData, LocalReplayInfo replayInfo) throws IOException {
+  public void writeReplayDataToFile(Path replayDataFile, LocalReplayInfo replayInfo) throws IOException {
     String fileName = String.format(clientProperties.getReplay().getReplayFileFormat(), replayInfo.getUid(), replayInfo.getRecorder());
     Path replayFile = preferencesService.getReplaysDirectory().resolve(fileName);
     Path temporaryReplayFile = Files.createTempFile(preferencesService.getCacheDirectory(), fileName, "fafreplay");
+    long replayDataSize = Files.size(replayDataFile);
 
-    logger.info("Writing replay file to {} ({})", replayFile, Bytes.formatSize(replayData.size(), i18n.getUserSpecificLocale()));
+    logger.info("Writing replay file to {} ({})", replayFile, Bytes.formatSize(replayDataSize, i18n.getUserSpecificLocale()));
 
     Files.createDirectories(replayFile.getParent());
 
-    try (BufferedWriter writer = Files.newBufferedWriter(temporaryReplayFile, UTF_8, APPEND)) {
-      byte[] compressedBytes = QtCompress.qCompress(replayData.toByteArray());
-      String base64ReplayData = BaseEncoding.base64().encode(compressedBytes);
-
+    Deflater deflater = new Deflater();
+    try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temporaryReplayFile, APPEND))) {
+      Writer writer = new OutputStreamWriter(outputStream, UTF_8);
       gson.toJson(replayInfo, writer);
       writer.write('\n');
-      writer.write(base64ReplayData);
+      writer.flush();
+
+      // Qt's compressed format is the uncompressed size as a big-endian int, followed by the zlib stream
+      DataOutputStream compressedDataStream = new DataOutputStream(Base64.getEncoder().wrap(outputStream));
+      compressedDataStream.writeInt(Math.toIntExact(replayDataSize));
+      try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(compressedDataStream, deflater, DEFLATE_BUFFER_SIZE)) {
+        Files.copy(replayDataFile, deflaterOutputStream);
+      }
+    } finally {
+      deflater.end();
     }
 
     Files.move(temporaryReplayFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
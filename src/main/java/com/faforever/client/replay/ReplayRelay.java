@@ -0,0 +1,126 @@
+package com.faforever.client.replay;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Relays the live replay stream to the remote replay server on its own thread, so that a slow server never delays
+ * reading the stream from the game. Data is buffered in a fixed ring buffer of {@link #MAX_BUFFERED_BYTES}; if the
+ * server falls further behind than that, relaying is given up just like when the connection to the server is lost.
+ */
+@Slf4j
+class ReplayRelay implements Closeable {
+
+  static final int MAX_BUFFERED_BYTES = 4 * 1024 * 1024;
+
+  private static final int SEND_BUFFER_SIZE = 8192;
+  private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+  private final OutputStream outputStream;
+  private final Thread thread;
+  /** Guarded by {@code this}, as are {@link #readIndex}, {@link #bufferedBytes} and {@link #endOfStream}. */
+  private final byte[] ringBuffer;
+  private int readIndex;
+  private int bufferedBytes;
+  private boolean endOfStream;
+  private volatile boolean stopped;
+
+  ReplayRelay(OutputStream outputStream) {
+    this.outputStream = outputStream;
+    ringBuffer = new byte[MAX_BUFFERED_BYTES];
+    thread = new Thread(this::relay, "replay-relay");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Buffers the specified bytes to be sent to the replay server. Never blocks on the server.
+   */
+  void write(byte[] buffer, int offset, int length) {
+    if (stopped) {
+      return;
+    }
+    synchronized (this) {
+      if (bufferedBytes + length > ringBuffer.length) {
+        log.warn("Replay server can't keep up, no longer relaying the replay");
+        abort();
+        return;
+      }
+      int writeIndex = (readIndex + bufferedBytes) % ringBuffer.length;
+      int firstPart = Math.min(length, ringBuffer.length - writeIndex);
+      System.arraycopy(buffer, offset, ringBuffer, writeIndex, firstPart);
+      System.arraycopy(buffer, offset + firstPart, ringBuffer, 0, length - firstPart);
+      bufferedBytes += length;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Waits a limited time for the buffered data to be sent and closes the underlying stream.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      endOfStream = true;
+      notifyAll();
+    }
+    try {
+      thread.join(CLOSE_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (thread.isAlive()) {
+      log.warn("Replay server did not receive the end of the replay in time");
+    }
+    abort();
+  }
+
+  private void relay() {
+    byte[] sendBuffer = new byte[SEND_BUFFER_SIZE];
+    try {
+      while (true) {
+        int length;
+        synchronized (this) {
+          while (bufferedBytes == 0 && !endOfStream && !stopped) {
+            wait();
+          }
+          if (bufferedBytes == 0 || stopped) {
+            return;
+          }
+          length = Math.min(sendBuffer.length, Math.min(bufferedBytes, ringBuffer.length - readIndex));
+          System.arraycopy(ringBuffer, readIndex, sendBuffer, 0, length);
+          readIndex = (readIndex + length) % ringBuffer.length;
+          bufferedBytes -= length;
+        }
+        outputStream.write(sendBuffer, 0, length);
+      }
+    } catch (IOException e) {
+      if (!stopped) {
+        // In case we lose connection to the replay server, just stop writing to it
+        log.warn("Connection to replay server lost ({})", e.getMessage());
+        stopped = true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Stops relaying. Closing the stream also releases the relay thread if it is blocked writing to a server that doesn't
+   * read.
+   */
+  private void abort() {
+    synchronized (this) {
+      stopped = true;
+      notifyAll();
+    }
+    try {
+      outputStream.close();
+    } catch (IOException e) {
+      log.debug("Could not close connection to replay server", e);
+    }
+  }
+}
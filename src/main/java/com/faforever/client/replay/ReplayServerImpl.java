@@ -7,6 +7,7 @@ import com.faforever.client.notification.Action;
 import com.faforever.client.notification.NotificationService;
 import com.faforever.client.notification.PersistentNotification;
 import com.faforever.client.notification.Severity;
+import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.remote.domain.GameStatus;
 import com.faforever.client.update.ClientUpdateService;
 import com.faforever.client.user.UserService;
@@ -17,15 +18,16 @@ import org.jetbrains.annotations.Nullable;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.ConnectException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.concurrent.CompletableFuture;
@@ -40,12 +42,11 @@ import static com.github.nocatch.NoCatch.noCatch;
 public class ReplayServerImpl implements ReplayServer {
 
   /**
-   * Size for buffer used to send data to the live replay server. The buffer needs to be large enough to not flush too
-   * many times (after all, it's a TCP stream so we don't want to send single bytes) but small enough to not delay data
-   * for too long. I don't have any data right now but it can be expected that the replay stream produces about 70 bytes
-   * per second (See #973).
+   * Size of the buffer used to read from the game. Reads return whatever the game has sent so far, so this doesn't delay
+   * relaying; it can be expected that the replay stream produces about 70 bytes per second (See #973), but the game
+   * sends its initial state in a burst.
    */
-  private static final int REPLAY_BUFFER_SIZE = 128;
+  private static final int REPLAY_BUFFER_SIZE = 8192;
 
   /**
    * This is a prefix used in the FA live replay protocol that needs to be stripped away when storing to a file.
@@ -58,6 +59,7 @@ public class ReplayServerImpl implements ReplayServer {
   private final UserService userService;
   private final ReplayFileWriter replayFileWriter;
   private final ClientUpdateService clientUpdateService;
+  private final PreferencesService preferencesService;
 
   private LocalReplayInfo replayInfo;
   private ServerSocket serverSocket;
@@ -95,8 +97,8 @@ public class ReplayServerImpl implements ReplayServer {
         future.complete(serverSocket.getLocalPort());
 
         try (Socket remoteReplayServerSocket = new Socket(remoteReplayServerHost, remoteReplayServerPort);
-             DataOutputStream fafReplayOutputStream = new DataOutputStream(remoteReplayServerSocket.getOutputStream())) {
-          recordAndRelay(gameId, localSocket, fafReplayOutputStream, gameSupplier);
+             ReplayRelay replayRelay = new ReplayRelay(remoteReplayServerSocket.getOutputStream())) {
+          recordAndRelay(gameId, localSocket, replayRelay, gameSupplier);
         } catch (ConnectException e) {
           log.warn("Could not connect to remote replay server", e);
           notificationService.addNotification(new PersistentNotification(i18n.get("replayServer.unreachable"), Severity.WARN));
@@ -128,47 +130,60 @@ public class ReplayServerImpl implements ReplayServer {
   }
 
   /**
-   * @param fafReplayOutputStream if {@code null}, the replay won't be relayed
+   * Spools the replay to a file in the cache directory as it arrives, so that memory usage doesn't grow with the length
+   * of the game.
+   *
+   * @param replayRelay if {@code null}, the replay won't be relayed
    */
-  private void recordAndRelay(int uid, ServerSocket serverSocket, @Nullable OutputStream fafReplayOutputStream, Supplier<Game> onGameInfoFinished) throws IOException {
+  private void recordAndRelay(int uid, ServerSocket serverSocket, @Nullable ReplayRelay replayRelay, Supplier<Game> onGameInfoFinished) throws IOException {
     Socket socket = serverSocket.accept();
     Game game = onGameInfoFinished.get();
     log.debug("Accepted connection from {}", socket.getRemoteSocketAddress());
 
     initReplayInfo(uid);
 
-    ByteArrayOutputStream replayData = new ByteArrayOutputStream();
-
-    boolean connectionToServerLost = false;
-    byte[] buffer = new byte[REPLAY_BUFFER_SIZE];
-    try (InputStream inputStream = socket.getInputStream()) {
-      int bytesRead;
-      while ((bytesRead = inputStream.read(buffer)) != -1) {
-        if (replayData.size() == 0 && Bytes.indexOf(buffer, LIVE_REPLAY_PREFIX) != -1) {
-          int dataBeginIndex = Bytes.indexOf(buffer, (byte) 0x00) + 1;
+    Path cacheDirectory = preferencesService.getCacheDirectory();
+    Files.createDirectories(cacheDirectory);
+    Path replayDataFile = Files.createTempFile(cacheDirectory, "replay-" + uid, ".scfareplay");
+    try {
+      long replayDataSize = 0;
+      byte[] buffer = new byte[REPLAY_BUFFER_SIZE];
+      try (InputStream inputStream = socket.getInputStream();
+           OutputStream replayData = new BufferedOutputStream(Files.newOutputStream(replayDataFile), REPLAY_BUFFER_SIZE)) {
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+          int dataBeginIndex = replayDataSize == 0 ? findReplayDataBegin(buffer, bytesRead) : 0;
           replayData.write(buffer, dataBeginIndex, bytesRead - dataBeginIndex);
-        } else {
-          replayData.write(buffer, 0, bytesRead);
-        }
+          replayDataSize += bytesRead - dataBeginIndex;
 
-        if (!connectionToServerLost && fafReplayOutputStream != null) {
-          try {
-            fafReplayOutputStream.write(buffer, 0, bytesRead);
-          } catch (SocketException e) {
-            // In case we lose connection to the replay server, just stop writing to it
-            log.warn("Connection to replay server lost ({})", e.getMessage());
-            connectionToServerLost = true;
+          if (replayRelay != null) {
+            replayRelay.write(buffer, 0, bytesRead);
           }
         }
+      } catch (Exception e) {
+        log.warn("Error while recording replay", e);
+        throw e;
       }
-    } catch (Exception e) {
-      log.warn("Error while recording replay", e);
-      throw e;
+
+      log.debug("FAF has disconnected, writing replay data to file");
+      finishReplayInfo(game);
+      replayFileWriter.writeReplayDataToFile(replayDataFile, replayInfo);
+    } finally {
+      Files.deleteIfExists(replayDataFile);
     }
+  }
 
-    log.debug("FAF has disconnected, writing replay data to file");
-    finishReplayInfo(game);
-    replayFileWriter.writeReplayDataToFile(replayData, replayInfo);
+  /**
+   * Returns the index of the first byte after the live replay header if the stream starts with one, {@code 0}
+   * otherwise.
+   */
+  private static int findReplayDataBegin(byte[] buffer, int length) {
+    byte[] firstChunk = Arrays.copyOf(buffer, length);
+    int headerEndIndex = Bytes.indexOf(firstChunk, (byte) 0x00);
+    if (Bytes.indexOf(firstChunk, LIVE_REPLAY_PREFIX) == -1 || headerEndIndex == -1) {
+      return 0;
+    }
+    return headerEndIndex + 1;
   }
 
   private void finishReplayInfo(Game game) {
@@ -60,6 +60,7 @@ import java.net.URL;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
@@ -67,6 +68,7 @@ import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -74,10 +76,10 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import static com.faforever.client.notification.Severity.WARN;
 import static com.faforever.commons.api.elide.ElideNavigator.qBuilder;
@@ -115,7 +117,8 @@ public class ReplayService {
   private static final String FAF_LIFE_PROTOCOL = "faflive";
   private static final String GPGNET_SCHEME = "gpgnet";
   private static final String TEMP_SCFA_REPLAY_FILE_NAME = "temp.scfareplay";
-  private static final long MAX_REPLAYS = 300;
+  private static final int MAX_REPLAYS = 300;
+  private static final String LOCAL_REPLAY_INDEX_FILE_NAME = "local-replays.json.gz";
   private static final Pattern invalidCharacters = Pattern.compile("[?@*%{}<>|\"]");
 
   private final ClientProperties clientProperties;
@@ -138,6 +141,7 @@ public class ReplayService {
   private final ExecutorService executorService;
   private Thread directoryWatcherThread;
   private WatchService watchService;
+  private LocalReplayIndex localReplayIndex;
   protected List<Replay> localReplays = new ArrayList<Replay>();
 
   public void startLoadingAndWatchingLocalReplays() {
@@ -183,29 +187,42 @@ public class ReplayService {
     return thread;
   }
 
+  /**
+   * Updates the local replays for the changed replay files. Other entries of the replays directory, like the directory
+   * of corrupt replays, are ignored. Files that can't be read aren't moved away, since they may still be written; they
+   * are read again when they are modified next, and moved away by the next sync if they are still corrupt.
+   */
   @VisibleForTesting
   protected void onLocalReplaysWatchEvent(WatchKey key) {
+    Path replaysDirectory = preferencesService.getReplaysDirectory();
+    PathMatcher replayFileMatcher = replaysDirectory.getFileSystem()
+        .getPathMatcher("glob:" + clientProperties.getReplay().getReplayFileGlob());
+    LocalReplayIndex index = getLocalReplayIndex();
     List<CompletableFuture<Replay>> newReplaysFutures = new ArrayList<CompletableFuture<Replay>>();
     Collection<Replay> deletedReplays = new ArrayList<Replay>();
     for (WatchEvent<?> watchEvent : key.pollEvents()) {
       Path path = (Path) watchEvent.context();
-      Path fullPathToReplay = preferencesService.getReplaysDirectory().resolve(path);
+      Path fullPathToReplay = replaysDirectory.resolve(path);
+      if (!replayFileMatcher.matches(fullPathToReplay.getFileName())) {
+        continue;
+      }
 
-      if (watchEvent.kind() == ENTRY_CREATE) {
-        newReplaysFutures.add(tryLoadingLocalReplay(fullPathToReplay));
-      } else if (watchEvent.kind() == ENTRY_DELETE) {
-        Optional<Replay> existingReplay = localReplays
-            .stream()
-            .filter(replay -> replay.getReplayFile().compareTo(fullPathToReplay) == 0)
-            .findFirst();
-
-        if (existingReplay.isPresent()) {
-          Replay deletedReplay = existingReplay.get();
-          deletedReplays.add(deletedReplay);
-          localReplays.remove(deletedReplay);
+      if (watchEvent.kind() == ENTRY_CREATE || watchEvent.kind() == ENTRY_MODIFY) {
+        if (!Files.isRegularFile(fullPathToReplay)) {
+          continue;
+        }
+        Optional<LocalReplayIndex.Entry> entry = index.update(fullPathToReplay, this::tryReadLocalReplayInfo);
+        if (entry.isPresent()) {
+          findLocalReplay(fullPathToReplay).ifPresent(deletedReplays::add);
+          newReplaysFutures.add(toReplay(entry.get().getReplayInfo(), fullPathToReplay, new HashMap<>(), new HashMap<>()));
         }
+      } else if (watchEvent.kind() == ENTRY_DELETE) {
+        index.remove(fullPathToReplay);
+        findLocalReplay(fullPathToReplay).ifPresent(deletedReplays::add);
       }
     }
+    localReplays.removeAll(deletedReplays);
+    saveLocalReplayIndex();
 
     CompletableFuture[] replayFuturesArray = newReplaysFutures.toArray(new CompletableFuture[newReplaysFutures.size()]);
     CompletableFuture<List<Replay>> newReplaysFuture = CompletableFuture.allOf(replayFuturesArray)
@@ -225,6 +242,13 @@ public class ReplayService {
     }
   }
 
+  private Optional<Replay> findLocalReplay(Path replayFile) {
+    return localReplays
+        .stream()
+        .filter(replay -> replay.getReplayFile() != null && replay.getReplayFile().compareTo(replayFile) == 0)
+        .findFirst();
+  }
+
   @VisibleForTesting
   static Integer parseSupComVersion(byte[] rawReplayBytes) {
     int versionDelimiterIndex = Bytes.indexOf(rawReplayBytes, (byte) 0x00);
@@ -274,7 +298,8 @@ public class ReplayService {
   }
 
   /**
-   * Loads some, but not all, local replays. Loading all local replays could result in OOME.
+   * Updates the local replay index and loads the newest local replays. Loading all local replays could result in OOME,
+   * use {@link #findLocalReplaysWithPageCount(Predicate, Comparator, int, int)} to access the others.
    */
   @Async
   public CompletableFuture<Collection<Replay>> loadLocalReplays() throws IOException {
@@ -285,32 +310,97 @@ public class ReplayService {
       noCatch(() -> createDirectories(replaysDirectory));
     }
 
-
+    LocalReplayIndex index = getLocalReplayIndex();
     try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(replaysDirectory, replayFileGlob)) {
-      List<CompletableFuture<Replay>> replayFutures = StreamSupport.stream(directoryStream.spliterator(), false)
-          .sorted(Comparator.comparing(path -> noCatch(() -> Files.getLastModifiedTime((Path) path))).reversed())
-          .limit(MAX_REPLAYS)
-          .map(this::tryLoadingLocalReplay)
-          .filter(e -> !e.isCompletedExceptionally())
-          .collect(Collectors.toList());
-
-      CompletableFuture[] replayFuturesArray = replayFutures.toArray(new CompletableFuture[replayFutures.size()]);
-      return CompletableFuture.allOf(replayFuturesArray)
-          .thenApply(ignoredVoid ->
-              replayFutures.stream()
-                  .map(CompletableFuture::join)
-                  .filter(Objects::nonNull)
-                  .collect(Collectors.toList()));
+      index.synchronize(directoryStream, this::readLocalReplayInfo);
+    }
+    saveLocalReplayIndex();
 
+    return findLocalReplaysWithPageCount(entry -> true, LocalReplayIndex.NEWEST_FIRST, MAX_REPLAYS, 1)
+        .thenApply(Tuple::getFirst);
+  }
+
+  /**
+   * Returns one page of the local replays that match the specified filter. Only the replays of the requested page are
+   * resolved, the others are only known by their header.
+   *
+   * @param page the page to return, starting at 1
+   */
+  public CompletableFuture<Tuple<List<Replay>, Integer>> findLocalReplaysWithPageCount(Predicate<LocalReplayIndex.Entry> filter,
+                                                                                      Comparator<LocalReplayIndex.Entry> sort,
+                                                                                      int maxResults, int page) {
+    Tuple<List<LocalReplayIndex.Entry>, Integer> result = getLocalReplayIndex().query(filter, sort, maxResults, page);
+
+    // Replays of the same page often share their featured mod and map, so they are only looked up once
+    Map<String, CompletableFuture<FeaturedMod>> featuredModsByName = new HashMap<>();
+    Map<String, CompletableFuture<Optional<MapBean>>> mapsByFolderName = new HashMap<>();
+    List<CompletableFuture<Replay>> replayFutures = result.getFirst().stream()
+        .map(entry -> toReplay(entry.getReplayInfo(), entry.getFile(), featuredModsByName, mapsByFolderName))
+        .collect(Collectors.toList());
+
+    CompletableFuture[] replayFuturesArray = replayFutures.toArray(new CompletableFuture[replayFutures.size()]);
+    return CompletableFuture.allOf(replayFuturesArray)
+        .thenApply(ignoredVoid -> new Tuple<>(
+            replayFutures.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()),
+            result.getSecond()));
+  }
+
+  private synchronized LocalReplayIndex getLocalReplayIndex() {
+    if (localReplayIndex == null) {
+      localReplayIndex = new LocalReplayIndex(preferencesService.getCacheDirectory().resolve(LOCAL_REPLAY_INDEX_FILE_NAME));
+      localReplayIndex.load();
     }
+    return localReplayIndex;
   }
 
-  private CompletableFuture<Replay> tryLoadingLocalReplay(Path replayFile) {
+  private void saveLocalReplayIndex() {
     try {
-      LocalReplayInfo replayInfo = replayFileReader.parseMetaData(replayFile);
+      getLocalReplayIndex().save();
+    } catch (IOException e) {
+      logger.warn("Local replay index could not be saved", e);
+    }
+  }
+
+  /**
+   * Reads the header of a local replay file. Corrupt files are moved away.
+   *
+   * @return the header, or {@code null} if the file could not be read
+   */
+  private LocalReplayInfo readLocalReplayInfo(Path replayFile) {
+    try {
+      return replayFileReader.parseMetaData(replayFile);
+    } catch (Exception e) {
+      logger.warn("Could not read replay file '{}'", replayFile, e);
+      moveCorruptedReplayFile(replayFile);
+      return null;
+    }
+  }
 
-      CompletableFuture<FeaturedMod> featuredModFuture = modService.getFeaturedMod(replayInfo.getFeaturedMod());
-      CompletableFuture<Optional<MapBean>> mapBeanFuture = mapService.findByMapFolderName(replayInfo.getMapname());
+  /**
+   * Reads the header of a local replay file, which may still be written.
+   *
+   * @return the header, or {@code null} if the file could not be read (yet)
+   */
+  private LocalReplayInfo tryReadLocalReplayInfo(Path replayFile) {
+    try {
+      return replayFileReader.parseMetaData(replayFile);
+    } catch (Exception e) {
+      logger.debug("Could not read replay file '{}', it may still be written", replayFile, e);
+      return null;
+    }
+  }
+
+  private CompletableFuture<Replay> toReplay(LocalReplayInfo replayInfo, Path replayFile,
+                                             Map<String, CompletableFuture<FeaturedMod>> featuredModsByName,
+                                             Map<String, CompletableFuture<Optional<MapBean>>> mapsByFolderName) {
+    try {
+      CompletableFuture<FeaturedMod> featuredModFuture = featuredModsByName.computeIfAbsent(
+          String.valueOf(replayInfo.getFeaturedMod()), name -> modService.getFeaturedMod(replayInfo.getFeaturedMod()));
+      CompletableFuture<Optional<MapBean>> mapBeanFuture = mapsByFolderName.computeIfAbsent(
+          String.valueOf(replayInfo.getMapname()), name -> mapService.findByMapFolderName(replayInfo.getMapname()));
 
       return CompletableFuture.allOf(featuredModFuture, mapBeanFuture).thenApply(ignoredVoid -> {
         Optional<MapBean> mapBean = mapBeanFuture.join();
@@ -320,8 +410,7 @@ public class ReplayService {
         return new Replay(replayInfo, replayFile, featuredModFuture.join(), mapBean.orElse(null));
       });
     } catch (Exception e) {
-      logger.warn("Could not read replay file '{}'", replayFile, e);
-      moveCorruptedReplayFile(replayFile);
+      logger.warn("Could not load replay file '{}'", replayFile, e);
       return CompletableFuture.completedFuture(null);
     }
   }
@@ -9,10 +9,16 @@ import java.util.concurrent.CompletableFuture;
 public abstract class CompletableTask<V> extends Task<V> implements PrioritizedCompletableTask<V> {
 
   private final CompletableFuture<V> future;
+  private final Resource resource;
   private Priority priority;
 
   public CompletableTask(Priority priority) {
+    this(priority, Resource.NETWORK);
+  }
+
+  public CompletableTask(Priority priority, Resource resource) {
     this.priority = priority;
+    this.resource = resource;
     this.future = new CompletableFuture<>();
     setOnCancelled(event -> future.cancel(true));
     setOnFailed(event -> future.completeExceptionally(getException()));
@@ -28,6 +34,16 @@ public abstract class CompletableTask<V> extends Task<V> implements PrioritizedC
     return priority.compareTo(other.priority);
   }
 
+  @Override
+  public Priority getPriority() {
+    return priority;
+  }
+
+  @Override
+  public Resource getResource() {
+    return resource;
+  }
+
   public void setPriority(Priority priority) {
     Assert.checkNotNullIllegalState(this.priority, "Priority has already been set");
     this.priority = priority;
@@ -44,4 +60,13 @@ public abstract class CompletableTask<V> extends Task<V> implements PrioritizedC
     MEDIUM,
     HIGH
   }
+
+  /**
+   * The resource a task mostly waits for. Each resource has its own, bounded pool of worker threads.
+   */
+  public enum Resource {
+    NETWORK,
+    DISK,
+    CPU
+  }
 }
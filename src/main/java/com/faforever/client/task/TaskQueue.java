@@ -0,0 +1,96 @@
+package com.faforever.client.task;
+
+import com.faforever.client.task.CompletableTask.Priority;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of worker threads that runs the highest priority task first. To prevent low priority tasks from
+ * starving, every priority level above {@link Priority#LOW} only gives a task a head start of {@link
+ * #PRIORITY_HEAD_START} submissions: a task is run before any task submitted more than {@code PRIORITY_HEAD_START}
+ * times its priority difference later. Tasks of the same effective rank are run in submission order.
+ */
+class TaskQueue {
+
+  static final int PRIORITY_HEAD_START = 32;
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  private final ThreadPoolExecutor executor;
+  private final AtomicLong sequence;
+  private final LongAdder startedTasks;
+  private final LongAdder totalWaitNanos;
+
+  TaskQueue(String name, int threads) {
+    executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new PriorityBlockingQueue<>(),
+        new ThreadFactoryBuilder().setNameFormat("task-" + name + "-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+    sequence = new AtomicLong();
+    startedTasks = new LongAdder();
+    totalWaitNanos = new LongAdder();
+  }
+
+  void submit(Priority priority, Runnable runnable) {
+    executor.execute(new QueuedRunnable(priority, sequence.getAndIncrement(), runnable));
+  }
+
+  /**
+   * Returns the number of tasks waiting for a worker thread.
+   */
+  int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * Returns the average time tasks waited for a worker thread, or {@link Duration#ZERO} if no task has been started
+   * yet.
+   */
+  Duration getAverageWaitTime() {
+    long started = startedTasks.sum();
+    if (started == 0) {
+      return Duration.ZERO;
+    }
+    return Duration.ofNanos(totalWaitNanos.sum() / started);
+  }
+
+  void shutdownNow() {
+    executor.shutdownNow();
+  }
+
+  private class QueuedRunnable implements Runnable, Comparable<QueuedRunnable> {
+    private final long sequence;
+    private final long rank;
+    private final long enqueuedAt;
+    private final Runnable runnable;
+
+    private QueuedRunnable(Priority priority, long sequence, Runnable runnable) {
+      this.sequence = sequence;
+      this.rank = sequence - (long) priority.ordinal() * PRIORITY_HEAD_START;
+      this.enqueuedAt = System.nanoTime();
+      this.runnable = runnable;
+    }
+
+    @Override
+    public void run() {
+      totalWaitNanos.add(System.nanoTime() - enqueuedAt);
+      startedTasks.increment();
+      runnable.run();
+    }
+
+    @Override
+    public int compareTo(QueuedRunnable other) {
+      int result = Long.compare(rank, other.rank);
+      if (result != 0) {
+        return result;
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -1,51 +1,95 @@
 package com.faforever.client.task;
 
+import com.faforever.client.task.CompletableTask.Priority;
+import com.faforever.client.task.CompletableTask.Resource;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.concurrent.Worker;
-import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.lang.invoke.MethodHandles;
-import java.util.concurrent.ExecutorService;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Enqueues and runs tasks in background. Services that need to run a task (tasks that finish, not long-running
  * background jobs) in background should always submit them to this service.
  * <p>
- * There are different queues for different kind of tasks. For every queue, only one task is executed at a time.
+ * Every {@link Resource} has its own queue with a bounded number of worker threads, so that e.g. a bunch of downloads
+ * can't delay reading the disk. Within a queue, tasks with a higher {@link Priority} are run first (see {@link
+ * TaskQueue} for how starvation of low priority tasks is prevented). Tasks submitted to the same named serial queue
+ * are additionally run one at a time, in submission order.
  */
 @Lazy
 @Service
-@RequiredArgsConstructor
-public class TaskService {
+public class TaskService implements DisposableBean {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-  private final ExecutorService executorService;
+  private static final int NETWORK_THREADS = 4;
+  private static final int DISK_THREADS = 2;
+
+  private final Map<Resource, TaskQueue> queuesByResource;
+  /** Tasks per serial queue name. The first task is the one that is running, the others wait for it to finish. */
+  private final Map<String, Deque<PrioritizedCompletableTask<?>>> serialQueues;
   private final ObservableList<Worker<?>> activeTasks = FXCollections.synchronizedObservableList(FXCollections.observableArrayList());
 
   private ObservableList<Worker<?>> unmodifiableObservableList = FXCollections.unmodifiableObservableList(activeTasks);
 
+  public TaskService() {
+    this(NETWORK_THREADS, DISK_THREADS, Runtime.getRuntime().availableProcessors());
+  }
+
+  TaskService(int networkThreads, int diskThreads, int cpuThreads) {
+    queuesByResource = new EnumMap<>(Resource.class);
+    queuesByResource.put(Resource.NETWORK, new TaskQueue("network", networkThreads));
+    queuesByResource.put(Resource.DISK, new TaskQueue("disk", diskThreads));
+    queuesByResource.put(Resource.CPU, new TaskQueue("cpu", cpuThreads));
+    serialQueues = new HashMap<>();
+  }
+
   /**
    * Submits a task for execution in background.
    * @param <T> the task's result type
    * @param task the task to execute
    */
-  @SuppressWarnings("unchecked")
-  public <T extends PrioritizedCompletableTask> T submitTask(T task) {
+  public <T extends PrioritizedCompletableTask<?>> T submitTask(T task) {
+    return submitTask(task, null);
+  }
+
+  /**
+   * Submits a task for execution in background, after all tasks previously submitted to the same serial queue have
+   * finished.
+   * @param <T> the task's result type
+   * @param task the task to execute
+   * @param serialQueueName the name of the serial queue, or {@code null} if the task may run concurrently to any other
+   * task
+   */
+  public <T extends PrioritizedCompletableTask<?>> T submitTask(T task, @Nullable String serialQueueName) {
     task.getFuture().whenComplete((o, throwable) -> {
       activeTasks.remove(task);
       if (throwable != null) {
-        logger.warn("Task failed", (Throwable) throwable);
+        logger.warn("Task failed", throwable);
       }
     });
 
     activeTasks.add(task);
-    executorService.execute(task);
+    if (serialQueueName == null) {
+      dispatch(task, () -> {
+      });
+    } else {
+      enqueueSerial(serialQueueName, task);
+    }
 
     return task;
   }
@@ -53,4 +97,63 @@ public class TaskService {
   public ObservableList<Worker<?>> getActiveWorkers() {
     return unmodifiableObservableList;
   }
+
+  /**
+   * Returns the number of tasks that wait for a worker thread of the specified resource. Tasks that wait for their
+   * predecessor in a serial queue are not included.
+   */
+  public int getQueueDepth(Resource resource) {
+    return queuesByResource.get(resource).getQueueDepth();
+  }
+
+  /**
+   * Returns the average time tasks waited for a worker thread of the specified resource.
+   */
+  public Duration getAverageWaitTime(Resource resource) {
+    return queuesByResource.get(resource).getAverageWaitTime();
+  }
+
+  @Override
+  public void destroy() {
+    queuesByResource.values().forEach(TaskQueue::shutdownNow);
+  }
+
+  private void enqueueSerial(String serialQueueName, PrioritizedCompletableTask<?> task) {
+    synchronized (serialQueues) {
+      Deque<PrioritizedCompletableTask<?>> queue = serialQueues.computeIfAbsent(serialQueueName, name -> new ArrayDeque<>());
+      queue.add(task);
+      if (queue.size() > 1) {
+        return;
+      }
+    }
+    dispatch(task, () -> onSerialTaskFinished(serialQueueName));
+  }
+
+  private void onSerialTaskFinished(String serialQueueName) {
+    PrioritizedCompletableTask<?> next;
+    synchronized (serialQueues) {
+      Deque<PrioritizedCompletableTask<?>> queue = serialQueues.get(serialQueueName);
+      queue.poll();
+      next = queue.peek();
+      if (next == null) {
+        serialQueues.remove(serialQueueName);
+      }
+    }
+    if (next != null) {
+      dispatch(next, () -> onSerialTaskFinished(serialQueueName));
+    }
+  }
+
+  private void dispatch(PrioritizedCompletableTask<?> task, Runnable onFinished) {
+    Priority priority = Optional.ofNullable(task.getPriority()).orElse(Priority.MEDIUM);
+    Resource resource = Optional.ofNullable(task.getResource()).orElse(Resource.NETWORK);
+
+    queuesByResource.get(resource).submit(priority, () -> {
+      try {
+        task.run();
+      } finally {
+        onFinished.run();
+      }
+    });
+  }
 }
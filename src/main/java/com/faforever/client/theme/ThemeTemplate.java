@@ -0,0 +1,75 @@
+package com.faforever.client.theme;
+
+import com.google.common.io.CharStreams;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A theme file with placeholders like {@code {username}}, parsed once into its literal parts and placeholders. All
+ * placeholders are filled in a single pass, so a value that itself contains a placeholder is inserted as it is.
+ */
+public final class ThemeTemplate {
+
+  private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{([a-z0-9-]+)}");
+
+  /** Literal parts; {@code literals[i]} precedes {@code placeholders[i]}, the last one follows the last placeholder. */
+  private final String[] literals;
+  private final String[] placeholders;
+  private final int literalsLength;
+
+  private ThemeTemplate(List<String> literals, List<String> placeholders) {
+    this.literals = literals.toArray(new String[0]);
+    this.placeholders = placeholders.toArray(new String[0]);
+    literalsLength = literals.stream().mapToInt(String::length).sum();
+  }
+
+  public static ThemeTemplate compile(String template) {
+    List<String> literals = new ArrayList<>();
+    List<String> placeholders = new ArrayList<>();
+
+    Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+    int literalStart = 0;
+    while (matcher.find()) {
+      literals.add(template.substring(literalStart, matcher.start()));
+      placeholders.add(matcher.group(1));
+      literalStart = matcher.end();
+    }
+    literals.add(template.substring(literalStart));
+
+    return new ThemeTemplate(literals, placeholders);
+  }
+
+  public static ThemeTemplate load(URL url) throws IOException {
+    try (Reader reader = new InputStreamReader(url.openStream(), UTF_8)) {
+      return compile(CharStreams.toString(reader));
+    }
+  }
+
+  /**
+   * Fills the template with the values returned by {@code values} for each placeholder name. Placeholders for which
+   * {@code null} is returned are kept as they are.
+   */
+  public String render(Function<String, String> values) {
+    StringBuilder builder = new StringBuilder(literalsLength + placeholders.length * 16);
+    for (int i = 0; i < placeholders.length; i++) {
+      builder.append(literals[i]);
+      String value = values.apply(placeholders[i]);
+      if (value != null) {
+        builder.append(value);
+      } else {
+        builder.append('{').append(placeholders[i]).append('}');
+      }
+    }
+    return builder.append(literals[placeholders.length]).toString();
+  }
+}
@@ -66,6 +66,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Stream;
 
@@ -138,6 +139,7 @@ public class UiService implements InitializingBean, DisposableBean {
   private final Map<Theme, String> folderNamesByTheme;
   private final Map<Path, WatchKey> watchKeys;
   private final ObjectProperty<Theme> currentTheme;
+  private final Map<String, ThemeTemplate> templatesByRelativeFile;
   private Path currentTempStyleSheet;
   private MessageSourceResourceBundle resources;
 
@@ -155,6 +157,7 @@ public class UiService implements InitializingBean, DisposableBean {
     webViews = new HashSet<>();
     watchKeys = new HashMap<>();
     currentTheme = new SimpleObjectProperty<>(DEFAULT_THEME);
+    templatesByRelativeFile = new ConcurrentHashMap<>();
     folderNamesByTheme = new HashMap<>();
     themesByFolderName = FXCollections.observableHashMap();
     themesByFolderName.addListener((MapChangeListener<String, Theme>) change -> {
@@ -262,6 +265,7 @@ public class UiService implements InitializingBean, DisposableBean {
       }
     }
 
+    templatesByRelativeFile.clear();
     reloadStylesheet();
   }
 
@@ -308,6 +312,15 @@ public class UiService implements InitializingBean, DisposableBean {
   }
 
 
+  /**
+   * Returns the compiled template of the specified file of the current theme. A template is only read and compiled
+   * once, until the theme is changed or one of its files is modified.
+   */
+  public ThemeTemplate getThemeTemplate(String relativeFile) {
+    return templatesByRelativeFile.computeIfAbsent(relativeFile,
+        file -> noCatch(() -> ThemeTemplate.load(getThemeFileUrl(file))));
+  }
+
   public URL getThemeFileUrl(String relativeFile) {
     String themeFile = getThemeFile(relativeFile);
     if (themeFile.startsWith("file:") || themeFile.startsWith("jar:")) {
@@ -329,6 +342,7 @@ public class UiService implements InitializingBean, DisposableBean {
     preferencesService.storeInBackground();
     currentTheme.set(theme);
     cacheManager.getCache(CacheNames.THEME_IMAGES).clear();
+    templatesByRelativeFile.clear();
     reloadStylesheet();
   }
 
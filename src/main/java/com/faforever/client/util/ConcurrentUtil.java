@@ -1,5 +1,6 @@
 package com.faforever.client.util;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 import javafx.concurrent.Worker;
@@ -7,12 +8,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public final class ConcurrentUtil {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /**
+   * Reading maps and mods is mostly Lua evaluation, but also waits for the disk, so a few more threads than cores pay
+   * off.
+   */
+  private static final int PARALLEL_THREADS = Math.min(8, Runtime.getRuntime().availableProcessors() + 2);
+  /** Shared by all calls of {@link #supplyInParallel}, so that concurrent scans don't start more threads. */
+  private static final ExecutorService PARALLEL_EXECUTOR = createParallelExecutor();
+
   private ConcurrentUtil() {
     // Utility class
   }
@@ -41,4 +59,25 @@ public final class ConcurrentUtil {
   public static Throwable unwrapIfCompletionException(Throwable throwable) {
     return throwable instanceof CompletionException ? throwable.getCause() : throwable;
   }
+
+  /**
+   * Applies the specified function to all items on the shared parallel executor, whose threads terminate once they have
+   * been idle for a while.
+   *
+   * @return the futures of the results, in the order of the items
+   */
+  public static <T, R> List<CompletableFuture<R>> supplyInParallel(Collection<T> items, Function<T, R> function) {
+    List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+    for (T item : items) {
+      futures.add(CompletableFuture.supplyAsync(() -> function.apply(item), PARALLEL_EXECUTOR));
+    }
+    return futures;
+  }
+
+  private static ExecutorService createParallelExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(PARALLEL_THREADS, PARALLEL_THREADS, 30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setNameFormat("parallel-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
 }
@@ -1,34 +1,184 @@
 package com.faforever.client.util;
 
-import com.google.common.io.CharStreams;
 import org.luaj.vm2.Globals;
+import org.luaj.vm2.LoadState;
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
-import org.luaj.vm2.lib.jse.JsePlatform;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.compiler.LuaC;
+import org.luaj.vm2.lib.Bit32Lib;
+import org.luaj.vm2.lib.StringLib;
+import org.luaj.vm2.lib.TableLib;
+import org.luaj.vm2.lib.jse.JseBaseLib;
+import org.luaj.vm2.lib.jse.JseMathLib;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
+/**
+ * Evaluates Lua data files like {@code *_scenario.lua}. The FA prelude ({@code /lua/faf.lua}) is compiled only once and
+ * loaded into a pool of sandboxed globals, which only offer the base, string, table, math and bit32 libraries and can't
+ * access any files or Java classes. Since luaj's globals must not be used by multiple threads at once, every evaluation
+ * borrows its own globals from the pool. Each file is evaluated in a fresh environment that falls back to these
+ * globals, so that the variables defined by one file are never seen by another. Changes a file makes to the globals
+ * themselves or to library tables are undone before the globals are returned to the pool.
+ */
 public final class LuaUtil {
 
+  private static final String PRELUDE_RESOURCE = "/lua/faf.lua";
+  private static final Queue<PooledGlobals> globalsPool = new ConcurrentLinkedQueue<>();
+  private static Prototype prelude;
+
   private LuaUtil() {
     throw new AssertionError("Not instantiatable");
   }
 
+  /**
+   * Returns a table with the global variables defined by the specified file. The table doesn't fall back to the
+   * prelude or any library, looking up a variable the file didn't define results in {@code nil}.
+   */
   public static LuaValue loadFile(Path file) throws IOException {
     try (InputStream inputStream = Files.newInputStream(file)) {
-      return load(inputStream);
+      return load(inputStream, file.getFileName().toString());
     }
   }
 
   public static LuaValue load(InputStream inputStream) throws IOException {
-    Globals globals = JsePlatform.standardGlobals();
-    globals.baselib.load(globals.load(CharStreams.toString(new InputStreamReader(LuaUtil.class.getResourceAsStream("/lua/faf.lua"), UTF_8))));
-    globals.load(inputStream, "@" + inputStream.hashCode(), "bt", globals).invoke();
+    return load(inputStream, String.valueOf(inputStream.hashCode()));
+  }
+
+  private static LuaValue load(InputStream inputStream, String chunkName) throws IOException {
+    PooledGlobals pooledGlobals = borrowGlobals();
+    Globals globals = pooledGlobals.globals;
+    try {
+      LuaTable environment = new LuaTable();
+      environment.setmetatable(LuaValue.tableOf(new LuaValue[]{LuaValue.INDEX, globals}));
+      globals.load(inputStream, "@" + chunkName, "t", environment).invoke();
+      environment.setmetatable(null);
+      return environment;
+    } finally {
+      pooledGlobals.restore();
+      globalsPool.add(pooledGlobals);
+    }
+  }
+
+  private static PooledGlobals borrowGlobals() throws IOException {
+    PooledGlobals pooledGlobals = globalsPool.poll();
+    return pooledGlobals != null ? pooledGlobals : new PooledGlobals(createGlobals());
+  }
+
+  private static Globals createGlobals() throws IOException {
+    Globals globals = new Globals();
+    globals.load(new JseBaseLib());
+    // The libraries register themselves in package.loaded, but require() isn't offered
+    globals.set("package", LuaValue.tableOf(new LuaValue[]{LuaValue.valueOf("loaded"), new LuaTable()}));
+    globals.load(new Bit32Lib());
+    globals.load(new TableLib());
+    globals.load(new StringLib());
+    globals.load(new JseMathLib());
+    globals.set("package", LuaValue.NIL);
+    LoadState.install(globals);
+    LuaC.install(globals);
+    // No dofile() or loadfile() of anything on disk or the classpath
+    globals.finder = fileName -> null;
+
+    new LuaClosure(getPrelude(), globals).call();
     return globals;
   }
+
+  private static synchronized Prototype getPrelude() throws IOException {
+    if (prelude == null) {
+      try (InputStream inputStream = LuaUtil.class.getResourceAsStream(PRELUDE_RESOURCE)) {
+        if (inputStream == null) {
+          throw new FileNotFoundException("Lua prelude not found on classpath: " + PRELUDE_RESOURCE);
+        }
+        prelude = LuaC.instance.compile(inputStream, "@faf.lua");
+      }
+    }
+    return prelude;
+  }
+
+  /**
+   * Globals and the state of all tables reachable from them after the prelude has been loaded, including the string
+   * metatable that luaj shares between all globals.
+   */
+  private static final class PooledGlobals {
+    private final Globals globals;
+    private final List<TableSnapshot> tableSnapshots = new ArrayList<>();
+
+    private PooledGlobals(Globals globals) {
+      this.globals = globals;
+      Set<LuaTable> tables = Collections.newSetFromMap(new IdentityHashMap<>());
+      Deque<LuaValue> values = new ArrayDeque<>(List.of(globals));
+      if (LuaString.s_metatable != null) {
+        values.add(LuaString.s_metatable);
+      }
+      while (!values.isEmpty()) {
+        LuaValue value = values.poll();
+        if (!value.istable() || !tables.add((LuaTable) value)) {
+          continue;
+        }
+        TableSnapshot tableSnapshot = new TableSnapshot((LuaTable) value);
+        tableSnapshots.add(tableSnapshot);
+        values.addAll(tableSnapshot.entries.values());
+        if (tableSnapshot.metatable != null) {
+          values.add(tableSnapshot.metatable);
+        }
+      }
+    }
+
+    private void restore() {
+      tableSnapshots.forEach(TableSnapshot::restore);
+    }
+  }
+
+  private static final class TableSnapshot {
+    private final LuaTable table;
+    private final LuaValue metatable;
+    private final Map<LuaValue, LuaValue> entries = new HashMap<>();
+
+    private TableSnapshot(LuaTable table) {
+      this.table = table;
+      metatable = table.getmetatable();
+      for (LuaValue key : table.keys()) {
+        entries.put(key, table.rawget(key));
+      }
+    }
+
+    /**
+     * Undoes all changes made to the table. Only writes to the table if it has been changed, since the string metatable
+     * may be read by other threads.
+     */
+    private void restore() {
+      if (table.getmetatable() != metatable) {
+        table.setmetatable(metatable);
+      }
+      for (LuaValue key : table.keys()) {
+        if (!entries.containsKey(key)) {
+          table.rawset(key, LuaValue.NIL);
+        }
+      }
+      entries.forEach((key, value) -> {
+        if (!table.rawget(key).raweq(value)) {
+          table.rawset(key, value);
+        }
+      });
+    }
+  }
 }
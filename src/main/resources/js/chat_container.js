@@ -1,8 +1,38 @@
 isScrolledToBottom = true;
+/**
+ * The newest sections, which have been taken out of the document while the user reads older messages, oldest first.
+ * They are displayed again once the user scrolls back to the bottom.
+ */
+heldSections = document.createElement("div");
+/**
+ * Whether some of the held sections have been discarded, so that the held sections no longer follow the displayed
+ * ones.
+ */
+heldSectionsDiscarded = false;
+chatContainerId = null;
+chatSectionClass = null;
+maxChatSections = 0;
 window.onscroll = function (e) {
   isScrolledToBottom = window.scrollY + window.innerHeight + 20 >= document.documentElement.scrollHeight;
+  if (isScrolledToBottom && heldSections.firstChild) {
+    var removedSectionIds = [];
+    showHeldSections(document.getElementById(chatContainerId), removedSectionIds);
+    scrollToBottomIfDesired();
+    if (removedSectionIds.length > 0 && window.chatTab) {
+      chatTab.onChatSectionsRemoved(removedSectionIds.join(","));
+    }
+  }
+  if (window.scrollY === 0) {
+    loadOlderMessages();
+  }
 };
 
+function loadOlderMessages() {
+  if (window.chatTab) {
+    chatTab.loadOlderMessages();
+  }
+}
+
 function link(input) {
   return Autolinker.link(input, {
         email: false,
@@ -54,6 +84,146 @@ function scrollToBottomIfDesired() {
   }
 }
 
+/**
+ * Creates a fragment from chunks of HTML, given as a JSON array of {targetId, html}. Chunks for the container become
+ * new sections, all other chunks are appended to the element with the respective ID.
+ */
+function createChatFragment(containerId, chunksJson) {
+  var chunks = JSON.parse(chunksJson);
+  var fragment = document.createDocumentFragment();
+  var parser = document.createElement("div");
+
+  for (var i = 0; i < chunks.length; i++) {
+    var chunk = chunks[i];
+    if (chunk.targetId === containerId) {
+      parser.innerHTML = chunk.html;
+      while (parser.firstChild) {
+        fragment.appendChild(parser.firstChild);
+      }
+    } else {
+      var target = fragment.querySelector("#" + chunk.targetId)
+          || heldSections.querySelector("#" + chunk.targetId)
+          || document.getElementById(chunk.targetId);
+      target.insertAdjacentHTML("beforeend", chunk.html);
+    }
+  }
+  return fragment;
+}
+
+/**
+ * Appends chunks of HTML (see createChatFragment) at once and trims the sections to at most maxSections (see
+ * trimChatSections). Returns the comma separated IDs of the removed sections.
+ */
+function appendChatMessages(containerId, sectionClass, chunksJson, maxSections) {
+  rememberChatContainer(containerId, sectionClass, maxSections);
+  var container = document.getElementById(containerId);
+  var removedSectionIds = [];
+  if (isScrolledToBottom) {
+    showHeldSections(container, removedSectionIds);
+  }
+  var fragment = createChatFragment(containerId, chunksJson);
+  if (heldSections.firstChild) {
+    heldSections.appendChild(fragment);
+  } else {
+    container.appendChild(fragment);
+  }
+
+  trimChatSections(container, removedSectionIds);
+  scrollToBottomIfDesired();
+  return removedSectionIds.join(",");
+}
+
+/**
+ * Inserts chunks of HTML (see createChatFragment) before all other sections, keeping the currently visible messages in
+ * place, and trims the sections to at most maxSections (see trimChatSections). Loads even older messages if there still
+ * is nothing to scroll. Returns the comma separated IDs of the removed sections.
+ */
+function prependChatMessages(containerId, sectionClass, chunksJson, maxSections) {
+  rememberChatContainer(containerId, sectionClass, maxSections);
+  var container = document.getElementById(containerId);
+  var previousScrollHeight = document.documentElement.scrollHeight;
+  container.insertBefore(createChatFragment(containerId, chunksJson), container.firstChild);
+
+  if (isScrolledToBottom) {
+    scrollToBottomIfDesired();
+  } else {
+    window.scrollBy(0, document.documentElement.scrollHeight - previousScrollHeight);
+  }
+
+  var removedSectionIds = [];
+  trimChatSections(container, removedSectionIds);
+  // If the prepended sections have been removed right away, loading them again wouldn't change anything
+  if (removedSectionIds.length === 0 && document.documentElement.scrollHeight <= window.innerHeight) {
+    loadOlderMessages();
+  }
+  return removedSectionIds.join(",");
+}
+
+function rememberChatContainer(containerId, sectionClass, maxSections) {
+  chatContainerId = containerId;
+  chatSectionClass = sectionClass;
+  maxChatSections = maxSections;
+}
+
+/**
+ * Makes sure that no more than maxChatSections sections are displayed, whether sections have been appended or
+ * prepended. If the user is at the bottom, the oldest sections are removed. Otherwise, sections are taken from the end
+ * that is farther from the viewport, so that the messages the user reads stay in place: the oldest sections are
+ * removed and the newest ones are held back until the user returns to the bottom. If all remaining sections are
+ * visible, the oldest ones are removed anyway. At most maxChatSections sections are held; older ones are discarded.
+ */
+function trimChatSections(container, removedSectionIds) {
+  var sections = container.getElementsByClassName(chatSectionClass);
+  while (sections.length > maxChatSections) {
+    if (isScrolledToBottom) {
+      removeChatSection(sections[0], removedSectionIds);
+      continue;
+    }
+
+    var distanceAbove = -sections[0].getBoundingClientRect().bottom;
+    var distanceBelow = sections[sections.length - 1].getBoundingClientRect().top - window.innerHeight;
+    if (distanceAbove > distanceBelow || distanceAbove <= 0 && distanceBelow <= 0) {
+      var previousScrollHeight = document.documentElement.scrollHeight;
+      removeChatSection(sections[0], removedSectionIds);
+      window.scrollBy(0, document.documentElement.scrollHeight - previousScrollHeight);
+    } else {
+      heldSections.insertBefore(sections[sections.length - 1], heldSections.firstChild);
+    }
+  }
+
+  while (heldSections.children.length > maxChatSections) {
+    removeChatSection(heldSections.firstChild, removedSectionIds);
+    heldSectionsDiscarded = true;
+  }
+}
+
+/**
+ * Displays the held sections again. If some of them have been discarded, the displayed sections are removed, since
+ * messages between them and the held ones are missing.
+ */
+function showHeldSections(container, removedSectionIds) {
+  if (!heldSections.firstChild) {
+    return;
+  }
+  if (heldSectionsDiscarded) {
+    var sections = Array.prototype.slice.call(container.getElementsByClassName(chatSectionClass));
+    for (var i = 0; i < sections.length; i++) {
+      removeChatSection(sections[i], removedSectionIds);
+    }
+    heldSectionsDiscarded = false;
+  }
+  while (heldSections.firstChild) {
+    container.appendChild(heldSections.firstChild);
+  }
+  trimChatSections(container, removedSectionIds);
+}
+
+function removeChatSection(section, removedSectionIds) {
+  var element = section.id ? section : section.querySelector("[id^='chat-section-']");
+  removedSectionIds.push(element.id.substring("chat-section-".length));
+  section.remove();
+}
+
 function setAllMessageColors(userListString) {
   var userList = JSON.parse(userListString);
 
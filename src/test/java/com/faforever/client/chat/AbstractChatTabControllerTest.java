@@ -1,6 +1,7 @@
 package com.faforever.client.chat;
 
 import com.faforever.client.audio.AudioService;
+import com.faforever.client.chat.history.ChatHistoryService;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.fx.WebViewConfigurer;
 import com.faforever.client.i18n.I18n;
@@ -13,11 +14,14 @@ import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.reporting.ReportingService;
 import com.faforever.client.test.AbstractPlainJavaFxTest;
 import com.faforever.client.test.FakeTestException;
+import com.faforever.client.theme.ThemeTemplate;
 import com.faforever.client.theme.UiService;
 import com.faforever.client.uploader.ImageUploadService;
 import com.faforever.client.user.UserService;
 import com.faforever.client.util.TimeService;
+import com.google.common.base.Joiner;
 import com.google.common.eventbus.EventBus;
+import com.google.common.io.Resources;
 import javafx.concurrent.Worker;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
@@ -30,6 +34,7 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.web.WebView;
 import javafx.stage.Stage;
+import org.apache.commons.lang3.StringUtils;
 import org.bridj.Platform;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Rule;
@@ -38,24 +43,50 @@ import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.testfx.util.WaitForAsyncUtils;
 
+import java.net.URL;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static com.faforever.client.chat.AbstractChatTabController.CSS_CLASS_CHAT_ONLY;
 import static com.faforever.client.player.SocialStatus.FOE;
 import static com.faforever.client.player.SocialStatus.FRIEND;
 import static com.faforever.client.player.SocialStatus.SELF;
+import static com.faforever.client.theme.UiService.CHAT_SECTION_COMPACT;
+import static com.faforever.client.theme.UiService.CHAT_SECTION_EXTENDED;
+import static com.faforever.client.theme.UiService.CHAT_TEXT_COMPACT;
+import static com.faforever.client.theme.UiService.CHAT_TEXT_EXTENDED;
+import static com.google.common.html.HtmlEscapers.htmlEscaper;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singletonList;
 import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.isEmptyString;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -92,10 +123,13 @@ public class AbstractChatTabControllerTest extends AbstractPlainJavaFxTest {
   private EventBus eventBus;
   @Mock
   private CountryFlagService countryFlagService;
+  @Mock
+  private ChatHistoryService chatHistoryService;
 
   private Preferences preferences;
   private AbstractChatTabController instance;
   private CountDownLatch chatReadyLatch;
+  private List<String> mentions;
 
 
   @Override
@@ -103,15 +137,17 @@ public class AbstractChatTabControllerTest extends AbstractPlainJavaFxTest {
     super.start(stage);
 
     preferences = new Preferences();
+    mentions = new CopyOnWriteArrayList<>();
 
-    when(uiService.getThemeFileUrl(any())).thenReturn(getClass().getResource("/" + UiService.CHAT_SECTION_EXTENDED));
+    when(uiService.getThemeFileUrl(any())).then(invocation -> getThemeFileUrl(invocation.getArgument(0)));
+    when(uiService.getThemeTemplate(any())).then(invocation -> ThemeTemplate.load(getThemeFileUrl(invocation.getArgument(0))));
     when(timeService.asShortTime(any())).thenReturn("123");
     when(userService.getUsername()).thenReturn("junit");
     when(preferencesService.getPreferences()).thenReturn(preferences);
 
     instance = new AbstractChatTabController(webViewConfigurer, userService, chatService, preferencesService,
         playerService, audioService, timeService, i18n, imageUploadService, notificationService, reportingService,
-        uiService, eventBus, countryFlagService) {
+        uiService, eventBus, countryFlagService, chatHistoryService) {
       private final Tab root = new Tab();
       private final WebView webView = new WebView();
       private final TextInputControl messageTextField = new TextField();
@@ -130,6 +166,11 @@ public class AbstractChatTabControllerTest extends AbstractPlainJavaFxTest {
       protected WebView getMessagesWebView() {
         return webView;
       }
+
+      @Override
+      protected void onMention(ChatMessage chatMessage) {
+        mentions.add(chatMessage.getMessage());
+      }
     };
 
     TabPane tabPane = new TabPane(instance.getRoot());
@@ -329,4 +370,283 @@ public class AbstractChatTabControllerTest extends AbstractPlainJavaFxTest {
     String output = instance.replaceChannelNamesWithHyperlinks("Go to #moderation and report a user");
     assertThat(output, is("Go to <a href=\"javascript:void(0);\" onClick=\"java.openChannel('#moderation')\">#moderation</a> and report a user"));
   }
+
+  @Test
+  public void testRenderHtmlMatchesStringReplaceRenderer() throws Exception {
+    assertTrue(chatReadyLatch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    List<String> texts = List.of(
+        "gg", "gg wp", "Hello junit, how are you?", "junit.", "this is fine...", "<b>not bold</b> & \"quoted\"",
+        "a\\nb", "join #aeolus or #moderation", "{text} {username} {time}", "100% sure", "'single' quotes",
+        "\u00e4\u00f6\u00fc \u2605", "it's C:\\Games\\FA\\bin", "v1.2 or 3.14", "see https://www.faforever.com/news",
+        "www.google.de", "faforever.com/maps?a=1&b=2", "mailto:junit@faforever.com", "ftp://files", "what about :) and :D");
+    Map<String, String> linkedTexts = new HashMap<>();
+    Map<String, String> htmlByTemplate = new HashMap<>();
+    Map<String, ThemeTemplate> templates = new HashMap<>();
+    for (String template : List.of(CHAT_SECTION_COMPACT, CHAT_TEXT_COMPACT, CHAT_SECTION_EXTENDED, CHAT_TEXT_EXTENDED)) {
+      htmlByTemplate.put(template, Resources.toString(getThemeFileUrl(template), UTF_8));
+      templates.put(template, uiService.getThemeTemplate(template));
+    }
+
+    for (int i = 0; i < 20; i++) {
+      Player player = new Player("player" + i);
+      player.setClan(i % 3 == 0 ? null : "CLN" + i);
+      player.setAvatarUrl(i % 2 == 0 ? null : "http://example.com/avatar" + i + ".png");
+      player.setCountry("CH");
+      when(playerService.getPlayerForUsername(player.getUsername())).thenReturn(Optional.of(player));
+    }
+    when(i18n.get(eq("chat.clanTagFormat"), any())).then(invocation -> "[" + invocation.getArgument(1) + "]");
+    when(countryFlagService.getCountryFlagUrl(any())).thenReturn(Optional.of(new URL("http://example.com/ch.png")));
+
+    Random random = new Random(0);
+    List<ChatMessage> messages = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      // Most chat messages can't contain a link, like the first eleven texts
+      String text = random.nextInt(50) == 0
+          ? texts.get(random.nextInt(texts.size()))
+          : texts.get(random.nextInt(11));
+      messages.add(new ChatMessage("#aeolus", Instant.now(), "player" + random.nextInt(25), text, random.nextInt(10) == 0));
+    }
+
+    WaitForAsyncUtils.asyncFx(() -> {
+      for (int i = 0; i < messages.size(); i++) {
+        ChatMessage message = messages.get(i);
+        String template = List.of(CHAT_SECTION_COMPACT, CHAT_TEXT_COMPACT, CHAT_SECTION_EXTENDED, CHAT_TEXT_EXTENDED).get(i % 4);
+        Integer sectionId = template.endsWith("chat_section.html") ? i : null;
+
+        String expected = renderWithStringReplace(message, htmlByTemplate.get(template), sectionId,
+            text -> linkedTexts.computeIfAbsent(text, instance::convertUrlsToHyperlinks));
+        assertThat(instance.renderHtml(message, templates.get(template), sectionId), is(expected));
+      }
+    }).get();
+  }
+
+  /**
+   * Renders a chat message the way it was done before templates were compiled, by replacing the placeholders one after
+   * another, but including the social status class the old renderer determined too late.
+   */
+  private String renderWithStringReplace(ChatMessage chatMessage, String html, Integer sectionId, Function<String, String> urlConverter) {
+    String login = chatMessage.getUsername();
+    String avatarUrl = "";
+    String clanTag = "";
+    String decoratedClanTag = "";
+    String countryFlagUrl = "";
+
+    Optional<Player> playerOptional = playerService.getPlayerForUsername(chatMessage.getUsername());
+    if (playerOptional.isPresent()) {
+      Player player = playerOptional.get();
+      avatarUrl = player.getAvatarUrl();
+      countryFlagUrl = countryFlagService.getCountryFlagUrl(player.getCountry()).map(URL::toString).orElse("");
+
+      if (StringUtils.isNotEmpty(player.getClan())) {
+        clanTag = player.getClan();
+        decoratedClanTag = i18n.get("chat.clanTagFormat", clanTag);
+      }
+    }
+
+    html = html.replace("{time}", timeService.asShortTime(chatMessage.getTime()))
+        .replace("{avatar}", StringUtils.defaultString(avatarUrl))
+        .replace("{username}", login)
+        .replace("{clan-tag}", clanTag)
+        .replace("{decorated-clan-tag}", decoratedClanTag)
+        .replace("{country-flag}", StringUtils.defaultString(countryFlagUrl))
+        .replace("{section-id}", String.valueOf(sectionId));
+
+    Collection<String> cssClasses = new ArrayList<>();
+    cssClasses.add(String.format("user-%s", chatMessage.getUsername()));
+    cssClasses.add(chatMessage.isAction() ? "action" : "message");
+    Optional.of(instance.getMessageCssClass(login)).filter(StringUtils::isNotEmpty).ifPresent(cssClasses::add);
+    html = html.replace("{css-classes}", Joiner.on(' ').join(cssClasses));
+
+    String text = htmlEscaper().escape(chatMessage.getMessage()).replace("\\", "\\\\");
+    text = urlConverter.apply(text);
+    text = instance.replaceChannelNamesWithHyperlinks(text);
+    Matcher matcher = Pattern.compile("\\b(junit)\\b", CASE_INSENSITIVE).matcher(text);
+    if (matcher.find()) {
+      text = matcher.replaceAll("<span class='self'>" + matcher.group(1) + "</span>");
+    }
+
+    return html
+        .replace("{inline-style}", instance.getInlineStyle(login))
+        .replace("{text}", text);
+  }
+
+  @Test
+  public void testRenderHtmlEscapesAllValues() throws Exception {
+    assertTrue(chatReadyLatch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    Player player = new Player("<i>player</i>");
+    player.setClan("<b>'); alert('x</b>");
+    player.setAvatarUrl("http://example.com/avatar.png?a=1&b=\"2\"");
+    when(playerService.getPlayerForUsername(player.getUsername())).thenReturn(Optional.of(player));
+    when(i18n.get(eq("chat.clanTagFormat"), any())).then(invocation -> "[" + invocation.getArgument(1) + "]");
+    when(countryFlagService.getCountryFlagUrl(any())).thenReturn(Optional.empty());
+    ChatMessage message = new ChatMessage("#aeolus", Instant.now(), player.getUsername(), "<script>", false);
+
+    String html = WaitForAsyncUtils.asyncFx(() ->
+        instance.renderHtml(message, uiService.getThemeTemplate(CHAT_SECTION_COMPACT), 1)).get();
+
+    assertThat(html, not(containsString("<i>")));
+    assertThat(html, not(containsString("<b>")));
+    assertThat(html, not(containsString("'); alert('")));
+    assertThat(html, containsString("showClanInfo('&lt;b&gt;\\&#39;); alert(\\&#39;x&lt;\\/b&gt;')"));
+    assertThat(html, containsString(">[&lt;b&gt;&#39;); alert(&#39;x&lt;/b&gt;]<"));
+    assertThat(html, containsString("src=\"http://example.com/avatar.png?a=1&amp;b=&quot;2&quot;\""));
+    assertThat(html, containsString("user-&lt;i&gt;player&lt;/i&gt;"));
+  }
+
+  @Test
+  public void testMayContainUrl() {
+    assertThat(AbstractChatTabController.mayContainUrl("gg wp"), is(false));
+    assertThat(AbstractChatTabController.mayContainUrl("this is fine..."), is(false));
+    assertThat(AbstractChatTabController.mayContainUrl("faforever.com"), is(true));
+    assertThat(AbstractChatTabController.mayContainUrl("mailto:junit"), is(true));
+  }
+
+  @Test
+  public void testMessageBurstIsAppendedInOrder() throws Exception {
+    assertTrue(chatReadyLatch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    preferences.getChat().setMaxMessages(2000);
+    int messageCount = 1000;
+    long nanosPerMessage = TimeUnit.SECONDS.toNanos(1) / 500;
+
+    List<String> expectedTexts = new ArrayList<>();
+    int maxPendingMessages = 0;
+    long startTime = System.nanoTime();
+    for (int i = 0; i < messageCount; i++) {
+      LockSupport.parkNanos(startTime + i * nanosPerMessage - System.nanoTime());
+      String text = "message " + i;
+      // Three consecutive messages of the same player end up in the same chat section
+      instance.onChatMessage(new ChatMessage("#aeolus", Instant.now(), "player" + (i / 3) % 7, text));
+      expectedTexts.add(text);
+      maxPendingMessages = Math.max(maxPendingMessages, instance.getPendingMessageCount());
+    }
+    WaitForAsyncUtils.waitFor(TIMEOUT, TimeUnit.MILLISECONDS, () -> instance.getPendingMessageCount() == 0);
+
+    assertThat(WaitForAsyncUtils.asyncFx(() -> getTexts()).get(), is(String.join("\n", expectedTexts)));
+    assertThat(WaitForAsyncUtils.asyncFx(() -> countSections()).get(), is(messageCount / 3 + 1));
+    assertThat(maxPendingMessages, lessThanOrEqualTo(100));
+  }
+
+  @Test
+  public void testOldestSectionsAreRemoved() throws Exception {
+    assertTrue(chatReadyLatch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    preferences.getChat().setMaxMessages(5);
+
+    for (int i = 0; i < 20; i++) {
+      instance.onChatMessage(new ChatMessage("#aeolus", Instant.now(), "player" + i, "message " + i));
+    }
+    WaitForAsyncUtils.waitFor(TIMEOUT, TimeUnit.MILLISECONDS, () -> instance.getPendingMessageCount() == 0);
+
+    assertThat(WaitForAsyncUtils.asyncFx(() -> countSections()).get(), is(5));
+    assertThat(WaitForAsyncUtils.asyncFx(() -> getTexts()).get(), is("message 15\nmessage 16\nmessage 17\nmessage 18\nmessage 19"));
+  }
+
+  @Test
+  public void testSectionsAreHeldBackWhileScrolledUp() throws Exception {
+    assertTrue(chatReadyLatch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    preferences.getChat().setMaxMessages(5);
+    // Sections taller than the viewport, so that only the first one is visible once the user scrolled to the top
+    WaitForAsyncUtils.asyncFx(() -> instance.engine.executeScript("var style = document.createElement('style');"
+        + "style.textContent = '.chat-section { display: block; height: 2000px; }';"
+        + "document.head.appendChild(style);")).get();
+
+    for (int i = 0; i < 5; i++) {
+      instance.onChatMessage(new ChatMessage("#aeolus", Instant.now(), "player" + i, "message " + i));
+    }
+    WaitForAsyncUtils.waitFor(TIMEOUT, TimeUnit.MILLISECONDS, () -> instance.getPendingMessageCount() == 0);
+    WaitForAsyncUtils.asyncFx(() -> instance.engine.executeScript("window.scrollTo(0, 0)")).get();
+    WaitForAsyncUtils.waitFor(TIMEOUT, TimeUnit.MILLISECONDS,
+        () -> WaitForAsyncUtils.asyncFx(() -> instance.engine.executeScript("isScrolledToBottom")).get() == Boolean.FALSE);
+
+    for (int i = 5; i < 40; i++) {
+      instance.onChatMessage(new ChatMessage("#aeolus", Instant.now(), "player" + i, "message " + i));
+    }
+    WaitForAsyncUtils.waitFor(TIMEOUT, TimeUnit.MILLISECONDS, () -> instance.getPendingMessageCount() == 0);
+
+    // The messages the user reads stay, the newest ones are held back
+    assertThat(WaitForAsyncUtils.asyncFx(() -> getTexts()).get(), is("message 0\nmessage 1\nmessage 2\nmessage 3\nmessage 4"));
+    assertThat(WaitForAsyncUtils.asyncFx(() -> instance.engine.executeScript("heldSections.children.length")).get(), is(5));
+
+    WaitForAsyncUtils.asyncFx(() -> instance.engine.executeScript("window.scrollTo(0, document.documentElement.scrollHeight)")).get();
+    WaitForAsyncUtils.waitFor(TIMEOUT, TimeUnit.MILLISECONDS,
+        () -> WaitForAsyncUtils.asyncFx(() -> getTexts()).get().equals("message 35\nmessage 36\nmessage 37\nmessage 38\nmessage 39"));
+    assertThat(WaitForAsyncUtils.asyncFx(() -> countSections()).get(), is(5));
+  }
+
+  @Test
+  public void testPendingMessagesAreCappedAndMentionsReported() throws Exception {
+    preferences.getChat().setMaxMessages(10);
+
+    // As long as the application thread is busy, no messages are appended
+    int pendingMessageCount = WaitForAsyncUtils.asyncFx(() -> {
+      for (int i = 0; i < 50; i++) {
+        String text = i % 10 == 0 ? "hey junit " + i : "message " + i;
+        instance.onChatMessage(new ChatMessage("#aeolus", Instant.now(), "player" + i, text));
+      }
+      // Messages of the same sender share a chat section, so they are dropped or kept together
+      instance.onChatMessage(new ChatMessage("#aeolus", Instant.now(), "player49", "another message"));
+      return instance.getPendingMessageCount();
+    }).get();
+
+    assertThat(pendingMessageCount, is(11));
+    WaitForAsyncUtils.waitFor(TIMEOUT, TimeUnit.MILLISECONDS, () -> mentions.size() == 5);
+    assertThat(mentions, contains("hey junit 0", "hey junit 10", "hey junit 20", "hey junit 30", "hey junit 40"));
+  }
+
+  @Test
+  public void testOlderMessagesArePrependedFromHistory() throws Exception {
+    assertTrue(chatReadyLatch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    Instant now = Instant.now();
+    instance.setReceiver("#aeolus");
+    instance.onChatMessage(new ChatMessage("#aeolus", now, "player1", "live message"));
+    WaitForAsyncUtils.waitFor(TIMEOUT, TimeUnit.MILLISECONDS, () -> instance.getPendingMessageCount() == 0);
+
+    when(chatHistoryService.getMessagesBefore("#aeolus", now, 100)).thenReturn(completedFuture(List.of(
+        new ChatMessage("#aeolus", now.minusSeconds(120), "player2", "older message"),
+        new ChatMessage("#aeolus", now.minusSeconds(119), "player2", "old message")
+    )));
+    when(chatHistoryService.getMessagesBefore("#aeolus", now.minusSeconds(120), 100)).thenReturn(completedFuture(List.of()));
+
+    WaitForAsyncUtils.asyncFx(() -> instance.loadOlderMessages()).get();
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertThat(WaitForAsyncUtils.asyncFx(() -> getTexts()).get(), is("older message\nold message\nlive message"));
+    assertThat(WaitForAsyncUtils.asyncFx(() -> countSections()).get(), is(2));
+
+    // Once the history has been exhausted, it's not queried anymore
+    WaitForAsyncUtils.asyncFx(() -> instance.loadOlderMessages()).get();
+    WaitForAsyncUtils.waitForFxEvents();
+    WaitForAsyncUtils.asyncFx(() -> instance.loadOlderMessages()).get();
+    verify(chatHistoryService, times(2)).getMessagesBefore(any(), any(), anyInt());
+  }
+
+  @Test
+  public void testPrependedSectionsAreCapped() throws Exception {
+    assertTrue(chatReadyLatch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    preferences.getChat().setMaxMessages(2);
+    Instant now = Instant.now();
+    instance.setReceiver("#aeolus");
+    instance.onChatMessage(new ChatMessage("#aeolus", now, "player1", "live message"));
+    WaitForAsyncUtils.waitFor(TIMEOUT, TimeUnit.MILLISECONDS, () -> instance.getPendingMessageCount() == 0);
+
+    when(chatHistoryService.getMessagesBefore("#aeolus", now, 100)).thenReturn(completedFuture(List.of(
+        new ChatMessage("#aeolus", now.minusSeconds(3), "player2", "old message 2"),
+        new ChatMessage("#aeolus", now.minusSeconds(2), "player3", "old message 3"),
+        new ChatMessage("#aeolus", now.minusSeconds(1), "player4", "old message 4")
+    )));
+
+    WaitForAsyncUtils.asyncFx(() -> instance.loadOlderMessages()).get();
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertThat(WaitForAsyncUtils.asyncFx(() -> countSections()).get(), is(2));
+    assertThat(WaitForAsyncUtils.asyncFx(() -> getTexts()).get(), is("old message 4\nlive message"));
+  }
+
+  private String getTexts() {
+    return (String) instance.engine.executeScript("Array.prototype.map.call(document.getElementsByClassName('text'), "
+        + "function (element) { return element.textContent; }).join('\\n')");
+  }
+
+  private int countSections() {
+    return (int) instance.engine.executeScript("document.getElementsByClassName('chat-section').length");
+  }
 }
@@ -1,6 +1,7 @@
 package com.faforever.client.chat;
 
 import com.faforever.client.audio.AudioService;
+import com.faforever.client.chat.history.ChatHistoryService;
 import com.faforever.client.fx.PlatformService;
 import com.faforever.client.fx.WebViewConfigurer;
 import com.faforever.client.i18n.I18n;
@@ -33,10 +34,18 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testfx.util.WaitForAsyncUtils;
 
+import java.lang.invoke.MethodHandles;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.faforever.client.player.SocialStatus.FOE;
 import static com.faforever.client.theme.UiService.CHAT_CONTAINER;
@@ -57,6 +66,7 @@ import static org.mockito.Mockito.when;
 
 public class ChannelTabControllerTest extends AbstractPlainJavaFxTest {
 
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private static final String USER_NAME = "junit";
   private static final String CHANNEL_NAME = "#testChannel";
 
@@ -101,6 +111,8 @@ public class ChannelTabControllerTest extends AbstractPlainJavaFxTest {
   private CountryFlagService countryFlagService;
   @Mock
   private PlatformService platformService;
+  @Mock
+  private ChatHistoryService chatHistoryService;
   private Preferences preferences;
   private Channel defaultChannel;
 
@@ -111,7 +123,7 @@ public class ChannelTabControllerTest extends AbstractPlainJavaFxTest {
         audioService, timeService, i18n, imageUploadService,
         notificationService, reportingService,
         uiService, eventBus, webViewConfigurer, countryFlagService,
-        platformService);
+        platformService, chatHistoryService);
 
     defaultChannel = new Channel(CHANNEL_NAME);
     preferences = new Preferences();
@@ -380,6 +392,56 @@ public class ChannelTabControllerTest extends AbstractPlainJavaFxTest {
     assertFalse(userStillListedInCategoryMap);
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testJoinAndLeaveStorm() throws Exception {
+    instance.setChannel(defaultChannel);
+
+    ArgumentCaptor<MapChangeListener<String, ChatChannelUser>> captor = ArgumentCaptor.forClass(MapChangeListener.class);
+    verify(chatService).addUsersListener(anyString(), captor.capture());
+    ObservableMap<String, ChatChannelUser> userMap = FXCollections.observableHashMap();
+    userMap.addListener(captor.getValue());
+
+    int userCount = 5000;
+    long startTime = System.nanoTime();
+    CompletableFuture.runAsync(() -> {
+      for (int i = userCount - 1; i >= 0; i--) {
+        ChatChannelUser chatUser = ChatChannelUserBuilder.create(String.format("user%04d", i)).moderator(i % 100 == 0).get();
+        userMap.put(chatUser.getUsername(), chatUser);
+      }
+    }).get(10, TimeUnit.SECONDS);
+    WaitForAsyncUtils.waitForFxEvents();
+    long joinMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+    assertThat(instance.chatUserListView.getItems().size(), is(ChatUserCategory.values().length + userCount + userCount / 100));
+    assertThat(getUsernames(ChatUserCategory.CHAT_ONLY), is(IntStream.range(0, userCount)
+        .mapToObj(i -> String.format("user%04d", i))
+        .collect(Collectors.toList())));
+    assertThat(getUsernames(ChatUserCategory.MODERATOR).size(), is(userCount / 100));
+
+    startTime = System.nanoTime();
+    CompletableFuture.runAsync(() -> {
+      for (int i = 0; i < userCount; i += 2) {
+        userMap.remove(String.format("user%04d", i));
+      }
+    }).get(10, TimeUnit.SECONDS);
+    WaitForAsyncUtils.waitForFxEvents();
+    long leaveMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+    assertThat(instance.chatUserListView.getItems().size(), is(ChatUserCategory.values().length + userCount / 2));
+    assertThat(getUsernames(ChatUserCategory.CHAT_ONLY), is(IntStream.range(0, userCount / 2)
+        .mapToObj(i -> String.format("user%04d", i * 2 + 1))
+        .collect(Collectors.toList())));
+    assertThat(getUsernames(ChatUserCategory.MODERATOR), is(List.of()));
+    logger.info("{} users joined in {} ms, half of them left in {} ms", userCount, joinMillis, leaveMillis);
+  }
+
+  private List<String> getUsernames(ChatUserCategory category) {
+    return instance.categoriesToUserListItems.get(category).stream()
+        .map(item -> item.getUser().getUsername())
+        .collect(Collectors.toList());
+  }
+
   @Test
   public void testChannelTopicUpdate() {
     defaultChannel.setTopic("topc1: https://faforever.com");
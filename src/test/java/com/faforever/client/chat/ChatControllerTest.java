@@ -93,6 +93,19 @@ public class ChatControllerTest extends AbstractPlainJavaFxTest {
     verify(privateChatTabController, never()).onChatMessage(chatMessage);
   }
 
+  @Test
+  public void testMessageForOpenTabIsQueuedWithoutApplicationThread() throws Exception {
+    when(channelTabController.getRoot()).thenReturn(new Tab());
+    ChatMessage firstMessage = new ChatMessage(TEST_CHANNEL_NAME, Instant.now(), TEST_USER_NAME, "first");
+    instance.onChatMessage(new ChatMessageEvent(firstMessage));
+    WaitForAsyncUtils.waitForFxEvents();
+
+    ChatMessage secondMessage = new ChatMessage(TEST_CHANNEL_NAME, Instant.now(), TEST_USER_NAME, "second");
+    instance.onChatMessage(new ChatMessageEvent(secondMessage));
+
+    verify(channelTabController).onChatMessage(secondMessage);
+  }
+
   @Test
   public void testOnDisconnected() throws Exception {
     connectionState.set(ConnectionState.DISCONNECTED);
@@ -0,0 +1,119 @@
+package com.faforever.client.chat;
+
+import com.faforever.client.player.PlayerBuilder;
+import com.faforever.client.player.SocialStatus;
+import javafx.collections.ListChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.faforever.client.chat.ChatUserCategory.CHAT_ONLY;
+import static com.faforever.client.chat.ChatUserCategory.FOE;
+import static com.faforever.client.chat.ChatUserCategory.FRIEND;
+import static com.faforever.client.chat.ChatUserCategory.MODERATOR;
+import static com.faforever.client.chat.ChatUserCategory.OTHER;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class ChatUserListModelTest {
+
+  private ChatUserListModel instance;
+
+  @Before
+  public void setUp() {
+    instance = new ChatUserListModel();
+  }
+
+  @Test
+  public void testEmptyListContainsCategories() {
+    assertThat(describe(instance), contains("MODERATOR", "FRIEND", "OTHER", "CHAT_ONLY", "FOE"));
+  }
+
+  @Test
+  public void testUsersAreSortedWithinCategories() {
+    instance.addOrUpdate(ChatChannelUserBuilder.create("b").get());
+    instance.addOrUpdate(ChatChannelUserBuilder.create("A").get());
+    instance.addOrUpdate(ChatChannelUserBuilder.create("mod").moderator(true).get());
+    instance.addOrUpdate(ChatChannelUserBuilder.create("z").setPlayer(PlayerBuilder.create("z").socialStatus(SocialStatus.OTHER).get()).get());
+    instance.addOrUpdate(ChatChannelUserBuilder.create("self").setPlayer(PlayerBuilder.create("self").socialStatus(SocialStatus.SELF).get()).get());
+    instance.addOrUpdate(ChatChannelUserBuilder.create("c").get());
+
+    assertThat(describe(instance), contains(
+        "MODERATOR", "mod", "FRIEND", "OTHER", "self", "z", "CHAT_ONLY", "A", "b", "c", "mod", "FOE"));
+    assertThat(describe(instance.getUserItemsByCategory().get(CHAT_ONLY)), contains("A", "b", "c", "mod"));
+  }
+
+  @Test
+  public void testUpdateMovesUserInOneChange() {
+    ChatChannelUser chatUser = ChatChannelUserBuilder.create("junit").get();
+    instance.addOrUpdate(chatUser);
+
+    AtomicInteger changeCount = new AtomicInteger();
+    instance.addListener((ListChangeListener<CategoryOrChatUserListItem>) change -> changeCount.incrementAndGet());
+
+    instance.addOrUpdate(chatUser);
+    assertThat(changeCount.get(), is(0));
+
+    chatUser.setPlayer(PlayerBuilder.create("junit").socialStatus(SocialStatus.FRIEND).get());
+    chatUser.setModerator(true);
+    instance.addOrUpdate(chatUser);
+
+    assertThat(changeCount.get(), is(1));
+    assertThat(describe(instance), contains("MODERATOR", "junit", "FRIEND", "junit", "OTHER", "CHAT_ONLY", "FOE"));
+    assertThat(instance.getUserItemsByCategory().get(CHAT_ONLY), empty());
+  }
+
+  @Test
+  public void testRemove() {
+    instance.addOrUpdate(ChatChannelUserBuilder.create("junit").moderator(true).get());
+    instance.addOrUpdate(ChatChannelUserBuilder.create("other").get());
+
+    instance.remove("junit");
+    instance.remove("unknown");
+
+    assertThat(describe(instance), contains("MODERATOR", "FRIEND", "OTHER", "CHAT_ONLY", "other", "FOE"));
+    assertThat(instance.getUserItemsByCategory().get(MODERATOR), empty());
+    assertThat(instance.getUserItemsByCategory().get(FRIEND), empty());
+    assertThat(instance.getUserItemsByCategory().get(OTHER), empty());
+    assertThat(instance.getUserItemsByCategory().get(FOE), empty());
+  }
+
+  @Test
+  public void testChangesMatchList() {
+    List<CategoryOrChatUserListItem> copy = new ArrayList<>(instance);
+    instance.addListener((ListChangeListener<CategoryOrChatUserListItem>) change -> {
+      while (change.next()) {
+        copy.subList(change.getFrom(), change.getFrom() + change.getRemovedSize()).clear();
+        copy.addAll(change.getFrom(), change.getAddedSubList());
+      }
+    });
+
+    List<ChatChannelUser> chatUsers = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      ChatChannelUser chatUser = ChatChannelUserBuilder.create("user" + (i * 37 % 100)).moderator(i % 7 == 0).get();
+      chatUsers.add(chatUser);
+      instance.addOrUpdate(chatUser);
+    }
+    for (int i = 0; i < 100; i += 3) {
+      chatUsers.get(i).setPlayer(PlayerBuilder.create(chatUsers.get(i).getUsername()).socialStatus(i % 2 == 0 ? SocialStatus.FOE : SocialStatus.FRIEND).get());
+      instance.addOrUpdate(chatUsers.get(i));
+    }
+    for (int i = 0; i < 100; i += 5) {
+      instance.remove(chatUsers.get(i).getUsername());
+    }
+
+    assertThat(copy, is(new ArrayList<>(instance)));
+  }
+
+  private static List<String> describe(List<CategoryOrChatUserListItem> items) {
+    return items.stream()
+        .map(item -> item.getUser() != null ? item.getUser().getUsername() : item.getCategory().name())
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,169 @@
+package com.faforever.client.chat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Locale.US;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ChatUserRegistryTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private ChatUserRegistry instance;
+  private Set<String> usersByName;
+
+  @Before
+  public void setUp() {
+    instance = new ChatUserRegistry();
+    usersByName = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    instance.addUsersByNameListener(change -> {
+      if (change.wasRemoved()) {
+        usersByName.remove(change.getKey());
+      }
+      if (change.wasAdded()) {
+        usersByName.add(change.getKey());
+      }
+    });
+  }
+
+  @Test
+  public void testLookupsAreCaseInsensitive() {
+    ChatChannelUser chatUser = join("Junit", "#Channel");
+
+    assertThat(instance.get("JUNIT", "#channel"), sameInstance(chatUser));
+    assertThat(join("junit", "#CHANNEL"), sameInstance(chatUser));
+    assertThat(instance.getChannelUsers("jUnit").keySet(), contains("#Channel"));
+  }
+
+  @Test
+  public void testUsersByNameContainsUserUntilLastChannelIsLeft() {
+    join("junit", "#a");
+    join("junit", "#b");
+
+    instance.remove("junit", "#a");
+    assertThat(usersByName, contains("junit"));
+
+    instance.remove("junit", "#b");
+    assertThat(usersByName, empty());
+    assertThat(instance.getChannelUsers("junit").isEmpty(), is(true));
+  }
+
+  @Test
+  public void testRemoveChannel() {
+    join("junit", "#a");
+    join("junit", "#b");
+    join("other", "#a");
+
+    assertThat(instance.removeChannel("#A").size(), is(2));
+
+    assertThat(instance.get("junit", "#a"), nullValue());
+    assertThat(instance.getChannelUsers("junit").keySet(), contains("#b"));
+    assertThat(usersByName, contains("junit"));
+  }
+
+  /**
+   * Replays a random sequence of IRC events of 10,000 users in 50 channels and compares the registry with a plain model
+   * of which user is in which channel.
+   */
+  @Test
+  public void testManyUsersInManyChannels() {
+    int userCount = 10_000;
+    int channelCount = 50;
+    Random random = new Random(1);
+
+    List<String> nicks = new ArrayList<>();
+    for (int i = 0; i < userCount; i++) {
+      nicks.add("user" + i);
+    }
+    Map<String, Set<String>> expectedChannelsByUser = new HashMap<>();
+
+    long startTime = System.nanoTime();
+    for (int i = 0; i < userCount; i++) {
+      for (int j = 0; j < 5; j++) {
+        String channelName = "#channel" + random.nextInt(channelCount);
+        join(nicks.get(i), channelName);
+        expectedChannelsByUser.computeIfAbsent(key(nicks.get(i)), nick -> new HashSet<>()).add(channelName);
+      }
+    }
+    long joinMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+    int eventCount = 200_000;
+    startTime = System.nanoTime();
+    for (int i = 0; i < eventCount; i++) {
+      int userIndex = random.nextInt(userCount);
+      String nick = nicks.get(userIndex);
+      String channelName = "#channel" + random.nextInt(channelCount);
+      Set<String> expectedChannels = expectedChannelsByUser.computeIfAbsent(key(nick), name -> new HashSet<>());
+
+      int eventType = random.nextInt(100);
+      if (eventType < 50) {
+        join(nick, channelName);
+        expectedChannels.add(channelName);
+      } else if (eventType < 75) {
+        // IRC servers don't always use the same case as the join did
+        instance.remove(nick.toUpperCase(US), channelName);
+        expectedChannels.remove(channelName);
+      } else if (eventType < 85) {
+        instance.getChannelUsers(nick).keySet().forEach(name -> instance.remove(nick, name));
+        expectedChannels.clear();
+      } else {
+        String newNick = nick + "_";
+        instance.getChannelUsers(nick).forEach((name, chatUser) -> {
+          instance.remove(nick, name);
+          join(newNick, name);
+        });
+        nicks.set(userIndex, newNick);
+        expectedChannelsByUser.put(key(newNick), expectedChannelsByUser.remove(key(nick)));
+      }
+    }
+    long eventMillis = (System.nanoTime() - startTime) / 1_000_000;
+    logger.info("Joined {} users to {} channels in {} ms, processed {} further events in {} ms",
+        userCount, channelCount, joinMillis, eventCount, eventMillis);
+
+    Map<String, Set<String>> expectedUsersByChannel = new HashMap<>();
+    for (String nick : nicks) {
+      Set<String> expectedChannels = expectedChannelsByUser.getOrDefault(key(nick), Set.of());
+      assertThat(nick, instance.getChannelUsers(nick).keySet(), is(expectedChannels));
+      assertThat(nick, usersByName.contains(nick), is(!expectedChannels.isEmpty()));
+      for (String channelName : expectedChannels) {
+        expectedUsersByChannel.computeIfAbsent(channelName, name -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER)).add(nick);
+        assertThat(instance.get(nick, channelName), sameInstance(instance.getChannelUsers(nick).get(channelName)));
+      }
+    }
+    for (int i = 0; i < channelCount; i++) {
+      String channelName = "#channel" + i;
+      assertThat(channelName, instance.getUsersInChannel(channelName).keySet(),
+          is(expectedUsersByChannel.getOrDefault(channelName, Set.of())));
+    }
+    assertThat(usersByName.size(), is((int) expectedChannelsByUser.values().stream().filter(channels -> !channels.isEmpty()).count()));
+    assertThat(eventMillis, lessThan(TimeUnit.SECONDS.toMillis(30)));
+  }
+
+  private ChatChannelUser join(String username, String channelName) {
+    return instance.computeIfAbsent(username, channelName, () -> new ChatChannelUser(username, null, false));
+  }
+
+  private static String key(String nick) {
+    return nick.toLowerCase(US);
+  }
+}
@@ -0,0 +1,40 @@
+package com.faforever.client.chat;
+
+import com.faforever.client.test.AbstractPlainJavaFxTest;
+import javafx.scene.image.Image;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CountryFlagServiceTest extends AbstractPlainJavaFxTest {
+
+  private CountryFlagService instance;
+
+  @Before
+  public void setUp() {
+    instance = new CountryFlagService();
+  }
+
+  @Test
+  public void testGetCountryFlagUrl() {
+    assertThat(instance.getCountryFlagUrl("DE").map(URL::toString).orElseThrow(), endsWith("/images/flags/de.png"));
+    assertThat(instance.getCountryFlagUrl("A1").map(URL::toString).orElseThrow(), endsWith("/images/flags/earth.png"));
+    assertThat(instance.getCountryFlagUrl("").map(URL::toString).orElseThrow(), endsWith("/images/flags/earth.png"));
+    assertThat(instance.getCountryFlagUrl("XYZ").isPresent(), is(false));
+    assertThat(instance.getCountryFlagUrl(null).isPresent(), is(false));
+  }
+
+  @Test
+  public void testFlagIsLoadedOnce() {
+    Image flag = instance.loadCountryFlag("de").orElseThrow();
+
+    assertThat(instance.loadCountryFlag("DE").orElseThrow(), is(sameInstance(flag)));
+    assertThat(instance.loadCountryFlag("XYZ").isPresent(), is(false));
+  }
+}
@@ -0,0 +1,311 @@
+package com.faforever.client.chat;
+
+import com.faforever.client.chat.IrcSendQueue.Priority;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertTrue;
+
+public class IrcSendQueueTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int BURST = 5;
+  private static final long INTERVAL_MILLIS = 50;
+  private static final long TIMEOUT = 10;
+  private static final TimeUnit TIMEOUT_UNIT = TimeUnit.SECONDS;
+  private static final String CHANNEL = "#aeolus";
+
+  private FakeIrcServer server;
+  private Socket clientSocket;
+  private IrcSendQueue instance;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FakeIrcServer(BURST, INTERVAL_MILLIS);
+    clientSocket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    instance = new IrcSendQueue(socketWriter(clientSocket), BURST, INTERVAL_MILLIS);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    instance.stop();
+    clientSocket.close();
+    server.close();
+  }
+
+  @Test
+  public void testPasteArrivesInOrderWithoutFlooding() throws Exception {
+    List<String> pastedLines = IntStream.range(0, 30).mapToObj(i -> "line " + i).collect(Collectors.toList());
+    instance.start();
+
+    long startTime = System.nanoTime();
+    instance.sendMessage(CHANNEL, String.join("\n", pastedLines)).get(TIMEOUT, TIMEOUT_UNIT);
+    server.awaitLines(pastedLines.size());
+    long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+    assertThat(server.getLines(), is(pastedLines.stream()
+        .map(line -> "PRIVMSG " + CHANNEL + " :" + line)
+        .collect(Collectors.toList())));
+    assertThat(server.isFlooded(), is(false));
+    // After the burst, one line per interval
+    assertThat(elapsedMillis, greaterThanOrEqualTo((pastedLines.size() - BURST - 1) * INTERVAL_MILLIS));
+    logger.info("Sent {} lines in {} ms", pastedLines.size(), elapsedMillis);
+  }
+
+  @Test
+  public void testSendingDirectlyFloods() throws Exception {
+    Consumer<String> writer = socketWriter(clientSocket);
+    for (int i = 0; i < 30; i++) {
+      writer.accept("PRIVMSG " + CHANNEL + " :line " + i);
+    }
+    server.awaitLines(30);
+
+    assertThat(server.isFlooded(), is(true));
+  }
+
+  @Test
+  public void testControlLinesComeFirst() throws Exception {
+    CompletableFuture<Void> messageFuture = instance.sendMessage(CHANNEL, "one\ntwo\nthree");
+    CompletableFuture<Void> joinFuture = instance.sendLine(Priority.CONTROL, "JOIN #other");
+    instance.start();
+
+    messageFuture.get(TIMEOUT, TIMEOUT_UNIT);
+    assertTrue(joinFuture.isDone());
+    server.awaitLines(4);
+
+    assertThat(server.getLines(), contains(
+        "JOIN #other",
+        "PRIVMSG " + CHANNEL + " :one",
+        "PRIVMSG " + CHANNEL + " :two",
+        "PRIVMSG " + CHANNEL + " :three"
+    ));
+  }
+
+  @Test
+  public void testSendAction() throws Exception {
+    instance.start();
+    instance.sendAction(CHANNEL, "waves").get(TIMEOUT, TIMEOUT_UNIT);
+    server.awaitLines(1);
+
+    assertThat(server.getLines(), contains("PRIVMSG " + CHANNEL + " :\u0001ACTION waves\u0001"));
+  }
+
+  @Test
+  public void testEmptyMessageCompletesImmediately() {
+    assertTrue(instance.sendMessage(CHANNEL, "\n \n").isDone());
+    assertThat(instance.getQueuedLineCount(), is(0));
+  }
+
+  @Test
+  public void testFailedLineFailsMessage() throws Exception {
+    List<String> writtenLines = Collections.synchronizedList(new ArrayList<>());
+    IrcSendQueue failingQueue = new IrcSendQueue(line -> {
+      if (line.endsWith("two")) {
+        throw new IllegalStateException("Not connected");
+      }
+      writtenLines.add(line);
+    }, BURST, INTERVAL_MILLIS);
+    failingQueue.start();
+
+    CompletableFuture<Void> future = failingQueue.sendMessage(CHANNEL, "one\ntwo\nthree");
+    CompletableFuture<Void> nextFuture = failingQueue.sendMessage(CHANNEL, "four");
+    nextFuture.get(TIMEOUT, TIMEOUT_UNIT);
+    failingQueue.stop();
+
+    assertTrue(future.isCompletedExceptionally());
+    assertThat(writtenLines, contains("PRIVMSG " + CHANNEL + " :one", "PRIVMSG " + CHANNEL + " :four"));
+  }
+
+  @Test
+  public void testStopCancelsQueuedLines() {
+    List<Integer> counts = Collections.synchronizedList(new ArrayList<>());
+    instance.setQueuedLineCountListener(counts::add);
+
+    CompletableFuture<Void> future = instance.sendMessage(CHANNEL, "one\ntwo");
+    assertThat(instance.getQueuedLineCount(), is(2));
+
+    instance.stop();
+
+    assertTrue(future.isCancelled());
+    assertThat(instance.getQueuedLineCount(), is(0));
+    assertThat(counts, contains(2, 0));
+  }
+
+  @Test
+  public void testSplitAtLineBreaks() {
+    assertThat(IrcSendQueue.splitPrivmsg(CHANNEL, "a\r\nb\rc\n\nd", "", ""), contains(
+        "PRIVMSG " + CHANNEL + " :a",
+        "PRIVMSG " + CHANNEL + " :b",
+        "PRIVMSG " + CHANNEL + " :c",
+        "PRIVMSG " + CHANNEL + " :d"
+    ));
+  }
+
+  @Test
+  public void testSplitLongMessagePreferablyAtSpaces() {
+    String word = "word";
+    String message = IntStream.range(0, 300).mapToObj(i -> word).collect(Collectors.joining(" "));
+
+    List<String> lines = IrcSendQueue.splitPrivmsg(CHANNEL, message, "", "");
+
+    assertThat(lines.size(), greaterThanOrEqualTo(4));
+    assertThat(lines.stream().map(line -> line.getBytes(UTF_8).length).collect(Collectors.toList()),
+        everyItem(lessThanOrEqualTo(IrcSendQueue.MAX_LINE_BYTES)));
+    String prefix = "PRIVMSG " + CHANNEL + " :";
+    assertThat(lines.stream()
+        .map(line -> line.substring(prefix.length()))
+        .collect(Collectors.joining(" ")), is(message));
+  }
+
+  @Test
+  public void testSplitDoesNotBreakCodePoints() {
+    String message = "😀".repeat(300) + "äöü".repeat(200);
+
+    List<String> lines = IrcSendQueue.splitPrivmsg(CHANNEL, message, "\u0001ACTION ", "\u0001");
+
+    String prefix = "PRIVMSG " + CHANNEL + " :\u0001ACTION ";
+    StringBuilder joined = new StringBuilder();
+    for (String line : lines) {
+      assertThat(line.getBytes(UTF_8).length, lessThanOrEqualTo(IrcSendQueue.MAX_LINE_BYTES));
+      assertTrue(line.startsWith(prefix) && line.endsWith("\u0001"));
+      joined.append(line, prefix.length(), line.length() - 1);
+    }
+    assertThat(joined.toString(), is(message));
+    // A split surrogate pair wouldn't survive encoding
+    assertThat(lines.stream().map(line -> new String(line.getBytes(UTF_8), UTF_8).equals(line)).collect(Collectors.toList()),
+        everyItem(is(true)));
+  }
+
+  @Test
+  public void testBlankLinesAreSkipped() {
+    assertThat(IrcSendQueue.splitPrivmsg(CHANNEL, "  \n\t", "", ""), empty());
+    assertThat(IrcSendQueue.splitPrivmsg(CHANNEL, "a\n \nb", "", ""), hasItem("PRIVMSG " + CHANNEL + " :b"));
+  }
+
+  private static Consumer<String> socketWriter(Socket socket) throws IOException {
+    OutputStream outputStream = socket.getOutputStream();
+    return line -> {
+      try {
+        outputStream.write((line + "\r\n").getBytes(UTF_8));
+        outputStream.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+
+  /**
+   * Accepts a single client and records the lines it receives. Like a real IRC server, it considers the client
+   * flooding if it sends more lines than a token bucket with the specified burst and interval permits.
+   */
+  private static class FakeIrcServer implements AutoCloseable {
+    /** Tolerance for scheduling jitter on the loopback connection. */
+    private static final double TOLERATED_EXCESS = 1;
+
+    private final ServerSocket serverSocket;
+    private final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    private final int burst;
+    private final long intervalNanos;
+    private final Thread thread;
+    private volatile boolean flooded;
+    private double tokens;
+    private long lastRefillTime;
+
+    FakeIrcServer(int burst, long intervalMillis) throws IOException {
+      this.burst = burst;
+      this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+      serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+      thread = new Thread(this::serve, "fake-irc-server");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    private void serve() {
+      try (Socket socket = serverSocket.accept();
+           BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8))) {
+        tokens = burst;
+        lastRefillTime = System.nanoTime();
+        String line;
+        while ((line = reader.readLine()) != null) {
+          long now = System.nanoTime();
+          tokens = Math.min(burst, tokens + (double) (now - lastRefillTime) / intervalNanos) - 1;
+          lastRefillTime = now;
+          if (tokens < -TOLERATED_EXCESS) {
+            flooded = true;
+          }
+          synchronized (lines) {
+            lines.add(line);
+            lines.notifyAll();
+          }
+        }
+      } catch (IOException e) {
+        logger.debug("Fake IRC server stopped", e);
+      }
+    }
+
+    void awaitLines(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + TIMEOUT_UNIT.toNanos(TIMEOUT);
+      synchronized (lines) {
+        while (lines.size() < count) {
+          long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (remainingMillis <= 0) {
+            throw new AssertionError("Received only " + lines.size() + " of " + count + " lines");
+          }
+          lines.wait(remainingMillis);
+        }
+      }
+    }
+
+    List<String> getLines() {
+      synchronized (lines) {
+        return new ArrayList<>(lines);
+      }
+    }
+
+    boolean isFlooded() {
+      return flooded;
+    }
+
+    @Override
+    public void close() throws Exception {
+      serverSocket.close();
+      thread.join(TimeUnit.SECONDS.toMillis(1));
+    }
+  }
+}
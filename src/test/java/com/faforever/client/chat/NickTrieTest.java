@@ -0,0 +1,170 @@
+package com.faforever.client.chat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static java.util.Locale.US;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class NickTrieTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private NickTrie instance;
+
+  @Before
+  public void setUp() {
+    instance = new NickTrie();
+  }
+
+  @Test
+  public void testCompleteIgnoresCase() {
+    instance.add("Downlord");
+    instance.add("dragonfire");
+    instance.add("Axle");
+
+    assertThat(instance.complete("d"), contains("Downlord", "dragonfire"));
+    assertThat(instance.complete("DOWN"), contains("Downlord"));
+    assertThat(instance.complete("downlord"), contains("Downlord"));
+    assertThat(instance.complete("downlords"), empty());
+  }
+
+  @Test
+  public void testNicksDifferingInCaseOnly() {
+    instance.add("junit");
+    instance.add("JUnit");
+    instance.add("junit");
+
+    assertThat(instance.size(), is(2));
+    assertThat(instance.complete("j"), contains("JUnit", "junit"));
+
+    instance.remove("JUnit");
+    assertThat(instance.complete("J"), contains("junit"));
+  }
+
+  @Test
+  public void testUnicodeNicks() {
+    instance.add("Ünïcode");
+    instance.add("ünter");
+    instance.add("Иван");
+    instance.add("игрок");
+    instance.add("玩家一");
+    instance.add("玩家二");
+    instance.add("😀smile");
+
+    assertThat(instance.complete("ü"), contains("ünter", "Ünïcode"));
+    assertThat(instance.complete("ÜNÏ"), contains("Ünïcode"));
+    assertThat(instance.complete("И"), contains("Иван", "игрок"));
+    assertThat(instance.complete("ив"), contains("Иван"));
+    assertThat(instance.complete("玩家"), contains("玩家一", "玩家二"));
+    assertThat(instance.complete("😀"), contains("😀smile"));
+  }
+
+  @Test
+  public void testRecentInteractionsComeFirst() {
+    instance.add("alpha");
+    instance.add("alfred");
+    instance.add("albert");
+
+    instance.recordInteraction("alpha");
+    instance.recordInteraction("alfred");
+    instance.recordInteraction("unknown");
+
+    assertThat(instance.complete("al"), contains("alfred", "alpha", "albert"));
+
+    instance.recordInteraction("alpha");
+    assertThat(instance.complete("al"), contains("alpha", "alfred", "albert"));
+  }
+
+  @Test
+  public void testNicksGoingOfflineAndOnline() {
+    instance.add("player");
+    instance.add("playerTwo");
+    instance.recordInteraction("playerTwo");
+
+    instance.remove("playerTwo");
+    instance.remove("unknown");
+    instance.remove("play");
+    assertThat(instance.complete("player"), contains("player"));
+    assertThat(instance.contains("playerTwo"), is(false));
+
+    instance.remove("player");
+    assertThat(instance.complete("p"), empty());
+    assertThat(instance.size(), is(0));
+
+    instance.add("playerTwo");
+    instance.add("player");
+    assertThat(instance.complete("PLAYER"), contains("player", "playerTwo"));
+  }
+
+  @Test
+  public void testManyNicks() {
+    Random random = new Random(1);
+    List<String> nicks = new ArrayList<>();
+    for (int i = 0; i < 50_000; i++) {
+      StringBuilder nick = new StringBuilder();
+      int length = 3 + random.nextInt(10);
+      for (int j = 0; j < length; j++) {
+        nick.append(random.nextInt(4) == 0 ? (char) ('A' + random.nextInt(26)) : (char) ('a' + random.nextInt(26)));
+      }
+      nicks.add(nick.toString());
+    }
+    nicks = nicks.stream().distinct().collect(Collectors.toList());
+
+    long startTime = System.nanoTime();
+    nicks.forEach(instance::add);
+    long addMillis = (System.nanoTime() - startTime) / 1_000_000;
+    assertThat(instance.size(), is(nicks.size()));
+
+    List<String> prefixes = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      String nick = nicks.get(random.nextInt(nicks.size()));
+      prefixes.add(nick.substring(0, 1 + random.nextInt(3)).toUpperCase(US));
+    }
+
+    startTime = System.nanoTime();
+    List<List<String>> completions = prefixes.stream().map(instance::complete).collect(Collectors.toList());
+    long trieMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+    startTime = System.nanoTime();
+    for (int i = 0; i < prefixes.size(); i++) {
+      assertThat(completions.get(i), is(completeByScanning(nicks, prefixes.get(i))));
+    }
+    long scanMillis = (System.nanoTime() - startTime) / 1_000_000;
+    logger.info("Added {} nicks in {} ms, completed {} prefixes in {} ms using the trie, {} ms by scanning all nicks",
+        nicks.size(), addMillis, prefixes.size(), trieMillis, scanMillis);
+
+    for (int i = 0; i < nicks.size(); i += 2) {
+      instance.remove(nicks.get(i));
+    }
+    List<String> remainingNicks = new ArrayList<>();
+    for (int i = 1; i < nicks.size(); i += 2) {
+      remainingNicks.add(nicks.get(i));
+    }
+    assertThat(instance.size(), is(remainingNicks.size()));
+    for (String prefix : prefixes) {
+      assertThat(instance.complete(prefix), is(completeByScanning(remainingNicks, prefix)));
+    }
+  }
+
+  /** Completes the way it used to be done. */
+  private static List<String> completeByScanning(List<String> nicks, String prefix) {
+    List<String> completions = nicks.stream()
+        .filter(nick -> nick.toLowerCase(US).startsWith(prefix.toLowerCase(US)))
+        .collect(Collectors.toList());
+    completions.sort(String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder()));
+    return completions;
+  }
+}
@@ -1,6 +1,7 @@
 package com.faforever.client.chat;
 
 import com.faforever.client.chat.event.ChatMessageEvent;
+import com.faforever.client.chat.history.ChatHistoryService;
 import com.faforever.client.config.ClientProperties;
 import com.faforever.client.fx.JavaFxUtil;
 import com.faforever.client.i18n.I18n;
@@ -15,8 +16,6 @@ import com.faforever.client.preferences.Preferences;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.remote.FafService;
 import com.faforever.client.remote.domain.SocialMessage;
-import com.faforever.client.task.CompletableTask;
-import com.faforever.client.task.TaskService;
 import com.faforever.client.test.AbstractPlainJavaFxTest;
 import com.faforever.client.user.UserService;
 import com.google.common.collect.ImmutableMap;
@@ -33,7 +32,6 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.pircbotx.Configuration;
 import org.pircbotx.PircBotX;
@@ -47,14 +45,15 @@ import org.pircbotx.hooks.events.ConnectEvent;
 import org.pircbotx.hooks.events.DisconnectEvent;
 import org.pircbotx.hooks.events.JoinEvent;
 import org.pircbotx.hooks.events.MessageEvent;
+import org.pircbotx.hooks.events.NickChangeEvent;
 import org.pircbotx.hooks.events.NoticeEvent;
 import org.pircbotx.hooks.events.OpEvent;
 import org.pircbotx.hooks.events.PartEvent;
 import org.pircbotx.hooks.events.PrivateMessageEvent;
 import org.pircbotx.hooks.events.QuitEvent;
 import org.pircbotx.hooks.events.UserListEvent;
-import org.pircbotx.output.OutputChannel;
 import org.pircbotx.output.OutputIRC;
+import org.pircbotx.output.OutputRaw;
 import org.pircbotx.snapshot.ChannelSnapshot;
 import org.pircbotx.snapshot.UserChannelDaoSnapshot;
 import org.pircbotx.snapshot.UserSnapshot;
@@ -86,11 +85,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -130,9 +129,9 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
   @Mock
   private OutputIRC outputIrc;
   @Mock
-  private UserService userService;
+  private OutputRaw outputRaw;
   @Mock
-  private TaskService taskService;
+  private UserService userService;
   @Mock
   private PreferencesService preferencesService;
   @Mock
@@ -151,6 +150,8 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
   private PlayerService playerService;
   @Mock
   private EventBus eventBus;
+  @Mock
+  private ChatHistoryService chatHistoryService;
 
   @Captor
   private ArgumentCaptor<Consumer<SocialMessage>> socialMessageListenerCaptor;
@@ -170,8 +171,8 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
         .setDefaultChannel(DEFAULT_CHANNEL_NAME)
         .setReconnectDelay(100);
 
-    instance = new PircBotXChatService(preferencesService, userService, taskService, fafService, i18n, pircBotXFactory,
-        executorService, eventBus, clientProperties, playerService);
+    instance = new PircBotXChatService(preferencesService, userService, fafService, i18n, notificationService,
+        pircBotXFactory, executorService, eventBus, clientProperties, playerService, chatHistoryService);
 
     botShutdownLatch = new CountDownLatch(1);
 
@@ -184,6 +185,7 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
     when(otherChannel.getName()).thenReturn(OTHER_CHANNEL_NAME);
     when(pircBotX.getConfiguration()).thenReturn(configuration);
     when(pircBotX.sendIRC()).thenReturn(outputIrc);
+    when(pircBotX.sendRaw()).thenReturn(outputRaw);
     when(pircBotX.getUserChannelDao()).thenReturn(userChannelDao);
 
     doAnswer(invocation -> {
@@ -191,13 +193,6 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
       return null;
     }).when(executorService).execute(any(Runnable.class));
 
-    doAnswer((InvocationOnMock invocation) -> {
-      @SuppressWarnings("unchecked")
-      CompletableTask<Void> task = invocation.getArgument(0);
-      task.run();
-      return task;
-    }).when(taskService).submitTask(any());
-
     botStartedFuture = new CompletableFuture<>();
     doAnswer(invocation -> {
       botStartedFuture.complete(true);
@@ -275,7 +270,7 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
     socialMessage.setChannels(Collections.emptyList());
 
     socialMessageListenerCaptor.getValue().accept(socialMessage);
-    verify(outputIrc, timeout(TIMEOUT).atLeastOnce()).joinChannel(DEFAULT_CHANNEL_NAME);
+    verify(outputRaw, timeout(TIMEOUT).atLeastOnce()).rawLineNow("JOIN " + DEFAULT_CHANNEL_NAME);
   }
 
   private void firePircBotXEvent(Event event) {
@@ -379,6 +374,22 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
     assertThat(channel.getUser(chatUser2.getUsername()), sameInstance(chatUser2));
   }
 
+  @Test
+  public void testOnChatUserNickChange() throws Exception {
+    Channel channel = instance.getOrCreateChannel(DEFAULT_CHANNEL_NAME);
+
+    connect();
+
+    joinChannel(defaultChannel, user1);
+    CompletableFuture<ChatChannelUser> future = listenForUserJoined(defaultChannel);
+    firePircBotXEvent(new NickChangeEvent(pircBotX, user1.getNick(), "renamed", user1, user1));
+    future.get(TIMEOUT, TIMEOUT_UNIT);
+
+    assertThat(channel.getUsers(), hasSize(1));
+    assertThat(channel.getUser("renamed").getUsername(), is("renamed"));
+    assertThat(instance.getChatUser("RENAMED", DEFAULT_CHANNEL_NAME), sameInstance(channel.getUser("renamed")));
+  }
+
   private void quit(User user) throws Exception {
     CompletableFuture<ChatChannelUser> future = listenForUserQuit();
     firePircBotXEvent(createQuitEvent(user));
@@ -610,7 +621,7 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
     CompletableFuture<String> future = instance.sendMessageInBackground(DEFAULT_CHANNEL_NAME, message).toCompletableFuture();
 
     assertThat(future.get(TIMEOUT, TIMEOUT_UNIT), is(message));
-    verify(outputIrc).message(DEFAULT_CHANNEL_NAME, message);
+    verify(outputRaw).rawLineNow("PRIVMSG " + DEFAULT_CHANNEL_NAME + " :" + message);
   }
 
   @Test
@@ -665,15 +676,10 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
 
   @Test
   public void testLeaveChannel() {
-    OutputChannel outputChannel = mock(OutputChannel.class);
-
-    when(userChannelDao.getChannel(DEFAULT_CHANNEL_NAME)).thenReturn(defaultChannel);
-    when(defaultChannel.send()).thenReturn(outputChannel);
-
     instance.connect();
     instance.leaveChannel(DEFAULT_CHANNEL_NAME);
 
-    verify(outputChannel).part();
+    verify(outputRaw, timeout(TIMEOUT)).rawLineNow("PART " + DEFAULT_CHANNEL_NAME);
   }
 
   @Test
@@ -685,7 +691,9 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
     CompletableFuture<String> future = instance.sendActionInBackground(DEFAULT_CHANNEL_NAME, action).toCompletableFuture();
 
     assertThat(future.get(TIMEOUT, TIMEOUT_UNIT), is(action));
-    verify(outputIrc).action(DEFAULT_CHANNEL_NAME, action);
+    verify(outputRaw).rawLineNow("PRIVMSG " + DEFAULT_CHANNEL_NAME + " :\u0001ACTION " + action + "\u0001");
+    verify(chatHistoryService).append(argThat(chatMessage -> chatMessage.isAction()
+        && chatMessage.getSource().equals(DEFAULT_CHANNEL_NAME) && chatMessage.getMessage().equals(action)));
   }
 
   @Test
@@ -717,8 +725,6 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
 
   @Test
   public void testJoinChannel() throws Exception {
-    reset(taskService);
-
     connect();
     botStartedFuture.get(TIMEOUT, TIMEOUT_UNIT);
 
@@ -727,7 +733,7 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
     String channelToJoin = "#anotherChannel";
     instance.joinChannel(channelToJoin);
 
-    verify(outputIrc).joinChannel(channelToJoin);
+    verify(outputRaw, timeout(TIMEOUT)).rawLineNow("JOIN " + channelToJoin);
   }
 
   @Test
@@ -752,7 +758,7 @@ public class PircBotXChatServiceTest extends AbstractPlainJavaFxTest {
     instance.connectionState.set(ConnectionState.CONNECTED);
 
     String md5sha256Password = Hashing.md5().hashString(Hashing.sha256().hashString(password, UTF_8).toString(), UTF_8).toString();
-    verify(outputIrc, timeout(100)).message("nickserv", String.format("register %s junit@users.faforever.com", md5sha256Password));
+    verify(outputRaw, timeout(TIMEOUT)).rawLineNow(String.format("PRIVMSG nickserv :register %s junit@users.faforever.com", md5sha256Password));
   }
 
   @Test
@@ -0,0 +1,85 @@
+package com.faforever.client.chat;
+
+import com.faforever.client.chat.history.ChatHistoryService;
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.i18n.I18n;
+import com.faforever.client.notification.NotificationService;
+import com.faforever.client.player.Player;
+import com.faforever.client.player.PlayerService;
+import com.faforever.client.preferences.Preferences;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.remote.FafService;
+import com.faforever.client.test.AbstractPlainJavaFxTest;
+import com.faforever.client.user.UserService;
+import com.google.common.eventbus.EventBus;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.testfx.util.WaitForAsyncUtils;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests how chat users are kept track of, which, unlike {@link PircBotXChatServiceTest}, doesn't need a connection.
+ */
+public class PircBotXChatServiceUsersTest extends AbstractPlainJavaFxTest {
+
+  private static final String CHANNEL_NAME = "#defaultChannel";
+
+  @Mock
+  private PreferencesService preferencesService;
+  @Mock
+  private UserService userService;
+  @Mock
+  private FafService fafService;
+  @Mock
+  private I18n i18n;
+  @Mock
+  private NotificationService notificationService;
+  @Mock
+  private PircBotXFactory pircBotXFactory;
+  @Mock
+  private ExecutorService executorService;
+  @Mock
+  private EventBus eventBus;
+  @Mock
+  private PlayerService playerService;
+  @Mock
+  private ChatHistoryService chatHistoryService;
+
+  private PircBotXChatService instance;
+
+  @Before
+  public void setUp() {
+    when(preferencesService.getPreferences()).thenReturn(new Preferences());
+
+    instance = new PircBotXChatService(preferencesService, userService, fafService, i18n, notificationService,
+        pircBotXFactory, executorService, eventBus, new ClientProperties(), playerService, chatHistoryService);
+  }
+
+  @Test
+  public void testNickChangeKeepsPlayerAndModerator() {
+    Player player = new Player("oldNick");
+    ChatChannelUser oldChatUser = instance.getOrCreateChatUser("oldNick", CHANNEL_NAME, true);
+    oldChatUser.setPlayer(player);
+    player.getChatChannelUsers().add(oldChatUser);
+    instance.getOrCreateChannel(CHANNEL_NAME).addUser(oldChatUser);
+
+    instance.onChatUserNickChanged("oldNick", "newNick");
+    WaitForAsyncUtils.waitForFxEvents();
+
+    ChatChannelUser newChatUser = instance.getChatUser("newNick", CHANNEL_NAME);
+    assertThat(newChatUser.isModerator(), is(true));
+    assertThat(newChatUser.getPlayer().orElseThrow(), is(sameInstance(player)));
+    assertThat(player.getChatChannelUsers(), contains(newChatUser));
+    assertThat(instance.getOrCreateChannel(CHANNEL_NAME).getUser("oldNick"), is(nullValue()));
+    assertThat(instance.getOrCreateChannel(CHANNEL_NAME).getUser("newNick"), is(sameInstance(newChatUser)));
+  }
+}
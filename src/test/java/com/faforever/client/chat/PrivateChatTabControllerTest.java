@@ -1,6 +1,7 @@
 package com.faforever.client.chat;
 
 import com.faforever.client.audio.AudioService;
+import com.faforever.client.chat.history.ChatHistoryService;
 import com.faforever.client.config.ClientProperties;
 import com.faforever.client.fx.WebViewConfigurer;
 import com.faforever.client.game.GameDetailController;
@@ -12,6 +13,7 @@ import com.faforever.client.player.PlayerService;
 import com.faforever.client.preferences.PreferencesService;
 import com.faforever.client.reporting.ReportingService;
 import com.faforever.client.test.AbstractPlainJavaFxTest;
+import com.faforever.client.theme.ThemeTemplate;
 import com.faforever.client.theme.UiService;
 import com.faforever.client.uploader.ImageUploadService;
 import com.faforever.client.user.UserService;
@@ -30,13 +32,17 @@ import org.testfx.util.WaitForAsyncUtils;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -76,6 +82,8 @@ public class PrivateChatTabControllerTest extends AbstractPlainJavaFxTest {
   private GameDetailController gameDetailController;
   @Mock
   private WatchButtonController watchButtonController;
+  @Mock
+  private ChatHistoryService chatHistoryService;
 
   private PrivateChatTabController instance;
   private String playerName;
@@ -87,7 +95,7 @@ public class PrivateChatTabControllerTest extends AbstractPlainJavaFxTest {
 
     instance = new PrivateChatTabController(userService, preferencesService, playerService, timeService,
         i18n, imageUploadService, notificationService, reportingService, uiService, eventBus,
-        audioService, chatService, webViewConfigurer, countryFlagService);
+        audioService, chatService, webViewConfigurer, countryFlagService, chatHistoryService);
 
 
     playerName = "testUser";
@@ -98,6 +106,9 @@ public class PrivateChatTabControllerTest extends AbstractPlainJavaFxTest {
     when(timeService.asShortTime(any())).thenReturn("");
     when(i18n.get(any(), any())).then(invocation -> invocation.getArgument(0));
     when(uiService.getThemeFileUrl(any())).then(invocation -> getThemeFileUrl(invocation.getArgument(0)));
+    when(uiService.getThemeTemplate(any())).then(invocation -> ThemeTemplate.load(getThemeFileUrl(invocation.getArgument(0))));
+    // Only called if the web view has been loaded after the receiver has been set
+    lenient().when(chatHistoryService.getMessagesBefore(eq(playerName), any(), anyInt())).thenReturn(completedFuture(List.of()));
 
     TabPane tabPane = new TabPane();
     tabPane.setSkin(new TabPaneSkin(tabPane));
@@ -130,12 +141,14 @@ public class PrivateChatTabControllerTest extends AbstractPlainJavaFxTest {
     // In that case AbstractChatTabController.hasFocus throws NPE because tabPane.getScene().getWindow() is null
     WaitForAsyncUtils.waitForAsyncFx(5000, () -> getRoot().getScene().getWindow().hide());
     instance.onChatMessage(new ChatMessage(playerName, Instant.now(), playerName, "Test message"));
+    WaitForAsyncUtils.waitForFxEvents();
     verify(notificationService).addNotification(any(TransientNotification.class));
   }
 
   @Test
   public void testOnChatMessageFocusedDoesntTriggersNotification() {
     instance.onChatMessage(new ChatMessage(playerName, Instant.now(), playerName, "Test message"));
+    WaitForAsyncUtils.waitForFxEvents();
     verifyZeroInteractions(notificationService);
   }
 
@@ -10,10 +10,28 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
 import java.net.URL;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AvatarServiceImplTest {
@@ -36,7 +54,7 @@ public class AvatarServiceImplTest {
   public void testLoadAvatar() throws Exception {
     URL url = getClass().getResource("/theme/images/default_achievement.png").toURI().toURL();
     instance.loadAvatar(url.toString());
-    verify(assetService).loadAndCacheImage(url, Paths.get("avatars"), null);
+    verify(assetService).loadAndCacheImage(url, Paths.get("avatars"), null, 0, 0, true);
   }
 
   @Test
@@ -51,4 +69,42 @@ public class AvatarServiceImplTest {
     instance.changeAvatar(avatar);
     verify(fafService).selectAvatar(avatar);
   }
+
+  @Test
+  public void testConcurrentRequestsLoadAvatarOnce() throws Exception {
+    String url = "http://example.com/avatar.png";
+    Image avatar = new WritableImage(40, 20);
+    when(assetService.loadAndCacheImage(new URL(url), Paths.get("avatars"), null, 0, 0, true)).thenAnswer(invocation -> {
+      // Give the other threads time to request the avatar as well
+      Thread.sleep(100);
+      return avatar;
+    });
+
+    int threadCount = 8;
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    List<Future<Image>> futures = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      futures.add(executorService.submit(() -> instance.loadAvatar(url)));
+    }
+    for (Future<Image> future : futures) {
+      assertThat(future.get(10, TimeUnit.SECONDS), is(sameInstance(avatar)));
+    }
+    executorService.shutdown();
+
+    verify(assetService, times(1)).loadAndCacheImage(new URL(url), Paths.get("avatars"), null, 0, 0, true);
+  }
+
+  @Test
+  public void testAvatarsOfChatListAreServedFromCache() throws Exception {
+    when(assetService.loadAndCacheImage(any(), eq(Paths.get("avatars")), isNull(), eq(0), eq(0), eq(true)))
+        .thenAnswer(invocation -> new WritableImage(40, 20));
+
+    // A chat list with 2,000 rows showing 20 different avatars
+    for (int i = 0; i < 2000; i++) {
+      instance.loadAvatar("http://example.com/avatar" + i % 20 + ".png");
+    }
+
+    verify(assetService, times(20)).loadAndCacheImage(any(), eq(Paths.get("avatars")), isNull(), eq(0), eq(0), eq(true));
+    assertThat(instance.getAvatarImages().stats().hitRate(), closeTo(0.99, 0.001));
+  }
 }
@@ -0,0 +1,161 @@
+package com.faforever.client.chat.history;
+
+import com.faforever.client.chat.ChatMessage;
+import com.faforever.client.preferences.Preferences;
+import com.faforever.client.preferences.PreferencesService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ChatHistoryServiceTest {
+
+  private static final long TIMEOUT = 10;
+  private static final TimeUnit TIMEOUT_UNIT = TimeUnit.SECONDS;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock
+  private PreferencesService preferencesService;
+  @Mock
+  private ExecutorService executorService;
+
+  private ChatHistoryService instance;
+  private Preferences preferences;
+  private Path historyDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    preferences = new Preferences();
+    historyDirectory = temporaryFolder.getRoot().toPath().resolve("chatHistory");
+
+    lenient().when(preferencesService.getChatHistoryDirectory()).thenReturn(historyDirectory);
+    lenient().doAnswer(invocation -> {
+      ((Runnable) invocation.getArgument(0)).run();
+      return null;
+    }).when(executorService).execute(any());
+
+    instance = new ChatHistoryService(preferencesService, executorService);
+  }
+
+  @After
+  public void tearDown() {
+    instance.destroy();
+  }
+
+  @Test
+  public void testGetDirectoryName() {
+    assertThat(ChatHistoryService.getDirectoryName("#Aeolus"), is("#aeolus"));
+    assertThat(ChatHistoryService.getDirectoryName("#a/b\\c:d"), is("#a%2Fb%5Cc%3Ad"));
+    assertThat(ChatHistoryService.getDirectoryName("JUnit_1"), is("@junit_1"));
+    assertThat(ChatHistoryService.getDirectoryName("CON"), is("@con"));
+    assertThat(ChatHistoryService.getDirectoryName("ä"), is("@%C3%A4"));
+  }
+
+  @Test
+  public void testMessagesAreKeptPerSourceIgnoringCase() throws Exception {
+    Instant now = Instant.now();
+    instance.append(new ChatMessage("#aeolus", now, "junit", "Hello"));
+    instance.append(new ChatMessage("#Aeolus", now.plusMillis(1), "junit", "World"));
+    instance.append(new ChatMessage("junit", now, "junit", "Private"));
+
+    List<ChatMessage> channelMessages = instance.getMessagesBefore("#AEOLUS", now.plusSeconds(1), 10).get(TIMEOUT, TIMEOUT_UNIT);
+    List<ChatMessage> privateMessages = instance.getMessages("JUnit", now, now.plusSeconds(1)).get(TIMEOUT, TIMEOUT_UNIT);
+
+    assertThat(channelMessages.stream().map(ChatMessage::getMessage).collect(Collectors.toList()), contains("Hello", "World"));
+    assertThat(privateMessages.stream().map(ChatMessage::getMessage).collect(Collectors.toList()), contains("Private"));
+    assertThat(instance.search("#aeolus", "world JUNIT", 10).get(TIMEOUT, TIMEOUT_UNIT).size(), is(1));
+  }
+
+  @Test
+  public void testMessagesAreAppendedInBackgroundOneAtATime() throws Exception {
+    Deque<Runnable> backgroundTasks = new ArrayDeque<>();
+    doAnswer(invocation -> backgroundTasks.add(invocation.getArgument(0))).when(executorService).execute(any());
+    Instant now = Instant.now();
+
+    instance.append(new ChatMessage("#aeolus", now, "junit", "Hello"));
+    instance.append(new ChatMessage("#aeolus", now.plusMillis(1), "junit", "World"));
+
+    // The second message waits for the first one to be written
+    assertThat(backgroundTasks.size(), is(1));
+    backgroundTasks.remove().run();
+    assertThat(backgroundTasks.size(), is(1));
+    backgroundTasks.remove().run();
+    assertThat(backgroundTasks.size(), is(0));
+
+    CompletableFuture<List<ChatMessage>> messages = instance.getMessagesBefore("#aeolus", now.plusSeconds(1), 10);
+    backgroundTasks.remove().run();
+    assertThat(messages.get(TIMEOUT, TIMEOUT_UNIT).stream().map(ChatMessage::getMessage).collect(Collectors.toList()),
+        contains("Hello", "World"));
+  }
+
+  @Test
+  public void testHistoryIsKeptAcrossRestarts() throws Exception {
+    Instant now = Instant.now();
+    instance.append(new ChatMessage("#aeolus", now, "junit", "Hello"));
+    instance.destroy();
+
+    instance = new ChatHistoryService(preferencesService, executorService);
+
+    assertThat(instance.getMessagesBefore("#aeolus", now.plusSeconds(1), 10).get(TIMEOUT, TIMEOUT_UNIT).size(), is(1));
+  }
+
+  @Test
+  public void testExpiredMessagesAreDeletedOnStartup() throws Exception {
+    when(preferencesService.getPreferences()).thenReturn(preferences);
+    preferences.getChat().setHistoryRetentionDays(30);
+    Instant now = Instant.now();
+    instance.append(new ChatMessage("#aeolus", now.minus(40, ChronoUnit.DAYS), "junit", "Expired"));
+    instance.append(new ChatMessage("#aeolus", now.minus(20, ChronoUnit.DAYS), "junit", "Kept"));
+    instance.append(new ChatMessage("junit", now.minus(40, ChronoUnit.DAYS), "junit", "Expired"));
+    instance.destroy();
+
+    instance = new ChatHistoryService(preferencesService, executorService);
+    instance.afterPropertiesSet();
+
+    List<ChatMessage> chatMessages = instance.getMessages("#aeolus", now.minus(50, ChronoUnit.DAYS), now).get(TIMEOUT, TIMEOUT_UNIT);
+    assertThat(chatMessages.stream().map(ChatMessage::getMessage).collect(Collectors.toList()), contains("Kept"));
+    try (Stream<Path> files = Files.list(historyDirectory.resolve("@junit"))) {
+      assertThat(files.count(), is(0L));
+    }
+  }
+
+  @Test
+  public void testNothingIsDeletedWithoutRetention() throws Exception {
+    when(preferencesService.getPreferences()).thenReturn(preferences);
+    preferences.getChat().setHistoryRetentionDays(0);
+    Instant time = Instant.now().minus(1000, ChronoUnit.DAYS);
+    instance.append(new ChatMessage("#aeolus", time, "junit", "Old"));
+
+    instance.deleteExpiredMessages();
+
+    assertThat(instance.getMessages("#aeolus", time, time.plusSeconds(1)).get(TIMEOUT, TIMEOUT_UNIT).size(), is(1));
+  }
+}
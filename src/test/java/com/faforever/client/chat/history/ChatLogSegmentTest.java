@@ -0,0 +1,170 @@
+package com.faforever.client.chat.history;
+
+import com.faforever.client.chat.ChatMessage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChatLogSegmentTest {
+
+  private static final String SOURCE = "#aeolus";
+  private static final Instant TIME = Instant.parse("2020-06-01T12:00:00Z");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path logFile;
+
+  @Before
+  public void setUp() {
+    logFile = temporaryFolder.getRoot().toPath().resolve("2020-06-01" + ChatLogSegment.LOG_FILE_EXTENSION);
+  }
+
+  @Test
+  public void testSpecialCharactersSurviveRoundTrip() throws Exception {
+    ChatMessage chatMessage = new ChatMessage(SOURCE, TIME, "Ju\\nit", "a\tb\nc\r\nd \\t \\ ä 😀", true);
+
+    try (ChatLogSegment segment = ChatLogSegment.open(logFile, SOURCE)) {
+      segment.append(chatMessage);
+    }
+    try (ChatLogSegment segment = ChatLogSegment.open(logFile, SOURCE)) {
+      assertThat(segment.readBlock(0), is(List.of(chatMessage)));
+    }
+    assertThat(Files.readAllLines(logFile, UTF_8).size(), is(1));
+  }
+
+  @Test
+  public void testIncompleteRecordIsCutOff() throws Exception {
+    List<ChatMessage> chatMessages = messages(0, 100);
+    appendAndClose(chatMessages);
+    long validLength = Files.size(logFile);
+    byte[] nextRecord = ChatLogRecord.encode(message(100));
+    Files.write(logFile, Arrays.copyOf(nextRecord, nextRecord.length / 2), StandardOpenOption.APPEND);
+
+    try (ChatLogSegment segment = ChatLogSegment.open(logFile, SOURCE)) {
+      assertThat(Files.size(logFile), is(validLength));
+      segment.append(message(101));
+      assertThat(readAll(segment).size(), is(101));
+    }
+
+    try (ChatLogSegment segment = ChatLogSegment.open(logFile, SOURCE)) {
+      List<ChatMessage> expected = new ArrayList<>(chatMessages);
+      expected.add(message(101));
+      assertThat(readAll(segment), is(expected));
+    }
+  }
+
+  @Test
+  public void testCorruptRecordIsSkipped() throws Exception {
+    appendAndClose(messages(0, 10));
+    Files.delete(ChatLogSegment.indexFileOf(logFile));
+    byte[] content = Files.readAllBytes(logFile);
+    // Flip a character in the message of the second record
+    int secondLineEnd = indexOf(content, (byte) '\n', indexOf(content, (byte) '\n', 0) + 1);
+    content[secondLineEnd - 1] ^= 1;
+    Files.write(logFile, content);
+
+    try (ChatLogSegment segment = ChatLogSegment.open(logFile, SOURCE)) {
+      List<ChatMessage> chatMessages = readAll(segment);
+      assertThat(chatMessages.size(), is(9));
+      assertFalse(chatMessages.contains(message(1)));
+    }
+  }
+
+  @Test
+  public void testRecordsAppendedAfterTheIndexAreIndexed() throws Exception {
+    appendAndClose(messages(0, 100));
+    Path indexFile = ChatLogSegment.indexFileOf(logFile);
+    byte[] index = Files.readAllBytes(indexFile);
+
+    // Simulate a crash after appending more records, so that the index is outdated
+    appendAndClose(messages(100, 200));
+    Files.write(indexFile, index);
+
+    try (ChatLogSegment segment = ChatLogSegment.open(logFile, SOURCE)) {
+      assertThat(segment.getBlockCount(), is((200 + ChatLogSegment.RECORDS_PER_BLOCK - 1) / ChatLogSegment.RECORDS_PER_BLOCK));
+      assertThat(readAll(segment), is(messages(0, 200)));
+      assertThat(segment.getMaxTime(), is(message(199).getTime().toEpochMilli()));
+    }
+  }
+
+  @Test
+  public void testIndexLongerThanLogIsRebuilt() throws Exception {
+    appendAndClose(messages(0, 100));
+    Files.write(logFile, new byte[0]);
+
+    try (ChatLogSegment segment = ChatLogSegment.open(logFile, SOURCE)) {
+      assertThat(segment.getBlockCount(), is(0));
+      segment.append(message(0));
+      assertThat(readAll(segment), is(messages(0, 1)));
+    }
+  }
+
+  @Test
+  public void testBloomFilterHasNoFalseNegatives() throws Exception {
+    try (ChatLogSegment segment = ChatLogSegment.open(logFile, SOURCE)) {
+      for (ChatMessage chatMessage : messages(0, 1000)) {
+        segment.append(chatMessage);
+      }
+      for (int i = 0; i < segment.getBlockCount(); i++) {
+        for (ChatMessage chatMessage : segment.readBlock(i)) {
+          assertTrue(segment.mightContainAll(i, ChatLogRecord.tokenize(chatMessage)));
+        }
+      }
+      assertFalse(segment.mightContainAll(0, Set.of("word999", "word998", "word997", "word996")));
+    }
+  }
+
+  private void appendAndClose(List<ChatMessage> chatMessages) throws Exception {
+    try (ChatLogSegment segment = ChatLogSegment.open(logFile, SOURCE)) {
+      for (ChatMessage chatMessage : chatMessages) {
+        segment.append(chatMessage);
+      }
+    }
+  }
+
+  private static List<ChatMessage> readAll(ChatLogSegment segment) throws Exception {
+    List<ChatMessage> chatMessages = new ArrayList<>();
+    for (int i = 0; i < segment.getBlockCount(); i++) {
+      chatMessages.addAll(segment.readBlock(i));
+    }
+    return chatMessages;
+  }
+
+  private static List<ChatMessage> messages(int from, int to) {
+    List<ChatMessage> chatMessages = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      chatMessages.add(message(i));
+    }
+    return chatMessages;
+  }
+
+  private static ChatMessage message(int i) {
+    return new ChatMessage(SOURCE, TIME.plusMillis(i), "user" + i % 7, "Message word" + i);
+  }
+
+  private static int indexOf(byte[] bytes, byte value, int from) {
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
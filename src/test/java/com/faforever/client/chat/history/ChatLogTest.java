@@ -0,0 +1,202 @@
+package com.faforever.client.chat.history;
+
+import com.faforever.client.chat.ChatMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class ChatLogTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String SOURCE = "#aeolus";
+  private static final Instant START_TIME = Instant.parse("2020-06-01T00:00:00Z");
+  private static final Instant END_TIME = Instant.parse("2020-07-01T00:00:00Z");
+  /** Spans about four days. */
+  private static final int MESSAGE_COUNT = 1_000_000;
+  /** Several messages share the same time, as they do when received within the same millisecond. */
+  private static final int MESSAGES_PER_TIME = 3;
+  private static final String RARE_WORD = "Gibberish";
+  private static final int RARE_WORD_INTERVAL = 10_007;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+  private ChatLog instance;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = temporaryFolder.getRoot().toPath().resolve(SOURCE);
+    instance = new ChatLog(directory, SOURCE);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    instance.close();
+  }
+
+  @Test
+  public void testQueriesOnLargeHistory() throws Exception {
+    long startTime = System.nanoTime();
+    for (int i = 0; i < MESSAGE_COUNT; i++) {
+      instance.append(message(i));
+    }
+    instance.close();
+    logger.info("Appended {} messages in {} ms", MESSAGE_COUNT, millisSince(startTime));
+
+    startTime = System.nanoTime();
+    instance = new ChatLog(directory, SOURCE);
+    List<ChatMessage> latestMessages = instance.getMessagesBefore(END_TIME, 100);
+    logger.info("Loaded latest messages after reopening in {} ms", millisSince(startTime));
+    assertThat(latestMessages, is(messages(MESSAGE_COUNT - 100, MESSAGE_COUNT)));
+
+    startTime = System.nanoTime();
+    int expectedEnd = MESSAGE_COUNT;
+    Instant before = END_TIME;
+    int pageCount = 0;
+    while (true) {
+      List<ChatMessage> page = instance.getMessagesBefore(before, 100);
+      if (page.isEmpty()) {
+        break;
+      }
+      // Messages sent at the same time as the oldest one are never split across pages
+      int expectedStart = Math.max(0, (expectedEnd - 100) / MESSAGES_PER_TIME * MESSAGES_PER_TIME);
+      assertThat(page, is(messages(expectedStart, expectedEnd)));
+      expectedEnd = expectedStart;
+      before = page.get(0).getTime();
+      pageCount++;
+    }
+    assertThat(expectedEnd, is(0));
+    logger.info("Paged through {} messages in {} pages in {} ms", MESSAGE_COUNT, pageCount, millisSince(startTime));
+
+    // The first message of a time, so that the range contains all messages sent at the same time
+    int from = (MESSAGE_COUNT / 4 - 1000) / MESSAGES_PER_TIME * MESSAGES_PER_TIME;
+    int to = (MESSAGE_COUNT / 4 + 1000) / MESSAGES_PER_TIME * MESSAGES_PER_TIME;
+    startTime = System.nanoTime();
+    List<ChatMessage> range = instance.getMessages(message(from).getTime(), message(to).getTime());
+    logger.info("Loaded {} messages of a time range in {} ms", range.size(), millisSince(startTime));
+    assertThat(range, is(messages(from, to)));
+
+    startTime = System.nanoTime();
+    List<ChatMessage> results = instance.search(RARE_WORD.toUpperCase() + " user1", 50);
+    logger.info("Found {} messages in {} ms", results.size(), millisSince(startTime));
+    assertThat(results, is(searchByScan(50)));
+
+    startTime = System.nanoTime();
+    assertThat(instance.search("nonexistent", 50), empty());
+    logger.info("Searched for a missing word in {} ms", millisSince(startTime));
+  }
+
+  @Test
+  public void testConcurrentAppends() throws Exception {
+    int threadCount = 8;
+    int messagesPerThread = 5000;
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < threadCount; thread++) {
+      int threadNumber = thread;
+      futures.add(executorService.submit(() -> {
+        for (int i = 0; i < messagesPerThread; i++) {
+          instance.append(new ChatMessage(SOURCE, START_TIME.plusSeconds(i * 30), "thread" + threadNumber, "Message " + i));
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(1, TimeUnit.MINUTES);
+    }
+    executorService.shutdown();
+    instance.close();
+
+    instance = new ChatLog(directory, SOURCE);
+    List<ChatMessage> chatMessages = instance.getMessages(START_TIME, END_TIME);
+    assertThat(chatMessages.size(), is(threadCount * messagesPerThread));
+    Set<String> distinctMessages = chatMessages.stream()
+        .map(chatMessage -> chatMessage.getUsername() + chatMessage.getMessage())
+        .collect(Collectors.toSet());
+    assertThat(distinctMessages.size(), is(threadCount * messagesPerThread));
+  }
+
+  @Test
+  public void testGetMessagesBeforeWithoutLimit() throws Exception {
+    instance.append(new ChatMessage(SOURCE, START_TIME, "junit", "Hello"));
+
+    assertThat(instance.getMessagesBefore(START_TIME.plusSeconds(1), 0), is(empty()));
+    assertThat(instance.getMessagesBefore(START_TIME.plusSeconds(1), -1), is(empty()));
+  }
+
+  @Test
+  public void testDeleteDaysBefore() throws Exception {
+    for (int day = 0; day < 5; day++) {
+      instance.append(new ChatMessage(SOURCE, START_TIME.plusSeconds(day * 86_400L), "junit", "Day " + day));
+    }
+
+    instance.deleteDaysBefore(LocalDate.of(2020, 6, 3));
+
+    assertThat(instance.getMessages(START_TIME, END_TIME).stream()
+        .map(ChatMessage::getMessage)
+        .collect(Collectors.toList()), is(List.of("Day 2", "Day 3", "Day 4")));
+    try (Stream<Path> files = Files.list(directory)) {
+      Set<String> fileNames = files.map(file -> file.getFileName().toString()).collect(Collectors.toCollection(HashSet::new));
+      assertThat(fileNames.contains("2020-06-02.log"), is(false));
+      assertThat(fileNames.contains("2020-06-02.idx"), is(false));
+      assertThat(fileNames.contains("2020-06-03.log"), is(true));
+    }
+  }
+
+  private static ChatMessage message(int i) {
+    String text = "Message number " + i;
+    if (i % RARE_WORD_INTERVAL == 0) {
+      text += " " + RARE_WORD;
+    }
+    return new ChatMessage(SOURCE, START_TIME.plusSeconds(i / MESSAGES_PER_TIME), "user" + i % 10, text);
+  }
+
+  private static List<ChatMessage> messages(int from, int to) {
+    List<ChatMessage> chatMessages = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      chatMessages.add(message(i));
+    }
+    return chatMessages;
+  }
+
+  private static List<ChatMessage> searchByScan(int limit) {
+    List<ChatMessage> chatMessages = new ArrayList<>();
+    for (int i = MESSAGE_COUNT - 1; i >= 0 && chatMessages.size() < limit; i--) {
+      ChatMessage chatMessage = message(i);
+      if (chatMessage.getMessage().contains(RARE_WORD) && chatMessage.getUsername().equals("user1")) {
+        chatMessages.add(chatMessage);
+      }
+    }
+    return chatMessages;
+  }
+
+  private static long millisSince(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+}
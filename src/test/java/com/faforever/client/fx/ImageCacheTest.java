@@ -0,0 +1,123 @@
+package com.faforever.client.fx;
+
+import com.faforever.client.test.AbstractPlainJavaFxTest;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ImageCacheTest extends AbstractPlainJavaFxTest {
+
+  private static final int WIDTH = 40;
+  private static final int HEIGHT = 20;
+  private static final int IMAGE_BYTES = WIDTH * HEIGHT * 4;
+
+  private AtomicInteger loadCount;
+  private ImageCache instance;
+
+  @Before
+  public void setUp() {
+    loadCount = new AtomicInteger();
+    instance = new ImageCache(100L * IMAGE_BYTES, IMAGE_BYTES);
+  }
+
+  @Test
+  public void testRepeatedRequestsAreHits() {
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 50; i++) {
+        instance.get("image" + i, this::load);
+      }
+    }
+
+    assertThat(loadCount.get(), is(50));
+    assertThat(instance.stats().hitRate(), closeTo(0.9, 0.001));
+  }
+
+  @Test
+  public void testSizeIsBoundedByBytes() {
+    for (int i = 0; i < 500; i++) {
+      instance.get("image" + i, this::load);
+    }
+    instance.cleanUp();
+
+    assertThat(instance.estimatedSize(), lessThanOrEqualTo(100L));
+
+    ImageCache largeImages = new ImageCache(100L * IMAGE_BYTES, IMAGE_BYTES);
+    for (int i = 0; i < 50; i++) {
+      largeImages.get("image" + i, key -> new WritableImage(WIDTH * 4, HEIGHT));
+    }
+    largeImages.cleanUp();
+
+    assertThat(largeImages.estimatedSize(), lessThanOrEqualTo(25L));
+  }
+
+  @Test
+  public void testConcurrentMissesAreLoadedOnce() throws Exception {
+    int threadCount = 16;
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Image>> futures = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      futures.add(executorService.submit(() -> {
+        start.await();
+        return instance.get("image", key -> {
+          try {
+            // Give the other threads time to request the image as well
+            Thread.sleep(100);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return load(key);
+        });
+      }));
+    }
+    start.countDown();
+
+    Image image = futures.get(0).get(10, TimeUnit.SECONDS);
+    for (Future<Image> future : futures) {
+      assertThat(future.get(10, TimeUnit.SECONDS), is(sameInstance(image)));
+    }
+    executorService.shutdown();
+    assertThat(loadCount.get(), is(1));
+  }
+
+  @Test
+  public void testNullIsNotCached() {
+    assertThat(instance.get("image", key -> null), is(nullValue()));
+    instance.get("image", this::load);
+
+    assertThat(loadCount.get(), is(1));
+    assertThat(instance.estimatedSize(), is(1L));
+  }
+
+  @Test
+  public void testFailedImageIsReturnedButNotCached() {
+    Image failedImage = instance.get("image", key -> new Image("file:/does/not/exist.png"));
+
+    assertThat(failedImage.isError(), is(true));
+    assertThat(instance.estimatedSize(), is(0L));
+    instance.get("image", this::load);
+    assertThat(loadCount.get(), is(1));
+  }
+
+  private Image load(String key) {
+    loadCount.incrementAndGet();
+    return new WritableImage(WIDTH, HEIGHT);
+  }
+}
@@ -20,6 +20,7 @@ import com.faforever.client.player.PlayerBuilder;
 import com.faforever.client.player.PlayerService;
 import com.faforever.client.preferences.Preferences;
 import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.net.ConnectionState;
 import com.faforever.client.remote.FafService;
 import com.faforever.client.remote.ReconnectTimerService;
 import com.faforever.client.remote.domain.GameInfoMessage;
@@ -81,6 +82,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -135,6 +137,7 @@ public class GameServiceTest extends AbstractPlainJavaFxTest {
   private ArgumentCaptor<Set<String>> simModsCaptor;
 
   private Player junitPlayer;
+  private SimpleObjectProperty<ConnectionState> connectionState;
 
   @Before
   public void setUp() throws Exception {
@@ -151,7 +154,8 @@ public class GameServiceTest extends AbstractPlainJavaFxTest {
 
     when(preferencesService.getPreferences()).thenReturn(preferences);
     when(preferencesService.isGamePathValid()).thenReturn(true);
-    when(fafService.connectionStateProperty()).thenReturn(new SimpleObjectProperty<>());
+    connectionState = new SimpleObjectProperty<>();
+    when(fafService.connectionStateProperty()).thenReturn(connectionState);
     when(replayService.start(anyInt(), any())).thenReturn(completedFuture(LOCAL_REPLAY_PORT));
     when(iceAdapter.start()).thenReturn(completedFuture(GPG_PORT));
     when(playerService.getCurrentPlayer()).thenReturn(Optional.of(junitPlayer));
@@ -410,6 +414,109 @@ public class GameServiceTest extends AbstractPlainJavaFxTest {
     assertThat(instance.getGames(), empty());
   }
 
+  @Test
+  public void testGameInfosReceivedWithinOnePulseAreMerged() throws Exception {
+    GameInfoMessage gameInfoMessage1 = GameInfoMessageBuilder.create(1).defaultValues().title("Game 1").get();
+    GameInfoMessage gameInfoMessage2 = GameInfoMessageBuilder.create(1).defaultValues().title("Game 1 modified").get();
+    GameInfoMessage gameInfoMessage3 = GameInfoMessageBuilder.create(2).defaultValues().title("Game 2").get();
+
+    // Messages sent from the application thread can only be applied once it's done, so they all end up in one pulse
+    WaitForAsyncUtils.asyncFx(() -> {
+      gameInfoMessageListenerCaptor.getValue().accept(gameInfoMessage1);
+      gameInfoMessageListenerCaptor.getValue().accept(gameInfoMessage2);
+      gameInfoMessageListenerCaptor.getValue().accept(gameInfoMessage3);
+    }).get(TIMEOUT, TIME_UNIT);
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertThat(instance.getGames(), containsInAnyOrder(
+        allOf(GameMatchers.hasId(1), GameMatchers.hasTitle("Game 1 modified")),
+        allOf(GameMatchers.hasId(2), GameMatchers.hasTitle("Game 2"))
+    ));
+    verify(eventBus, times(2)).post(any(GameAddedEvent.class));
+    verify(eventBus, never()).post(any(GameUpdatedEvent.class));
+  }
+
+  @Test
+  public void testGameOpenedAndClosedWithinOnePulseIsNeverAdded() throws Exception {
+    GameInfoMessage openMessage = GameInfoMessageBuilder.create(1).defaultValues().get();
+    GameInfoMessage closedMessage = GameInfoMessageBuilder.create(1).defaultValues().state(CLOSED).get();
+
+    WaitForAsyncUtils.asyncFx(() -> {
+      gameInfoMessageListenerCaptor.getValue().accept(openMessage);
+      gameInfoMessageListenerCaptor.getValue().accept(closedMessage);
+    }).get(TIMEOUT, TIME_UNIT);
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertThat(instance.getGames(), empty());
+    verify(eventBus, never()).post(any(GameAddedEvent.class));
+    verify(eventBus, never()).post(any(GameRemovedEvent.class));
+  }
+
+  @Test
+  public void testAverageRatingOnlyLooksUpNewPlayers() {
+    Player player1 = PlayerBuilder.create("Player1").defaultValues().get();
+    player1.setGlobalRatingMean(1000);
+    player1.setGlobalRatingDeviation(0);
+    Player player2 = PlayerBuilder.create("Player2").defaultValues().get();
+    player2.setGlobalRatingMean(2000);
+    player2.setGlobalRatingDeviation(0);
+    when(playerService.getPlayerForUsername("Player1")).thenReturn(Optional.of(player1));
+    when(playerService.getPlayerForUsername("Player2")).thenReturn(Optional.of(player2));
+
+    gameInfoMessageListenerCaptor.getValue().accept(GameInfoMessageBuilder.create(1).defaultValues()
+        .addTeamMember("1", "Player1").get());
+    WaitForAsyncUtils.waitForFxEvents();
+    assertThat(instance.getByUid(1).getAverageRating(), is(1000.0));
+
+    gameInfoMessageListenerCaptor.getValue().accept(GameInfoMessageBuilder.create(1).defaultValues()
+        .addTeamMember("1", "Player1").addTeamMember("2", "Player2").get());
+    WaitForAsyncUtils.waitForFxEvents();
+    assertThat(instance.getByUid(1).getAverageRating(), is(1500.0));
+
+    gameInfoMessageListenerCaptor.getValue().accept(GameInfoMessageBuilder.create(1).defaultValues()
+        .addTeamMember("2", "Player2").get());
+    WaitForAsyncUtils.waitForFxEvents();
+    assertThat(instance.getByUid(1).getAverageRating(), is(2000.0));
+
+    verify(playerService, times(1)).getPlayerForUsername("Player1");
+    verify(playerService, times(1)).getPlayerForUsername("Player2");
+  }
+
+  @Test
+  public void testAverageRatingFollowsRatingChanges() throws Exception {
+    Player player1 = PlayerBuilder.create("Player1").defaultValues().get();
+    player1.setGlobalRatingMean(1000);
+    player1.setGlobalRatingDeviation(0);
+    when(playerService.getPlayerForUsername("Player1")).thenReturn(Optional.of(player1));
+
+    gameInfoMessageListenerCaptor.getValue().accept(GameInfoMessageBuilder.create(1).defaultValues()
+        .addTeamMember("1", "Player1").get());
+    WaitForAsyncUtils.waitForFxEvents();
+    Game game = instance.getByUid(1);
+    assertThat(game.getAverageRating(), is(1000.0));
+
+    WaitForAsyncUtils.asyncFx(() -> player1.setGlobalRatingMean(1600)).get(TIMEOUT, TIME_UNIT);
+    assertThat(game.getAverageRating(), is(1600.0));
+
+    gameInfoMessageListenerCaptor.getValue().accept(GameInfoMessageBuilder.create(1).defaultValues()
+        .addTeamMember("1", "Player1").state(CLOSED).get());
+    WaitForAsyncUtils.waitForFxEvents();
+    WaitForAsyncUtils.asyncFx(() -> player1.setGlobalRatingMean(2000)).get(TIMEOUT, TIME_UNIT);
+    assertThat(game.getAverageRating(), is(1600.0));
+  }
+
+  @Test
+  public void testDisconnectDiscardsPendingGameInfos() throws Exception {
+    WaitForAsyncUtils.asyncFx(() -> {
+      gameInfoMessageListenerCaptor.getValue().accept(GameInfoMessageBuilder.create(1).defaultValues().get());
+      connectionState.set(ConnectionState.DISCONNECTED);
+    }).get(TIMEOUT, TIME_UNIT);
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertThat(instance.getGames(), empty());
+    assertThat(instance.getByUid(1), nullValue());
+  }
+
   @Test
   public void testStartSearchLadder1v1() throws Exception {
     int uid = 123;
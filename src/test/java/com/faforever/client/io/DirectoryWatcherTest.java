@@ -0,0 +1,178 @@
+package com.faforever.client.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DirectoryWatcherTest {
+
+  private static final Duration QUIET_PERIOD = Duration.ofMillis(300);
+  private static final long TIMEOUT = 10;
+
+  @Rule
+  public TemporaryFolder directory = new TemporaryFolder();
+
+  private Path root;
+  private BlockingQueue<Set<Path>> reportedChanges;
+  private AtomicInteger overflows;
+  /** Whether each reported folder contained its complete scenario file at the time it was reported. */
+  private List<Boolean> completeWhenReported;
+  private DirectoryWatcher.Listener listener;
+  private DirectoryWatcher instance;
+
+  @Before
+  public void setUp() throws Exception {
+    root = directory.getRoot().toPath();
+    reportedChanges = new LinkedBlockingQueue<>();
+    overflows = new AtomicInteger();
+    completeWhenReported = new CopyOnWriteArrayList<>();
+    listener = new DirectoryWatcher.Listener() {
+      @Override
+      public void onChanged(Set<Path> entries) {
+        for (Path entry : entries) {
+          Path scenarioFile = entry.resolve("scenario.lua");
+          completeWhenReported.add(Files.isDirectory(entry) && Files.exists(scenarioFile)
+              && new String(readAllBytes(scenarioFile), UTF_8).endsWith("end"));
+        }
+        reportedChanges.add(entries);
+      }
+
+      @Override
+      public void onOverflow() {
+        overflows.incrementAndGet();
+        reportedChanges.add(Set.of());
+      }
+    };
+    instance = DirectoryWatcher.watch(root, QUIET_PERIOD, "test-directory-watcher", listener);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    instance.close();
+  }
+
+  @Test
+  public void testBulkExtractionIsReportedInFewBursts() throws Exception {
+    int mapCount = 500;
+    for (int i = 0; i < mapCount; i++) {
+      writeFolder("map_" + i);
+    }
+
+    int reportedEntries = 0;
+    int reports = 0;
+    while (reportedEntries < mapCount && overflows.get() == 0) {
+      Set<Path> changes = reportedChanges.poll(TIMEOUT, TimeUnit.SECONDS);
+      assertThat("Not all maps have been reported", changes, is(notNullValue()));
+      reportedEntries += changes.size();
+      reports++;
+    }
+
+    // If the file system dropped events, a single rescan replaces the individual reports
+    if (overflows.get() == 0) {
+      assertThat(reportedEntries, is(mapCount));
+      assertThat(reports, lessThanOrEqualTo(5));
+      assertThat(completeWhenReported.contains(false), is(false));
+    }
+  }
+
+  @Test
+  public void testPartialWritesAreReportedOnceComplete() throws Exception {
+    Path folder = Files.createDirectory(root.resolve("map"));
+    Path scenarioFile = folder.resolve("scenario.lua");
+    for (int i = 0; i < 5; i++) {
+      Files.write(scenarioFile, ("part " + i + "\n").getBytes(UTF_8), CREATE, APPEND);
+      Thread.sleep(QUIET_PERIOD.toMillis() / 3);
+    }
+    Files.write(scenarioFile, "end".getBytes(UTF_8), APPEND);
+
+    Set<Path> changes = reportedChanges.poll(TIMEOUT, TimeUnit.SECONDS);
+
+    assertThat(changes, contains(folder));
+    assertThat(completeWhenReported, contains(true));
+    assertThat(reportedChanges.poll(QUIET_PERIOD.toMillis() * 2, TimeUnit.MILLISECONDS), is(nullValue()));
+  }
+
+  @Test
+  public void testRapidDeleteAndRecreateIsReportedOnce() throws Exception {
+    for (int i = 0; i < 50; i++) {
+      Path folder = writeFolder("map");
+      Files.delete(folder.resolve("scenario.lua"));
+      Files.delete(folder);
+    }
+    writeFolder("map");
+
+    Set<Path> changes = reportedChanges.poll(TIMEOUT, TimeUnit.SECONDS);
+
+    assertThat(changes, contains(root.resolve("map")));
+    assertThat(completeWhenReported, contains(true));
+    assertThat(reportedChanges.poll(QUIET_PERIOD.toMillis() * 2, TimeUnit.MILLISECONDS), is(nullValue()));
+  }
+
+  @Test
+  public void testDeletionIsReported() throws Exception {
+    Path folder = writeFolder("map");
+    assertThat(reportedChanges.poll(TIMEOUT, TimeUnit.SECONDS), contains(folder));
+
+    Files.delete(folder.resolve("scenario.lua"));
+    Files.delete(folder);
+
+    assertThat(reportedChanges.poll(TIMEOUT, TimeUnit.SECONDS), contains(folder));
+    assertThat(completeWhenReported, contains(true, false));
+  }
+
+  @Test
+  public void testChangesInSubfoldersOfExistingFoldersAreReported() throws Exception {
+    instance.close();
+    Path folder = writeFolder("map");
+    Path subfolder = Files.createDirectories(folder.resolve("env").resolve("decals"));
+    instance = DirectoryWatcher.watch(root, QUIET_PERIOD, "test-directory-watcher", listener);
+
+    Files.write(subfolder.resolve("decal.dds"), new byte[1]);
+    assertThat(reportedChanges.poll(TIMEOUT, TimeUnit.SECONDS), contains(folder));
+
+    Path newSubfolder = Files.createDirectory(subfolder.resolve("new"));
+    Files.write(newSubfolder.resolve("decal.dds"), new byte[1]);
+    assertThat(reportedChanges.poll(TIMEOUT, TimeUnit.SECONDS), contains(folder));
+
+    Thread.sleep(QUIET_PERIOD.toMillis() * 2);
+    Files.write(newSubfolder.resolve("decal.dds"), new byte[2]);
+    assertThat(reportedChanges.poll(TIMEOUT, TimeUnit.SECONDS), contains(folder));
+  }
+
+  private Path writeFolder(String name) throws Exception {
+    Path folder = Files.createDirectory(root.resolve(name));
+    Files.write(folder.resolve("scenario.lua"), ("ScenarioInfo = {}\n-- " + name + "\nend").getBytes(UTF_8));
+    return folder;
+  }
+
+  private static byte[] readAllBytes(Path file) {
+    try {
+      return Files.readAllBytes(file);
+    } catch (Exception e) {
+      return new byte[0];
+    }
+  }
+}
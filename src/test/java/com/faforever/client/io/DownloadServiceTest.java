@@ -0,0 +1,288 @@
+package com.faforever.client.io;
+
+import com.faforever.client.io.DownloadService.Download;
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.fail;
+
+public class DownloadServiceTest {
+
+  private static final int FILE_SIZE = 1024 * 1024;
+  private static final int MAX_CONNECTIONS_PER_HOST = 2;
+  private static final int MAX_ATTEMPTS = 3;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private DownloadService instance;
+  private ExecutorService executorService;
+  private HttpServer httpServer;
+  private byte[] content;
+  private String contentMd5;
+  /** Number of upcoming requests that will be answered with only half of the requested bytes. */
+  private AtomicInteger requestsToDrop;
+  /** Number of upcoming requests that will be answered with a corrupted byte. */
+  private AtomicInteger requestsToCorrupt;
+  private List<String> rangeHeaders;
+  private AtomicLong bytesServed;
+  private AtomicInteger activeRequests;
+  private AtomicInteger maxActiveRequests;
+  private long responseDelayMillis;
+
+  @Before
+  public void setUp() throws Exception {
+    content = new byte[FILE_SIZE];
+    new Random(0).nextBytes(content);
+    contentMd5 = Hashing.md5().hashBytes(content).toString();
+    requestsToDrop = new AtomicInteger();
+    requestsToCorrupt = new AtomicInteger();
+    rangeHeaders = Collections.synchronizedList(new ArrayList<>());
+    bytesServed = new AtomicLong();
+    activeRequests = new AtomicInteger();
+    maxActiveRequests = new AtomicInteger();
+
+    httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    httpServer.setExecutor(Executors.newCachedThreadPool());
+    httpServer.createContext("/files/", this::serveFile);
+    httpServer.createContext("/missing", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    httpServer.start();
+
+    executorService = Executors.newCachedThreadPool();
+    instance = new DownloadService(executorService, MAX_CONNECTIONS_PER_HOST, MAX_ATTEMPTS, Duration.ofMillis(10));
+  }
+
+  @After
+  public void tearDown() {
+    httpServer.stop(0);
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testDownloadFile() throws Exception {
+    Path targetFile = temporaryFolder.getRoot().toPath().resolve("file");
+    AtomicLong reportedBytes = new AtomicLong();
+
+    instance.downloadFile(url("/files/file"), targetFile, (written, total) -> reportedBytes.set(written), contentMd5);
+
+    assertThat(Files.readAllBytes(targetFile), is(content));
+    assertThat(reportedBytes.get(), is((long) FILE_SIZE));
+    assertThat(Files.exists(partialFile(targetFile)), is(false));
+  }
+
+  @Test
+  public void testProgressIsReportedPerPercent() throws Exception {
+    Path targetFile = temporaryFolder.getRoot().toPath().resolve("file");
+    List<Long> reportedBytes = new ArrayList<>();
+
+    instance.downloadFile(url("/files/file"), targetFile, (written, total) -> reportedBytes.add(written), contentMd5);
+
+    assertThat(reportedBytes.size(), lessThanOrEqualTo(101));
+    assertThat(reportedBytes.get(0), is(0L));
+    assertThat(reportedBytes.get(reportedBytes.size() - 1), is((long) FILE_SIZE));
+  }
+
+  @Test
+  public void testDroppedConnectionIsResumed() throws Exception {
+    requestsToDrop.set(2);
+    Path targetFile = temporaryFolder.getRoot().toPath().resolve("file");
+
+    instance.downloadFile(url("/files/file"), targetFile, (written, total) -> {}, contentMd5);
+
+    assertThat(Files.readAllBytes(targetFile), is(content));
+    assertThat(rangeHeaders, contains("none", "bytes=" + FILE_SIZE / 2 + "-", "bytes=" + (FILE_SIZE / 2 + FILE_SIZE / 4) + "-"));
+    assertThat(bytesServed.get(), is((long) FILE_SIZE));
+  }
+
+  @Test
+  public void testPartialFileOfEarlierSessionIsResumed() throws Exception {
+    Path targetFile = temporaryFolder.getRoot().toPath().resolve("file");
+    Files.write(partialFile(targetFile), Arrays.copyOf(content, 1000));
+
+    instance.downloadFile(url("/files/file"), targetFile, (written, total) -> {}, contentMd5);
+
+    assertThat(Files.readAllBytes(targetFile), is(content));
+    assertThat(rangeHeaders, contains("bytes=1000-"));
+  }
+
+  @Test
+  public void testCorruptedFileIsDownloadedAgain() throws Exception {
+    requestsToCorrupt.set(1);
+    Path targetFile = temporaryFolder.getRoot().toPath().resolve("file");
+
+    instance.downloadFile(url("/files/file"), targetFile, (written, total) -> {}, contentMd5);
+
+    assertThat(Files.readAllBytes(targetFile), is(content));
+    assertThat(rangeHeaders, contains("none", "none"));
+  }
+
+  @Test
+  public void testCorruptedFileFailsAfterMaxAttempts() throws Exception {
+    requestsToCorrupt.set(MAX_ATTEMPTS);
+    Path targetFile = temporaryFolder.getRoot().toPath().resolve("file");
+
+    try {
+      instance.downloadFile(url("/files/file"), targetFile, (written, total) -> {}, contentMd5);
+      fail("Corrupted download was accepted");
+    } catch (IOException e) {
+      assertThat(rangeHeaders.size(), is(MAX_ATTEMPTS));
+    }
+    assertThat(Files.exists(targetFile), is(false));
+    assertThat(Files.exists(partialFile(targetFile)), is(false));
+  }
+
+  @Test
+  public void testMissingFileIsNotRetried() throws Exception {
+    Path targetFile = temporaryFolder.getRoot().toPath().resolve("file");
+    AtomicInteger requests = new AtomicInteger();
+    httpServer.createContext("/counted-missing", exchange -> {
+      requests.incrementAndGet();
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+
+    try {
+      instance.downloadFile(url("/counted-missing"), targetFile, (written, total) -> {}, null);
+      fail("Missing file was downloaded");
+    } catch (IOException e) {
+      assertThat(requests.get(), is(1));
+    }
+  }
+
+  @Test
+  public void testParallelDownloadsAreLimitedPerHostAndReportCombinedProgress() throws Exception {
+    responseDelayMillis = 50;
+    requestsToDrop.set(3);
+    requestsToCorrupt.set(1);
+    List<Download> downloads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      downloads.add(new Download(url("/files/file" + i), temporaryFolder.getRoot().toPath().resolve("file" + i), contentMd5));
+    }
+    AtomicLong reportedWritten = new AtomicLong();
+    AtomicLong reportedTotal = new AtomicLong();
+    AtomicBoolean totalDecreased = new AtomicBoolean();
+
+    instance.downloadFiles(downloads, (written, total) -> {
+      if (total < reportedTotal.get()) {
+        totalDecreased.set(true);
+      }
+      reportedWritten.set(written);
+      reportedTotal.set(total);
+    }).get(10, TimeUnit.SECONDS);
+
+    for (Download download : downloads) {
+      assertThat(Files.readAllBytes(download.getTargetFile()), is(content));
+    }
+    assertThat(maxActiveRequests.get(), is(MAX_CONNECTIONS_PER_HOST));
+    assertThat(reportedWritten.get(), is(8L * FILE_SIZE));
+    assertThat(reportedTotal.get(), is(8L * FILE_SIZE));
+    assertThat(totalDecreased.get(), is(false));
+  }
+
+  @Test
+  public void testParallelDownloadFailsIfAnyDownloadFails() throws Exception {
+    List<Download> downloads = List.of(
+        new Download(url("/files/file"), temporaryFolder.getRoot().toPath().resolve("file"), contentMd5),
+        new Download(url("/missing"), temporaryFolder.getRoot().toPath().resolve("missing"), null)
+    );
+
+    try {
+      instance.downloadFiles(downloads, (written, total) -> {}).get(10, TimeUnit.SECONDS);
+      fail("Failed download was not reported");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(IOException.class));
+    }
+    assertThat(Files.readAllBytes(temporaryFolder.getRoot().toPath().resolve("file")), is(content));
+  }
+
+  /**
+   * Serves {@link #content}, supporting open-ended range requests. Depending on the test, a response is cut off after
+   * half of the requested bytes, or has one of its bytes corrupted.
+   */
+  private void serveFile(HttpExchange exchange) throws IOException {
+    int active = activeRequests.incrementAndGet();
+    maxActiveRequests.accumulateAndGet(active, Math::max);
+    try {
+      sleep(responseDelayMillis);
+      String range = exchange.getRequestHeaders().getFirst("Range");
+      rangeHeaders.add(range == null ? "none" : range);
+
+      int offset = range == null ? 0 : Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+      int length = content.length - offset;
+      if (range != null) {
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + offset + "-" + (content.length - 1) + "/" + content.length);
+      }
+      exchange.sendResponseHeaders(range == null ? 200 : 206, length);
+
+      byte[] body = Arrays.copyOfRange(content, offset, content.length);
+      if (requestsToCorrupt.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+        body[length / 3] ^= 0xFF;
+      }
+      OutputStream responseBody = exchange.getResponseBody();
+      if (requestsToDrop.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+        responseBody.write(body, 0, length / 2);
+        responseBody.flush();
+        bytesServed.addAndGet(length / 2);
+        // Closing the exchange before the announced length was sent makes the server drop the connection
+        exchange.close();
+        return;
+      }
+      responseBody.write(body);
+      bytesServed.addAndGet(length);
+      exchange.close();
+    } finally {
+      activeRequests.decrementAndGet();
+    }
+  }
+
+  private URL url(String path) throws Exception {
+    return new URL("http://127.0.0.1:" + httpServer.getAddress().getPort() + path);
+  }
+
+  private static Path partialFile(Path targetFile) {
+    return targetFile.resolveSibling(targetFile.getFileName() + ".part");
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
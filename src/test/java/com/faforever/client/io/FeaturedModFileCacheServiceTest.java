@@ -14,9 +14,15 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
@@ -28,6 +34,8 @@ public class FeaturedModFileCacheServiceTest {
   public TemporaryFolder cacheDirectory = new TemporaryFolder();
   @Rule
   public TemporaryFolder targetDirectory = new TemporaryFolder();
+  @Rule
+  public TemporaryFolder clientCacheDirectory = new TemporaryFolder();
   @Mock
   private PreferencesService preferenceService;
   private FeaturedModFileCacheService instance;
@@ -38,6 +46,7 @@ public class FeaturedModFileCacheServiceTest {
     preferences = new Preferences();
     when(preferenceService.getPreferences()).thenReturn(preferences);
     when(preferenceService.getFeaturedModCachePath()).thenReturn(cacheDirectory.getRoot().toPath());
+    when(preferenceService.getCacheDirectory()).thenReturn(clientCacheDirectory.getRoot().toPath());
     instance = new FeaturedModFileCacheService(preferenceService);
   }
 
@@ -75,4 +84,93 @@ public class FeaturedModFileCacheServiceTest {
     assertTrue(Files.isRegularFile(targetPath));
     assertEquals(hashNewFile, instance.readHashFromFile(targetPath));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSecondPassOverUnchangedFilesHashesNothing() throws IOException {
+    List<Path> gameFiles = createGameFiles(20);
+    Map<Path, String> hashes = new HashMap<>();
+    for (Path gameFile : gameFiles) {
+      hashes.put(gameFile, instance.readHashFromFile(gameFile));
+    }
+    instance.saveFileHashes();
+    assertThat(instance.getFileHashIndex().getComputedHashes(), is(20L));
+
+    FeaturedModFileCacheService nextSession = new FeaturedModFileCacheService(preferenceService);
+    for (Path gameFile : gameFiles) {
+      assertThat(nextSession.readHashFromFile(gameFile), is(hashes.get(gameFile)));
+    }
+    assertThat(nextSession.getFileHashIndex().getComputedHashes(), is(0L));
+  }
+
+  @Test
+  public void testChangedFileIsHashedAgain() throws IOException {
+    Path gameFile = createGameFiles(1).get(0);
+    String oldHash = instance.readHashFromFile(gameFile);
+
+    Files.writeString(gameFile, "changed content");
+
+    assertThat(instance.readHashFromFile(gameFile), is(not(oldHash)));
+    assertThat(instance.getFileHashIndex().getComputedHashes(), is(2L));
+  }
+
+  @Test
+  public void testFilesMovedFromAndToCacheAreNotHashedAgain() throws IOException {
+    preferences.setGameDataCacheActivated(true);
+    FeaturedModFile featuredModFile = new FeaturedModFile();
+    featuredModFile.setGroup("gamedata");
+    featuredModFile.setName("test.faf");
+    featuredModFile.setMd5("6d7fce9fee471194aa8b5b6e47267f03");
+    Path cachedFile = instance.getCachedFilePath(featuredModFile);
+    Files.createDirectories(cachedFile.getParent());
+    Files.writeString(cachedFile, "new file");
+    instance.addVerifiedFileToCache(featuredModFile);
+
+    Path targetPath = targetDirectory.newFolder("gamedata").toPath().resolve("test.faf");
+    Files.writeString(targetPath, "old file");
+    String hashOldFile = instance.readHashFromFile(targetPath);
+
+    instance.moveFeaturedModFileFromCache(featuredModFile, targetPath);
+
+    assertThat(instance.readHashFromFile(targetPath), is(featuredModFile.getMd5()));
+    assertThat(instance.readHashFromFile(cacheDirectory.getRoot().toPath().resolve("gamedata").resolve(hashOldFile)), is(hashOldFile));
+    assertThat(instance.getFileHashIndex().getComputedHashes(), is(1L));
+  }
+
+  @Test
+  public void testCleanupUsesIndexAfterFirstSession() throws IOException {
+    preferences.setGameDataCacheActivated(false);
+    Path groupFolderInCache = cacheDirectory.newFolder("gamedata").toPath();
+    Path fileOfEarlierSession = Files.writeString(groupFolderInCache.resolve("abc"), "cached");
+
+    instance.afterPropertiesSet();
+    assertThat(Files.exists(fileOfEarlierSession), is(false));
+
+    // The cache is only walked if there is no index, so files that the index doesn't know about are left alone
+    Path unknownFile = Files.writeString(groupFolderInCache.resolve("def"), "cached");
+    new FeaturedModFileCacheService(preferenceService).afterPropertiesSet();
+    assertThat(Files.exists(unknownFile), is(true));
+  }
+
+  @Test
+  public void testFileMovedIntoCacheIsIndexedEvenIfUnknown() throws IOException {
+    preferences.setGameDataCacheActivated(false);
+    Path untrackedFile = Files.writeString(targetDirectory.getRoot().toPath().resolve("test.faf"), "old file");
+    Path cachedFile = cacheDirectory.newFolder("gamedata").toPath().resolve("abc");
+    Files.move(untrackedFile, cachedFile);
+
+    instance.getFileHashIndex().move(untrackedFile, cachedFile);
+    instance.saveFileHashes();
+
+    assertThat(instance.getFileHashIndex().getFiles(cacheDirectory.getRoot().toPath()), contains(cachedFile));
+    new FeaturedModFileCacheService(preferenceService).afterPropertiesSet();
+    assertThat(Files.exists(cachedFile), is(false));
+  }
+
+  private List<Path> createGameFiles(int count) throws IOException {
+    List<Path> gameFiles = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      gameFiles.add(Files.writeString(targetDirectory.getRoot().toPath().resolve("file" + i + ".scd"), "content " + i));
+    }
+    return gameFiles;
+  }
+}
@@ -0,0 +1,107 @@
+package com.faforever.client.map;
+
+import com.faforever.client.map.MapBean.Type;
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class InstalledMapCatalogTest {
+
+  @Rule
+  public TemporaryFolder mapsDirectory = new TemporaryFolder();
+  @Rule
+  public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+  private Path catalogFile;
+  private Path mapFolder;
+  private Path scenarioFile;
+
+  @Before
+  public void setUp() throws Exception {
+    catalogFile = cacheDirectory.getRoot().toPath().resolve("installed-maps.json.gz");
+    mapFolder = mapsDirectory.newFolder("map.v0001").toPath();
+    scenarioFile = Files.write(mapFolder.resolve("map.v0001_scenario.lua"), "ScenarioInfo = {}".getBytes(UTF_8));
+  }
+
+  @Test
+  public void testCatalogIsPersisted() throws Exception {
+    InstalledMapCatalog instance = new InstalledMapCatalog(catalogFile);
+    instance.put(createEntry());
+    instance.save();
+
+    InstalledMapCatalog reloaded = new InstalledMapCatalog(catalogFile);
+    reloaded.load();
+
+    assertThat(reloaded.isUpToDate(mapFolder), is(true));
+    List<InstalledMapCatalog.Entry> entries = reloaded.getEntries(List.of(mapsDirectory.getRoot().toPath()));
+    assertThat(entries, hasSize(1));
+    MapBean mapBean = entries.get(0).toMapBean();
+    assertThat(mapBean.getFolderName(), is("map.v0001"));
+    assertThat(mapBean.getDisplayName(), is("Map"));
+    assertThat(mapBean.getType(), is(Type.SKIRMISH));
+    assertThat(mapBean.getSize(), is(MapSize.valueOf(512, 1024)));
+    assertThat(mapBean.getPlayers(), is(4));
+    assertThat(mapBean.getVersion(), is(new ComparableVersion("1")));
+    assertThat(reloaded.getEntries(List.of(cacheDirectory.getRoot().toPath())), hasSize(0));
+  }
+
+  @Test
+  public void testChangedScenarioFileIsNotUpToDate() throws Exception {
+    InstalledMapCatalog instance = new InstalledMapCatalog(catalogFile);
+    instance.put(createEntry());
+
+    Files.setLastModifiedTime(scenarioFile, FileTime.fromMillis(Files.getLastModifiedTime(scenarioFile).toMillis() + 2000));
+    assertThat(instance.isUpToDate(mapFolder), is(false));
+
+    instance.put(createEntry());
+    Files.delete(scenarioFile);
+    assertThat(instance.isUpToDate(mapFolder), is(false));
+  }
+
+  @Test
+  public void testRetainAll() throws Exception {
+    InstalledMapCatalog instance = new InstalledMapCatalog(catalogFile);
+    instance.put(createEntry());
+
+    instance.retainAll(List.of(mapsDirectory.getRoot().toPath().resolve("other.v0001")));
+
+    assertThat(instance.size(), is(0));
+    assertThat(instance.remove(mapFolder).orElse(null), is(nullValue()));
+  }
+
+  @Test
+  public void testUnreadableCatalogIsEmpty() throws Exception {
+    Files.write(catalogFile, new byte[]{31, -117, 8, 0, 1, 2, 3});
+
+    InstalledMapCatalog instance = new InstalledMapCatalog(catalogFile);
+    instance.load();
+
+    assertThat(instance.size(), is(0));
+  }
+
+  private InstalledMapCatalog.Entry createEntry() throws Exception {
+    MapBean mapBean = new MapBean();
+    mapBean.setFolderName("map.v0001");
+    mapBean.setDisplayName("Map");
+    mapBean.setDescription("Description");
+    mapBean.setType(Type.SKIRMISH);
+    mapBean.setSize(MapSize.valueOf(512, 1024));
+    mapBean.setPlayers(4);
+    mapBean.setVersion(new ComparableVersion("1"));
+    return InstalledMapCatalog.Entry.of(mapFolder, scenarioFile, Files.readAttributes(scenarioFile, BasicFileAttributes.class), mapBean);
+  }
+}
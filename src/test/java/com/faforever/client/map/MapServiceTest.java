@@ -23,6 +23,8 @@ import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.ObservableList;
 import javafx.scene.image.Image;
 import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -30,22 +32,30 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.luaj.vm2.LuaError;
 import org.mockito.Mock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.testfx.util.WaitForAsyncUtils;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.isEmptyOrNullString;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -59,6 +69,8 @@ import static org.mockito.Mockito.when;
 
 public class MapServiceTest extends AbstractPlainJavaFxTest {
 
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
   @Rule
   public TemporaryFolder cacheDirectory = new TemporaryFolder();
   @Rule
@@ -70,6 +82,7 @@ public class MapServiceTest extends AbstractPlainJavaFxTest {
 
   private MapService instance;
   private Path mapsDirectory;
+  private ClientProperties clientProperties;
 
   @Mock
   private PreferencesService preferencesService;
@@ -100,7 +113,7 @@ public class MapServiceTest extends AbstractPlainJavaFxTest {
 
   @Before
   public void setUp() throws Exception {
-    ClientProperties clientProperties = new ClientProperties();
+    clientProperties = new ClientProperties();
     clientProperties.getVault().setMapPreviewUrlFormat("http://127.0.0.1:65534/preview/%s/%s");
 
     mapsDirectory = gameDirectory.newFolder("maps").toPath();
@@ -109,9 +122,9 @@ public class MapServiceTest extends AbstractPlainJavaFxTest {
     when(forgedAlliancePrefs.getInstallationPath()).thenReturn(gameDirectory.getRoot().toPath());
     when(forgedAlliancePrefs.installationPathProperty()).thenReturn(new SimpleObjectProperty<>());
     when(preferencesService.getPreferences()).thenReturn(preferences);
+    when(preferencesService.getCacheDirectory()).thenReturn(cacheDirectory.getRoot().toPath());
     when(preferences.getForgedAlliance()).thenReturn(forgedAlliancePrefs);
-    instance = new MapService(preferencesService, taskService, applicationContext,
-        fafService, assetService, i18n, uiService, mapGeneratorService, clientProperties, eventBus, playerService);
+    instance = newInstance();
     instance.afterPropertiesSet();
 
     doAnswer(invocation -> {
@@ -122,10 +135,15 @@ public class MapServiceTest extends AbstractPlainJavaFxTest {
       return task;
     }).when(taskService).submitTask(any());
 
-    instance.officialMaps = ImmutableSet.of();
+    instance.setOfficialMaps(ImmutableSet.of());
     instance.afterPropertiesSet();
   }
 
+  @After
+  public void tearDown() {
+    instance.destroy();
+  }
+
   @Test
   public void testGetLocalMapsNoMaps() {
     assertThat(instance.getInstalledMaps(), hasSize(0));
@@ -133,7 +151,7 @@ public class MapServiceTest extends AbstractPlainJavaFxTest {
 
   @Test
   public void testGetLocalMapsOfficialMap() throws Exception {
-    instance.officialMaps = ImmutableSet.of("SCMP_001");
+    instance.setOfficialMaps(ImmutableSet.of("SCMP_001"));
 
     Path scmp001 = Files.createDirectory(mapsDirectory.resolve("SCMP_001"));
     Files.copy(getClass().getResourceAsStream("/maps/SCMP_001/SCMP_001_scenario.lua"), scmp001.resolve("SCMP_001_scenario.lua"));
@@ -183,7 +201,7 @@ public class MapServiceTest extends AbstractPlainJavaFxTest {
 
   @Test
   public void testInstalledOfficialMapIgnoreCase() throws Exception {
-    instance.officialMaps = ImmutableSet.of("SCMP_001");
+    instance.setOfficialMaps(ImmutableSet.of("SCMP_001"));
 
     Path scmp001 = Files.createDirectory(mapsDirectory.resolve("SCMP_001"));
     Files.copy(getClass().getResourceAsStream("/maps/SCMP_001/SCMP_001_scenario.lua"), scmp001.resolve("SCMP_001_scenario.lua"));
@@ -193,6 +211,180 @@ public class MapServiceTest extends AbstractPlainJavaFxTest {
     assertTrue(instance.isInstalled("ScMp_001"));
   }
 
+  @Test
+  public void testLoadManyInstalledMaps() throws Exception {
+    int mapCount = 2000;
+    for (int i = 0; i < mapCount; i++) {
+      writeScenario(customMapsDirectory.getRoot().toPath().resolve(String.format("map_%04d.v%04d", i, i % 7 + 1)), i);
+    }
+
+    long startTime = System.nanoTime();
+    instance.afterPropertiesSet();
+    logger.info("Read {} installed maps in {} ms", mapCount, (System.nanoTime() - startTime) / 1_000_000);
+
+    ObservableList<MapBean> installedMaps = instance.getInstalledMaps();
+    assertThat(installedMaps, hasSize(mapCount));
+    for (int i = 0; i < mapCount; i++) {
+      MapBean mapBean = instance.getMapLocallyFromName(String.format("map_%04d.v%04d", i, i % 7 + 1)).orElseThrow();
+      assertThat(mapBean.getDisplayName(), is("Generated map " + i));
+      assertThat(mapBean.getDescription(), is("Description of map " + i));
+      assertThat(mapBean.getSize(), is(MapSize.valueOf(256 << i % 4, 256 << i % 3)));
+      assertThat(mapBean.getPlayers(), is(i % 8 + 1));
+      assertThat(mapBean.getVersion(), is(new ComparableVersion(String.valueOf(i % 7 + 1))));
+    }
+  }
+
+  @Test
+  public void testColdStartWritesCatalog() throws Exception {
+    Path catalogFile = cacheDirectory.getRoot().toPath().resolve("installed-maps.json.gz");
+    Files.deleteIfExists(catalogFile);
+    writeScenario(customMapsDirectory.getRoot().toPath().resolve("map_1.v0001"), 1);
+    writeScenario(customMapsDirectory.getRoot().toPath().resolve("map_2.v0001"), 2);
+
+    instance = newInstance();
+    instance.afterPropertiesSet();
+
+    assertThat(instance.getInstalledMaps(), hasSize(2));
+    assertTrue(Files.exists(catalogFile));
+    InstalledMapCatalog catalog = new InstalledMapCatalog(catalogFile);
+    catalog.load();
+    assertThat(catalog.size(), is(2));
+  }
+
+  @Test
+  public void testWarmStartDoesNotReadUnchangedMaps() throws Exception {
+    Path mapFolder = customMapsDirectory.getRoot().toPath().resolve("map_1.v0001");
+    writeScenario(mapFolder, 1);
+    instance = newInstance();
+    instance.afterPropertiesSet();
+
+    // Changes that keep the size and modification time of the scenario file are not noticed, proving it isn't read
+    Path scenarioFile = mapFolder.resolve("map_1.v0001_scenario.lua");
+    FileTime lastModified = Files.getLastModifiedTime(scenarioFile);
+    Files.write(scenarioFile, new String(Files.readAllBytes(scenarioFile), UTF_8)
+        .replace("Generated map 1", "Xenerated map 1").getBytes(UTF_8));
+    Files.setLastModifiedTime(scenarioFile, lastModified);
+
+    instance = newInstance();
+    instance.afterPropertiesSet();
+
+    assertThat(instance.getInstalledMaps(), hasSize(1));
+    assertThat(instance.getMapLocallyFromName("map_1.v0001").orElseThrow().getDisplayName(), is("Generated map 1"));
+    assertThat(instance.getMapLocallyFromName("map_1.v0001").orElseThrow().getPlayers(), is(2));
+  }
+
+  @Test
+  public void testMapsChangedWhileClosedAreReconciled() throws Exception {
+    Path customMaps = customMapsDirectory.getRoot().toPath();
+    writeScenario(customMaps.resolve("map_1.v0001"), 1);
+    writeScenario(customMaps.resolve("map_2.v0001"), 2);
+    writeScenario(customMaps.resolve("map_3.v0001"), 3);
+    instance = newInstance();
+    instance.afterPropertiesSet();
+
+    Path editedScenario = customMaps.resolve("map_1.v0001").resolve("map_1.v0001_scenario.lua");
+    FileTime lastModified = Files.getLastModifiedTime(editedScenario);
+    Files.write(editedScenario, new String(Files.readAllBytes(editedScenario), UTF_8)
+        .replace("Generated map 1", "Edited map 1").getBytes(UTF_8));
+    Files.setLastModifiedTime(editedScenario, FileTime.fromMillis(lastModified.toMillis() + 2000));
+    Path removedMap = customMaps.resolve("map_2.v0001");
+    Files.delete(removedMap.resolve("map_2.v0001_scenario.lua"));
+    Files.delete(removedMap);
+    writeScenario(customMaps.resolve("map_4.v0001"), 4);
+
+    instance = newInstance();
+    instance.afterPropertiesSet();
+
+    assertThat(instance.getInstalledMaps(), hasSize(3));
+    assertThat(instance.getMapLocallyFromName("map_1.v0001").orElseThrow().getDisplayName(), is("Edited map 1"));
+    assertThat(instance.isInstalled("map_2.v0001"), is(false));
+    assertThat(instance.getMapLocallyFromName("map_3.v0001").orElseThrow().getDisplayName(), is("Generated map 3"));
+    assertThat(instance.getMapLocallyFromName("map_4.v0001").orElseThrow().getDisplayName(), is("Generated map 4"));
+  }
+
+  @Test
+  public void testCorruptCatalogIsRebuilt() throws Exception {
+    Path catalogFile = cacheDirectory.getRoot().toPath().resolve("installed-maps.json.gz");
+    Files.write(catalogFile, "This is not a catalog".getBytes(UTF_8));
+    writeScenario(customMapsDirectory.getRoot().toPath().resolve("map_1.v0001"), 1);
+
+    instance = newInstance();
+    instance.afterPropertiesSet();
+
+    assertThat(instance.getMapLocallyFromName("map_1.v0001").orElseThrow().getDisplayName(), is("Generated map 1"));
+    InstalledMapCatalog catalog = new InstalledMapCatalog(catalogFile);
+    catalog.load();
+    assertThat(catalog.size(), is(1));
+  }
+
+  @Test
+  public void testMapsExtractedAndDeletedWhileRunningAreNoticed() throws Exception {
+    Path customMaps = customMapsDirectory.getRoot().toPath();
+    int mapCount = 50;
+    for (int i = 0; i < mapCount; i++) {
+      writeScenario(customMaps.resolve(String.format("map_%d.v0001", i)), i);
+    }
+
+    WaitForAsyncUtils.waitFor(10, TimeUnit.SECONDS, () -> instance.getInstalledMaps().size() == mapCount);
+    assertThat(instance.getMapLocallyFromName("map_7.v0001").orElseThrow().getDisplayName(), is("Generated map 7"));
+
+    Path deletedMap = customMaps.resolve("map_7.v0001");
+    Files.delete(deletedMap.resolve("map_7.v0001_scenario.lua"));
+    Files.delete(deletedMap);
+
+    WaitForAsyncUtils.waitFor(10, TimeUnit.SECONDS, () -> !instance.isInstalled("map_7.v0001"));
+    assertThat(instance.getInstalledMaps(), hasSize(mapCount - 1));
+  }
+
+  @Test
+  public void testIsOfficialMapIgnoresCase() {
+    instance.setOfficialMaps(ImmutableSet.of("SCMP_001", "X1MP_017"));
+
+    assertTrue(instance.isOfficialMap("scmp_001"));
+    assertTrue(instance.isOfficialMap("X1mp_017"));
+    assertThat(instance.isOfficialMap("SCMP_002"), is(false));
+  }
+
+  @Test
+  public void testMixedCaseFoldersAreFoundIgnoringCase() throws Exception {
+    Path mapFolder = customMapsDirectory.getRoot().toPath().resolve("Mixed_Case_Map.V0001");
+    writeScenario(mapFolder, 1);
+
+    instance.afterPropertiesSet();
+
+    assertThat(instance.getPathForMapInsensitive("mixed_case_map.v0001"), is(mapFolder));
+    assertThat(instance.getPathForMapInsensitive("MIXED_CASE_MAP.V0001"), is(mapFolder));
+    assertTrue(instance.isInstalled("mixed_case_map.v0001"));
+    assertThat(instance.getMapLocallyFromName("MIXED_case_map.v0001").orElseThrow().getFolderName(), is("Mixed_Case_Map.V0001"));
+    assertThat(instance.getPathForMapInsensitive("other_map.v0001"), is(nullValue()));
+  }
+
+  @Test
+  public void testFoldersDifferingInCaseAreInstalledOnce() throws Exception {
+    Path customMaps = customMapsDirectory.getRoot().toPath();
+    Path upperCaseFolder = Files.createDirectory(customMaps.resolve("COLLISION.v0001"));
+    Assume.assumeTrue("File system is not case-sensitive", Files.notExists(customMaps.resolve("collision.v0001")));
+    Files.delete(upperCaseFolder);
+    writeScenario(customMaps.resolve("COLLISION.v0001"), 1);
+    writeScenario(customMaps.resolve("collision.v0001"), 2);
+
+    instance.afterPropertiesSet();
+
+    assertThat(instance.getInstalledMaps(), hasSize(1));
+    MapBean installedMap = instance.getMapLocallyFromName("Collision.V0001").orElseThrow();
+    Path installedPath = instance.getPathForMapInsensitive("Collision.V0001");
+    assertThat(installedPath.getFileName().toString(), is(installedMap.getFolderName()));
+
+    Files.delete(installedPath.resolve(installedPath.getFileName() + "_scenario.lua"));
+    Files.delete(installedPath);
+
+    WaitForAsyncUtils.waitFor(10, TimeUnit.SECONDS, () -> !installedPath.equals(instance.getPathForMapInsensitive("collision.v0001")));
+    Path remainingPath = instance.getPathForMapInsensitive("collision.v0001");
+    assertThat(remainingPath, is(not(installedPath)));
+    assertThat(instance.getInstalledMaps(), hasSize(1));
+    assertThat(instance.getMapLocallyFromName("collision.v0001").orElseThrow().getFolderName(), is(remainingPath.getFileName().toString()));
+  }
+
   @Test
   public void testLoadPreview() {
     for (PreviewSize previewSize : PreviewSize.values()) {
@@ -236,4 +428,41 @@ public class MapServiceTest extends AbstractPlainJavaFxTest {
     instance.getMostPlayedMapsWithPageCount(10, 0);
     verify(fafService).getMostPlayedMapsWithPageCount(10, 0);
   }
+
+  private MapService newInstance() {
+    MapService mapService = new MapService(preferencesService, taskService, applicationContext,
+        fafService, assetService, i18n, uiService, mapGeneratorService, clientProperties, eventBus, playerService);
+    mapService.setOfficialMaps(ImmutableSet.of());
+    return mapService;
+  }
+
+  /**
+   * Writes a scenario file like the ones of custom maps, including a prelude function call.
+   */
+  private static void writeScenario(Path mapFolder, int index) throws IOException {
+    StringBuilder armies = new StringBuilder();
+    for (int army = 1; army <= index % 8 + 1; army++) {
+      armies.append("'ARMY_").append(army).append("', ");
+    }
+    Files.createDirectories(mapFolder);
+    Files.write(mapFolder.resolve(mapFolder.getFileName() + "_scenario.lua"), String.format("version = 3\n" +
+        "ScenarioInfo = {\n" +
+        "    name = 'Generated map %1$d',\n" +
+        "    description = '<LOC map_%1$d_Description>Description of map %1$d',\n" +
+        "    type = 'skirmish',\n" +
+        "    starts = true,\n" +
+        "    size = { %2$d, %3$d },\n" +
+        "    map_version = %4$d,\n" +
+        "    Configurations = {\n" +
+        "        ['standard'] = {\n" +
+        "            teams = {\n" +
+        "                { name = 'FFA', armies = { %5$s} },\n" +
+        "            },\n" +
+        "            customprops = {\n" +
+        "                ['ExtraArmies'] = STRING('ARMY_17 NEUTRAL_CIVILIAN'),\n" +
+        "            },\n" +
+        "        },\n" +
+        "    }\n" +
+        "}\n", index, 256 << index % 4, 256 << index % 3, index % 7 + 1, armies).getBytes(UTF_8));
+  }
 }
@@ -0,0 +1,232 @@
+package com.faforever.client.mod;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThrows;
+
+public class GamePrefsFileTest {
+
+  private static final List<String> CORPUS = List.of(
+      "default.prefs",
+      "typical.prefs",
+      "double-quoted.prefs",
+      "duplicate.prefs",
+      "no-active-mods.prefs",
+      "crlf.prefs",
+      "non-ascii.prefs",
+      "empty.prefs",
+      "malformed-after-active-mods.prefs",
+      "malformed-before-active-mods.prefs",
+      "malformed-active-mods.prefs",
+      "stray-brace.prefs"
+  );
+  /** The files of the corpus to which active mods can be written. */
+  private static final List<String> WRITABLE_CORPUS = List.of(
+      "default.prefs",
+      "typical.prefs",
+      "double-quoted.prefs",
+      "duplicate.prefs",
+      "no-active-mods.prefs",
+      "crlf.prefs",
+      "non-ascii.prefs",
+      "empty.prefs",
+      "malformed-after-active-mods.prefs"
+  );
+
+  @Rule
+  public TemporaryFolder directory = new TemporaryFolder();
+
+  private Path gamePrefsPath;
+
+  @Before
+  public void setUp() {
+    gamePrefsPath = directory.getRoot().toPath().resolve("game.prefs");
+  }
+
+  @Test
+  public void testUnchangedFileIsNotWritten() throws Exception {
+    for (String name : CORPUS) {
+      byte[] content = copyPrefs(name);
+
+      GamePrefsFile instance = GamePrefsFile.read(gamePrefsPath);
+      instance.write();
+
+      assertArrayEquals(name, content, Files.readAllBytes(gamePrefsPath));
+      assertThat(name, Files.exists(backupPath()), is(false));
+    }
+  }
+
+  @Test
+  public void testWrittenActiveModsAreReadBack() throws Exception {
+    Map<String, Boolean> modStates = new LinkedHashMap<>();
+    modStates.put("9e8ea941-c306-4751-b367-a11000000502", true);
+    modStates.put("9e8ea941-c306-4751-b367-f00000000005", false);
+    modStates.put("it's", true);
+
+    for (String name : WRITABLE_CORPUS) {
+      byte[] content = copyPrefs(name);
+
+      GamePrefsFile instance = GamePrefsFile.read(gamePrefsPath);
+      instance.setActiveMods(modStates);
+      instance.write();
+
+      assertThat(name, GamePrefsFile.read(gamePrefsPath).getActiveMods().keySet(),
+          contains("9e8ea941-c306-4751-b367-a11000000502", "it's"));
+      assertArrayEquals(name, content, Files.readAllBytes(backupPath()));
+    }
+  }
+
+  @Test
+  public void testOnlyTopLevelActiveModsAreRead() throws Exception {
+    copyPrefs("typical.prefs");
+
+    Map<String, Boolean> activeMods = GamePrefsFile.read(gamePrefsPath).getActiveMods();
+
+    assertThat(activeMods.keySet(), contains(
+        "9e8ea941-c306-4751-b367-f00000000005",
+        "9e8ea941-c306-4751-b367-a11000000502",
+        "9e8ea941-c306-4751-b367-e00000000003"
+    ));
+    assertThat(activeMods.get("9e8ea941-c306-4751-b367-a11000000502"), is(false));
+  }
+
+  @Test
+  public void testDoubleQuotedKeys() throws Exception {
+    copyPrefs("double-quoted.prefs");
+
+    Map<String, Boolean> activeMods = GamePrefsFile.read(gamePrefsPath).getActiveMods();
+
+    assertThat(activeMods.keySet(), contains("9e8ea941-c306-4751-b367-f00000000005", "9e8ea941-c306-4751-b367-a11000000502"));
+  }
+
+  @Test
+  public void testLastActiveModsTableWins() throws Exception {
+    copyPrefs("duplicate.prefs");
+
+    GamePrefsFile instance = GamePrefsFile.read(gamePrefsPath);
+    assertThat(instance.getActiveMods().keySet(), contains("second-0000"));
+
+    instance.setActiveMods(Map.of("third-0000", true));
+
+    assertThat(instance.getContent(), is(String.join("\n",
+        "active_mods = {",
+        "    ['first-0000'] = true,",
+        "}",
+        "options = {}",
+        "active_mods = {",
+        "    ['third-0000'] = true",
+        "}",
+        ""
+    )));
+  }
+
+  @Test
+  public void testOnlyActiveModsTableIsReplaced() throws Exception {
+    String content = new String(copyPrefs("typical.prefs"), ISO_8859_1);
+    String table = "{\n"
+        + "    ['9e8ea941-c306-4751-b367-f00000000005'] = true,\n"
+        + "    ['9e8ea941-c306-4751-b367-a11000000502'] = false,\n"
+        + "    ['9e8ea941-c306-4751-b367-e00000000003'] = true,\n"
+        + "}";
+    int tableStart = content.indexOf(table);
+
+    GamePrefsFile instance = GamePrefsFile.read(gamePrefsPath);
+    instance.setActiveMods(Map.of("9e8ea941-c306-4751-b367-e00000000003", true));
+
+    assertThat(instance.getContent(), is(content.substring(0, tableStart)
+        + "{\n    ['9e8ea941-c306-4751-b367-e00000000003'] = true\n}"
+        + content.substring(tableStart + table.length())));
+  }
+
+  @Test
+  public void testNonAsciiContentIsPreserved() throws Exception {
+    byte[] content = copyPrefs("non-ascii.prefs");
+
+    GamePrefsFile instance = GamePrefsFile.read(gamePrefsPath);
+    instance.setActiveMods(Map.of());
+    instance.write();
+
+    String written = new String(Files.readAllBytes(gamePrefsPath), ISO_8859_1);
+    String original = new String(content, ISO_8859_1);
+    assertThat(written, is(original.substring(0, original.indexOf("active_mods")) + "active_mods = {\n}\n"));
+  }
+
+  @Test
+  public void testActiveModsAreAddedIfMissing() throws Exception {
+    copyPrefs("no-active-mods.prefs");
+
+    GamePrefsFile instance = GamePrefsFile.read(gamePrefsPath);
+    assertThat(instance.getActiveMods(), is(anEmptyMap()));
+
+    instance.setActiveMods(Map.of("9e8ea941-c306-4751-b367-f00000000005", true));
+
+    assertThat(instance.getContent(), is(String.join("\n",
+        "profile = {",
+        "    current = 1,",
+        "}",
+        "options = {",
+        "    active_mods = 'not a table',",
+        "}",
+        "version = 2",
+        "active_mods = {",
+        "    ['9e8ea941-c306-4751-b367-f00000000005'] = true",
+        "}"
+    )));
+  }
+
+  @Test
+  public void testActiveModsBeforeMalformedContentCanBeChanged() throws Exception {
+    copyPrefs("malformed-after-active-mods.prefs");
+
+    GamePrefsFile instance = GamePrefsFile.read(gamePrefsPath);
+    assertThat(instance.getActiveMods().keySet(), contains("9e8ea941-c306-4751-b367-f00000000005"));
+
+    instance.setActiveMods(Map.of());
+
+    assertThat(instance.getContent(), is("active_mods = {\n}\noptions = {\n    ui_scale = 1,\n"));
+  }
+
+  @Test
+  public void testActiveModsAreNotAddedToMalformedFile() throws Exception {
+    for (String name : List.of("malformed-before-active-mods.prefs", "malformed-active-mods.prefs", "stray-brace.prefs")) {
+      byte[] content = copyPrefs(name);
+
+      GamePrefsFile instance = GamePrefsFile.read(gamePrefsPath);
+
+      assertThat(name, instance.getActiveMods(), is(anEmptyMap()));
+      assertThrows(name, IOException.class, () -> instance.setActiveMods(Map.of("9e8ea941-c306-4751-b367-f00000000005", true)));
+      instance.write();
+      assertArrayEquals(name, content, Files.readAllBytes(gamePrefsPath));
+    }
+  }
+
+  private byte[] copyPrefs(String name) throws IOException {
+    Files.deleteIfExists(backupPath());
+    try (InputStream inputStream = getClass().getResourceAsStream("/game-prefs/" + name)) {
+      byte[] content = inputStream.readAllBytes();
+      Files.write(gamePrefsPath, content);
+      return content;
+    }
+  }
+
+  private Path backupPath() {
+    return gamePrefsPath.resolveSibling("game.prefs.bak");
+  }
+}
@@ -0,0 +1,100 @@
+package com.faforever.client.mod;
+
+import com.faforever.client.mod.ModVersion.ModType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class InstalledModRegistryTest {
+
+  private static final Path MODS_DIRECTORY = Paths.get("mods");
+
+  private InstalledModRegistry instance;
+
+  @Before
+  public void setUp() {
+    instance = new InstalledModRegistry();
+  }
+
+  @Test
+  public void testLookups() {
+    ModVersion simMod = mod("sim", ModType.SIM);
+    ModVersion uiMod = mod("ui", ModType.UI);
+    instance.add(MODS_DIRECTORY.resolve("Sim"), simMod);
+    instance.add(MODS_DIRECTORY.resolve("Ui"), uiMod);
+
+    assertThat(instance.containsUid("sim"), is(true));
+    assertThat(instance.containsUid("other"), is(false));
+    assertThat(instance.getByUid("ui").orElseThrow(), is(sameInstance(uiMod)));
+    assertThat(instance.getPath("sim"), is(MODS_DIRECTORY.resolve("Sim")));
+    assertThat(instance.getPath("other"), is(nullValue()));
+    assertThat(instance.getUids(), containsInAnyOrder("sim", "ui"));
+    assertThat(instance.getUiModUids(), containsInAnyOrder("ui"));
+  }
+
+  @Test
+  public void testSnapshotsDoNotChange() {
+    instance.add(MODS_DIRECTORY.resolve("Sim"), mod("sim", ModType.SIM));
+    Set<String> uids = instance.getUids();
+
+    instance.add(MODS_DIRECTORY.resolve("Ui"), mod("ui", ModType.UI));
+    instance.remove(MODS_DIRECTORY.resolve("Sim"));
+
+    assertThat(uids, containsInAnyOrder("sim"));
+    assertThat(instance.getUids(), containsInAnyOrder("ui"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSnapshotsAreImmutable() {
+    instance.add(MODS_DIRECTORY.resolve("Sim"), mod("sim", ModType.SIM));
+
+    instance.getUids().add("other");
+  }
+
+  @Test
+  public void testModInstalledTwiceIsReplacedByOtherFolderWhenRemoved() {
+    ModVersion first = mod("sim", ModType.SIM);
+    ModVersion second = mod("sim", ModType.SIM);
+    instance.add(MODS_DIRECTORY.resolve("First"), first);
+    instance.add(MODS_DIRECTORY.resolve("Second"), second);
+
+    assertThat(instance.getByUid("sim").orElseThrow(), is(sameInstance(first)));
+    assertThat(instance.getPaths(), containsInAnyOrder(MODS_DIRECTORY.resolve("First"), MODS_DIRECTORY.resolve("Second")));
+
+    assertThat(instance.remove(MODS_DIRECTORY.resolve("First")).orElseThrow(), is(sameInstance(first)));
+
+    assertThat(instance.getByUid("sim").orElseThrow(), is(sameInstance(second)));
+    assertThat(instance.getPath("sim"), is(MODS_DIRECTORY.resolve("Second")));
+  }
+
+  @Test
+  public void testChangedModReplacesPreviousVersionInSameFolder() {
+    Path path = MODS_DIRECTORY.resolve("Mod");
+    instance.add(path, mod("v1", ModType.SIM));
+    instance.add(MODS_DIRECTORY.resolve("Copy"), mod("v1", ModType.SIM));
+    ModVersion changed = mod("v1", ModType.UI);
+
+    instance.add(path, changed);
+
+    assertThat(instance.getByUid("v1").orElseThrow(), is(sameInstance(changed)));
+    assertThat(instance.getUiModUids(), containsInAnyOrder("v1"));
+
+    instance.add(path, mod("v2", ModType.SIM));
+
+    assertThat(instance.getPath("v1"), is(MODS_DIRECTORY.resolve("Copy")));
+    assertThat(instance.getPath("v2"), is(path));
+  }
+
+  private static ModVersion mod(String uid, ModType modType) {
+    return ModInfoBeanBuilder.create().defaultValues().uid(uid).modType(modType).get();
+  }
+}
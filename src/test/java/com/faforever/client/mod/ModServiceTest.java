@@ -1,6 +1,7 @@
 package com.faforever.client.mod;
 
 import com.faforever.client.fx.PlatformService;
+import com.faforever.client.game.FeaturedModBeanBuilder;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.mod.ModVersion.ModType;
 import com.faforever.client.notification.NotificationService;
@@ -28,12 +29,15 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.io.ClassPathResource;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -44,24 +48,30 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ModServiceTest extends AbstractPlainJavaFxTest {
 
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
   public static final String BLACK_OPS_UNLEASHED_DIRECTORY_NAME = "BlackOpsUnleashed";
   private static final ClassPathResource BLACKOPS_SUPPORT_MOD_INFO = new ClassPathResource("/mods/blackops_support_mod_info.lua");
   private static final ClassPathResource BLACKOPS_UNLEASHED_MOD_INFO = new ClassPathResource("/mods/blackops_unleashed_mod_info.lua");
@@ -339,6 +349,39 @@ public class ModServiceTest extends AbstractPlainJavaFxTest {
     assertThat(modVersion.getModType(), equalTo(ModType.UI));
   }
 
+  @Test
+  public void testLoadManyInstalledMods() throws Exception {
+    int modCount = 500;
+    for (int i = 0; i < modCount; i++) {
+      Path modDirectory = Files.createDirectories(modsDirectory.getRoot().toPath().resolve(String.format("mod_%03d", i)));
+      Files.write(modDirectory.resolve("mod_info.lua"), String.format("name = \"Generated mod %1$d\"\n" +
+          "uid = \"00000000-0000-0000-0000-%1$012d\"\n" +
+          "version = %2$d\n" +
+          "description = \"Description of mod %1$d\"\n" +
+          "author = \"Author %1$d\"\n" +
+          "selectable = true\n" +
+          "ui_only = %3$b\n", i, i % 9 + 1, i % 2 == 0).getBytes(UTF_8));
+    }
+
+    long startTime = System.nanoTime();
+    instance.loadInstalledMods();
+    logger.info("Read {} installed mods in {} ms", modCount, (System.nanoTime() - startTime) / 1_000_000);
+
+    List<ModVersion> installedModVersions = new ArrayList<>(instance.getInstalledModVersions());
+    installedModVersions.removeIf(modVersion -> !modVersion.getDisplayName().startsWith("Generated mod"));
+    installedModVersions.sort(Comparator.comparing(ModVersion::getUid));
+    assertThat(installedModVersions, hasSize(modCount));
+    for (int i = 0; i < modCount; i++) {
+      ModVersion modVersion = installedModVersions.get(i);
+      assertThat(modVersion.getDisplayName(), is("Generated mod " + i));
+      assertThat(modVersion.getUid(), is(String.format("00000000-0000-0000-0000-%012d", i)));
+      assertThat(modVersion.getVersion(), is(new ComparableVersion(String.valueOf(i % 9 + 1))));
+      assertThat(modVersion.getDescription(), is("Description of mod " + i));
+      assertThat(modVersion.getUploader(), is("Author " + i));
+      assertThat(modVersion.getModType(), is(i % 2 == 0 ? ModType.UI : ModType.SIM));
+    }
+  }
+
   @Test
   public void testLoadInstalledModWithoutModInfo() throws Exception {
     Files.createDirectories(modsDirectory.getRoot().toPath().resolve("foobar"));
@@ -415,4 +458,48 @@ public class ModServiceTest extends AbstractPlainJavaFxTest {
       }
     };
   }
+
+  @Test
+  public void testInstalledModLookups() {
+    Path modsPath = modsDirectory.getRoot().toPath();
+    ModVersion simMod = ModInfoBeanBuilder.create().defaultValues().uid("sim").modType(ModType.SIM).get();
+    ModVersion uiMod = ModInfoBeanBuilder.create().defaultValues().uid("ui").modType(ModType.UI).get();
+    instance.addMod(modsPath.resolve("Sim"), simMod);
+    instance.addMod(modsPath.resolve("Ui"), uiMod);
+    instance.addMod(modsPath.resolve("SimCopy"), ModInfoBeanBuilder.create().defaultValues().uid("sim").modType(ModType.SIM).get());
+
+    assertThat(instance.isModInstalled("sim"), is(true));
+    assertThat(instance.isModInstalled("other"), is(false));
+    assertThat(instance.getPathForMod(simMod), is(modsPath.resolve("Sim")));
+    assertThat(instance.getInstalledUiModsUids(), contains("ui"));
+    assertThat(instance.getInstalledModUids(), hasItems("sim", "ui"));
+    assertThat(instance.getInstalledModVersions(), hasItems(simMod, uiMod));
+    assertThat(instance.getInstalledModVersions().stream().filter(modVersion -> modVersion.getUid().equals("sim")).count(), is(1L));
+  }
+
+  @Test
+  public void testChangedModIsReplacedInPlace() {
+    Path modPath = modsDirectory.getRoot().toPath().resolve("Mod");
+    ModVersion v1 = ModInfoBeanBuilder.create().defaultValues().uid("v1").get();
+    ModVersion v2 = ModInfoBeanBuilder.create().defaultValues().uid("v2").get();
+    instance.addMod(modPath, v1);
+
+    instance.addMod(modPath, v2);
+
+    assertThat(instance.getInstalledModVersions(), contains(v2));
+    assertThat(instance.isModInstalled("v1"), is(false));
+    assertThat(instance.getPathForMod(v2), is(modPath));
+  }
+
+  @Test
+  public void testFeaturedModsAreIndexedOnce() throws Exception {
+    FeaturedMod faf = FeaturedModBeanBuilder.create().defaultValues().technicalName("faf").get();
+    FeaturedMod coop = FeaturedModBeanBuilder.create().defaultValues().technicalName("coop").get();
+    when(fafService.getFeaturedMods()).thenReturn(CompletableFuture.completedFuture(Arrays.asList(faf, coop)));
+
+    assertThat(instance.getFeaturedMod("faf").get(), is(faf));
+    assertThat(instance.getFeaturedMod("coop").get(), is(coop));
+    assertThat(instance.getFeaturedMod("unknown").isCompletedExceptionally(), is(true));
+    verify(fafService, times(1)).getFeaturedMods();
+  }
 }
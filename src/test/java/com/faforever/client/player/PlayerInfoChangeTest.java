@@ -0,0 +1,66 @@
+package com.faforever.client.player;
+
+import com.faforever.client.remote.domain.Avatar;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PlayerInfoChangeTest {
+
+  @Test
+  public void testFirstPlayerInfoSetsAllFields() {
+    PlayerInfoChange change = PlayerInfoChange.between(null, playerInfo(1000, "http://example.com/avatar.png"));
+
+    Player player = new Player("junit");
+    change.applyTo(player);
+
+    assertThat(change.isCameOnline(), is(true));
+    assertThat(player.getId(), is(1));
+    assertThat(player.getClan(), is("clan"));
+    assertThat(player.getCountry(), is("CH"));
+    assertThat(player.getGlobalRatingMean(), is(1000f));
+    assertThat(player.getNumberOfGames(), is(5));
+    assertThat(player.getAvatarUrl(), is("http://example.com/avatar.png"));
+  }
+
+  @Test
+  public void testEqualPlayerInfoHasNoChange() {
+    assertThat(PlayerInfoChange.between(playerInfo(1000, "http://example.com/avatar.png"),
+        playerInfo(1000, "http://example.com/avatar.png")), is(nullValue()));
+  }
+
+  @Test
+  public void testOnlyChangedFieldsAreSet() {
+    PlayerInfoChange change = PlayerInfoChange.between(playerInfo(1000, "http://example.com/avatar.png"),
+        playerInfo(1200, "http://example.com/avatar.png"));
+    PlayerInfoChange laterChange = PlayerInfoChange.between(playerInfo(1200, "http://example.com/avatar.png"),
+        playerInfo(1200, "http://example.com/other.png"));
+
+    Player player = new Player("junit");
+    player.setClan("local");
+    change.merge(laterChange).applyTo(player);
+
+    assertThat(change, is(notNullValue()));
+    assertThat(change.isCameOnline(), is(false));
+    assertThat(player.getGlobalRatingMean(), is(1200f));
+    assertThat(player.getAvatarUrl(), is("http://example.com/other.png"));
+    assertThat(player.getClan(), is("local"));
+  }
+
+  private static com.faforever.client.remote.domain.Player playerInfo(float rating, String avatarUrl) {
+    com.faforever.client.remote.domain.Player playerInfo = new com.faforever.client.remote.domain.Player();
+    playerInfo.setId(1);
+    playerInfo.setLogin("junit");
+    playerInfo.setClan("clan");
+    playerInfo.setCountry("CH");
+    playerInfo.setNumberOfGames(5);
+    playerInfo.setGlobalRating(new float[]{rating, 100});
+    Avatar avatar = new Avatar();
+    avatar.setUrl(avatarUrl);
+    playerInfo.setAvatar(avatar);
+    return playerInfo;
+  }
+}
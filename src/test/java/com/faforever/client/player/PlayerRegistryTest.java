@@ -0,0 +1,89 @@
+package com.faforever.client.player;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.faforever.client.player.SocialStatus.FOE;
+import static com.faforever.client.player.SocialStatus.FRIEND;
+import static com.faforever.client.player.SocialStatus.OTHER;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class PlayerRegistryTest {
+
+  private PlayerRegistry instance;
+
+  @Before
+  public void setUp() {
+    instance = new PlayerRegistry();
+  }
+
+  @Test
+  public void testGetOrCreateReturnsSamePlayer() {
+    Player player = instance.getOrCreate("junit");
+
+    assertThat(instance.getOrCreate("junit"), is(sameInstance(player)));
+    assertThat(instance.getByName("junit"), is(sameInstance(player)));
+    assertThat(instance.getByName(null), is(nullValue()));
+    assertThat(instance.getUsernames(), containsInAnyOrder("junit"));
+  }
+
+  @Test
+  public void testIdIndexFollowsIdChanges() {
+    Player player = instance.getOrCreate("junit");
+
+    player.setId(1);
+    assertThat(instance.getById(1), is(sameInstance(player)));
+
+    player.setId(2);
+    assertThat(instance.getById(1), is(nullValue()));
+    assertThat(instance.getById(2), is(sameInstance(player)));
+  }
+
+  @Test
+  public void testReplaceSocialIdsReturnsChangedIds() {
+    instance.replaceSocialIds(FRIEND, List.of(1, 2, 3));
+    instance.replaceSocialIds(FOE, List.of(4));
+
+    Set<Integer> changedIds = instance.replaceSocialIds(FRIEND, List.of(2, 3, 5));
+
+    assertThat(changedIds, containsInAnyOrder(1, 5));
+    assertThat(instance.getSocialStatus(1), is(OTHER));
+    assertThat(instance.getSocialStatus(2), is(FRIEND));
+    assertThat(instance.getSocialStatus(4), is(FOE));
+    assertThat(instance.getSocialStatus(5), is(FRIEND));
+    assertThat(instance.replaceSocialIds(FRIEND, List.of(2, 3, 5)), empty());
+  }
+
+  @Test
+  public void testFriendBecomesFoe() {
+    instance.setSocialStatus(1, FRIEND);
+    instance.replaceSocialIds(FOE, List.of(1));
+
+    assertThat(instance.getSocialStatus(1), is(FOE));
+
+    instance.setSocialStatus(1, OTHER);
+
+    assertThat(instance.getSocialStatus(1), is(OTHER));
+  }
+
+  @Test
+  public void testGameIndex() {
+    Player player1 = instance.getOrCreate("junit1");
+    Player player2 = instance.getOrCreate("junit2");
+
+    assertThat(instance.setPlayersInGame(1, Set.of(player1)), empty());
+    assertThat(instance.setPlayersInGame(1, Set.of(player1, player2)), containsInAnyOrder(player1));
+    assertThat(instance.getPlayersInGame(1), containsInAnyOrder(player1, player2));
+    assertThat(instance.removeGame(1), containsInAnyOrder(player1, player2));
+    assertThat(instance.getPlayersInGame(1), empty());
+    assertThat(instance.removeGame(1), empty());
+  }
+}
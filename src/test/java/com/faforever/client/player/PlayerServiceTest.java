@@ -4,30 +4,37 @@ import com.faforever.client.game.Game;
 import com.faforever.client.game.GameAddedEvent;
 import com.faforever.client.game.GameRemovedEvent;
 import com.faforever.client.game.GameUpdatedEvent;
+import com.faforever.client.player.event.FriendJoinedGameEvent;
 import com.faforever.client.remote.FafService;
 import com.faforever.client.remote.domain.GameStatus;
 import com.faforever.client.remote.domain.PlayersMessage;
 import com.faforever.client.remote.domain.SocialMessage;
+import com.faforever.client.test.AbstractPlainJavaFxTest;
 import com.faforever.client.user.UserService;
 import com.faforever.client.user.event.LoginSuccessEvent;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
-import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.ObservableMap;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
 import org.springframework.util.ReflectionUtils;
+import org.testfx.util.WaitForAsyncUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static com.faforever.client.player.SocialStatus.FOE;
 import static com.faforever.client.player.SocialStatus.FRIEND;
+import static com.faforever.client.player.SocialStatus.OTHER;
 import static com.natpryce.hamcrest.reflection.HasAnnotationMatcher.hasAnnotation;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -41,10 +48,14 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
-public class PlayerServiceTest {
+public class PlayerServiceTest extends AbstractPlainJavaFxTest {
+
+  private static final long TIMEOUT = 10;
+  private static final TimeUnit TIME_UNIT = TimeUnit.SECONDS;
 
   @Mock
   private FafService fafService;
@@ -57,12 +68,8 @@ public class PlayerServiceTest {
 
   @Before
   public void setUp() throws Exception {
-    MockitoAnnotations.initMocks(this);
-
     instance = new PlayerService(fafService, userService, eventBus);
 
-    when(fafService.connectionStateProperty()).thenReturn(new SimpleObjectProperty<>());
-
     instance.afterPropertiesSet();
   }
 
@@ -288,4 +295,144 @@ public class PlayerServiceTest {
     assertThat(player1.getGame(), is(nullValue()));
     assertThat(player2.getGame(), is(nullValue()));
   }
+
+  @Test
+  public void testPlayerInTwoGamesKeepsLatestGame() {
+    Player player = instance.createAndGetPlayerForUsername("JUnit1");
+    Game game1 = createOpenGame(1, "JUnit1");
+    Game game2 = createOpenGame(2, "JUnit1");
+
+    instance.onGameAdded(new GameAddedEvent(game1));
+    // The player left the first game, but the second game's update arrives first
+    instance.onGameAdded(new GameAddedEvent(game2));
+    game1.getTeams().clear();
+    instance.onGameUpdated(new GameUpdatedEvent(game1));
+
+    assertThat(player.getGame(), is(game2));
+    assertThat(instance.getPlayersInGame(1), empty());
+    assertThat(instance.getPlayersInGame(2), containsInAnyOrder(player));
+  }
+
+  @Test
+  public void testFriendJoinedGameIsPostedOnlyOnJoin() {
+    Player player = instance.createAndGetPlayerForUsername("JUnit1");
+    instance.createAndGetPlayerForUsername("JUnit2");
+    player.setId(1);
+    instance.addFriend(player);
+    Game game = createOpenGame(1, "JUnit1", "JUnit2");
+
+    instance.onGameAdded(new GameAddedEvent(game));
+    instance.onGameUpdated(new GameUpdatedEvent(game));
+
+    verify(eventBus, times(1)).post(any(FriendJoinedGameEvent.class));
+    assertThat(instance.getPlayersInGame(1), hasSize(2));
+  }
+
+  @Test
+  public void testSocialStatusIsKeptForPlayersComingOnline() {
+    Player friend = instance.createAndGetPlayerForUsername("friend");
+    friend.setId(1);
+    instance.addFriend(friend);
+    Player foe = instance.createAndGetPlayerForUsername("foe");
+    foe.setId(2);
+    instance.addFoe(foe);
+    instance.addFriend(foe);
+
+    assertThat(friend.getSocialStatus(), is(FRIEND));
+    assertThat(foe.getSocialStatus(), is(FRIEND));
+    assertTrue(instance.isOnline(2));
+    assertFalse(instance.isOnline(3));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testLoginBurstIsAppliedInOneApplicationThreadTask() throws Exception {
+    PlayerService burstInstance = spy(new PlayerService(fafService, userService, eventBus));
+    burstInstance.afterPropertiesSet();
+    ArgumentCaptor<Consumer<PlayersMessage>> listenerCaptor = ArgumentCaptor.forClass(Consumer.class);
+    verify(fafService, times(2)).addOnMessageListener(eq(PlayersMessage.class), listenerCaptor.capture());
+    Consumer<PlayersMessage> listener = listenerCaptor.getValue();
+
+    Player friend = burstInstance.createAndGetPlayerForUsername("Player7");
+    friend.setId(8);
+    burstInstance.addFriend(friend);
+
+    int playerCount = 5000;
+    List<PlayersMessage> burst = new ArrayList<>();
+    for (int i = 0; i < playerCount; i += 100) {
+      burst.add(playersMessage(i, i + 100, 1000));
+    }
+    // Players whose rating changed while the burst was still arriving
+    burst.add(playersMessage(0, 500, 2000));
+
+    CountDownLatch burstSent = new CountDownLatch(1);
+    // Keep the application thread busy while the burst arrives, as it is right after logging in
+    WaitForAsyncUtils.asyncFx(() -> burstSent.await(TIMEOUT, TIME_UNIT));
+    CompletableFuture.runAsync(() -> burst.forEach(listener)).get(TIMEOUT, TIME_UNIT);
+    burstSent.countDown();
+    WaitForAsyncUtils.waitForFxEvents();
+
+    verify(burstInstance, times(1)).applyPendingPlayerInfos();
+    verify(eventBus, times(playerCount)).post(any(PlayerOnlineEvent.class));
+    assertThat(burstInstance.getPlayerNames(), hasSize(playerCount));
+    for (int i = 0; i < playerCount; i++) {
+      Player player = burstInstance.getPlayerForUsername("Player" + i).orElseThrow();
+      assertThat(player.getId(), is(i + 1));
+      assertThat(player.getGlobalRatingMean(), is(i < 500 ? 2000f : 1000f));
+      assertTrue(burstInstance.isOnline(i + 1));
+    }
+    assertThat(friend.getSocialStatus(), is(FRIEND));
+    assertThat(burstInstance.getPlayerForUsername("Player8").orElseThrow().getSocialStatus(), is(OTHER));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testOnlyChangedPlayerInfosAreApplied() throws Exception {
+    ArgumentCaptor<Consumer<PlayersMessage>> listenerCaptor = ArgumentCaptor.forClass(Consumer.class);
+    verify(fafService).addOnMessageListener(eq(PlayersMessage.class), listenerCaptor.capture());
+    Consumer<PlayersMessage> listener = listenerCaptor.getValue();
+
+    listener.accept(playersMessage(0, 1, 1000));
+    WaitForAsyncUtils.waitForFxEvents();
+    Player player = instance.getPlayerForUsername("Player0").orElseThrow();
+    player.setClan("local");
+
+    listener.accept(playersMessage(0, 1, 1000));
+    WaitForAsyncUtils.waitForFxEvents();
+    assertThat(player.getClan(), is("local"));
+
+    listener.accept(playersMessage(0, 1, 1500));
+    WaitForAsyncUtils.waitForFxEvents();
+    assertThat(player.getGlobalRatingMean(), is(1500f));
+    assertThat(player.getClan(), is("local"));
+    verify(eventBus, times(1)).post(any(PlayerOnlineEvent.class));
+  }
+
+  private static PlayersMessage playersMessage(int from, int to, float rating) {
+    List<com.faforever.client.remote.domain.Player> players = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      com.faforever.client.remote.domain.Player player = new com.faforever.client.remote.domain.Player();
+      player.setId(i + 1);
+      player.setLogin("Player" + i);
+      player.setCountry("CH");
+      player.setNumberOfGames(i);
+      player.setGlobalRating(new float[]{rating, 100});
+      players.add(player);
+    }
+    PlayersMessage playersMessage = new PlayersMessage();
+    playersMessage.setPlayers(players);
+    return playersMessage;
+  }
+
+  private static Game createOpenGame(int id, String... usernames) {
+    Game game = new Game();
+    game.setId(id);
+    game.setStatus(GameStatus.OPEN);
+    game.setFeaturedMod("faf");
+    game.setHost(usernames[0]);
+    for (int i = 0; i < usernames.length; i++) {
+      game.getTeams().put(String.valueOf(i + 1), Collections.singletonList(usernames[i]));
+    }
+    return game;
+  }
 }
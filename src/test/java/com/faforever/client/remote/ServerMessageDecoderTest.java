@@ -0,0 +1,210 @@
+package com.faforever.client.remote;
+
+import com.faforever.client.fa.relay.GpgServerMessageType;
+import com.faforever.client.fa.relay.LobbyMode;
+import com.faforever.client.game.Faction;
+import com.faforever.client.remote.domain.ClientMessageType;
+import com.faforever.client.remote.domain.FafServerMessageType;
+import com.faforever.client.remote.domain.GameAccess;
+import com.faforever.client.remote.domain.GameInfoMessage;
+import com.faforever.client.remote.domain.GameStatus;
+import com.faforever.client.remote.domain.MessageTarget;
+import com.faforever.client.remote.domain.RatingRange;
+import com.faforever.client.remote.domain.ServerMessage;
+import com.faforever.client.remote.domain.VictoryCondition;
+import com.faforever.client.remote.gson.ClientMessageTypeTypeAdapter;
+import com.faforever.client.remote.gson.FactionTypeAdapter;
+import com.faforever.client.remote.gson.GameAccessTypeAdapter;
+import com.faforever.client.remote.gson.GameStateTypeAdapter;
+import com.faforever.client.remote.gson.GpgServerMessageTypeTypeAdapter;
+import com.faforever.client.remote.gson.LobbyModeTypeAdapter;
+import com.faforever.client.remote.gson.MessageTargetTypeAdapter;
+import com.faforever.client.remote.gson.RatingRangeTypeAdapter;
+import com.faforever.client.remote.gson.ServerMessageTypeAdapter;
+import com.faforever.client.remote.gson.ServerMessageTypeTypeAdapter;
+import com.faforever.client.remote.gson.VictoryConditionTypeAdapter;
+import com.faforever.client.remote.io.QDataInputStream;
+import com.faforever.client.remote.io.QStringBuffer;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds a recorded lobby session through the tree-based {@link ServerMessageTypeAdapter} and the streaming {@link
+ * ServerMessageDecoder} and checks that both produce the same messages.
+ */
+public class ServerMessageDecoderTest {
+
+  private static final String CAPTURE = "/remote/lobby-session.qdata";
+  /** Compares messages field by field, since they don't implement {@code equals}. */
+  private static final Gson COMPARING_GSON = new GsonBuilder().serializeNulls().create();
+
+  private Gson gson;
+  private ServerMessageDecoder instance;
+
+  @Before
+  public void setUp() throws Exception {
+    gson = new GsonBuilder()
+        .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+        .registerTypeAdapter(VictoryCondition.class, VictoryConditionTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GameStatus.class, GameStateTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GameAccess.class, GameAccessTypeAdapter.INSTANCE)
+        .registerTypeAdapter(ClientMessageType.class, ClientMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(FafServerMessageType.class, ServerMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(GpgServerMessageType.class, GpgServerMessageTypeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(MessageTarget.class, MessageTargetTypeAdapter.INSTANCE)
+        .registerTypeAdapter(ServerMessage.class, ServerMessageTypeAdapter.INSTANCE)
+        .registerTypeAdapter(RatingRange.class, RatingRangeTypeAdapter.INSTANCE)
+        .registerTypeAdapter(Faction.class, FactionTypeAdapter.INSTANCE)
+        .registerTypeAdapter(LobbyMode.class, LobbyModeTypeAdapter.INSTANCE)
+        .create();
+
+    instance = new ServerMessageDecoder(gson);
+  }
+
+  @Test
+  public void testRecordedSessionDecodesLikeTreeAdapter() throws Exception {
+    List<ServerMessage> expected = new ArrayList<>();
+    try (QDataInputStream dataInput = openCapture()) {
+      String frame;
+      while ((frame = readFrame(dataInput)) != null) {
+        if (frame.startsWith("{")) {
+          expected.add(gson.fromJson(frame, ServerMessage.class));
+        }
+      }
+    }
+
+    List<ServerMessage> actual = new ArrayList<>();
+    try (QDataInputStream dataInput = openCapture()) {
+      QStringBuffer frame = new QStringBuffer();
+      while (readFrame(dataInput, frame)) {
+        if (frame.charAt(0) == '{') {
+          actual.add(instance.decode(frame));
+        }
+      }
+    }
+
+    assertThat(expected.size(), greaterThan(0));
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertSameMessage(i, expected.get(i), actual.get(i));
+    }
+  }
+
+  @Test
+  public void testTargetBeforeCommand() throws Exception {
+    ServerMessage message = instance.decode(buffer("{\"target\": \"game\", \"command\": \"HostGame\", \"args\": [\"scmp_007\"]}"));
+
+    assertThat(message.getMessageType(), is(GpgServerMessageType.HOST_GAME));
+    assertThat(message.getTarget(), is(MessageTarget.GAME));
+  }
+
+  @Test
+  public void testUnknownCommandReturnsNull() throws Exception {
+    assertThat(instance.decode(buffer("{\"command\": \"unknown\", \"foo\": {\"command\": \"game_info\"}}")), nullValue());
+  }
+
+  @Test
+  public void testMissingCommandReturnsNull() throws Exception {
+    assertThat(instance.decode(buffer("{\"uid\": 1}")), nullValue());
+  }
+
+  @Test
+  public void testBufferIsReused() throws Exception {
+    ServerMessage small = instance.decode(buffer("{\"command\": \"game_info\", \"uid\": 1, \"title\": \"small\"}"));
+
+    StringBuilder title = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      title.append("large ");
+    }
+    QStringBuffer frame = buffer("{\"command\": \"game_info\", \"uid\": 2, \"title\": \"" + title + "\"}");
+    ServerMessage large = instance.decode(frame);
+
+    assertThat(small, instanceOf(GameInfoMessage.class));
+    assertThat(((GameInfoMessage) small).getTitle(), is("small"));
+    assertThat(((GameInfoMessage) large).getTitle(), is(title.toString()));
+  }
+
+  @Test
+  public void testNullQString() throws Exception {
+    QStringBuffer frame = new QStringBuffer();
+    new QDataInputStream(new DataInputStream(new ByteArrayInputStream(new byte[]{-1, -1, -1, -1}))).readQString(frame);
+
+    assertTrue(frame.isNull());
+    assertThat(frame.length(), is(0));
+  }
+
+  private void assertSameMessage(int index, ServerMessage expected, ServerMessage actual) {
+    if (expected == null) {
+      assertThat("Message " + index, actual, nullValue());
+      return;
+    }
+    assertThat("Message " + index, actual, instanceOf(expected.getClass()));
+    assertEquals("Message " + index, COMPARING_GSON.toJsonTree(expected), COMPARING_GSON.toJsonTree(actual));
+  }
+
+  private QDataInputStream openCapture() throws IOException {
+    InputStream inputStream = new ClassPathResource(CAPTURE).getInputStream();
+    return new QDataInputStream(new DataInputStream(inputStream));
+  }
+
+  private static String readFrame(QDataInputStream dataInput) throws IOException {
+    try {
+      dataInput.skipBlockSize();
+      return dataInput.readQString();
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  private static boolean readFrame(QDataInputStream dataInput, QStringBuffer frame) throws IOException {
+    try {
+      dataInput.skipBlockSize();
+      dataInput.readQString(frame);
+      return true;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Reads the string into a buffer which has been used for a larger string before, to make sure no stale data leaks.
+   */
+  private QStringBuffer buffer(String string) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutput = new DataOutputStream(outputStream);
+    String previous = string + string;
+    dataOutput.writeInt(previous.length() * 2);
+    dataOutput.write(previous.getBytes(UTF_16BE));
+    dataOutput.writeInt(string.length() * 2);
+    dataOutput.write(string.getBytes(UTF_16BE));
+
+    QStringBuffer buffer = new QStringBuffer();
+    QDataInputStream dataInput = new QDataInputStream(new DataInputStream(new ByteArrayInputStream(outputStream.toByteArray())));
+    dataInput.readQString(buffer);
+    dataInput.readQString(buffer);
+    return buffer;
+  }
+}
@@ -0,0 +1,243 @@
+package com.faforever.client.remote;
+
+import com.faforever.client.fa.relay.GpgClientCommand;
+import com.faforever.client.fa.relay.GpgClientMessageSerializer;
+import com.faforever.client.fa.relay.GpgGameMessage;
+import com.faforever.client.game.GameVisibility;
+import com.faforever.client.remote.domain.ClientMessage;
+import com.faforever.client.remote.domain.GameAccess;
+import com.faforever.client.remote.domain.HostGameMessage;
+import com.faforever.client.remote.domain.InitSessionMessage;
+import com.faforever.client.remote.domain.JoinGameMessage;
+import com.faforever.client.remote.domain.LoginClientMessage;
+import com.faforever.client.remote.domain.SerializableMessage;
+import com.faforever.client.remote.io.QDataWriter;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Writes messages through a loopback socket and compares the received bytes with the framing produced by the former
+ * {@link QDataWriter} based implementation.
+ */
+public class ServerWriterTest {
+
+  private static final long TIMEOUT = 5000;
+
+  private ServerSocket serverSocket;
+  private Socket clientSocket;
+  private Socket serverSideSocket;
+  private ServerWriter instance;
+  private Gson clientMessageGson;
+  private Gson gpgMessageGson;
+
+  @Before
+  public void setUp() throws Exception {
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    CompletableFuture<Socket> acceptFuture = CompletableFuture.supplyAsync(() -> {
+      try {
+        return serverSocket.accept();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    clientSocket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+    serverSideSocket = acceptFuture.get(TIMEOUT, TimeUnit.MILLISECONDS);
+    serverSideSocket.setSoTimeout((int) TIMEOUT);
+
+    ClientMessageSerializer clientMessageSerializer = new ClientMessageSerializer();
+    GpgClientMessageSerializer gpgClientMessageSerializer = new GpgClientMessageSerializer();
+
+    instance = new ServerWriter(clientSocket.getOutputStream());
+    instance.registerMessageSerializer(clientMessageSerializer, ClientMessage.class);
+    instance.registerMessageSerializer(gpgClientMessageSerializer, GpgGameMessage.class);
+
+    clientMessageGson = legacyGson(clientMessageSerializer);
+    gpgMessageGson = legacyGson(gpgClientMessageSerializer);
+  }
+
+  @After
+  public void tearDown() {
+    IOUtils.closeQuietly(instance);
+    IOUtils.closeQuietly(clientSocket);
+    IOUtils.closeQuietly(serverSideSocket);
+    IOUtils.closeQuietly(serverSocket);
+  }
+
+  @Test
+  public void testFramingMatchesQDataWriter() throws Exception {
+    List<SerializableMessage> messages = Arrays.asList(
+        new InitSessionMessage("1.2.3"),
+        new LoginClientMessage("Jünit", "pass:word\"", 123L, "uid:\\\"x\"", "127.0.0.1"),
+        new HostGameMessage(GameAccess.PASSWORD, "scmp_007", "Title: \"quoted\" 😀 ★", new boolean[0], "faf",
+            "secret", null, GameVisibility.PUBLIC, 100, null, true),
+        new JoinGameMessage(4711, null),
+        new GpgGameMessage(GpgClientCommand.GAME_STATE, Collections.singletonList("Idle")),
+        new GpgGameMessage(GpgClientCommand.CHAT, Arrays.asList("a:b", 1, true, Collections.singletonMap("k", "v:w")))
+    );
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for (SerializableMessage message : messages) {
+      writeLegacy(message, expected);
+      instance.write(message);
+    }
+
+    assertArrayEquals(expected.toByteArray(), readFully(serverSideSocket.getInputStream(), expected.size()));
+  }
+
+  @Test
+  public void testConcurrentWritesAreNotInterleaved() throws Exception {
+    int threads = 8;
+    int messagesPerThread = 500;
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    CountDownLatch startLatch = new CountDownLatch(1);
+
+    List<byte[]> expectedFrames = new ArrayList<>();
+    List<List<SerializableMessage>> messagesByThread = new ArrayList<>();
+    for (int thread = 0; thread < threads; thread++) {
+      List<SerializableMessage> messages = new ArrayList<>();
+      for (int i = 0; i < messagesPerThread; i++) {
+        messages.add(new JoinGameMessage(thread * messagesPerThread + i, "password " + i));
+      }
+      messagesByThread.add(messages);
+    }
+
+    int totalBytes = 0;
+    for (List<SerializableMessage> messages : messagesByThread) {
+      for (SerializableMessage message : messages) {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        writeLegacy(message, frame);
+        expectedFrames.add(frame.toByteArray());
+        totalBytes += frame.size();
+      }
+    }
+
+    for (List<SerializableMessage> messages : messagesByThread) {
+      executorService.execute(() -> {
+        try {
+          startLatch.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        messages.forEach(instance::write);
+      });
+    }
+    startLatch.countDown();
+
+    byte[] received = readFully(serverSideSocket.getInputStream(), totalBytes);
+    executorService.shutdown();
+
+    List<byte[]> receivedFrames = splitFrames(received);
+    assertThat(receivedFrames.size(), is(expectedFrames.size()));
+
+    // Order between threads is arbitrary, but every frame has to arrive intact
+    List<String> expectedHex = toSortedHex(expectedFrames);
+    List<String> receivedHex = toSortedHex(receivedFrames);
+    assertThat(receivedHex, is(expectedHex));
+  }
+
+  @Test
+  public void testWriteAfterCloseIsIgnored() throws Exception {
+    instance.close();
+    instance.write(new InitSessionMessage("1.2.3"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testWriteUnregisteredTypeThrows() {
+    instance.write(() -> Collections.emptyList());
+  }
+
+  /**
+   * Produces the bytes the writer used to send: the message JSON with {@code ": "} separators, set via reflection, as
+   * QString, prefixed with its size.
+   */
+  private void writeLegacy(SerializableMessage message, ByteArrayOutputStream outputStream) throws Exception {
+    Gson gson = message instanceof GpgGameMessage ? gpgMessageGson : clientMessageGson;
+
+    StringWriter stringWriter = new StringWriter();
+    JsonWriter jsonWriter = new JsonWriter(stringWriter);
+    jsonWriter.setSerializeNulls(false);
+    Field separatorField = JsonWriter.class.getDeclaredField("separator");
+    separatorField.setAccessible(true);
+    separatorField.set(jsonWriter, ": ");
+    gson.toJson(message, message.getClass(), jsonWriter);
+
+    ByteArrayOutputStream qString = new ByteArrayOutputStream();
+    new QDataWriter(qString).append(stringWriter.toString());
+
+    new QDataWriter(outputStream).appendWithSize(qString.toByteArray());
+  }
+
+  private static Gson legacyGson(JsonMessageSerializer<?> serializer) {
+    GsonBuilder gsonBuilder = new GsonBuilder()
+        .disableHtmlEscaping()
+        .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES);
+    serializer.addTypeAdapters(gsonBuilder);
+    return gsonBuilder.create();
+  }
+
+  private static byte[] readFully(InputStream inputStream, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    int offset = 0;
+    while (offset < length) {
+      int read = inputStream.read(bytes, offset, length - offset);
+      if (read == -1) {
+        break;
+      }
+      offset += read;
+    }
+    return Arrays.copyOf(bytes, offset);
+  }
+
+  private static List<byte[]> splitFrames(byte[] bytes) {
+    List<byte[]> frames = new ArrayList<>();
+    int offset = 0;
+    while (offset + Integer.BYTES <= bytes.length) {
+      int size = ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+          | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+      frames.add(Arrays.copyOfRange(bytes, offset, offset + Integer.BYTES + size));
+      offset += Integer.BYTES + size;
+    }
+    return frames;
+  }
+
+  private static List<String> toSortedHex(List<byte[]> frames) {
+    List<String> hex = new ArrayList<>();
+    for (byte[] frame : frames) {
+      StringBuilder stringBuilder = new StringBuilder();
+      for (byte b : frame) {
+        stringBuilder.append(String.format("%02x", b));
+      }
+      hex.add(stringBuilder.toString());
+    }
+    Collections.sort(hex);
+    return hex;
+  }
+}
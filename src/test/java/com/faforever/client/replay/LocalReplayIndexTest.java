@@ -0,0 +1,216 @@
+package com.faforever.client.replay;
+
+import com.faforever.client.util.Tuple;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class LocalReplayIndexTest {
+
+  private static final int REPLAY_COUNT = 50_000;
+  private static final long BASE_TIME = 1_500_000_000_000L;
+
+  @Rule
+  public TemporaryFolder replaysDirectory = new TemporaryFolder();
+  @Rule
+  public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+  private Path indexFile;
+  private AtomicInteger headersRead;
+  private Function<Path, LocalReplayInfo> headerReader;
+
+  @Before
+  public void setUp() throws Exception {
+    indexFile = cacheDirectory.getRoot().toPath().resolve("replays.json.gz");
+    headersRead = new AtomicInteger();
+    headerReader = file -> {
+      headersRead.incrementAndGet();
+      return readHeader(file);
+    };
+  }
+
+  @Test
+  public void testIndexIsPersistedAndReused() throws Exception {
+    List<Path> files = createReplayFiles(REPLAY_COUNT);
+
+    LocalReplayIndex instance = new LocalReplayIndex(indexFile);
+    instance.load();
+    instance.synchronize(files, headerReader);
+    instance.save();
+
+    assertThat(headersRead.get(), is(REPLAY_COUNT));
+    assertThat(instance.size(), is(REPLAY_COUNT));
+
+    headersRead.set(0);
+    LocalReplayIndex reloaded = new LocalReplayIndex(indexFile);
+    reloaded.load();
+    reloaded.synchronize(files, headerReader);
+
+    assertThat(headersRead.get(), is(0));
+    assertThat(reloaded.size(), is(REPLAY_COUNT));
+    assertThat(reloaded.get(files.get(42)).get().getReplayInfo().getTitle(), is("Game 42"));
+  }
+
+  @Test
+  public void testQueryPagesSortsAndFilters() throws Exception {
+    List<Path> files = createReplayFiles(REPLAY_COUNT);
+    LocalReplayIndex instance = new LocalReplayIndex(indexFile);
+    instance.synchronize(files, headerReader);
+
+    Tuple<List<LocalReplayIndex.Entry>, Integer> firstPage = instance.query(entry -> true, LocalReplayIndex.NEWEST_FIRST, 100, 1);
+    assertThat(firstPage.getSecond(), is(REPLAY_COUNT / 100));
+    assertThat(uids(firstPage.getFirst()).subList(0, 3), contains(REPLAY_COUNT - 1, REPLAY_COUNT - 2, REPLAY_COUNT - 3));
+
+    Tuple<List<LocalReplayIndex.Entry>, Integer> lastPage = instance.query(entry -> true, LocalReplayIndex.NEWEST_FIRST, 100, REPLAY_COUNT / 100);
+    assertThat(uids(lastPage.getFirst()).get(99), is(0));
+
+    Tuple<List<LocalReplayIndex.Entry>, Integer> setonsPage = instance.query(
+        entry -> "setons_clutch".equals(entry.getReplayInfo().getMapname()),
+        LocalReplayIndex.NEWEST_FIRST.reversed(), 1000, 2);
+    assertThat(setonsPage.getSecond(), is(REPLAY_COUNT / 10 / 1000));
+    assertThat(setonsPage.getFirst(), hasSize(1000));
+    assertThat(uids(setonsPage.getFirst()).get(0), is(10_000));
+    assertThat(setonsPage.getFirst().stream().map(entry -> entry.getReplayInfo().getMapname()).collect(Collectors.toList()),
+        everyItem(is("setons_clutch")));
+
+    Tuple<List<LocalReplayIndex.Entry>, Integer> beyondLastPage = instance.query(entry -> true, LocalReplayIndex.NEWEST_FIRST, 100, 1000);
+    assertThat(beyondLastPage.getFirst(), hasSize(0));
+  }
+
+  @Test
+  public void testChangedAndDeletedFilesAreDetected() throws Exception {
+    List<Path> files = createReplayFiles(1000);
+    LocalReplayIndex instance = new LocalReplayIndex(indexFile);
+    instance.synchronize(files, headerReader);
+    instance.save();
+
+    Path changedBySize = files.get(10);
+    Files.write(changedBySize, "uid=10\ntitle=Renamed\nmap=setons_clutch\nextra".getBytes(UTF_8));
+    Files.setLastModifiedTime(changedBySize, FileTime.fromMillis(BASE_TIME + 10));
+    Path changedByTime = files.get(20);
+    Files.setLastModifiedTime(changedByTime, FileTime.fromMillis(BASE_TIME + 5_000_000));
+    List<Path> deletedFiles = new ArrayList<>(files.subList(500, 600));
+    for (Path deletedFile : deletedFiles) {
+      Files.delete(deletedFile);
+    }
+    List<Path> remainingFiles = new ArrayList<>(files);
+    remainingFiles.removeAll(deletedFiles);
+
+    headersRead.set(0);
+    LocalReplayIndex reloaded = new LocalReplayIndex(indexFile);
+    reloaded.load();
+    reloaded.synchronize(remainingFiles, headerReader);
+
+    assertThat(headersRead.get(), is(2));
+    assertThat(reloaded.size(), is(900));
+    assertThat(reloaded.get(changedBySize).get().getReplayInfo().getTitle(), is("Renamed"));
+    assertThat(reloaded.get(deletedFiles.get(0)), is(Optional.empty()));
+    assertThat(uids(reloaded.query(entry -> true, LocalReplayIndex.NEWEST_FIRST, 1, 1).getFirst()), contains(20));
+  }
+
+  @Test
+  public void testUpdateAndRemoveSingleFiles() throws Exception {
+    List<Path> files = createReplayFiles(3);
+    LocalReplayIndex instance = new LocalReplayIndex(indexFile);
+    instance.synchronize(files, headerReader);
+
+    assertThat(instance.update(files.get(0), headerReader), is(Optional.empty()));
+
+    Path newFile = createReplayFile(3);
+    assertThat(instance.update(newFile, headerReader).get().getReplayInfo().getUid(), is(3));
+
+    Files.delete(files.get(1));
+    assertThat(instance.update(files.get(1), headerReader), is(Optional.empty()));
+    assertThat(instance.remove(files.get(2)).get().getReplayInfo().getUid(), is(2));
+    assertThat(instance.size(), is(2));
+  }
+
+  @Test
+  public void testUnreadableFilesAreNotIndexed() throws Exception {
+    List<Path> files = createReplayFiles(3);
+    LocalReplayIndex instance = new LocalReplayIndex(indexFile);
+    instance.synchronize(files, file -> file.equals(files.get(1)) ? null : readHeader(file));
+
+    assertThat(instance.size(), is(2));
+    assertThat(instance.get(files.get(1)), is(Optional.empty()));
+  }
+
+  @Test
+  public void testCorruptIndexFileIsIgnored() throws Exception {
+    Files.write(indexFile, "not gzip".getBytes(UTF_8));
+
+    LocalReplayIndex instance = new LocalReplayIndex(indexFile);
+    instance.load();
+    instance.synchronize(createReplayFiles(5), headerReader);
+
+    assertThat(instance.size(), is(5));
+    assertThat(headersRead.get(), is(5));
+  }
+
+  private List<Path> createReplayFiles(int count) throws Exception {
+    List<Path> files = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      files.add(createReplayFile(i));
+    }
+    return files;
+  }
+
+  /**
+   * Writes a fake replay whose "header" is a few key-value lines, and whose modification time increases with the
+   * UID.
+   */
+  private Path createReplayFile(int uid) throws Exception {
+    Path file = replaysDirectory.getRoot().toPath().resolve(uid + ".fafreplay");
+    String map = uid % 10 == 0 ? "setons_clutch" : "map_" + (uid % 7);
+    Files.write(file, ("uid=" + uid + "\ntitle=Game " + uid + "\nmap=" + map).getBytes(UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(BASE_TIME + uid * 1000L));
+    return file;
+  }
+
+  private static LocalReplayInfo readHeader(Path file) {
+    try {
+      LocalReplayInfo replayInfo = new LocalReplayInfo();
+      for (String line : Files.readAllLines(file, UTF_8)) {
+        String[] keyValue = line.split("=", 2);
+        switch (keyValue[0]) {
+          case "uid":
+            replayInfo.setUid(Integer.parseInt(keyValue[1]));
+            break;
+          case "title":
+            replayInfo.setTitle(keyValue[1]);
+            break;
+          case "map":
+            replayInfo.setMapname(keyValue[1]);
+            break;
+          default:
+            // Ignore
+        }
+      }
+      return replayInfo;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static List<Integer> uids(List<LocalReplayIndex.Entry> entries) {
+    return entries.stream().map(entry -> entry.getReplayInfo().getUid()).collect(Collectors.toList());
+  }
+}
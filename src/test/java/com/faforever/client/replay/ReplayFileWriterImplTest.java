@@ -3,6 +3,8 @@ package com.faforever.client.replay;
 import com.faforever.client.config.ClientProperties;
 import com.faforever.client.i18n.I18n;
 import com.faforever.client.preferences.PreferencesService;
+import com.faforever.commons.replay.QtCompress;
+import com.google.common.io.BaseEncoding;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -10,11 +12,14 @@ import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Locale;
+import java.util.Random;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -45,9 +50,6 @@ public class ReplayFileWriterImplTest {
   @Mock
   private ClientProperties clientProperties;
 
-  @Mock
-  private ByteArrayOutputStream replayData;
-
   @Mock
   private ClientProperties.Replay replay;
 
@@ -68,7 +70,8 @@ public class ReplayFileWriterImplTest {
 
   @Test
   public void writeReplayData() throws Exception {
-    when(replayData.toByteArray()).thenReturn(replayBytes);
+    Path replayData = temporaryFolder.newFile().toPath();
+    Files.write(replayData, replayBytes);
     replayInfo = new LocalReplayInfo();
     replayInfo.setUid(uid);
     replayInfo.setRecorder(recorder);
@@ -76,5 +79,30 @@ public class ReplayFileWriterImplTest {
     assertTrue(Files.exists(Path.of(replayFileName)));
     Files.deleteIfExists(Path.of(replayFileName));
   }
+
+  @Test
+  public void writeReplayDataMatchesInMemoryCompression() throws Exception {
+    Path replaysDirectory = temporaryFolder.newFolder().toPath();
+    when(preferencesService.getReplaysDirectory()).thenReturn(replaysDirectory);
+    when(preferencesService.getCacheDirectory()).thenReturn(temporaryFolder.newFolder().toPath());
+
+    // Partially repetitive, so that the compressor emits both literals and back references
+    byte[] data = new byte[3 * 1024 * 1024 + 17];
+    Random random = new Random(0);
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 1000 < 500 ? random.nextInt(256) : i % 7);
+    }
+    Path replayData = temporaryFolder.newFile().toPath();
+    Files.write(replayData, data);
+    replayInfo = new LocalReplayInfo();
+    replayInfo.setUid(uid);
+    replayInfo.setRecorder(recorder);
+
+    instance.writeReplayDataToFile(replayData, replayInfo);
+
+    String expected = ReplayFiles.gson().toJson(replayInfo) + "\n" + BaseEncoding.base64().encode(QtCompress.qCompress(data));
+    String actual = new String(Files.readAllBytes(replaysDirectory.resolve(replayFileName)), UTF_8);
+    assertThat(actual.equals(expected), is(true));
+  }
 }
 
@@ -0,0 +1,228 @@
+package com.faforever.client.replay;
+
+import com.faforever.client.config.ClientProperties;
+import com.faforever.client.game.Game;
+import com.faforever.client.game.GameBuilder;
+import com.faforever.client.i18n.I18n;
+import com.faforever.client.notification.NotificationService;
+import com.faforever.client.preferences.PreferencesService;
+import com.faforever.client.update.ClientUpdateService;
+import com.faforever.client.user.UserService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.InflaterInputStream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mockito.Mockito.when;
+
+public class ReplayServerImplTest {
+
+  private static final int GAME_ID = 1234;
+  private static final long TIMEOUT = 60;
+  private static final byte[] LIVE_REPLAY_HEADER = ("P/" + GAME_ID + "/junit.scfareplay\0").getBytes(US_ASCII);
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock
+  private NotificationService notificationService;
+  @Mock
+  private I18n i18n;
+  @Mock
+  private UserService userService;
+  @Mock
+  private ClientUpdateService clientUpdateService;
+  @Mock
+  private PreferencesService preferencesService;
+
+  private ReplayServerImpl instance;
+  private ServerSocket remoteReplayServer;
+  private Path replaysDirectory;
+  private CountDownLatch replayWrittenLatch;
+  private long recordingThreadAllocatedBytes;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+
+    remoteReplayServer = new ServerSocket(0);
+    replaysDirectory = temporaryFolder.newFolder("replays").toPath();
+    replayWrittenLatch = new CountDownLatch(1);
+
+    ClientProperties clientProperties = new ClientProperties();
+    clientProperties.getReplay().setRemoteHost("localhost");
+    clientProperties.getReplay().setRemotePort(remoteReplayServer.getLocalPort());
+
+    when(userService.getUsername()).thenReturn("junit");
+    when(clientUpdateService.getCurrentVersion()).thenReturn("1.0");
+    when(i18n.getUserSpecificLocale()).thenReturn(Locale.US);
+    when(preferencesService.getReplaysDirectory()).thenReturn(replaysDirectory);
+    when(preferencesService.getCacheDirectory()).thenReturn(temporaryFolder.newFolder("cache").toPath());
+
+    ReplayFileWriterImpl replayFileWriter = new ReplayFileWriterImpl(i18n, clientProperties, preferencesService);
+    ReplayFileWriter measuringReplayFileWriter = (replayDataFile, replayInfo) -> {
+      replayFileWriter.writeReplayDataToFile(replayDataFile, replayInfo);
+      recordingThreadAllocatedBytes = ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+      replayWrittenLatch.countDown();
+    };
+
+    instance = new ReplayServerImpl(clientProperties, notificationService, i18n, userService, measuringReplayFileWriter,
+        clientUpdateService, preferencesService);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    instance.stop();
+    remoteReplayServer.close();
+  }
+
+  @Test
+  public void testLargeReplayIsRecordedAndRelayedWithBoundedMemory() throws Exception {
+    long replayDataSize = 256L * 1024 * 1024;
+    CompletableFuture<Checksum> relayedData = CompletableFuture.supplyAsync(this::readFromRemoteReplayServer);
+
+    Checksum sentData = sendReplay(replayDataSize);
+
+    assertThat(replayWrittenLatch.await(TIMEOUT, TimeUnit.SECONDS), is(true));
+    assertThat(recordingThreadAllocatedBytes, lessThan(replayDataSize / 16));
+
+    Checksum relayed = relayedData.get(TIMEOUT, TimeUnit.SECONDS);
+    assertThat(relayed.size, is((long) LIVE_REPLAY_HEADER.length + replayDataSize));
+
+    Checksum recorded = readReplayFile();
+    assertThat(recorded.size, is(replayDataSize));
+    assertThat(recorded.crc, is(sentData.crc));
+  }
+
+  @Test
+  public void testSlowReplayServerDoesNotStallRecording() throws Exception {
+    // Accept, but never read
+    CompletableFuture<Socket> stalledConnection = CompletableFuture.supplyAsync(() -> {
+      try {
+        return remoteReplayServer.accept();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    long replayDataSize = 8L * ReplayRelay.MAX_BUFFERED_BYTES;
+    Checksum sentData = sendReplay(replayDataSize);
+
+    assertThat(replayWrittenLatch.await(TIMEOUT, TimeUnit.SECONDS), is(true));
+    Checksum recorded = readReplayFile();
+    assertThat(recorded.size, is(replayDataSize));
+    assertThat(recorded.crc, is(sentData.crc));
+
+    stalledConnection.get(TIMEOUT, TimeUnit.SECONDS).close();
+  }
+
+  /**
+   * Plays the game's part: sends the live replay header followed by the specified amount of partially repetitive
+   * replay data.
+   */
+  private Checksum sendReplay(long replayDataSize) throws Exception {
+    Game game = GameBuilder.create().defaultValues().get();
+    game.setId(GAME_ID);
+    int port = instance.start(GAME_ID, () -> game).get(TIMEOUT, TimeUnit.SECONDS);
+
+    Checksum checksum = new Checksum();
+    Random random = new Random(0);
+    byte[] chunk = new byte[CHUNK_SIZE];
+    try (Socket socket = new Socket("localhost", port);
+         OutputStream outputStream = socket.getOutputStream()) {
+      outputStream.write(LIVE_REPLAY_HEADER);
+      for (long remaining = replayDataSize; remaining > 0; remaining -= chunk.length) {
+        // Like the game's command stream: mostly repetitive, with some variation
+        for (int i = 0; i < chunk.length; i++) {
+          chunk[i] = i % 32 == 0 ? (byte) random.nextInt(256) : (byte) (i % 96);
+        }
+        int length = (int) Math.min(chunk.length, remaining);
+        outputStream.write(chunk, 0, length);
+        checksum.update(chunk, length);
+      }
+    }
+    return checksum;
+  }
+
+  private Checksum readFromRemoteReplayServer() {
+    try (Socket socket = remoteReplayServer.accept();
+         InputStream inputStream = socket.getInputStream()) {
+      return Checksum.of(inputStream);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Decodes the replay file without loading it into memory and returns the checksum of its replay data.
+   */
+  private Checksum readReplayFile() throws IOException {
+    Path replayFile = replaysDirectory.resolve(GAME_ID + "-junit.fafreplay");
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(replayFile))) {
+      StringBuilder header = new StringBuilder();
+      int character;
+      while ((character = inputStream.read()) != '\n') {
+        header.append((char) character);
+      }
+      LocalReplayInfo replayInfo = ReplayFiles.gson().fromJson(header.toString(), LocalReplayInfo.class);
+      assertThat(replayInfo.getUid(), is(GAME_ID));
+      assertThat(replayInfo.getRecorder(), is("junit"));
+
+      DataInputStream compressedData = new DataInputStream(Base64.getDecoder().wrap(inputStream));
+      long declaredSize = compressedData.readInt();
+      Checksum checksum = Checksum.of(new InflaterInputStream(compressedData));
+      assertThat(declaredSize, is(checksum.size));
+      return checksum;
+    }
+  }
+
+  private static class Checksum {
+    private final CRC32 crc32 = new CRC32();
+    private long size;
+    private long crc;
+
+    static Checksum of(InputStream inputStream) throws IOException {
+      Checksum checksum = new Checksum();
+      byte[] buffer = new byte[CHUNK_SIZE];
+      int bytesRead;
+      while ((bytesRead = inputStream.read(buffer)) != -1) {
+        checksum.update(buffer, bytesRead);
+      }
+      return checksum;
+    }
+
+    void update(byte[] buffer, int length) {
+      crc32.update(buffer, 0, length);
+      size += length;
+      crc = crc32.getValue();
+    }
+  }
+}
@@ -51,6 +51,7 @@ import java.util.concurrent.ExecutorService;
 
 import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
@@ -302,6 +303,29 @@ public class ReplayServiceTest {
     assertThat(localReplays.iterator().next().getTitle(), is("title"));
   }
 
+  @Test
+  public void testLoadLocalReplaysOnlyParsesChangedFiles() throws Exception {
+    Path file1 = replayDirectory.newFile("replay.fafreplay").toPath();
+    Path file2 = replayDirectory.newFile("replay2.fafreplay").toPath();
+
+    LocalReplayInfo localReplayInfo = new LocalReplayInfo();
+    localReplayInfo.setUid(123);
+    when(replayFileReader.parseMetaData(any())).thenReturn(localReplayInfo);
+    when(modService.getFeaturedMod(any())).thenReturn(CompletableFuture.completedFuture(null));
+    when(mapService.findByMapFolderName(any())).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+    instance.loadLocalReplays().get();
+    Files.write(file2, new byte[]{1});
+    Files.delete(file1);
+    Collection<Replay> localReplays = instance.loadLocalReplays().get();
+
+    assertThat(localReplays, hasSize(1));
+    assertThat(localReplays.iterator().next().getReplayFile(), is(file2));
+    verify(replayFileReader, times(1)).parseMetaData(file1);
+    verify(replayFileReader, times(2)).parseMetaData(file2);
+    verify(mapService, times(2)).findByMapFolderName(any());
+  }
+
   @Test
   public void testLocalReplaysWatchEvent() throws Exception {
     WatchKey watchKey = mock(WatchKey.class);
@@ -341,6 +365,35 @@ public class ReplayServiceTest {
     verifyZeroInteractions(notificationService);
   }
 
+  @Test
+  public void testLocalReplaysWatchEventIgnoresOtherEntriesAndKeepsUnreadableReplays() throws Exception {
+    WatchKey watchKey = mock(WatchKey.class);
+    Path incompleteReplayFile = replayDirectory.newFile("incomplete.fafreplay").toPath();
+    when(replayFileReader.parseMetaData(incompleteReplayFile)).thenThrow(new IllegalStateException("Unexpected end of file"));
+    Path corruptDirectory = replayDirectory.newFolder("corrupt").toPath();
+    Path otherFile = replayDirectory.newFile("other.txt").toPath();
+
+    List<WatchEvent<?>> eventsList = new ArrayList<>();
+    eventsList.add(watchEvent(ENTRY_MODIFY, incompleteReplayFile));
+    eventsList.add(watchEvent(ENTRY_MODIFY, corruptDirectory));
+    eventsList.add(watchEvent(ENTRY_CREATE, otherFile));
+    when(watchKey.pollEvents()).thenReturn(eventsList);
+
+    instance.onLocalReplaysWatchEvent(watchKey);
+
+    assertThat(Files.exists(incompleteReplayFile), is(true));
+    verify(replayFileReader, times(1)).parseMetaData(any());
+    verifyZeroInteractions(notificationService);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static WatchEvent<Path> watchEvent(WatchEvent.Kind<Path> kind, Path path) {
+    WatchEvent<Path> watchEvent = mock(WatchEvent.class);
+    when(watchEvent.kind()).thenReturn(kind);
+    when(watchEvent.context()).thenReturn(path.getFileName());
+    return watchEvent;
+  }
+
   @Test
   public void testRunFafReplayFile() throws Exception {
     Path replayFile = replayDirectory.newFile("replay.fafreplay").toPath();
@@ -0,0 +1,199 @@
+package com.faforever.client.task;
+
+import com.faforever.client.task.CompletableTask.Priority;
+import com.faforever.client.task.CompletableTask.Resource;
+import com.faforever.client.test.AbstractPlainJavaFxTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.lessThan;
+
+public class TaskServiceTest extends AbstractPlainJavaFxTest {
+
+  private static final long TIMEOUT = 5000;
+
+  private TaskService instance;
+  private List<String> executionOrder;
+  private CountDownLatch releaseLatch;
+  private Map<Resource, AtomicInteger> runningTasks;
+  private Map<Resource, AtomicInteger> maxRunningTasks;
+
+  @Before
+  public void setUp() throws Exception {
+    instance = new TaskService(2, 1, 1);
+    executionOrder = Collections.synchronizedList(new ArrayList<>());
+    releaseLatch = new CountDownLatch(1);
+    runningTasks = new EnumMap<>(Resource.class);
+    maxRunningTasks = new EnumMap<>(Resource.class);
+    for (Resource resource : Resource.values()) {
+      runningTasks.put(resource, new AtomicInteger());
+      maxRunningTasks.put(resource, new AtomicInteger());
+    }
+  }
+
+  @After
+  public void tearDown() {
+    instance.destroy();
+  }
+
+  @Test
+  public void testHigherPriorityRunsFirst() throws Exception {
+    CountDownLatch blockerStarted = new CountDownLatch(1);
+    instance.submitTask(new BlockingTask("blocker", Priority.LOW, Resource.DISK, blockerStarted));
+    assertThat(blockerStarted.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+
+    FakeTask low = instance.submitTask(new FakeTask("low", Priority.LOW, Resource.DISK));
+    FakeTask medium = instance.submitTask(new FakeTask("medium", Priority.MEDIUM, Resource.DISK));
+    FakeTask high = instance.submitTask(new FakeTask("high", Priority.HIGH, Resource.DISK));
+    FakeTask secondHigh = instance.submitTask(new FakeTask("secondHigh", Priority.HIGH, Resource.DISK));
+    assertThat(instance.getQueueDepth(Resource.DISK), is(4));
+
+    releaseLatch.countDown();
+    low.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    medium.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    high.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    secondHigh.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+    assertThat(executionOrder, contains("blocker", "high", "secondHigh", "medium", "low"));
+    assertThat(instance.getQueueDepth(Resource.DISK), is(0));
+  }
+
+  @Test
+  public void testLowPriorityIsNotStarved() throws Exception {
+    CountDownLatch blockerStarted = new CountDownLatch(1);
+    instance.submitTask(new BlockingTask("blocker", Priority.LOW, Resource.DISK, blockerStarted));
+    assertThat(blockerStarted.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+
+    FakeTask low = instance.submitTask(new FakeTask("low", Priority.LOW, Resource.DISK));
+    List<FakeTask> highTasks = new ArrayList<>();
+    int highTaskCount = 3 * TaskQueue.PRIORITY_HEAD_START;
+    for (int i = 0; i < highTaskCount; i++) {
+      highTasks.add(instance.submitTask(new FakeTask("high" + i, Priority.HIGH, Resource.DISK)));
+    }
+
+    releaseLatch.countDown();
+    low.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    for (FakeTask highTask : highTasks) {
+      highTask.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    // The blocker, then only the high priority tasks that were submitted within the head start of two priority levels
+    int lowIndex = executionOrder.indexOf("low");
+    assertThat(lowIndex, is(2 * TaskQueue.PRIORITY_HEAD_START));
+    assertThat(lowIndex, lessThan(executionOrder.size() - 1));
+  }
+
+  @Test
+  public void testThreadsAreCappedPerResource() throws Exception {
+    List<FakeTask> networkTasks = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      networkTasks.add(instance.submitTask(new BlockingTask("network" + i, Priority.MEDIUM, Resource.NETWORK, null)));
+    }
+    // A busy network pool must not keep other resources from running
+    FakeTask cpuTask = instance.submitTask(new FakeTask("cpu", Priority.LOW, Resource.CPU));
+    cpuTask.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+    waitForQueueDepth(Resource.NETWORK, 8);
+    assertThat(runningTasks.get(Resource.NETWORK).get(), is(2));
+
+    releaseLatch.countDown();
+    for (FakeTask networkTask : networkTasks) {
+      networkTask.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    assertThat(maxRunningTasks.get(Resource.NETWORK).get(), is(2));
+  }
+
+  @Test
+  public void testSerialQueueRunsOneTaskAtATimeInOrder() throws Exception {
+    List<FakeTask> tasks = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Priority priority = i % 2 == 0 ? Priority.LOW : Priority.HIGH;
+      tasks.add(instance.submitTask(new FakeTask("serial" + i, priority, Resource.NETWORK), "serial"));
+    }
+    for (FakeTask task : tasks) {
+      task.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    assertThat(maxRunningTasks.get(Resource.NETWORK).get(), is(1));
+    assertThat(executionOrder, contains("serial0", "serial1", "serial2", "serial3", "serial4"));
+  }
+
+  @Test
+  public void testSerialQueueContinuesAfterFailure() throws Exception {
+    FakeTask failingTask = instance.submitTask(new FakeTask("failing", Priority.HIGH, Resource.NETWORK) {
+      @Override
+      protected Void call() {
+        throw new IllegalStateException("Expected");
+      }
+    }, "serial");
+    FakeTask nextTask = instance.submitTask(new FakeTask("next", Priority.HIGH, Resource.NETWORK), "serial");
+
+    nextTask.getFuture().get(TIMEOUT, TimeUnit.MILLISECONDS);
+    assertThat(failingTask.getFuture().isCompletedExceptionally(), is(true));
+  }
+
+  private void waitForQueueDepth(Resource resource, int depth) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (instance.getQueueDepth(resource) != depth && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(instance.getQueueDepth(resource), is(depth));
+  }
+
+  private class FakeTask extends CompletableTask<Void> {
+    private final String name;
+
+    FakeTask(String name, Priority priority, Resource resource) {
+      super(priority, resource);
+      this.name = name;
+    }
+
+    @Override
+    protected Void call() throws Exception {
+      int running = runningTasks.get(getResource()).incrementAndGet();
+      maxRunningTasks.get(getResource()).accumulateAndGet(running, Math::max);
+      try {
+        executionOrder.add(name);
+        work();
+        return null;
+      } finally {
+        runningTasks.get(getResource()).decrementAndGet();
+      }
+    }
+
+    void work() throws InterruptedException {
+      Thread.sleep(1);
+    }
+  }
+
+  private class BlockingTask extends FakeTask {
+    private final CountDownLatch startedLatch;
+
+    BlockingTask(String name, Priority priority, Resource resource, CountDownLatch startedLatch) {
+      super(name, priority, resource);
+      this.startedLatch = startedLatch;
+    }
+
+    @Override
+    void work() throws InterruptedException {
+      if (startedLatch != null) {
+        startedLatch.countDown();
+      }
+      releaseLatch.await();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.faforever.client.theme;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ThemeTemplateTest {
+
+  @Test
+  public void testRender() {
+    ThemeTemplate template = ThemeTemplate.compile("<span class=\"{css-classes}\">{username}: {text}</span>");
+
+    String html = template.render(Map.of("css-classes", "message", "username", "junit", "text", "Hello")::get);
+
+    assertThat(html, is("<span class=\"message\">junit: Hello</span>"));
+  }
+
+  @Test
+  public void testRenderRepeatedAndAdjacentPlaceholders() {
+    ThemeTemplate template = ThemeTemplate.compile("{a}{a}-{b}{a}");
+
+    assertThat(template.render(Map.of("a", "1", "b", "2")::get), is("11-21"));
+  }
+
+  @Test
+  public void testRenderWithoutPlaceholders() {
+    ThemeTemplate template = ThemeTemplate.compile("<div></div>");
+
+    assertThat(template.render(placeholder -> "unexpected"), is("<div></div>"));
+  }
+
+  @Test
+  public void testUnknownPlaceholdersAndBracesAreKept() {
+    ThemeTemplate template = ThemeTemplate.compile("<style>a { color: red; }</style>{unknown}{text}{Text}{}");
+
+    assertThat(template.render(Map.of("text", "x")::get), is("<style>a { color: red; }</style>{unknown}x{Text}{}"));
+  }
+
+  @Test
+  public void testPlaceholdersInValuesAreNotReplaced() {
+    ThemeTemplate template = ThemeTemplate.compile("{username}: {text}");
+
+    String html = template.render(Map.of("username", "{text}", "text", "{username}")::get);
+
+    assertThat(html, is("{text}: {username}"));
+  }
+}
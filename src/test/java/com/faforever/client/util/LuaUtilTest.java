@@ -0,0 +1,137 @@
+package com.faforever.client.util;
+
+import com.google.common.io.CharStreams;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+public class LuaUtilTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testParallelLoadMatchesStandardGlobals() throws Exception {
+    List<Path> scenarioFiles = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      Path scenarioFile = temporaryFolder.getRoot().toPath().resolve("map_" + i + "_scenario.lua");
+      Files.write(scenarioFile, ("ScenarioInfo = {\n" +
+          "  name = 'Map " + i + "',\n" +
+          "  size = { " + (256 << i % 4) + ", " + (256 << i % 3) + " },\n" +
+          "  map_version = " + i % 5 + ",\n" +
+          "  armies = { " + "'ARMY', ".repeat(i % 8 + 1) + "},\n" +
+          "  extra = STRING('ARMY_9 NEUTRAL_CIVILIAN'),\n" +
+          "}\n").getBytes(UTF_8));
+      scenarioFiles.add(scenarioFile);
+    }
+
+    long startTime = System.nanoTime();
+    List<String> expected = new ArrayList<>();
+    for (Path scenarioFile : scenarioFiles) {
+      expected.add(describe(loadWithStandardGlobals(scenarioFile)));
+    }
+    long standardGlobalsMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+    startTime = System.nanoTime();
+    List<CompletableFuture<String>> actual = ConcurrentUtil.supplyInParallel(scenarioFiles,
+        scenarioFile -> describe(loadFileUnchecked(scenarioFile)));
+    for (int i = 0; i < scenarioFiles.size(); i++) {
+      assertThat(actual.get(i).join(), is(expected.get(i)));
+    }
+    logger.info("Evaluated {} scenario files in {} ms using standard globals per file, {} ms using the shared engine",
+        scenarioFiles.size(), standardGlobalsMillis, (System.nanoTime() - startTime) / 1_000_000);
+  }
+
+  @Test
+  public void testGlobalsOfOneFileAreNotVisibleToAnother() throws Exception {
+    LuaValue first = load("leaked = 'value'");
+    LuaValue second = load("seen = leaked");
+
+    assertThat(first.get("leaked").tojstring(), is("value"));
+    assertThat(second.get("seen").isnil(), is(true));
+    assertThat(load("seen = STRING ~= nil").get("seen").toboolean(), is(true));
+  }
+
+  @Test
+  public void testChangesToGlobalsAreNotVisibleToAnotherFile() throws Exception {
+    load("_G.leaked = 'value'; string.upper = nil; getmetatable('').__index.lower = nil; STRING = nil");
+
+    LuaValue result = load("leaked = _G.leaked; upper = ('a'):upper(); lower = string.lower('A'); seen = STRING ~= nil");
+
+    assertThat(result.get("leaked").isnil(), is(true));
+    assertThat(result.get("upper").tojstring(), is("A"));
+    assertThat(result.get("lower").tojstring(), is("a"));
+    assertThat(result.get("seen").toboolean(), is(true));
+  }
+
+  @Test
+  public void testFilesCantAccessSystem() throws Exception {
+    assertThat(load("result = os == nil and io == nil and luajava == nil and package == nil and require == nil").get("result").toboolean(), is(true));
+
+    Path file = temporaryFolder.newFile("secret.lua").toPath();
+    Files.write(file, "secret = 42".getBytes(UTF_8));
+    try {
+      load("dofile('" + file.toString().replace("\\", "\\\\") + "')");
+      fail("File could be read");
+    } catch (LuaError e) {
+      // Expected
+    }
+  }
+
+  private static LuaValue load(String script) throws Exception {
+    return LuaUtil.load(new ByteArrayInputStream(script.getBytes(UTF_8)));
+  }
+
+  private static LuaValue loadFileUnchecked(Path file) {
+    try {
+      return LuaUtil.loadFile(file);
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Evaluates the file the way it used to be done: with new standard globals, into which the prelude is loaded first.
+   */
+  private static LuaValue loadWithStandardGlobals(Path file) throws Exception {
+    Globals globals = JsePlatform.standardGlobals();
+    try (InputStream prelude = LuaUtil.class.getResourceAsStream("/lua/faf.lua")) {
+      globals.baselib.load(globals.load(CharStreams.toString(new InputStreamReader(prelude, UTF_8))));
+    }
+    try (InputStream inputStream = Files.newInputStream(file)) {
+      globals.load(inputStream, "@" + file.getFileName(), "bt", globals).invoke();
+    }
+    return globals;
+  }
+
+  private static String describe(LuaValue root) {
+    LuaValue scenarioInfo = root.get("ScenarioInfo");
+    return String.join("|", scenarioInfo.get("name").tojstring(),
+        scenarioInfo.get("size").get(1).tojstring(), scenarioInfo.get("size").get(2).tojstring(),
+        scenarioInfo.get("map_version").tojstring(), String.valueOf(scenarioInfo.get("armies").length()),
+        scenarioInfo.get("extra").tojstring());
+  }
+}